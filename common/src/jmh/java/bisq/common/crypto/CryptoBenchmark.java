@@ -0,0 +1,152 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.crypto;
+
+import com.google.common.primitives.Bytes;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.MGF1ParameterSpec;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures hashing, signing, verifying and the hybrid encryption we use for direct and mailbox messages. The
+ * *NewInstance benchmarks create the Signature, MessageDigest, Cipher and Mac instances at each call as we did before
+ * we reused them per thread.
+ *
+ * Run with the gc profiler to see the allocation: ./gradlew :common:jmh -Pjmh.profilers=gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CryptoBenchmark {
+    @Param({"100", "10000"})
+    public int payloadSize;
+
+    private byte[] payload;
+    private byte[] hash;
+    private KeyPair signatureKeyPair;
+    private KeyPair encryptionKeyPair;
+    private byte[] signature;
+
+    @Setup
+    public void setup() throws CryptoException {
+        payload = new byte[payloadSize];
+        new Random(1).nextBytes(payload);
+        hash = Hash.getSha256Hash(payload);
+        signatureKeyPair = Sig.generateKeyPair();
+        encryptionKeyPair = Encryption.generateKeyPair();
+        signature = Sig.sign(signatureKeyPair.getPrivate(), hash);
+    }
+
+    @Benchmark
+    public byte[] sha256Hash() {
+        return Hash.getSha256Hash(payload);
+    }
+
+    @Benchmark
+    public byte[] sha256HashNewInstance() throws Exception {
+        return MessageDigest.getInstance("SHA-256").digest(payload);
+    }
+
+    @Benchmark
+    public byte[] sign() throws CryptoException {
+        return Sig.sign(signatureKeyPair.getPrivate(), hash);
+    }
+
+    @Benchmark
+    public byte[] signNewInstance() throws Exception {
+        return signNewInstance(signatureKeyPair.getPrivate(), hash);
+    }
+
+    @Benchmark
+    public boolean verify() throws CryptoException {
+        return Sig.verify(signatureKeyPair.getPublic(), hash, signature);
+    }
+
+    @Benchmark
+    public boolean verifyNewInstance() throws Exception {
+        Signature sig = Signature.getInstance("SHA256withDSA");
+        sig.initVerify(signatureKeyPair.getPublic());
+        sig.update(hash);
+        return sig.verify(signature);
+    }
+
+    // Same steps as EncryptionService.encryptHybridWithSignature
+    @Benchmark
+    public byte[] hybridEncrypt() throws CryptoException {
+        SecretKey secretKey = Encryption.generateSecretKey(256);
+        byte[] encryptedPayloadWithHmac = Encryption.encryptPayloadWithHmac(payload, secretKey);
+        byte[] encryptedSecretKey = Encryption.encryptSecretKey(secretKey, encryptionKeyPair.getPublic());
+        byte[] signature = Sig.sign(signatureKeyPair.getPrivate(), Hash.getSha256Hash(encryptedPayloadWithHmac));
+        return Bytes.concat(encryptedSecretKey, encryptedPayloadWithHmac, signature);
+    }
+
+    @Benchmark
+    public byte[] hybridEncryptNewInstance() throws Exception {
+        SecretKey secretKey = Encryption.generateSecretKey(256);
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(secretKey);
+        byte[] payloadWithHmac = Bytes.concat(payload, mac.doFinal(payload));
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+        byte[] encryptedPayloadWithHmac = cipher.doFinal(payloadWithHmac);
+
+        Cipher asymCipher = Cipher.getInstance("RSA/ECB/OAEPWithSHA-256AndMGF1PADDING");
+        asymCipher.init(Cipher.WRAP_MODE, encryptionKeyPair.getPublic(), new OAEPParameterSpec("SHA-256", "MGF1",
+                MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT));
+        byte[] encryptedSecretKey = asymCipher.wrap(secretKey);
+
+        byte[] hashOfEncryptedPayload = MessageDigest.getInstance("SHA-256").digest(encryptedPayloadWithHmac);
+        byte[] signature = signNewInstance(signatureKeyPair.getPrivate(), hashOfEncryptedPayload);
+        return Bytes.concat(encryptedSecretKey, encryptedPayloadWithHmac, signature);
+    }
+
+    private static byte[] signNewInstance(PrivateKey privateKey, byte[] data) throws Exception {
+        Signature sig = Signature.getInstance("SHA256withDSA");
+        sig.initSign(privateKey);
+        sig.update(data);
+        return sig.sign();
+    }
+}
@@ -39,5 +39,9 @@ public enum Capability {
     BUNDLE_OF_ENVELOPES,                // Supports bundling of messages if many messages are sent in short interval
 
     SIGNED_ACCOUNT_AGE_WITNESS,         // Supports the signed account age witness feature
-    MEDIATION                           // Supports mediation feature
+    MEDIATION,                          // Supports mediation feature
+    KEY_BLOOM_FILTER,                   // Supports a bloom filter of the keys of the append-only data in GetDataRequests
+    HISTORICAL_DATA_STORES,             // Supports the version in GetDataRequests instead of the keys of historical data
+    CHUNKED_GET_DATA_RESPONSE,          // Supports receiving the GetDataResponse as a sequence of chunks
+    COMPACT_GET_BLOCKS_RESPONSE         // Supports receiving the blocks of the GetBlocksResponse in the compact encoding
 }
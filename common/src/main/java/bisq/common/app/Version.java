@@ -17,6 +17,8 @@
 
 package bisq.common.app;
 
+import java.util.List;
+
 import lombok.extern.slf4j.Slf4j;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -29,6 +31,11 @@ public class Version {
     // We use semantic versioning with major, minor and patch
     public static final String VERSION = "1.1.7";
 
+    // Versions of the releases which ship historical data store resource files (e.g. AccountAgeWitnessStore_1.1.7_BTC_MAINNET).
+    // Each of those files contains the data added since the previous listed version. At a release which ships new
+    // historical data the version has to be appended.
+    public static final List<String> HISTORICAL_RESOURCE_FILE_VERSION_TAGS = List.of("1.1.7");
+
     public static int getMajorVersion(String version) {
         return getSubVersion(version, 0);
     }
@@ -45,7 +52,7 @@ public class Version {
         return isNewVersion(newVersion, VERSION);
     }
 
-    static boolean isNewVersion(String newVersion, String currentVersion) {
+    public static boolean isNewVersion(String newVersion, String currentVersion) {
         if (newVersion.equals(currentVersion))
             return false;
         else if (getMajorVersion(newVersion) > getMajorVersion(currentVersion))
@@ -60,6 +60,22 @@ public class Encryption {
 
     private static final String HMAC = "HmacSHA256";
 
+    private static final OAEPParameterSpec OAEP_PARAMETER_SPEC = new OAEPParameterSpec("SHA-256", "MGF1",
+            MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
+
+    // The getInstance calls do a lookup at the security providers, so we reuse one instance per thread. Each use
+    // starts with init which resets the instance.
+    private static final ThreadLocal<Cipher> SYM_CIPHER_INSTANCE = ThreadLocal.withInitial(() -> getCipher(SYM_CIPHER));
+    private static final ThreadLocal<Cipher> ASYM_CIPHER_INSTANCE = ThreadLocal.withInitial(() -> getCipher(ASYM_CIPHER));
+    private static final ThreadLocal<Mac> HMAC_INSTANCE = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(HMAC);
+        } catch (NoSuchAlgorithmException e) {
+            log.error("Could not create Mac.", e);
+            throw new RuntimeException(e);
+        }
+    });
+
     public static KeyPair generateKeyPair() {
         long ts = System.currentTimeMillis();
         try {
@@ -81,7 +97,7 @@ public class Encryption {
 
     public static byte[] encrypt(byte[] payload, SecretKey secretKey) throws CryptoException {
         try {
-            Cipher cipher = Cipher.getInstance(SYM_CIPHER);
+            Cipher cipher = SYM_CIPHER_INSTANCE.get();
             cipher.init(Cipher.ENCRYPT_MODE, secretKey);
             return cipher.doFinal(payload);
         } catch (Throwable e) {
@@ -92,7 +108,7 @@ public class Encryption {
 
     public static byte[] decrypt(byte[] encryptedPayload, SecretKey secretKey) throws CryptoException {
         try {
-            Cipher cipher = Cipher.getInstance(SYM_CIPHER);
+            Cipher cipher = SYM_CIPHER_INSTANCE.get();
             cipher.init(Cipher.DECRYPT_MODE, secretKey);
             return cipher.doFinal(encryptedPayload);
         } catch (Throwable e) {
@@ -155,7 +171,7 @@ public class Encryption {
     }
 
     private static byte[] getHmac(byte[] payload, SecretKey secretKey) throws NoSuchAlgorithmException, InvalidKeyException, NoSuchProviderException {
-        Mac mac = Mac.getInstance(HMAC);
+        Mac mac = HMAC_INSTANCE.get();
         mac.init(secretKey);
         return mac.doFinal(payload);
     }
@@ -193,10 +209,8 @@ public class Encryption {
 
     public static byte[] encryptSecretKey(SecretKey secretKey, PublicKey publicKey) throws CryptoException {
         try {
-            Cipher cipher = Cipher.getInstance(ASYM_CIPHER);
-            OAEPParameterSpec oaepParameterSpec = new OAEPParameterSpec("SHA-256", "MGF1",
-                    MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
-            cipher.init(Cipher.WRAP_MODE, publicKey, oaepParameterSpec);
+            Cipher cipher = ASYM_CIPHER_INSTANCE.get();
+            cipher.init(Cipher.WRAP_MODE, publicKey, OAEP_PARAMETER_SPEC);
             return cipher.wrap(secretKey);
         } catch (Throwable e) {
             log.error("Couldn't encrypt payload", e);
@@ -206,10 +220,8 @@ public class Encryption {
 
     public static SecretKey decryptSecretKey(byte[] encryptedSecretKey, PrivateKey privateKey) throws CryptoException {
         try {
-            Cipher cipher = Cipher.getInstance(ASYM_CIPHER);
-            OAEPParameterSpec oaepParameterSpec = new OAEPParameterSpec("SHA-256", "MGF1",
-                    MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
-            cipher.init(Cipher.UNWRAP_MODE, privateKey, oaepParameterSpec);
+            Cipher cipher = ASYM_CIPHER_INSTANCE.get();
+            cipher.init(Cipher.UNWRAP_MODE, privateKey, OAEP_PARAMETER_SPEC);
             return (SecretKey) cipher.unwrap(encryptedSecretKey, "AES", Cipher.SECRET_KEY);
         } catch (Throwable e) {
             // errors when trying to decrypt foreign network_messages are normal
@@ -249,5 +261,18 @@ public class Encryption {
             throw new KeyConversionException(e);
         }
     }
-}
 
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static Cipher getCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (Throwable e) {
+            log.error("Could not create cipher", e);
+            throw new RuntimeException(e);
+        }
+    }
+}
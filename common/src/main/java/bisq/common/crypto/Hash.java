@@ -32,20 +32,25 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class Hash {
+    // MessageDigest.getInstance does a lookup at the security providers which is expensive compared to hashing small
+    // data, so we reuse one instance per thread. digest() resets the instance.
+    private static final ThreadLocal<MessageDigest> SHA256_DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            log.error("Could not create MessageDigest for hash. ", e);
+            throw new RuntimeException(e);
+        }
+    });
 
     /**
      * @param data Data as byte array
      * @return Hash of data
      */
     public static byte[] getSha256Hash(byte[] data) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            digest.update(data, 0, data.length);
-            return digest.digest();
-        } catch (NoSuchAlgorithmException e) {
-            log.error("Could not create MessageDigest for hash. ", e);
-            throw new RuntimeException(e);
-        }
+        MessageDigest digest = SHA256_DIGEST.get();
+        digest.update(data, 0, data.length);
+        return digest.digest();
     }
 
     /**
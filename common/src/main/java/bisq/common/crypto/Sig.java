@@ -51,6 +51,17 @@ public class Sig {
     public static final String KEY_ALGO = "DSA";
     private static final String ALGO = "SHA256withDSA";
 
+    // Signature.getInstance does a lookup at the security providers, so we reuse one instance per thread.
+    // initSign and initVerify reset the instance.
+    private static final ThreadLocal<Signature> SIGNATURE = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance(ALGO);
+        } catch (NoSuchAlgorithmException e) {
+            log.error("Could not create Signature.", e);
+            throw new RuntimeException(e);
+        }
+    });
+
 
     /**
      * @return keyPair
@@ -77,11 +88,11 @@ public class Sig {
      */
     public static byte[] sign(PrivateKey privateKey, byte[] data) throws CryptoException {
         try {
-            Signature sig = Signature.getInstance(ALGO);
+            Signature sig = SIGNATURE.get();
             sig.initSign(privateKey);
             sig.update(data);
             return sig.sign();
-        } catch (SignatureException | InvalidKeyException | NoSuchAlgorithmException e) {
+        } catch (SignatureException | InvalidKeyException e) {
             throw new CryptoException("Signing failed. " + e.getMessage());
         }
     }
@@ -104,11 +115,11 @@ public class Sig {
      */
     public static boolean verify(PublicKey publicKey, byte[] data, byte[] signature) throws CryptoException {
         try {
-            Signature sig = Signature.getInstance(ALGO);
+            Signature sig = SIGNATURE.get();
             sig.initVerify(publicKey);
             sig.update(data);
             return sig.verify(signature);
-        } catch (SignatureException | InvalidKeyException | NoSuchAlgorithmException e) {
+        } catch (SignatureException | InvalidKeyException e) {
             throw new CryptoException("Signature verification failed", e);
         }
     }
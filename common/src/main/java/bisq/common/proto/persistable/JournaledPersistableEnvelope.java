@@ -15,14 +15,22 @@
  * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
  */
 
-package bisq.core.dao.node.explorer;
+package bisq.common.proto.persistable;
 
-import java.util.List;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 
-import lombok.Value;
+/**
+ * Persistable envelope which supports persisting single changes as journal entries instead of rewriting the whole
+ * file. Used for large map-shaped envelopes which change frequently.
+ *
+ * @param <E> Type of the journal entries.
+ */
+public interface JournaledPersistableEnvelope<E extends Message> extends PersistableEnvelope {
+    Parser<E> getJournalEntryParser();
 
-@Value
-class JsonBlocks {
-    private int chainHeight;
-    private final List<JsonBlock> blocks;
+    /**
+     * Applies a journal entry at reading the persisted data. Applying the same entry again must have no effect.
+     */
+    void applyJournalEntry(E journalEntry);
 }
@@ -0,0 +1,197 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.storage;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+
+import com.google.common.io.CountingInputStream;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * File of length delimited protobuf messages to which we only append. Writing new entries costs only the size of the
+ * new entries instead of rewriting the whole file as the FileManager does.
+ * <p>
+ * The file might contain more entries than the caller is interested in, e.g. if the app got shut down after appending
+ * but before the caller persisted its reference to the new entries. The caller reads only the number of entries it
+ * knows of and the remaining bytes get truncated with the next append.
+ * <p>
+ * Access is synchronized, but the caller should use its own thread for appending as it blocks until the data is
+ * synced to disk.
+ */
+@Slf4j
+public class AppendOnlyLog<M extends Message> {
+    private final File file;
+    private final Parser<M> parser;
+    // Position in the file after each entry
+    private final List<Long> endPositions = new ArrayList<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public AppendOnlyLog(File file, Parser<M> parser) {
+        this.file = file;
+        this.parser = parser;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Reads the first numEntries entries. Throws an IOException if the file does not contain that many entries.
+     */
+    public synchronized List<M> read(int numEntries) throws IOException {
+        endPositions.clear();
+        List<M> entries = new ArrayList<>(numEntries);
+        if (numEntries == 0)
+            return entries;
+
+        try (CountingInputStream inputStream = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (entries.size() < numEntries) {
+                M entry = parser.parseDelimitedFrom(inputStream);
+                if (entry == null)
+                    break;
+
+                entries.add(entry);
+                endPositions.add(inputStream.getCount());
+            }
+        }
+
+        if (entries.size() < numEntries) {
+            endPositions.clear();
+            throw new IOException("Expected " + numEntries + " entries but file " + file + " contains only " +
+                    entries.size());
+        }
+        return entries;
+    }
+
+    /**
+     * Reads all entries. Reading stops at the first incomplete entry, e.g. if the app got killed while appending. The
+     * incomplete entry gets overwritten with the next append.
+     */
+    public synchronized List<M> readAll() throws IOException {
+        endPositions.clear();
+        List<M> entries = new ArrayList<>();
+        if (!file.exists())
+            return entries;
+
+        try (CountingInputStream inputStream = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                M entry = parseDelimitedOrNull(inputStream);
+                if (entry == null)
+                    break;
+
+                entries.add(entry);
+                endPositions.add(inputStream.getCount());
+            }
+        }
+
+        if (getEndPosition() < file.length())
+            log.warn("File {} contains an incomplete entry after {} entries. It will be overwritten.", file,
+                    entries.size());
+        return entries;
+    }
+
+    /**
+     * Removes all entries starting at index numEntries.
+     */
+    public synchronized void truncate(int numEntries) throws IOException {
+        if (numEntries > endPositions.size() ||
+                (numEntries == endPositions.size() && file.length() <= getEndPosition()))
+            return;
+
+        // If numEntries is the number of entries we know of we only remove the entries we have not read
+        endPositions.subList(numEntries, endPositions.size()).clear();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(getEndPosition());
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Appends the entries and syncs the file to disk.
+     */
+    public synchronized void append(List<M> entries) throws IOException {
+        if (entries.isEmpty())
+            return;
+
+        long position = getEndPosition();
+        List<Long> newEndPositions = new ArrayList<>(entries.size());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (M entry : entries) {
+            entry.writeDelimitedTo(outputStream);
+            newEndPositions.add(position + outputStream.size());
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Removes entries we did not read and data of a failed previous append
+            channel.truncate(position);
+            channel.position(position);
+            ByteBuffer buffer = ByteBuffer.wrap(outputStream.toByteArray());
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(false);
+        }
+        endPositions.addAll(newEndPositions);
+    }
+
+    public synchronized int size() {
+        return endPositions.size();
+    }
+
+    public synchronized long sizeInBytes() {
+        return getEndPosition();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private long getEndPosition() {
+        return endPositions.isEmpty() ? 0 : endPositions.get(endPositions.size() - 1);
+    }
+
+    // Returns null at the end of the stream or if the entry is incomplete
+    private M parseDelimitedOrNull(InputStream inputStream) {
+        try {
+            return parser.parseDelimitedFrom(inputStream);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
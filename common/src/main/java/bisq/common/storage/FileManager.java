@@ -18,10 +18,14 @@
 package bisq.common.storage;
 
 import bisq.common.UserThread;
+import bisq.common.proto.persistable.JournaledPersistableEnvelope;
 import bisq.common.proto.persistable.PersistableEnvelope;
 import bisq.common.proto.persistable.PersistenceProtoResolver;
 import bisq.common.util.Utilities;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+
 import com.google.common.util.concurrent.CycleDetectingLockFactory;
 
 import java.nio.file.Paths;
@@ -32,6 +36,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -41,8 +47,14 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 @Slf4j
 public class FileManager<T extends PersistableEnvelope> {
+    // If the journal exceeds one of those limits we rewrite the whole file and clear the journal
+    private static final int MAX_JOURNAL_ENTRIES = 10_000;
+    private static final long MAX_JOURNAL_SIZE_IN_BYTES = 1_000_000;
+
     private final File dir;
     private final File storageFile;
     private final ScheduledThreadPoolExecutor executor;
@@ -53,6 +65,12 @@ public class FileManager<T extends PersistableEnvelope> {
     private final PersistenceProtoResolver persistenceProtoResolver;
     private final ReentrantLock writeLock = CycleDetectingLockFactory.newInstance(CycleDetectingLockFactory.Policies.THROW).newReentrantLock("writeLock");
 
+    // Only used for JournaledPersistableEnvelopes
+    @Nullable
+    private AppendOnlyLog<Message> journal;
+    private final List<Message> pendingJournalEntries = new ArrayList<>();
+    private final AtomicBoolean journalFlushPending = new AtomicBoolean();
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -119,13 +137,56 @@ public class FileManager<T extends PersistableEnvelope> {
         executor.schedule(saveFileTask, delayInMilli, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Stores changes which get passed to appendToJournal in a journal file next to the storage file. At read the
+     * journal entries get applied to the persisted data. Must be called before read.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void enableJournal(Parser<? extends Message> journalEntryParser) {
+        journal = new AppendOnlyLog<>(new File(dir, storageFile.getName() + "_journal"),
+                (Parser<Message>) journalEntryParser);
+    }
+
+    /**
+     * Queues up the journal entry for a change which is already applied to persistable. The entries get appended to
+     * the journal in the background. Once the journal gets too large we rewrite the whole file instead.
+     * Persistable must not be a copy as we persist its current state at rewriting the whole file.
+     */
+    public void appendToJournal(T persistable, Message journalEntry) {
+        if (journal == null)
+            throw new IllegalStateException("Journal is not enabled for " + storageFile.getName());
+
+        this.persistable = persistable;
+        synchronized (pendingJournalEntries) {
+            pendingJournalEntries.add(journalEntry);
+        }
+
+        if (journalFlushPending.getAndSet(true))
+            return;   // Already pending.
+
+        executor.schedule(() -> {
+            try {
+                journalFlushPending.set(false);
+                flushJournal();
+            } catch (Throwable e) {
+                log.error("Error during flushJournal", e);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
     @SuppressWarnings("unchecked")
     public synchronized T read(File file) {
         log.debug("Read from disc: {}", file.getName());
 
         try (final FileInputStream fileInputStream = new FileInputStream(file)) {
             protobuf.PersistableEnvelope persistable = protobuf.PersistableEnvelope.parseDelimitedFrom(fileInputStream);
-            return (T) persistenceProtoResolver.fromProto(persistable);
+            T result = (T) persistenceProtoResolver.fromProto(persistable);
+            if (journal != null && result instanceof JournaledPersistableEnvelope) {
+                List<Message> journalEntries = journal.readAll();
+                journalEntries.forEach(((JournaledPersistableEnvelope<Message>) result)::applyJournalEntry);
+                log.debug("Applied {} journal entries to {}", journalEntries.size(), file.getName());
+            }
+            return result;
         } catch (Throwable t) {
             String errorMsg = "Exception at proto read: " + t.getMessage() + " file:" + file.getAbsolutePath();
             log.error(errorMsg, t);
@@ -193,7 +254,44 @@ public class FileManager<T extends PersistableEnvelope> {
         log.debug("Save {} completed in {} msec", storageFile, System.currentTimeMillis() - now);
     }
 
+    private synchronized void flushJournal() {
+        List<Message> journalEntries = drainPendingJournalEntries();
+        if (journalEntries.isEmpty())
+            return;
+
+        // The journal entries are only valid together with the file they were created for, so if we have not written
+        // the file yet we write the whole file.
+        if (!storageFile.exists() ||
+                journal.size() + journalEntries.size() > MAX_JOURNAL_ENTRIES ||
+                journal.sizeInBytes() > MAX_JOURNAL_SIZE_IN_BYTES) {
+            saveNowInternal(persistable);
+        } else {
+            long now = System.currentTimeMillis();
+            try {
+                journal.append(journalEntries);
+                log.debug("Appended {} entries to journal of {} in {} msec", journalEntries.size(), storageFile,
+                        System.currentTimeMillis() - now);
+            } catch (IOException e) {
+                log.error("Could not append to journal of " + storageFile + ". We write the whole file.", e);
+                saveNowInternal(persistable);
+            }
+        }
+    }
+
+    private List<Message> drainPendingJournalEntries() {
+        synchronized (pendingJournalEntries) {
+            List<Message> journalEntries = new ArrayList<>(pendingJournalEntries);
+            pendingJournalEntries.clear();
+            return journalEntries;
+        }
+    }
+
     private synchronized void saveToFile(T persistable, File dir, File storageFile) {
+        // The changes of the pending journal entries are already applied to persistable, so they are contained in the
+        // file we write. Entries which get added while we write get appended to the cleared journal.
+        if (journal != null)
+            drainPendingJournalEntries();
+
         File tempFile = null;
         FileOutputStream fileOutputStream = null;
         PrintWriter printWriter = null;
@@ -231,6 +329,11 @@ public class FileManager<T extends PersistableEnvelope> {
             // Close resources before replacing file with temp file because otherwise it causes problems on windows
             // when rename temp file
             fileOutputStream.close();
+
+            // We clear the journal before we replace the file. Otherwise we would apply outdated journal entries to
+            // the new file if we get killed in between.
+            if (journal != null)
+                journal.truncate(0);
             FileUtil.renameFile(tempFile, storageFile);
         } catch (Throwable t) {
             log.error("Error at saveToFile, storageFile=" + storageFile.toString(), t);
@@ -18,9 +18,12 @@
 package bisq.common.storage;
 
 import bisq.common.app.DevEnv;
+import bisq.common.proto.persistable.JournaledPersistableEnvelope;
 import bisq.common.proto.persistable.PersistableEnvelope;
 import bisq.common.proto.persistable.PersistenceProtoResolver;
 
+import com.google.protobuf.Message;
+
 import com.google.inject.Inject;
 
 import javax.inject.Named;
@@ -47,6 +50,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * As the data are small and it is just one read access the performance penalty is small and might be even worse to create and setup a thread for it.
  * <p></p>
  * The write operation used a background thread and supports a delayed write to avoid too many repeated write operations.
+ * <p></p>
+ * For a JournaledPersistableEnvelope single changes can be persisted with appendToJournal, which only appends the change
+ * to a journal file instead of writing the whole object.
  */
 public class Storage<T extends PersistableEnvelope> {
     private static final Logger log = LoggerFactory.getLogger(Storage.class);
@@ -95,6 +101,8 @@ public class Storage<T extends PersistableEnvelope> {
         this.fileName = fileName;
         storageFile = new File(dir, fileName);
         fileManager = new FileManager<>(dir, storageFile, delay, persistenceProtoResolver);
+        if (persistable instanceof JournaledPersistableEnvelope)
+            fileManager.enableJournal(((JournaledPersistableEnvelope<?>) persistable).getJournalEntryParser());
         return getPersisted();
     }
 
@@ -131,6 +139,22 @@ public class Storage<T extends PersistableEnvelope> {
         }
     }
 
+    // Save on the calling thread. The file is written to a temp file and renamed, so it is either completely written
+    // or not at all.
+    public void saveNow(T persistable) {
+        checkNotNull(storageFile, "storageFile = null. Call setupFileStorage before using read/write.");
+
+        fileManager.saveNow(persistable);
+    }
+
+    // Append delayed and on a background thread. The change must be applied already to the persistable passed at
+    // initAndGetPersisted.
+    public void appendToJournal(Message journalEntry) {
+        checkNotNull(persistable, "persistable = null. Call initAndGetPersisted with a JournaledPersistableEnvelope.");
+
+        fileManager.appendToJournal(persistable, journalEntry);
+    }
+
     public void remove(String fileName) {
         fileManager.removeFile(fileName);
     }
@@ -21,6 +21,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -53,8 +56,6 @@ public class PermutationUtil {
         return altered;
     }
 
-    //TODO optimize algorithm so that it starts from all objects and goes down instead starting with from the bottom.
-    // That should help that we are not hitting the iteration limit so easily.
     /**
      * Returns a list of all possible permutations of a give sorted list ignoring duplicates.
      * E.g. List [A,B,C] results in this list of permutations: [[A], [B], [A,B], [C], [A,C], [B,C], [A,B,C]]
@@ -106,4 +107,82 @@ public class PermutationUtil {
                 (System.currentTimeMillis() - ts), list.size(), counter, Profiler.getUsedMemoryInMB());
         return result;
     }
+
+    /**
+     * Searches the sub lists of a given list for the first one for which the predicate is true. We start with the sub
+     * lists with one item removed and continue with removing more items, so we find a list with a few items removed
+     * quickly. The full list and the empty list are not tested.
+     * In contrast to findAllPermutations we do not create the sub lists in advance but visit them depth first, so we
+     * only keep the states of the current path in memory. Sub lists with a common prefix share the state of that
+     * prefix, e.g. the hash of the serialized items of the prefix.
+     *
+     * @param list              Original list
+     * @param initialState      State of the empty list
+     * @param addItem           Returns the state of a prefix extended by an item. Must not change the passed state.
+     * @param predicate         Returns true if the state of a sub list is matching
+     * @param maxIterations     Max. number of sub lists we test
+     * @param <T>               Type of list items
+     * @param <S>               Type of the state of a sub list
+     * @return The first matching sub list or empty if none was found
+     */
+    public static <T, S> Optional<List<T>> findMatchingSubList(List<T> list,
+                                                               S initialState,
+                                                               BiFunction<S, T, S> addItem,
+                                                               Predicate<S> predicate,
+                                                               int maxIterations) {
+        SubListSearch<T, S> subListSearch = new SubListSearch<>(list, addItem, predicate, maxIterations);
+        for (int numItems = list.size() - 1; numItems > 0; numItems--) {
+            if (subListSearch.search(numItems, 0, 0, initialState)) {
+                List<T> result = new ArrayList<>();
+                for (int i = 0; i < numItems; i++) {
+                    result.add(list.get(subListSearch.indices[i]));
+                }
+                return Optional.of(result);
+            }
+            if (subListSearch.counter >= maxIterations) {
+                log.warn("We reached maxIterations of our allowed iterations at sub lists with {} items.", numItems);
+                break;
+            }
+        }
+        return Optional.empty();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // SubListSearch
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class SubListSearch<T, S> {
+        private final List<T> list;
+        private final BiFunction<S, T, S> addItem;
+        private final Predicate<S> predicate;
+        private final int maxIterations;
+        // Indices of the items of the current path
+        private final int[] indices;
+        private int counter;
+
+        private SubListSearch(List<T> list, BiFunction<S, T, S> addItem, Predicate<S> predicate, int maxIterations) {
+            this.list = list;
+            this.addItem = addItem;
+            this.predicate = predicate;
+            this.maxIterations = maxIterations;
+            indices = new int[list.size()];
+        }
+
+        private boolean search(int numItems, int depth, int fromIndex, S state) {
+            if (depth == numItems) {
+                counter++;
+                return predicate.test(state);
+            }
+
+            // We need to leave enough items for the remaining positions
+            int toIndex = list.size() - (numItems - depth);
+            for (int i = fromIndex; i <= toIndex && counter < maxIterations; i++) {
+                indices[depth] = i;
+                if (search(numItems, depth + 1, i + 1, addItem.apply(state, list.get(i))))
+                    return true;
+            }
+            return false;
+        }
+    }
 }
@@ -89,6 +89,9 @@ import static java.awt.Desktop.isDesktopSupported;
 public class Utilities {
     private static long lastTimeStamp = System.currentTimeMillis();
     public static final String LB = System.getProperty("line.separator");
+    private static final Gson COMPACT_GSON = new GsonBuilder()
+            .setExclusionStrategies(new AnnotationExclusionStrategy())
+            .create();
 
     // TODO check out Jackson lib
     public static String objectToJson(Object object) {
@@ -101,6 +104,11 @@ public class Utilities {
         return gson.toJson(object);
     }
 
+    // Without line breaks, e.g. for files with one json object per line. Gson is thread safe, so we reuse the instance.
+    public static String objectToCompactJson(Object object) {
+        return COMPACT_GSON.toJson(object);
+    }
+
     public static ListeningExecutorService getListeningSingleThreadExecutor(String name) {
         return MoreExecutors.listeningDecorator(getSingleThreadExecutor(name));
     }
@@ -0,0 +1,126 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.common.storage;
+
+import com.google.protobuf.ByteString;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AppendOnlyLogTest {
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        file = File.createTempFile("AppendOnlyLogTest", null);
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Test
+    public void testAppendAndRead() throws IOException {
+        AppendOnlyLog<protobuf.DaoStateHash> appendOnlyLog = createLog();
+        appendOnlyLog.append(createEntries(0, 1, 2));
+        appendOnlyLog.append(createEntries(3));
+        assertEquals(4, appendOnlyLog.size());
+
+        // We read only the entries we ask for
+        AppendOnlyLog<protobuf.DaoStateHash> readLog = createLog();
+        assertEquals(createEntries(0, 1), readLog.read(2));
+        assertEquals(2, readLog.size());
+
+        // The entries we have not read get overwritten with the next append
+        readLog.append(createEntries(5));
+        assertEquals(createEntries(0, 1, 5), createLog().read(3));
+
+        try {
+            createLog().read(4);
+            fail("Expected IOException as the log contains only 3 entries");
+        } catch (IOException ignore) {
+        }
+    }
+
+    @Test
+    public void testTruncate() throws IOException {
+        AppendOnlyLog<protobuf.DaoStateHash> appendOnlyLog = createLog();
+        appendOnlyLog.append(createEntries(0, 1, 2));
+        appendOnlyLog.truncate(1);
+        assertEquals(1, appendOnlyLog.size());
+        assertEquals(createEntries(0), createLog().read(1));
+
+        appendOnlyLog.append(createEntries(3));
+        assertEquals(createEntries(0, 3), createLog().read(2));
+        assertEquals(createEntries(0, 3).stream().mapToInt(e -> e.getSerializedSize() + 1).sum(),
+                Files.size(file.toPath()));
+    }
+
+    @Test
+    public void testReadAllWithIncompleteEntry() throws IOException {
+        AppendOnlyLog<protobuf.DaoStateHash> appendOnlyLog = createLog();
+        appendOnlyLog.append(createEntries(0, 1));
+        long sizeInBytes = appendOnlyLog.sizeInBytes();
+        appendOnlyLog.append(createEntries(2));
+
+        // We simulate that we got killed while appending the last entry
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(sizeInBytes + 2);
+        }
+
+        AppendOnlyLog<protobuf.DaoStateHash> readLog = createLog();
+        assertEquals(createEntries(0, 1), readLog.readAll());
+        assertEquals(sizeInBytes, readLog.sizeInBytes());
+
+        readLog.append(createEntries(3));
+        assertEquals(createEntries(0, 1, 3), createLog().readAll());
+
+        readLog.truncate(0);
+        assertEquals(0, Files.size(file.toPath()));
+    }
+
+    private AppendOnlyLog<protobuf.DaoStateHash> createLog() {
+        return new AppendOnlyLog<>(file, protobuf.DaoStateHash.parser());
+    }
+
+    private static List<protobuf.DaoStateHash> createEntries(Integer... heights) {
+        return Arrays.stream(heights)
+                .map(height -> protobuf.DaoStateHash.newBuilder()
+                        .setHeight(height)
+                        .setHash(ByteString.copyFrom(new byte[]{height.byteValue()}))
+                        .build())
+                .collect(Collectors.toList());
+    }
+}
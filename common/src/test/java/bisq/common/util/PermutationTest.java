@@ -21,9 +21,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class PermutationTest {
@@ -428,5 +433,37 @@ public class PermutationTest {
 
     }
 
-
+    @Test
+    public void testFindMatchingSubList() {
+        List<String> list = IntStream.range(0, 30).mapToObj(i -> "blindVote" + i).collect(Collectors.toList());
+        // The state is the concatenation of the items of the sub list
+        List<String> expected = new ArrayList<>(list);
+        expected.remove("blindVote25");
+        expected.remove("blindVote7");
+        expected.remove("blindVote3");
+        String expectedState = String.join(",", expected) + ",";
+        Optional<List<String>> result = PermutationUtil.findMatchingSubList(list,
+                "",
+                (state, item) -> state + item + ",",
+                expectedState::equals,
+                1000000);
+        assertTrue(result.isPresent());
+        assertEquals(expected, result.get());
+
+        // The full list is not tested
+        result = PermutationUtil.findMatchingSubList(list,
+                "",
+                (state, item) -> state + item + ",",
+                (String.join(",", list) + ",")::equals,
+                1000000);
+        assertFalse(result.isPresent());
+
+        // We stop at maxIterations. With 30 items there are 30 sub lists with 1 item removed and 435 with 2 removed.
+        result = PermutationUtil.findMatchingSubList(list,
+                "",
+                (state, item) -> state + item + ",",
+                expectedState::equals,
+                465);
+        assertFalse(result.isPresent());
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.governance.votereveal;
+
+import bisq.core.dao.governance.blindvote.BlindVote;
+
+import bisq.common.util.PermutationUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the search for the sub list of our blind votes which matches the majority hash if we have blind votes
+ * which are not in the majority list. findAllPermutations is the search we used before, which creates all sub lists
+ * up to the iteration limit in advance. With more than 20 blind votes it only covers sub lists of the first items,
+ * so it does not find the sub list if a later blind vote has to be removed.
+ *
+ * Run with: ./gradlew :core:jmh -Pjmh.include=BlindVoteListSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BlindVoteListSearchBenchmark {
+    private static final int MAX_ITERATIONS = 1000000;
+    // A blind vote for about 10 proposals
+    private static final int ENCRYPTED_VOTES_SIZE = 3000;
+
+    @Param({"20", "25", "30"})
+    public int numBlindVotes;
+
+    // Number of our blind votes which are not in the majority list
+    @Param({"1", "2"})
+    public int numExtraBlindVotes;
+
+    private List<BlindVote> blindVotes;
+    private byte[] majorityHash;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        blindVotes = new ArrayList<>();
+        for (int i = 0; i < numBlindVotes; i++) {
+            byte[] encryptedVotes = new byte[ENCRYPTED_VOTES_SIZE];
+            random.nextBytes(encryptedVotes);
+            byte[] encryptedMeritList = new byte[200];
+            random.nextBytes(encryptedMeritList);
+            blindVotes.add(new BlindVote(encryptedVotes, "txId" + i, 100_000 + i, encryptedMeritList, i, null));
+        }
+
+        // The extra blind votes are spread over the list
+        List<BlindVote> majorityList = new ArrayList<>(blindVotes);
+        for (int i = 1; i <= numExtraBlindVotes; i++) {
+            majorityList.remove(blindVotes.get(numBlindVotes * i / (numExtraBlindVotes + 1)));
+        }
+        majorityHash = VoteRevealConsensus.getHashOfBlindVoteList(majorityList);
+    }
+
+    @Benchmark
+    public Optional<List<BlindVote>> findSubListMatchingHash() {
+        return VoteRevealConsensus.findSubListMatchingHash(blindVotes, majorityHash, MAX_ITERATIONS);
+    }
+
+    @Benchmark
+    public Optional<List<BlindVote>> findAllPermutations() {
+        return PermutationUtil.findAllPermutations(blindVotes, MAX_ITERATIONS).stream()
+                .filter(list -> Arrays.equals(VoteRevealConsensus.getHashOfBlindVoteList(list), majorityHash))
+                .findAny();
+    }
+}
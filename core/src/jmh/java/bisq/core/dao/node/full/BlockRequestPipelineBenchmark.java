@@ -0,0 +1,106 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.full;
+
+import bisq.common.UserThread;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to receive a range of blocks from a stubbed Bitcoin Core which answers each block request after
+ * a fixed latency. With one block in flight we request the blocks one after the other as we did before.
+ *
+ * Run with: ./gradlew :core:jmh -Pjmh.include=BlockRequestPipelineBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BlockRequestPipelineBenchmark {
+    private static final int NUM_BLOCKS = 200;
+    // Round trip of getblockhash and getblock with verbosity 2 for a block with a few hundred txs
+    private static final long RPC_LATENCY_MS = 5;
+
+    @Param({"1", "4", "16"})
+    public int maxBlocksInFlight;
+
+    private ExecutorService userThread;
+    private ListeningExecutorService blockRequestExecutor;
+
+    @Setup
+    public void setup() {
+        userThread = Executors.newSingleThreadExecutor();
+        UserThread.setExecutor(userThread);
+        blockRequestExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(maxBlocksInFlight));
+    }
+
+    @TearDown
+    public void tearDown() {
+        blockRequestExecutor.shutdownNow();
+        userThread.shutdownNow();
+    }
+
+    @Benchmark
+    public int requestBlocks() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger numBlocks = new AtomicInteger();
+        new BlockRequestPipeline(BlockRequestPipelineBenchmark::requestBlockFromStub,
+                blockRequestExecutor,
+                maxBlocksInFlight,
+                1,
+                NUM_BLOCKS,
+                rawBlock -> numBlocks.incrementAndGet(),
+                latch::countDown,
+                throwable -> latch.countDown())
+                .start();
+        latch.await();
+        return numBlocks.get();
+    }
+
+    private static RawBlock requestBlockFromStub(int blockHeight) throws InterruptedException {
+        Thread.sleep(RPC_LATENCY_MS);
+        return new RawBlock(blockHeight,
+                blockHeight * 600_000L,
+                "hash" + blockHeight,
+                "hash" + (blockHeight - 1),
+                ImmutableList.of());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.state;
+
+import bisq.core.dao.state.model.DaoState;
+import bisq.core.dao.state.model.blockchain.Block;
+import bisq.core.dao.state.model.blockchain.SpentInfo;
+import bisq.core.dao.state.model.blockchain.Tx;
+import bisq.core.dao.state.model.blockchain.TxOutput;
+import bisq.core.dao.state.model.blockchain.TxOutputType;
+import bisq.core.dao.state.model.blockchain.TxType;
+import bisq.core.util.BsqFormatter;
+
+import org.bitcoinj.core.Coin;
+
+/**
+ * Creates a DaoStateService with a chain of blocks for the benchmarks. Each tx has 2 outputs, the first output of
+ * every 100th block is a LOCKUP output. The second output of each tx gets spent in the next block.
+ */
+class DaoStateBenchmarkData {
+    static DaoStateService createDaoStateService(int numBlocks, int txsPerBlock) {
+        DaoStateService daoStateService = new DaoStateService(new DaoState(),
+                new GenesisTxInfo(getTxId(0, 0), 0, Coin.parseCoin("2.5").value),
+                new BsqFormatter());
+        String previousBlockHash = null;
+        Tx[] previousTxs = new Tx[0];
+        for (int height = 0; height < numBlocks; height++) {
+            String blockHash = "block-" + height;
+            Block block = new Block(height, height, blockHash, previousBlockHash);
+            daoStateService.onNewBlockHeight(height);
+            daoStateService.onNewBlockWithEmptyTxs(block);
+            Tx[] txs = new Tx[txsPerBlock];
+            for (int i = 0; i < txsPerBlock; i++) {
+                Tx tx = createTx(getTxId(height, i), height);
+                daoStateService.onNewTxForLastBlock(block, tx);
+                tx.getTxOutputs().forEach(daoStateService::addUnspentTxOutput);
+                txs[i] = tx;
+            }
+            for (int i = 0; i < previousTxs.length; i++) {
+                TxOutput spentTxOutput = previousTxs[i].getTxOutputs().get(1);
+                daoStateService.removeUnspentTxOutput(spentTxOutput);
+                daoStateService.setSpentInfo(spentTxOutput.getKey(), new SpentInfo(height, getTxId(height, i), 0));
+            }
+            daoStateService.onParseBlockComplete(block);
+            previousBlockHash = blockHash;
+            previousTxs = txs;
+        }
+        return daoStateService;
+    }
+
+    static String getTxId(int height, int index) {
+        return "tx-" + height + "-" + index;
+    }
+
+    private static Tx createTx(String txId, int blockHeight) {
+        protobuf.Tx.Builder txBuilder = protobuf.Tx.newBuilder()
+                .setTxType(TxType.TRANSFER_BSQ.toProtoMessage());
+        for (int index = 0; index < 2; index++) {
+            TxOutputType txOutputType = index == 0 && blockHeight % 100 == 0 ?
+                    TxOutputType.LOCKUP_OUTPUT :
+                    TxOutputType.BSQ_OUTPUT;
+            txBuilder.addTxOutputs(protobuf.BaseTxOutput.newBuilder()
+                    .setIndex(index)
+                    .setValue(1000)
+                    .setTxId(txId)
+                    .setBlockHeight(blockHeight)
+                    .setTxOutput(protobuf.TxOutput.newBuilder().setTxOutputType(txOutputType.toProtoMessage())));
+        }
+        return Tx.fromProto(protobuf.BaseTx.newBuilder()
+                .setId(txId)
+                .setBlockHeight(blockHeight)
+                .setTx(txBuilder)
+                .build());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.state;
+
+import bisq.core.dao.state.model.DaoState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the snapshot clone of the DaoState with the protobuf round trip we used before.
+ *
+ * Run with the gc profiler to see the allocation: ./gradlew :core:jmh -Pjmh.profilers=gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DaoStateCloneBenchmark {
+    private static final int TXS_PER_BLOCK = 5;
+
+    @Param({"1000", "10000", "50000"})
+    public int numBlocks;
+
+    private DaoState daoState;
+
+    @Setup
+    public void setup() {
+        daoState = DaoStateBenchmarkData.createDaoStateService(numBlocks, TXS_PER_BLOCK).getClone();
+    }
+
+    @Benchmark
+    public DaoState getClone() {
+        return DaoState.getClone(daoState);
+    }
+
+    @Benchmark
+    public DaoState getProtobufClone() {
+        return DaoState.fromProto(daoState.getBsqStateBuilder().build());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.state;
+
+import bisq.core.dao.state.model.blockchain.Tx;
+import bisq.core.dao.state.model.blockchain.TxOutput;
+import bisq.core.dao.state.model.blockchain.TxOutputKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the tx and txOutput lookups of DaoStateService with a growing number of blocks. With the lookup indexes
+ * the cost must not depend on the block count.
+ *
+ * Run with: ./gradlew :core:jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DaoStateServiceBenchmark {
+    private static final int TXS_PER_BLOCK = 5;
+
+    @Param({"1000", "10000", "50000"})
+    public int numBlocks;
+
+    private DaoStateService daoStateService;
+    private String txId;
+    private TxOutputKey txOutputKey;
+
+    @Setup
+    public void setup() {
+        daoStateService = DaoStateBenchmarkData.createDaoStateService(numBlocks, TXS_PER_BLOCK);
+
+        // We look up a tx in the middle of the chain
+        txId = DaoStateBenchmarkData.getTxId(numBlocks / 2, 0);
+        txOutputKey = new TxOutputKey(txId, 1);
+    }
+
+    @Benchmark
+    public Optional<Tx> getTx() {
+        return daoStateService.getTx(txId);
+    }
+
+    @Benchmark
+    public Optional<TxOutput> getTxOutput() {
+        return daoStateService.getTxOutput(txOutputKey);
+    }
+
+    @Benchmark
+    public boolean existsTxOutput() {
+        return daoStateService.existsTxOutput(txOutputKey);
+    }
+
+    @Benchmark
+    public Set<TxOutput> getLockupTxOutputs() {
+        return daoStateService.getLockupTxOutputs();
+    }
+}
@@ -29,6 +29,7 @@ import bisq.core.support.dispute.arbitration.BuyerDataItem;
 import bisq.core.support.dispute.arbitration.arbitrator.ArbitratorManager;
 
 import bisq.network.p2p.P2PService;
+import bisq.network.p2p.storage.ByteArrayMap;
 import bisq.network.p2p.storage.P2PDataStorage;
 import bisq.network.p2p.storage.persistence.AppendOnlyDataStoreService;
 
@@ -54,7 +55,6 @@ import java.time.temporal.ChronoUnit;
 
 import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -78,7 +78,7 @@ public class SignedWitnessService {
     private final ArbitrationManager arbitrationManager;
     private final ChargeBackRisk chargeBackRisk;
 
-    private final Map<P2PDataStorage.ByteArray, SignedWitness> signedWitnessMap = new HashMap<>();
+    private final Map<P2PDataStorage.ByteArray, SignedWitness> signedWitnessMap = new ByteArrayMap<>();
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
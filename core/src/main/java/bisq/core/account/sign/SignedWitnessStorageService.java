@@ -17,10 +17,10 @@
 
 package bisq.core.account.sign;
 
-import bisq.network.p2p.storage.P2PDataStorage;
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
-import bisq.network.p2p.storage.persistence.MapStoreService;
+import bisq.network.p2p.storage.persistence.HistoricalDataStoreService;
 
+import bisq.common.proto.persistable.PersistenceProtoResolver;
 import bisq.common.storage.Storage;
 
 import com.google.inject.name.Named;
@@ -29,14 +29,12 @@ import javax.inject.Inject;
 
 import java.io.File;
 
-import java.util.Map;
-
 import lombok.extern.slf4j.Slf4j;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 @Slf4j
-public class SignedWitnessStorageService extends MapStoreService<SignedWitnessStore, PersistableNetworkPayload> {
+public class SignedWitnessStorageService extends HistoricalDataStoreService<SignedWitnessStore> {
     private static final String FILE_NAME = "SignedWitnessStore";
 
 
@@ -46,8 +44,9 @@ public class SignedWitnessStorageService extends MapStoreService<SignedWitnessSt
 
     @Inject
     public SignedWitnessStorageService(@Named(Storage.STORAGE_DIR) File storageDir,
-                                       Storage<SignedWitnessStore> persistableNetworkPayloadMapStorage) {
-        super(storageDir, persistableNetworkPayloadMapStorage);
+                                       Storage<SignedWitnessStore> persistableNetworkPayloadMapStorage,
+                                       PersistenceProtoResolver persistenceProtoResolver) {
+        super(storageDir, persistableNetworkPayloadMapStorage, persistenceProtoResolver);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -59,11 +58,6 @@ public class SignedWitnessStorageService extends MapStoreService<SignedWitnessSt
         return FILE_NAME;
     }
 
-    @Override
-    public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMap() {
-        return store.getMap();
-    }
-
     @Override
     public boolean canHandle(PersistableNetworkPayload payload) {
         return payload instanceof SignedWitness;
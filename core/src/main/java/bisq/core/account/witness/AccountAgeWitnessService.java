@@ -29,6 +29,7 @@ import bisq.core.user.User;
 
 import bisq.network.p2p.BootstrapListener;
 import bisq.network.p2p.P2PService;
+import bisq.network.p2p.storage.ByteArrayMap;
 import bisq.network.p2p.storage.P2PDataStorage;
 import bisq.network.p2p.storage.persistence.AppendOnlyDataStoreService;
 
@@ -51,7 +52,6 @@ import java.security.PublicKey;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
@@ -76,7 +76,7 @@ public class AccountAgeWitnessService {
     private final P2PService p2PService;
     private final User user;
 
-    private final Map<P2PDataStorage.ByteArray, AccountAgeWitness> accountAgeWitnessMap = new HashMap<>();
+    private final Map<P2PDataStorage.ByteArray, AccountAgeWitness> accountAgeWitnessMap = new ByteArrayMap<>();
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
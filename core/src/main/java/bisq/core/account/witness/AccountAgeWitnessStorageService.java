@@ -17,10 +17,10 @@
 
 package bisq.core.account.witness;
 
-import bisq.network.p2p.storage.P2PDataStorage;
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
-import bisq.network.p2p.storage.persistence.MapStoreService;
+import bisq.network.p2p.storage.persistence.HistoricalDataStoreService;
 
+import bisq.common.proto.persistable.PersistenceProtoResolver;
 import bisq.common.storage.Storage;
 
 import com.google.inject.name.Named;
@@ -29,14 +29,12 @@ import javax.inject.Inject;
 
 import java.io.File;
 
-import java.util.Map;
-
 import lombok.extern.slf4j.Slf4j;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 @Slf4j
-public class AccountAgeWitnessStorageService extends MapStoreService<AccountAgeWitnessStore, PersistableNetworkPayload> {
+public class AccountAgeWitnessStorageService extends HistoricalDataStoreService<AccountAgeWitnessStore> {
     private static final String FILE_NAME = "AccountAgeWitnessStore";
 
 
@@ -46,8 +44,9 @@ public class AccountAgeWitnessStorageService extends MapStoreService<AccountAgeW
 
     @Inject
     public AccountAgeWitnessStorageService(@Named(Storage.STORAGE_DIR) File storageDir,
-                                           Storage<AccountAgeWitnessStore> persistableNetworkPayloadMapStorage) {
-        super(storageDir, persistableNetworkPayloadMapStorage);
+                                           Storage<AccountAgeWitnessStore> persistableNetworkPayloadMapStorage,
+                                           PersistenceProtoResolver persistenceProtoResolver) {
+        super(storageDir, persistableNetworkPayloadMapStorage, persistenceProtoResolver);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -59,11 +58,6 @@ public class AccountAgeWitnessStorageService extends MapStoreService<AccountAgeW
         return FILE_NAME;
     }
 
-    @Override
-    public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMap() {
-        return store.getMap();
-    }
-
     @Override
     public boolean canHandle(PersistableNetworkPayload payload) {
         return payload instanceof AccountAgeWitness;
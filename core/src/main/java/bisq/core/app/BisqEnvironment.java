@@ -192,7 +192,7 @@ public class BisqEnvironment extends StandardEnvironment {
     protected List<String> bannedSeedNodes, bannedBtcNodes, bannedPriceRelayNodes;
 
     protected final String btcNodes, seedNodes, ignoreDevMsg, useDevPrivilegeKeys, useDevMode, useTorForBtc, rpcUser, rpcPassword,
-            rpcHost, rpcPort, rpcBlockNotificationPort, rpcBlockNotificationHost, dumpBlockchainData, fullDaoNode,
+            rpcHost, rpcPort, rpcBlockNotificationPort, rpcBlockNotificationHost, rpcBlockRequestThreads, dumpBlockchainData, fullDaoNode,
             banList, dumpStatistics, maxMemory, socks5ProxyBtcAddress,
             torRcFile, torRcOptions, externalTorControlPort, externalTorPassword, externalTorCookieFile,
             socks5ProxyHttpAddress, useAllProvidedNodes, numConnectionForBtc, genesisTxId, genesisBlockHeight, genesisTotalSupply,
@@ -317,6 +317,9 @@ public class BisqEnvironment extends StandardEnvironment {
         rpcBlockNotificationHost = commandLineProperties.containsProperty(DaoOptionKeys.RPC_BLOCK_NOTIFICATION_HOST) ?
                 (String) commandLineProperties.getProperty(DaoOptionKeys.RPC_BLOCK_NOTIFICATION_HOST) :
                 "";
+        rpcBlockRequestThreads = commandLineProperties.containsProperty(DaoOptionKeys.RPC_BLOCK_REQUEST_THREADS) ?
+                (String) commandLineProperties.getProperty(DaoOptionKeys.RPC_BLOCK_REQUEST_THREADS) :
+                "";
         dumpBlockchainData = commandLineProperties.containsProperty(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA) ?
                 (String) commandLineProperties.getProperty(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA) :
                 "";
@@ -513,6 +516,7 @@ public class BisqEnvironment extends StandardEnvironment {
                 setProperty(DaoOptionKeys.RPC_PORT, rpcPort);
                 setProperty(DaoOptionKeys.RPC_BLOCK_NOTIFICATION_PORT, rpcBlockNotificationPort);
                 setProperty(DaoOptionKeys.RPC_BLOCK_NOTIFICATION_HOST, rpcBlockNotificationHost);
+                setProperty(DaoOptionKeys.RPC_BLOCK_REQUEST_THREADS, rpcBlockRequestThreads);
                 setProperty(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA, dumpBlockchainData);
                 setProperty(DaoOptionKeys.FULL_DAO_NODE, fullDaoNode);
                 setProperty(DaoOptionKeys.GENESIS_TX_ID, genesisTxId);
@@ -347,6 +347,11 @@ public abstract class BisqExecutable implements GracefulShutDownHandler, BisqSet
                 .withRequiredArg()
                 .ofType(boolean.class);
 
+        parser.accepts(NetworkOptionKeys.USE_NIO_NETWORK_NODE,
+                format("Use non-blocking connections for the localhost P2P network (default: %s)", "false"))
+                .withRequiredArg()
+                .ofType(boolean.class);
+
         parser.accepts(NetworkOptionKeys.MAX_CONNECTIONS,
                 format("Max. connections a peer will try to keep (default: %s)", P2PService.MAX_CONNECTIONS_DEFAULT))
                 .withRequiredArg()
@@ -550,6 +555,10 @@ public abstract class BisqExecutable implements GracefulShutDownHandler, BisqSet
                 "Bitcoind rpc accepted incoming host for block notifications")
                 .withRequiredArg();
 
+        parser.accepts(DaoOptionKeys.RPC_BLOCK_REQUEST_THREADS,
+                format("Number of parallel block requests to Bitcoin Core at parsing the blockchain (default: %s)", "4"))
+                .withRequiredArg();
+
         parser.accepts(DaoOptionKeys.DUMP_BLOCKCHAIN_DATA,
                 format("If set to true the blockchain data from RPC requests to Bitcoin Core are " +
                         "stored as json file in the data dir. (default: %s)", "false"))
@@ -57,7 +57,6 @@ import bisq.core.locale.CurrencyUtil;
 import bisq.network.p2p.storage.P2PDataStorage;
 
 import bisq.common.util.MathUtils;
-import bisq.common.util.PermutationUtil;
 import bisq.common.util.Utilities;
 
 import javax.inject.Inject;
@@ -486,15 +485,14 @@ public class VoteResultService implements DaoStateListener, DaoSetupService {
     private Optional<List<BlindVote>> findPermutatedListMatchingMajority(byte[] majorityVoteListHash) {
         List<BlindVote> list = BlindVoteConsensus.getSortedBlindVoteListOfCycle(blindVoteListService);
         long ts = System.currentTimeMillis();
-        List<List<BlindVote>> result = PermutationUtil.findAllPermutations(list, 1000000);
-        for (List<BlindVote> variation : result) {
-            if (isListMatchingMajority(majorityVoteListHash, variation, false)) {
-                log.info("We found a variation of the blind vote list which matches the majority hash. variation={}",
-                        variation);
-                log.info("findPermutatedListMatchingMajority for {} items took {} ms.",
-                        list.size(), (System.currentTimeMillis() - ts));
-                return Optional.of(variation);
-            }
+        Optional<List<BlindVote>> variation = VoteRevealConsensus.findSubListMatchingHash(list,
+                majorityVoteListHash, 1000000);
+        if (variation.isPresent()) {
+            log.info("We found a variation of the blind vote list which matches the majority hash. variation={}",
+                    variation.get());
+            log.info("findPermutatedListMatchingMajority for {} items took {} ms.",
+                    list.size(), (System.currentTimeMillis() - ts));
+            return variation;
         }
         log.info("We did not find a variation of the blind vote list which matches the majority hash.");
         log.info("findPermutatedListMatchingMajority for {} items took {} ms.",
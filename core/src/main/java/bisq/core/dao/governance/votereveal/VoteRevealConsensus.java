@@ -22,13 +22,21 @@ import bisq.core.dao.state.model.blockchain.OpReturnType;
 
 import bisq.common.app.Version;
 import bisq.common.crypto.Hash;
+import bisq.common.util.PermutationUtil;
 
 import javax.crypto.SecretKey;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -51,6 +59,42 @@ public class VoteRevealConsensus {
         return Hash.getSha256Ripemd160hash(outputStream.toByteArray());
     }
 
+    /**
+     * Searches the sub lists of blindVotes, starting with the ones with the fewest items removed, for one which has
+     * the given hashOfBlindVoteList (see getHashOfBlindVoteList).
+     * We serialize each blind vote only once and hash the sub lists incrementally, so the hash of a common prefix of
+     * sub lists is only calculated once.
+     */
+    public static Optional<List<BlindVote>> findSubListMatchingHash(List<BlindVote> blindVotes,
+                                                                    byte[] hashOfBlindVoteList,
+                                                                    int maxIterations) {
+        List<byte[]> serializedBlindVotes = blindVotes.stream()
+                .map(blindVote -> blindVote.toProtoMessage().toByteArray())
+                .collect(Collectors.toList());
+        List<Integer> indices = IntStream.range(0, blindVotes.size()).boxed().collect(Collectors.toList());
+        MessageDigest initialDigest;
+        try {
+            initialDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+
+        // The state is the SHA-256 digest of the prefix. As in getHashOfBlindVoteList we apply RIPEMD-160 on the
+        // SHA-256 hash of the concatenated serialized blind votes.
+        Optional<List<Integer>> matchingIndices = PermutationUtil.findMatchingSubList(indices,
+                initialDigest,
+                (digest, index) -> {
+                    MessageDigest extendedDigest = cloneDigest(digest);
+                    extendedDigest.update(serializedBlindVotes.get(index));
+                    return extendedDigest;
+                },
+                digest -> Arrays.equals(Hash.getRipemd160hash(digest.digest()), hashOfBlindVoteList),
+                maxIterations);
+        return matchingIndices.map(list -> list.stream()
+                .map(blindVotes::get)
+                .collect(Collectors.toList()));
+    }
+
     public static byte[] getOpReturnData(byte[] hashOfBlindVoteList, SecretKey secretKey) throws IOException {
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
             outputStream.write(OpReturnType.VOTE_REVEAL.getType());
@@ -65,4 +109,12 @@ public class VoteRevealConsensus {
             throw e;
         }
     }
+
+    private static MessageDigest cloneDigest(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
@@ -46,6 +46,12 @@ import bisq.common.util.Utilities;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
 import org.apache.commons.lang3.ArrayUtils;
 
 import javafx.collections.FXCollections;
@@ -53,7 +59,9 @@ import javafx.collections.ObservableList;
 
 import java.io.File;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
@@ -82,10 +90,18 @@ import static com.google.common.base.Preconditions.checkArgument;
  * state to the peers to not get ignored it in case they have not received the block yet.
  *
  * We do persist that chain of hashes with the snapshot.
+ *
+ * During batch processing we create the hashes on a dedicated thread, so the user thread can continue with parsing the
+ * next blocks. Only the serialisation of the state is done on the user thread as the state must not change meanwhile.
+ * The created hashes are added to the hash chain on the user thread in the order of the blocks. Access to the hash
+ * chain waits for the pending hashes.
  */
 @Slf4j
 public class DaoStateMonitoringService implements DaoSetupService, DaoStateListener,
         DaoStateNetworkService.Listener<NewDaoStateHashMessage, GetDaoStateHashesRequest, DaoStateHash> {
+    // Each pending hash holds a serialized copy of the state, so we limit the number of pending hashes
+    @VisibleForTesting
+    static final int MAX_PENDING_HASHES = 4;
 
     public interface Listener {
         void onChangeAfterBatchProcessing();
@@ -99,10 +115,12 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
     private final Set<String> seedNodeAddresses;
 
 
-    @Getter
     private final LinkedList<DaoStateBlock> daoStateBlockChain = new LinkedList<>();
-    @Getter
     private final LinkedList<DaoStateHash> daoStateHashChain = new LinkedList<>();
+    private final ListeningExecutorService hashChainExecutor;
+    // Hashes of blocks which are not added to the hash chain yet, in the order of their height
+    private final Deque<ListenableFuture<DaoStateHash>> pendingHashes = new ArrayDeque<>();
+    private int lastPendingHeight;
     private final List<Listener> listeners = new CopyOnWriteArrayList<>();
     private boolean parseBlockChainComplete;
     @Getter
@@ -133,11 +151,25 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
                                      SeedNodeRepository seedNodeRepository,
                                      @Named(Storage.STORAGE_DIR) File storageDir,
                                      @Named(AppOptionKeys.IGNORE_DEV_MSG_KEY) boolean ignoreDevMsg) {
+        this(daoStateService, daoStateNetworkService, genesisTxInfo, seedNodeRepository, storageDir, ignoreDevMsg,
+                Utilities.getSingleThreadExecutor("DaoStateHashChain"));
+    }
+
+    // The hash chain executor must be single threaded
+    @VisibleForTesting
+    DaoStateMonitoringService(DaoStateService daoStateService,
+                              DaoStateNetworkService daoStateNetworkService,
+                              GenesisTxInfo genesisTxInfo,
+                              SeedNodeRepository seedNodeRepository,
+                              File storageDir,
+                              boolean ignoreDevMsg,
+                              ListeningExecutorService hashChainExecutor) {
         this.daoStateService = daoStateService;
         this.daoStateNetworkService = daoStateNetworkService;
         this.genesisTxInfo = genesisTxInfo;
         this.storageDir = storageDir;
         this.ignoreDevMsg = ignoreDevMsg;
+        this.hashChainExecutor = hashChainExecutor;
         seedNodeAddresses = seedNodeRepository.getSeedNodeAddresses().stream()
                 .map(NodeAddress::getFullAddress)
                 .collect(Collectors.toSet());
@@ -168,6 +200,7 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
 
     @Override
     public void onParseBlockChainComplete() {
+        applyPendingHashes(true);
         parseBlockChainComplete = true;
         daoStateNetworkService.addListeners();
 
@@ -248,12 +281,37 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
         updateHashChain(block);
     }
 
+    /**
+     * Runs the runnable on the user thread once we can take the hash of another block without waiting for the hash
+     * chain thread. Used at batch processing to not block the user thread if the hashing falls behind the parsing.
+     */
+    public void runWhenReadyForNextBlock(Runnable runnable) {
+        applyPendingHashes(false);
+        if (pendingHashes.size() < MAX_PENDING_HASHES) {
+            UserThread.execute(runnable);
+        } else {
+            pendingHashes.peekFirst().addListener(() -> UserThread.execute(runnable), MoreExecutors.directExecutor());
+        }
+    }
+
+    public LinkedList<DaoStateBlock> getDaoStateBlockChain() {
+        applyPendingHashes(true);
+        return daoStateBlockChain;
+    }
+
+    public LinkedList<DaoStateHash> getDaoStateHashChain() {
+        applyPendingHashes(true);
+        return daoStateHashChain;
+    }
+
     public void requestHashesFromGenesisBlockHeight(String peersAddress) {
         daoStateNetworkService.requestHashes(genesisTxInfo.getGenesisBlockHeight(), peersAddress);
     }
 
     public void applySnapshot(LinkedList<DaoStateHash> persistedDaoStateHashChain) {
         // We could got a reset from a reorg, so we clear all and start over from the genesis block.
+        // The hashes which are still in progress on the hash chain thread get dropped.
+        pendingHashes.clear();
         daoStateHashChain.clear();
         daoStateBlockChain.clear();
         daoStateNetworkService.reset();
@@ -286,9 +344,26 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
 
     private void updateHashChain(Block block) {
         long ts = System.currentTimeMillis();
-        byte[] prevHash;
         int height = block.getHeight();
-        if (daoStateBlockChain.isEmpty()) {
+        if (parseBlockChainComplete) {
+            applyPendingHashes(true);
+        } else {
+            applyPendingHashes(false);
+            // If the hashing falls behind we wait for the oldest pending hash
+            while (pendingHashes.size() >= MAX_PENDING_HASHES) {
+                addToHashChain(Futures.getUnchecked(pendingHashes.pollFirst()));
+            }
+        }
+
+        ListenableFuture<DaoStateHash> previousPendingHash = pendingHashes.peekLast();
+        byte[] prevHash;
+        if (previousPendingHash != null) {
+            checkArgument(height == lastPendingHeight + 1,
+                    "New block must be 1 block above previous block. height={}, lastPendingHeight={}",
+                    height, lastPendingHeight);
+            // We get the prevHash on the hash chain thread once the previous hash is created
+            prevHash = null;
+        } else if (daoStateBlockChain.isEmpty()) {
             // Only at genesis we allow an empty prevHash
             if (height == genesisTxInfo.getGenesisBlockHeight()) {
                 prevHash = new byte[0];
@@ -305,18 +380,12 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
             prevHash = daoStateBlockChain.getLast().getHash();
         }
         byte[] stateHash = daoStateService.getSerializedStateForHashChain();
-        // We include the prev. hash in our new hash so we can be sure that if one hash is matching all the past would
-        // match as well.
-        byte[] combined = ArrayUtils.addAll(prevHash, stateHash);
-        byte[] hash = Hash.getSha256Ripemd160hash(combined);
 
-        DaoStateHash myDaoStateHash = new DaoStateHash(height, hash, prevHash);
-        DaoStateBlock daoStateBlock = new DaoStateBlock(myDaoStateHash);
-        daoStateBlockChain.add(daoStateBlock);
-        daoStateHashChain.add(myDaoStateHash);
-
-        // We only broadcast after parsing of blockchain is complete
         if (parseBlockChainComplete) {
+            DaoStateHash myDaoStateHash = createDaoStateHash(height, prevHash, stateHash);
+            addToHashChain(myDaoStateHash);
+
+            // We only broadcast after parsing of blockchain is complete
             // We notify listeners only after batch processing to avoid performance issues at UI code
             listeners.forEach(Listener::onChangeAfterBatchProcessing);
 
@@ -324,6 +393,12 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
             // Otherwise they would ignore our data if received block is in future to their local blockchain.
             int delayInSec = 5 + new Random().nextInt(10);
             UserThread.runAfter(() -> daoStateNetworkService.broadcastMyStateHash(myDaoStateHash), delayInSec);
+        } else {
+            // The hash chain thread is single threaded, so the previous hash is done when our task runs
+            pendingHashes.addLast(hashChainExecutor.submit(() -> createDaoStateHash(height,
+                    previousPendingHash != null ? Futures.getUnchecked(previousPendingHash).getHash() : prevHash,
+                    stateHash)));
+            lastPendingHeight = height;
         }
         long duration = System.currentTimeMillis() - ts;
         // We don't want to spam the output. We log accumulated time after parsing is completed.
@@ -334,6 +409,25 @@ public class DaoStateMonitoringService implements DaoSetupService, DaoStateListe
         numCalls++;
     }
 
+    private static DaoStateHash createDaoStateHash(int height, byte[] prevHash, byte[] stateHash) {
+        // We include the prev. hash in our new hash so we can be sure that if one hash is matching all the past would
+        // match as well.
+        byte[] combined = ArrayUtils.addAll(prevHash, stateHash);
+        byte[] hash = Hash.getSha256Ripemd160hash(combined);
+        return new DaoStateHash(height, hash, prevHash);
+    }
+
+    private void addToHashChain(DaoStateHash daoStateHash) {
+        daoStateBlockChain.add(new DaoStateBlock(daoStateHash));
+        daoStateHashChain.add(daoStateHash);
+    }
+
+    private void applyPendingHashes(boolean waitForAll) {
+        while (!pendingHashes.isEmpty() && (waitForAll || pendingHashes.peekFirst().isDone())) {
+            addToHashChain(Futures.getUnchecked(pendingHashes.pollFirst()));
+        }
+    }
+
     private boolean processPeersDaoStateHash(DaoStateHash daoStateHash, Optional<NodeAddress> peersNodeAddress,
                                              boolean notifyListeners) {
         AtomicBoolean changed = new AtomicBoolean(false);
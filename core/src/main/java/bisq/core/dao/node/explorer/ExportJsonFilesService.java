@@ -20,13 +20,14 @@ package bisq.core.dao.node.explorer;
 import bisq.core.dao.DaoOptionKeys;
 import bisq.core.dao.DaoSetupService;
 import bisq.core.dao.state.DaoStateService;
-import bisq.core.dao.state.model.DaoState;
 import bisq.core.dao.state.model.blockchain.Block;
 import bisq.core.dao.state.model.blockchain.PubKeyScript;
 import bisq.core.dao.state.model.blockchain.Tx;
 import bisq.core.dao.state.model.blockchain.TxOutput;
 import bisq.core.dao.state.model.blockchain.TxType;
+import bisq.core.dao.state.model.governance.IssuanceType;
 
+import bisq.common.UserThread;
 import bisq.common.storage.FileUtil;
 import bisq.common.storage.JsonFileManager;
 import bisq.common.storage.Storage;
@@ -38,18 +39,26 @@ import com.google.inject.Inject;
 
 import javax.inject.Named;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -58,15 +67,28 @@ import lombok.extern.slf4j.Slf4j;
 
 import org.jetbrains.annotations.NotNull;
 
+import javax.annotation.Nullable;
+
 @Slf4j
 public class ExportJsonFilesService implements DaoSetupService {
     private final DaoStateService daoStateService;
     private final File storageDir;
     private final boolean dumpBlockchainData;
 
-    private final ListeningExecutorService executor = Utilities.getListeningExecutorService("JsonExporter",
-            1, 1, 1200);
-    private JsonFileManager txFileManager, txOutputFileManager, bsqStateFileManager;
+    // The exports need to be written in order as we append to the blocks log, so we use a single thread with an
+    // unbounded queue.
+    private final ListeningExecutorService executor = Utilities.getSingleThreadExecutor("JsonExporter");
+    private JsonFileManager txFileManager, txOutputFileManager;
+    private File blocksLogFile;
+
+    // The last block we have queued for export. If an export fails we reset it, so the next export writes all data
+    // again. Only accessed from the user thread.
+    private int lastExportedBlockHeight;
+    @Nullable
+    private String lastExportedBlockHash;
+    // Number of confiscated lockup txs at the last export. Confiscation changes the lockup and unlock tx without a new
+    // tx referring to them.
+    private int numExportedConfiscatedLockupTxs;
 
     @Inject
     public ExportJsonFilesService(DaoStateService daoStateService,
@@ -121,7 +143,7 @@ public class ExportJsonFilesService implements DaoSetupService {
 
             txFileManager = new JsonFileManager(txDir);
             txOutputFileManager = new JsonFileManager(txOutputDir);
-            bsqStateFileManager = new JsonFileManager(bsqStateDir);
+            blocksLogFile = new File(bsqStateDir, "blocks.jsonl");
         }
     }
 
@@ -129,34 +151,74 @@ public class ExportJsonFilesService implements DaoSetupService {
         if (dumpBlockchainData && txFileManager != null) {
             txFileManager.shutDown();
             txOutputFileManager.shutDown();
-            bsqStateFileManager.shutDown();
         }
     }
 
+    /**
+     * Exports the blocks which got added since the last export. Only the txs of the new blocks, the txs with outputs
+     * spent by them, the txs which got issued in the new blocks and the txs of bonds which got confiscated have
+     * changed, so we only write those txs and their outputs. The new blocks get appended to the blocks log (one json
+     * block per line). At the first call, after a reorg and after a failed export we export all blocks and txs.
+     */
     public void maybeExportToJson() {
         if (dumpBlockchainData &&
                 daoStateService.isParseBlockChainComplete()) {
+            Optional<Block> optionalLastBlock = daoStateService.getLastBlock();
+            if (!optionalLastBlock.isPresent())
+                return;
+
+            // If the last exported block is not in our chain anymore we had a reorg
+            boolean exportAll = lastExportedBlockHash == null ||
+                    !daoStateService.getBlockAtHeight(lastExportedBlockHeight)
+                            .map(block -> block.getHash().equals(lastExportedBlockHash))
+                            .orElse(false);
+            List<Block> blocks = exportAll ?
+                    new ArrayList<>(daoStateService.getBlocks()) :
+                    daoStateService.getBlocksFromBlockHeight(lastExportedBlockHeight + 1, Integer.MAX_VALUE);
+            if (blocks.isEmpty())
+                return;
+
             // We store the data we need once we write the data to disk (in the thread) locally.
             // Access to daoStateService is single threaded, we must not access daoStateService from the thread.
-            List<JsonTxOutput> allJsonTxOutputs = new ArrayList<>();
-
-            List<JsonTx> jsonTxs = daoStateService.getTxStream()
-                    .map(tx -> {
-                        JsonTx jsonTx = getJsonTx(tx);
-                        allJsonTxOutputs.addAll(jsonTx.getOutputs());
-                        return jsonTx;
-                    }).collect(Collectors.toList());
-
-            DaoState daoState = daoStateService.getClone();
-            List<JsonBlock> jsonBlockList = daoState.getBlocks().stream()
-                    .map(this::getJsonBlock)
+            // The json objects are immutable, the json encoding is done in the thread.
+            Map<String, Tx> txById = new LinkedHashMap<>();
+            List<String> confiscatedLockupTxList = daoStateService.getConfiscatedLockupTxList();
+            if (exportAll) {
+                daoStateService.getTxStream().forEach(tx -> txById.put(tx.getId(), tx));
+            } else {
+                blocks.forEach(block -> addChangedTxs(block, txById));
+                addConfiscatedBondTxs(confiscatedLockupTxList.subList(
+                        Math.min(numExportedConfiscatedLockupTxs, confiscatedLockupTxList.size()),
+                        confiscatedLockupTxList.size()),
+                        txById);
+            }
+
+            Map<String, JsonTx> jsonTxById = new LinkedHashMap<>();
+            txById.values().forEach(tx -> jsonTxById.put(tx.getId(), getJsonTx(tx)));
+            List<JsonTx> jsonTxs = new ArrayList<>(jsonTxById.values());
+            List<JsonBlock> jsonBlocks = blocks.stream()
+                    .map(block -> getJsonBlock(block, jsonTxById))
                     .collect(Collectors.toList());
-            JsonBlocks jsonBlocks = new JsonBlocks(daoState.getChainHeight(), jsonBlockList);
+
+            // Following exports continue from here, so they get queued after this one
+            Block lastBlock = optionalLastBlock.get();
+            lastExportedBlockHeight = lastBlock.getHeight();
+            lastExportedBlockHash = lastBlock.getHash();
+            numExportedConfiscatedLockupTxs = confiscatedLockupTxList.size();
 
             ListenableFuture<Void> future = executor.submit(() -> {
-                bsqStateFileManager.writeToDisc(Utilities.objectToJson(jsonBlocks), "blocks");
-                allJsonTxOutputs.forEach(jsonTxOutput -> txOutputFileManager.writeToDisc(Utilities.objectToJson(jsonTxOutput), jsonTxOutput.getId()));
-                jsonTxs.forEach(jsonTx -> txFileManager.writeToDisc(Utilities.objectToJson(jsonTx), jsonTx.getId()));
+                try {
+                    writeBlocksLog(jsonBlocks, !exportAll);
+                    for (JsonTx jsonTx : jsonTxs) {
+                        for (JsonTxOutput jsonTxOutput : jsonTx.getOutputs())
+                            txOutputFileManager.writeToDiscSync(Utilities.objectToJson(jsonTxOutput), jsonTxOutput.getId());
+                        txFileManager.writeToDiscSync(Utilities.objectToJson(jsonTx), jsonTx.getId());
+                    }
+                } catch (Throwable t) {
+                    // The data of that export are missing in the files, so we export all data at the next block.
+                    UserThread.execute(() -> lastExportedBlockHash = null);
+                    throw t;
+                }
                 return null;
             });
 
@@ -172,9 +234,49 @@ public class ExportJsonFilesService implements DaoSetupService {
         }
     }
 
-    private JsonBlock getJsonBlock(Block block) {
+    // Waits until the queued exports are written.
+    @VisibleForTesting
+    void awaitPendingExports() throws Exception {
+        executor.submit(() -> null).get();
+    }
+
+    private void addChangedTxs(Block block, Map<String, Tx> txById) {
+        block.getTxs().forEach(tx -> {
+            txById.put(tx.getId(), tx);
+            // The spent info of the connected outputs has changed
+            tx.getTxInputs().forEach(txInput -> daoStateService.getTx(txInput.getConnectedTxOutputTxId())
+                    .ifPresent(connectedTx -> txById.putIfAbsent(connectedTx.getId(), connectedTx)));
+        });
+
+        // Issuance candidate outputs become BSQ outputs once they got issued
+        Arrays.stream(IssuanceType.values())
+                .flatMap(issuanceType -> daoStateService.getIssuanceSet(issuanceType).stream())
+                .filter(issuance -> issuance.getChainHeight() == block.getHeight())
+                .forEach(issuance -> daoStateService.getTx(issuance.getTxId())
+                        .ifPresent(tx -> txById.putIfAbsent(tx.getId(), tx)));
+    }
+
+    private void addConfiscatedBondTxs(List<String> confiscatedLockupTxIds, Map<String, Tx> txById) {
+        confiscatedLockupTxIds.forEach(lockupTxId -> {
+            daoStateService.getTx(lockupTxId).ifPresent(tx -> txById.putIfAbsent(tx.getId(), tx));
+            daoStateService.getUnlockTxFromLockupTxId(lockupTxId).ifPresent(tx -> txById.putIfAbsent(tx.getId(), tx));
+        });
+    }
+
+    // Called on the executor
+    private void writeBlocksLog(List<JsonBlock> jsonBlocks, boolean append) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(blocksLogFile, append), StandardCharsets.UTF_8)) {
+            for (JsonBlock jsonBlock : jsonBlocks) {
+                writer.write(Utilities.objectToCompactJson(jsonBlock));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private JsonBlock getJsonBlock(Block block, Map<String, JsonTx> jsonTxById) {
         List<JsonTx> jsonTxs = block.getTxs().stream()
-                .map(this::getJsonTx)
+                .map(tx -> jsonTxById.get(tx.getId()))
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
         return new JsonBlock(block.getHeight(),
                 block.getTime(),
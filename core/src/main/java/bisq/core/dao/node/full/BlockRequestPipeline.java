@@ -0,0 +1,163 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.full;
+
+import bisq.common.UserThread;
+import bisq.common.handlers.ResultHandler;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Requests a range of blocks in parallel and passes them in the order of their height to the blockHandler.
+ * <p>
+ * Requesting a block from Bitcoin Core takes much longer than parsing it, so at a resync we would mostly wait for the
+ * RPC round trips if we request one block after the other. We keep up to maxBlocksInFlight requests running on the
+ * executor and only request more blocks once the blockHandler has taken the next block in line, so a slow parser
+ * does not cause us to hold more than maxBlocksInFlight blocks in memory.
+ * <p>
+ * The handlers are called on the user thread.
+ */
+@Slf4j
+class BlockRequestPipeline {
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // BlockRequest
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    interface BlockRequest {
+        // Called on a thread of the executor
+        RawBlock requestBlock(int blockHeight) throws Exception;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Class fields
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private final BlockRequest blockRequest;
+    private final ListeningExecutorService executor;
+    private final int maxBlocksInFlight;
+    private final int toBlockHeight;
+    private final Consumer<RawBlock> blockHandler;
+    private final ResultHandler resultHandler;
+    private final Consumer<Throwable> errorHandler;
+
+    // Requested blocks in the order of their height. Only accessed from the user thread.
+    private final Queue<ListenableFuture<RawBlock>> pendingBlocks = new ArrayDeque<>();
+    private int nextBlockHeight;
+    private boolean stopped;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    BlockRequestPipeline(BlockRequest blockRequest,
+                         ListeningExecutorService executor,
+                         int maxBlocksInFlight,
+                         int fromBlockHeight,
+                         int toBlockHeight,
+                         Consumer<RawBlock> blockHandler,
+                         ResultHandler resultHandler,
+                         Consumer<Throwable> errorHandler) {
+        this.blockRequest = blockRequest;
+        this.executor = executor;
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        this.toBlockHeight = toBlockHeight;
+        this.blockHandler = blockHandler;
+        this.resultHandler = resultHandler;
+        this.errorHandler = errorHandler;
+
+        nextBlockHeight = fromBlockHeight;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void start() {
+        requestBlocks();
+    }
+
+    /**
+     * No handler gets called after stop. Can be called from the blockHandler, e.g. if we need a reorg.
+     */
+    void stop() {
+        stopped = true;
+        pendingBlocks.forEach(future -> future.cancel(false));
+        pendingBlocks.clear();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void requestBlocks() {
+        while (!stopped && pendingBlocks.size() < maxBlocksInFlight && nextBlockHeight <= toBlockHeight) {
+            int blockHeight = nextBlockHeight++;
+            ListenableFuture<RawBlock> future;
+            try {
+                future = executor.submit(() -> blockRequest.requestBlock(blockHeight));
+            } catch (RejectedExecutionException e) {
+                future = Futures.immediateFailedFuture(e);
+            }
+            pendingBlocks.add(future);
+            future.addListener(() -> UserThread.execute(this::handleBlocks), MoreExecutors.directExecutor());
+        }
+    }
+
+    private void handleBlocks() {
+        while (!stopped && !pendingBlocks.isEmpty() && pendingBlocks.peek().isDone()) {
+            RawBlock rawBlock;
+            try {
+                rawBlock = Futures.getDone(pendingBlocks.poll());
+            } catch (ExecutionException | CancellationException e) {
+                stop();
+                Throwable throwable = e.getCause() != null ? e.getCause() : e;
+                log.error("Error at requesting a block: {}", throwable.toString());
+                errorHandler.accept(throwable);
+                return;
+            }
+            blockHandler.accept(rawBlock);
+        }
+
+        if (stopped)
+            return;
+
+        if (pendingBlocks.isEmpty() && nextBlockHeight > toBlockHeight) {
+            stopped = true;
+            resultHandler.handleResult();
+        } else {
+            requestBlocks();
+        }
+    }
+}
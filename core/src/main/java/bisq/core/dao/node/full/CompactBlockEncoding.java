@@ -0,0 +1,453 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.full;
+
+import bisq.core.dao.state.model.blockchain.PubKeyScript;
+import bisq.core.dao.state.model.blockchain.ScriptType;
+import bisq.core.dao.state.model.blockchain.TxInput;
+
+import bisq.common.app.Version;
+import bisq.common.proto.ProtobufferRuntimeException;
+import bisq.common.util.Utilities;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nullable;
+
+/**
+ * Compact binary encoding of a list of RawBlocks used for the GetBlocksResponse.
+ * <p>
+ * Compared to the protobuf representation we write the hashes and txIds as bytes instead of hex strings, refer to
+ * the txs of earlier blocks in the list by their position instead of repeating their txId at the inputs, write
+ * repeated strings like addresses only once, write the block heights and times as deltas to the previous block and
+ * leave out the fields which are the same as in the enclosing block or tx. The result can be deflated in addition.
+ * <p>
+ * The decoded blocks are equal to the blocks we would get by the protobuf serialisation, so the parser of the lite
+ * node sees the same data with both encodings. As protobuf does not distinguish null and empty values we treat empty
+ * values as null (or the previousBlockHash as empty) the same way.
+ */
+@Slf4j
+public final class CompactBlockEncoding {
+    private static final byte VERSION = 1;
+    private static final byte FLAG_DEFLATED = 1;
+
+    // Protects against decompression bombs. The limit is for all segments of a GetBlocksResponse together. The blocks
+    // of a GetBlocksResponse have about 2 MB.
+    @VisibleForTesting
+    static final int MAX_DECODED_SIZE = 32 * 1024 * 1024;
+
+    private static final int BLOCK_PREV_HASH_OF_PREVIOUS_BLOCK = 1;
+
+    private static final int TX_BSQ_TX_VERSION = 1;
+    private static final int TX_BLOCK_HEIGHT = 1 << 1;
+    private static final int TX_BLOCK_HASH = 1 << 2;
+    private static final int TX_TIME = 1 << 3;
+
+    private static final int OUTPUT_INDEX = 1;
+    private static final int OUTPUT_TX_ID = 1 << 1;
+    private static final int OUTPUT_BLOCK_HEIGHT = 1 << 2;
+    private static final int OUTPUT_PUB_KEY_SCRIPT = 1 << 3;
+    private static final int OUTPUT_ADDRESS = 1 << 4;
+    private static final int OUTPUT_OP_RETURN_DATA = 1 << 5;
+
+    private CompactBlockEncoding() {
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public static byte[] encode(List<RawBlock> rawBlocks, boolean deflate) {
+        try {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            byteArrayOutputStream.write(VERSION);
+            byteArrayOutputStream.write(deflate ? FLAG_DEFLATED : 0);
+            OutputStream outputStream = deflate ?
+                    new DeflaterOutputStream(byteArrayOutputStream) :
+                    byteArrayOutputStream;
+            CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(outputStream);
+            new Encoder(codedOutputStream).writeBlocks(rawBlocks);
+            codedOutputStream.flush();
+            outputStream.close();
+            return byteArrayOutputStream.toByteArray();
+        } catch (IOException e) {
+            // Cannot happen with a ByteArrayOutputStream
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static List<RawBlock> decode(byte[] encoded) {
+        return decode(ImmutableList.of(encoded), Integer.MAX_VALUE);
+    }
+
+    // Decodes the segments of a GetBlocksResponse. The decoded size and the number of blocks are limited for all
+    // segments together, so many segments cannot inflate to more data than a single one.
+    public static List<RawBlock> decode(List<byte[]> segments, int maxBlocks) {
+        List<RawBlock> rawBlocks = new ArrayList<>();
+        int remainingDecodedSize = MAX_DECODED_SIZE;
+        for (byte[] encoded : segments) {
+            remainingDecodedSize -= decode(encoded, rawBlocks, remainingDecodedSize, maxBlocks);
+        }
+        return rawBlocks;
+    }
+
+    // Adds the decoded blocks to rawBlocks and returns the decoded size
+    private static int decode(byte[] encoded, List<RawBlock> rawBlocks, int maxDecodedSize, int maxBlocks) {
+        try {
+            if (encoded.length < 2 || encoded[0] != VERSION)
+                throw new ProtobufferRuntimeException("Unsupported compact block encoding");
+
+            InputStream inputStream = new ByteArrayInputStream(encoded, 2, encoded.length - 2);
+            if ((encoded[1] & FLAG_DEFLATED) != 0)
+                inputStream = new InflaterInputStream(inputStream);
+            CodedInputStream codedInputStream = CodedInputStream.newInstance(inputStream);
+            codedInputStream.setSizeLimit(maxDecodedSize);
+            new Decoder(codedInputStream).readBlocks(rawBlocks, maxBlocks);
+            return codedInputStream.getTotalBytesRead();
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException | ArithmeticException e) {
+            throw new ProtobufferRuntimeException("Invalid compact block encoding", e);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Encoder
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class Encoder {
+        private final CodedOutputStream out;
+        // Position of the txs in the order we have written them
+        private final Map<String, Integer> txIndexByTxId = new HashMap<>();
+        private final Map<String, Integer> stringIndexByString = new HashMap<>();
+
+        private Encoder(CodedOutputStream out) {
+            this.out = out;
+        }
+
+        private void writeBlocks(List<RawBlock> rawBlocks) throws IOException {
+            out.writeUInt32NoTag(rawBlocks.size());
+            RawBlock previous = null;
+            for (RawBlock rawBlock : rawBlocks) {
+                writeBlock(rawBlock, previous);
+                previous = rawBlock;
+            }
+        }
+
+        private void writeBlock(RawBlock rawBlock, @Nullable RawBlock previous) throws IOException {
+            String previousBlockHash = rawBlock.getPreviousBlockHash() != null ? rawBlock.getPreviousBlockHash() : "";
+            boolean isPrevHashOfPreviousBlock = previous != null && previousBlockHash.equals(previous.getHash());
+            out.writeUInt32NoTag(isPrevHashOfPreviousBlock ? BLOCK_PREV_HASH_OF_PREVIOUS_BLOCK : 0);
+            out.writeSInt64NoTag(rawBlock.getHeight() - (previous != null ? (long) previous.getHeight() : 0));
+            out.writeSInt64NoTag(rawBlock.getTime() - (previous != null ? previous.getTime() : 0));
+            writeHex(rawBlock.getHash());
+            if (!isPrevHashOfPreviousBlock)
+                writeHex(previousBlockHash);
+
+            out.writeUInt32NoTag(rawBlock.getRawTxs().size());
+            for (RawTx rawTx : rawBlock.getRawTxs()) {
+                writeTx(rawTx, rawBlock);
+            }
+        }
+
+        private void writeTx(RawTx rawTx, RawBlock rawBlock) throws IOException {
+            int flags = 0;
+            if (rawTx.getTxVersion().equals(Version.BSQ_TX_VERSION))
+                flags |= TX_BSQ_TX_VERSION;
+            if (rawTx.getBlockHeight() == rawBlock.getHeight())
+                flags |= TX_BLOCK_HEIGHT;
+            if (rawTx.getBlockHash().equals(rawBlock.getHash()))
+                flags |= TX_BLOCK_HASH;
+            if (rawTx.getTime() == rawBlock.getTime())
+                flags |= TX_TIME;
+            out.writeUInt32NoTag(flags);
+            if ((flags & TX_BSQ_TX_VERSION) == 0)
+                writeString(rawTx.getTxVersion());
+            if ((flags & TX_BLOCK_HEIGHT) == 0)
+                out.writeInt32NoTag(rawTx.getBlockHeight());
+            if ((flags & TX_BLOCK_HASH) == 0)
+                writeHex(rawTx.getBlockHash());
+            if ((flags & TX_TIME) == 0)
+                out.writeInt64NoTag(rawTx.getTime());
+            writeHex(rawTx.getId());
+
+            out.writeUInt32NoTag(rawTx.getTxInputs().size());
+            for (TxInput txInput : rawTx.getTxInputs()) {
+                writeTxInput(txInput);
+            }
+
+            out.writeUInt32NoTag(rawTx.getRawTxOutputs().size());
+            for (int i = 0; i < rawTx.getRawTxOutputs().size(); i++) {
+                writeTxOutput(rawTx.getRawTxOutputs().get(i), i, rawTx);
+            }
+
+            txIndexByTxId.putIfAbsent(rawTx.getId(), txIndexByTxId.size());
+        }
+
+        private void writeTxInput(TxInput txInput) throws IOException {
+            // 0 if the txId follows, otherwise the position of the connected tx + 1
+            Integer txIndex = txIndexByTxId.get(txInput.getConnectedTxOutputTxId());
+            out.writeUInt32NoTag(txIndex != null ? txIndex + 1 : 0);
+            if (txIndex == null)
+                writeHex(txInput.getConnectedTxOutputTxId());
+            out.writeInt32NoTag(txInput.getConnectedTxOutputIndex());
+            writeNullableHex(txInput.getPubKey());
+        }
+
+        private void writeTxOutput(RawTxOutput rawTxOutput, int position, RawTx rawTx) throws IOException {
+            int flags = 0;
+            if (rawTxOutput.getIndex() == position)
+                flags |= OUTPUT_INDEX;
+            if (rawTxOutput.getTxId().equals(rawTx.getId()))
+                flags |= OUTPUT_TX_ID;
+            if (rawTxOutput.getBlockHeight() == rawTx.getBlockHeight())
+                flags |= OUTPUT_BLOCK_HEIGHT;
+            if (rawTxOutput.getPubKeyScript() != null)
+                flags |= OUTPUT_PUB_KEY_SCRIPT;
+            if (!isNullOrEmpty(rawTxOutput.getAddress()))
+                flags |= OUTPUT_ADDRESS;
+            if (rawTxOutput.getOpReturnData() != null && rawTxOutput.getOpReturnData().length > 0)
+                flags |= OUTPUT_OP_RETURN_DATA;
+            out.writeUInt32NoTag(flags);
+            if ((flags & OUTPUT_INDEX) == 0)
+                out.writeInt32NoTag(rawTxOutput.getIndex());
+            out.writeInt64NoTag(rawTxOutput.getValue());
+            if ((flags & OUTPUT_TX_ID) == 0)
+                writeHex(rawTxOutput.getTxId());
+            if ((flags & OUTPUT_BLOCK_HEIGHT) == 0)
+                out.writeInt32NoTag(rawTxOutput.getBlockHeight());
+            if ((flags & OUTPUT_PUB_KEY_SCRIPT) != 0)
+                writePubKeyScript(rawTxOutput.getPubKeyScript());
+            if ((flags & OUTPUT_ADDRESS) != 0)
+                writeString(rawTxOutput.getAddress());
+            if ((flags & OUTPUT_OP_RETURN_DATA) != 0)
+                out.writeByteArrayNoTag(rawTxOutput.getOpReturnData());
+        }
+
+        private void writePubKeyScript(PubKeyScript pubKeyScript) throws IOException {
+            out.writeInt32NoTag(pubKeyScript.getReqSigs());
+            writeString(pubKeyScript.getScriptType().name());
+            List<String> addresses = pubKeyScript.getAddresses() != null ? pubKeyScript.getAddresses() : ImmutableList.of();
+            out.writeUInt32NoTag(addresses.size());
+            for (String address : addresses) {
+                writeString(address);
+            }
+            out.writeStringNoTag(pubKeyScript.getAsm());
+            writeHex(pubKeyScript.getHex());
+        }
+
+        // Strings we have written already are replaced by their position in the order we have written them + 1
+        private void writeString(String string) throws IOException {
+            Integer stringIndex = stringIndexByString.get(string);
+            if (stringIndex != null) {
+                out.writeUInt32NoTag(stringIndex + 1);
+            } else {
+                out.writeUInt32NoTag(0);
+                out.writeStringNoTag(string);
+                stringIndexByString.put(string, stringIndexByString.size());
+            }
+        }
+
+        private void writeNullableHex(@Nullable String hex) throws IOException {
+            out.writeBoolNoTag(!isNullOrEmpty(hex));
+            if (!isNullOrEmpty(hex))
+                writeHex(hex);
+        }
+
+        // We fall back to the string for values which would not result in the same string after decoding
+        private void writeHex(String hex) throws IOException {
+            boolean isLowerCaseHex = isLowerCaseHex(hex);
+            out.writeBoolNoTag(isLowerCaseHex);
+            if (isLowerCaseHex)
+                out.writeByteArrayNoTag(Utilities.decodeFromHex(hex));
+            else
+                out.writeStringNoTag(hex);
+        }
+
+        private static boolean isLowerCaseHex(String string) {
+            if (string.length() % 2 != 0)
+                return false;
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                if ((c < '0' || c > '9') && (c < 'a' || c > 'f'))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Decoder
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class Decoder {
+        private final CodedInputStream in;
+        private final List<String> txIds = new ArrayList<>();
+        private final Set<String> knownTxIds = new HashSet<>();
+        private final List<String> strings = new ArrayList<>();
+
+        private Decoder(CodedInputStream in) {
+            this.in = in;
+        }
+
+        private void readBlocks(List<RawBlock> rawBlocks, int maxBlocks) throws IOException {
+            int numBlocks = in.readUInt32();
+            if (numBlocks < 0 || numBlocks > maxBlocks - rawBlocks.size())
+                throw new IOException("Number of blocks exceeds the limit of " + maxBlocks);
+
+            RawBlock previous = null;
+            for (int i = 0; i < numBlocks; i++) {
+                previous = readBlock(previous);
+                rawBlocks.add(previous);
+            }
+            if (!in.isAtEnd())
+                throw new IOException("Unexpected data after the last block");
+        }
+
+        private RawBlock readBlock(@Nullable RawBlock previous) throws IOException {
+            int flags = in.readUInt32();
+            boolean isPrevHashOfPreviousBlock = (flags & BLOCK_PREV_HASH_OF_PREVIOUS_BLOCK) != 0;
+            if (isPrevHashOfPreviousBlock && previous == null)
+                throw new IOException("Missing previous block");
+            int height = Math.toIntExact(in.readSInt64() + (previous != null ? previous.getHeight() : 0));
+            long time = in.readSInt64() + (previous != null ? previous.getTime() : 0);
+            String hash = readHex();
+            String previousBlockHash = isPrevHashOfPreviousBlock ? previous.getHash() : readHex();
+
+            int numTxs = in.readUInt32();
+            List<RawTx> rawTxs = new ArrayList<>();
+            for (int i = 0; i < numTxs; i++) {
+                rawTxs.add(readTx(height, hash, time));
+            }
+            return new RawBlock(height, time, hash, previousBlockHash, ImmutableList.copyOf(rawTxs));
+        }
+
+        private RawTx readTx(int blockHeight, String blockHash, long blockTime) throws IOException {
+            int flags = in.readUInt32();
+            String txVersion = (flags & TX_BSQ_TX_VERSION) != 0 ? Version.BSQ_TX_VERSION : readString();
+            int txBlockHeight = (flags & TX_BLOCK_HEIGHT) != 0 ? blockHeight : in.readInt32();
+            String txBlockHash = (flags & TX_BLOCK_HASH) != 0 ? blockHash : readHex();
+            long time = (flags & TX_TIME) != 0 ? blockTime : in.readInt64();
+            String txId = readHex();
+
+            int numTxInputs = in.readUInt32();
+            List<TxInput> txInputs = new ArrayList<>();
+            for (int i = 0; i < numTxInputs; i++) {
+                txInputs.add(readTxInput());
+            }
+
+            int numTxOutputs = in.readUInt32();
+            List<RawTxOutput> rawTxOutputs = new ArrayList<>();
+            for (int i = 0; i < numTxOutputs; i++) {
+                rawTxOutputs.add(readTxOutput(i, txId, txBlockHeight));
+            }
+
+            if (knownTxIds.add(txId))
+                txIds.add(txId);
+            return new RawTx(txVersion,
+                    txId,
+                    txBlockHeight,
+                    txBlockHash,
+                    time,
+                    ImmutableList.copyOf(txInputs),
+                    ImmutableList.copyOf(rawTxOutputs));
+        }
+
+        private TxInput readTxInput() throws IOException {
+            int txIndex = in.readUInt32();
+            String connectedTxOutputTxId = txIndex == 0 ? readHex() : txIds.get(txIndex - 1);
+            int connectedTxOutputIndex = in.readInt32();
+            String pubKey = in.readBool() ? readHex() : null;
+            return new TxInput(connectedTxOutputTxId, connectedTxOutputIndex, pubKey);
+        }
+
+        private RawTxOutput readTxOutput(int position, String txId, int txBlockHeight) throws IOException {
+            int flags = in.readUInt32();
+            int index = (flags & OUTPUT_INDEX) != 0 ? position : in.readInt32();
+            long value = in.readInt64();
+            String outputTxId = (flags & OUTPUT_TX_ID) != 0 ? txId : readHex();
+            int blockHeight = (flags & OUTPUT_BLOCK_HEIGHT) != 0 ? txBlockHeight : in.readInt32();
+            PubKeyScript pubKeyScript = (flags & OUTPUT_PUB_KEY_SCRIPT) != 0 ? readPubKeyScript() : null;
+            String address = (flags & OUTPUT_ADDRESS) != 0 ? readString() : null;
+            byte[] opReturnData = (flags & OUTPUT_OP_RETURN_DATA) != 0 ? in.readByteArray() : null;
+            return new RawTxOutput(index, value, outputTxId, pubKeyScript, address, opReturnData, blockHeight);
+        }
+
+        private PubKeyScript readPubKeyScript() throws IOException {
+            int reqSigs = in.readInt32();
+            ScriptType scriptType = ScriptType.valueOf(readString());
+            int numAddresses = in.readUInt32();
+            List<String> addresses = new ArrayList<>();
+            for (int i = 0; i < numAddresses; i++) {
+                addresses.add(readString());
+            }
+            String asm = in.readString();
+            String hex = readHex();
+            return new PubKeyScript(reqSigs,
+                    scriptType,
+                    addresses.isEmpty() ? null : ImmutableList.copyOf(addresses),
+                    asm,
+                    hex);
+        }
+
+        private String readString() throws IOException {
+            int stringIndex = in.readUInt32();
+            if (stringIndex > 0)
+                return strings.get(stringIndex - 1);
+
+            String string = in.readString();
+            strings.add(string);
+            return string;
+        }
+
+        private String readHex() throws IOException {
+            return in.readBool() ? Utilities.encodeToHex(in.readByteArray()) : in.readString();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Util
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static boolean isNullOrEmpty(@Nullable String string) {
+        return string == null || string.isEmpty();
+    }
+}
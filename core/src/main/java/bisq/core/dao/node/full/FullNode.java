@@ -42,6 +42,8 @@ import java.util.function.Consumer;
 
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 /**
  * Main class for a full node which have Bitcoin Core with rpc running and does the blockchain lookup itself.
  * It also provides the BSQ transactions to lite nodes on request and broadcasts new BSQ blocks.
@@ -57,6 +59,8 @@ public class FullNode extends BsqNode {
     private boolean addBlockHandlerAdded;
     private int blocksToParseInBatch;
     private long parseInBatchStartTime;
+    @Nullable
+    private BlockRequestPipeline blockRequestPipeline;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -95,6 +99,7 @@ public class FullNode extends BsqNode {
     }
 
     public void shutDown() {
+        stopBlockRequestPipeline();
         super.shutDown();
         fullNodeNetworkService.shutDown();
     }
@@ -111,6 +116,7 @@ public class FullNode extends BsqNode {
 
     @Override
     protected void startReOrgFromLastSnapshot() {
+        stopBlockRequestPipeline();
         super.startReOrgFromLastSnapshot();
 
         int startBlockHeight = getStartBlockHeight();
@@ -223,37 +229,38 @@ public class FullNode extends BsqNode {
         }
     }
 
+    // The blocks get requested in parallel but are parsed one after the other in the order of their height.
     private void parseBlocks(int startBlockHeight,
                              int chainHeight,
                              Consumer<Block> newBlockHandler,
                              ResultHandler resultHandler,
                              Consumer<Throwable> errorHandler) {
-        parseBlockRecursively(startBlockHeight, chainHeight, newBlockHandler, resultHandler, errorHandler);
-    }
-
-    private void parseBlockRecursively(int blockHeight,
-                                       int chainHeight,
-                                       Consumer<Block> newBlockHandler,
-                                       ResultHandler resultHandler,
-                                       Consumer<Throwable> errorHandler) {
-        rpcService.requestBtcBlock(blockHeight,
+        stopBlockRequestPipeline();
+        blockRequestPipeline = rpcService.requestBtcBlocks(startBlockHeight,
+                chainHeight,
                 rawBlock -> {
                     try {
                         doParseBlock(rawBlock).ifPresent(newBlockHandler);
-
-                        // Increment blockHeight and recursively call parseBlockAsync until we reach chainHeight
-                        if (blockHeight < chainHeight) {
-                            int newBlockHeight = blockHeight + 1;
-                            parseBlockRecursively(newBlockHeight, chainHeight, newBlockHandler, resultHandler, errorHandler);
-                        } else {
-                            // We are done
-                            resultHandler.handleResult();
-                        }
                     } catch (RequiredReorgFromSnapshotException ignore) {
-                        // If we get a reorg we don't continue to call parseBlockRecursively
+                        // The pipeline got stopped at startReOrgFromLastSnapshot, so we don't parse the
+                        // remaining blocks
                     }
                 },
-                errorHandler);
+                () -> {
+                    blockRequestPipeline = null;
+                    resultHandler.handleResult();
+                },
+                throwable -> {
+                    blockRequestPipeline = null;
+                    errorHandler.accept(throwable);
+                });
+    }
+
+    private void stopBlockRequestPipeline() {
+        if (blockRequestPipeline != null) {
+            blockRequestPipeline.stop();
+            blockRequestPipeline = null;
+        }
     }
 
     private void handleError(Throwable throwable) {
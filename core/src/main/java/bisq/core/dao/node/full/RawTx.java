@@ -83,13 +83,13 @@ public final class RawTx extends BaseTx implements NetworkPayload {
     // PROTO BUFFER
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private RawTx(String txVersion,
-                  String id,
-                  int blockHeight,
-                  String blockHash,
-                  long time,
-                  ImmutableList<TxInput> txInputs,
-                  ImmutableList<RawTxOutput> rawTxOutputs) {
+    RawTx(String txVersion,
+          String id,
+          int blockHeight,
+          String blockHash,
+          long time,
+          ImmutableList<TxInput> txInputs,
+          ImmutableList<RawTxOutput> rawTxOutputs) {
         super(txVersion,
                 id,
                 blockHeight,
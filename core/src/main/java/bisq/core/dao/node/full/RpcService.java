@@ -53,9 +53,12 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -70,19 +73,22 @@ import org.jetbrains.annotations.NotNull;
  */
 @Slf4j
 public class RpcService {
+    private static final int DEFAULT_NUM_BLOCK_REQUEST_THREADS = 4;
+
     private final String rpcUser;
     private final String rpcPassword;
     private final String rpcHost;
     private final String rpcPort;
     private final String rpcBlockPort;
     private final String rpcBlockHost;
+    private final int numBlockRequestThreads;
 
     private BtcdClient client;
     private BtcdDaemon daemon;
 
-    // We could use multiple threads but then we need to support ordering of results in a queue
-    // Keep that for optimization after measuring performance differences
     private final ListeningExecutorService executor = Utilities.getSingleThreadExecutor("RpcService");
+    // Blocks get requested in parallel at parsing the blockchain. The BlockRequestPipeline takes care of the ordering.
+    private final ListeningExecutorService blockRequestExecutor;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -95,7 +101,8 @@ public class RpcService {
                       @Named(DaoOptionKeys.RPC_HOST) String rpcHost,
                       @Named(DaoOptionKeys.RPC_PORT) String rpcPort,
                       @Named(DaoOptionKeys.RPC_BLOCK_NOTIFICATION_PORT) String rpcBlockPort,
-                      @Named(DaoOptionKeys.RPC_BLOCK_NOTIFICATION_HOST) String rpcBlockHost) {
+                      @Named(DaoOptionKeys.RPC_BLOCK_NOTIFICATION_HOST) String rpcBlockHost,
+                      @Named(DaoOptionKeys.RPC_BLOCK_REQUEST_THREADS) String rpcBlockRequestThreads) {
         this.rpcUser = preferences.getRpcUser();
         this.rpcPassword = preferences.getRpcPw();
 
@@ -114,6 +121,16 @@ public class RpcService {
         boolean isBlockHostSet = rpcBlockHost != null && !rpcBlockHost.isEmpty();
         this.rpcBlockPort = isBlockPortSet ? rpcBlockPort : "5125";
         this.rpcBlockHost = isBlockHostSet ? rpcBlockHost : "127.0.0.1";
+        boolean isBlockRequestThreadsSet = rpcBlockRequestThreads != null && !rpcBlockRequestThreads.isEmpty();
+        this.numBlockRequestThreads = isBlockRequestThreadsSet ?
+                Math.max(1, Integer.parseInt(rpcBlockRequestThreads)) :
+                DEFAULT_NUM_BLOCK_REQUEST_THREADS;
+
+        blockRequestExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(numBlockRequestThreads,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("RpcService-BlockRequest-%d")
+                        .setDaemon(true)
+                        .build()));
     }
 
 
@@ -131,6 +148,9 @@ public class RpcService {
 
                 long startTs = System.currentTimeMillis();
                 PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+                // The default of 2 connections per route would limit the parallel block requests
+                cm.setDefaultMaxPerRoute(numBlockRequestThreads + 1);
+                cm.setMaxTotal(numBlockRequestThreads + 1);
                 CloseableHttpClient httpProvider = HttpClients.custom().setConnectionManager(cm).build();
                 Properties nodeConfig = new Properties();
                 nodeConfig.setProperty("node.bitcoind.rpc.protocol", "http");
@@ -221,37 +241,28 @@ public class RpcService {
         });
     }
 
-    void requestBtcBlock(int blockHeight,
-                         Consumer<RawBlock> resultHandler,
-                         Consumer<Throwable> errorHandler) {
-        ListenableFuture<RawBlock> future = executor.submit(() -> {
-            long startTs = System.currentTimeMillis();
-            String blockHash = client.getBlockHash(blockHeight);
-            com.neemre.btcdcli4j.core.domain.RawBlock rawBtcBlock = client.getBlock(blockHash, 2);
-            List<RawTx> txList = rawBtcBlock.getTx().stream()
-                    .map(e -> getTxFromRawTransaction(e, rawBtcBlock))
-                    .collect(Collectors.toList());
-            log.info("requestBtcBlock from bitcoind at blockHeight {} with {} txs took {} ms",
-                    blockHeight, txList.size(), System.currentTimeMillis() - startTs);
-            return new RawBlock(rawBtcBlock.getHeight(),
-                    rawBtcBlock.getTime() * 1000, // rawBtcBlock.getTime() is in sec but we want ms
-                    rawBtcBlock.getHash(),
-                    rawBtcBlock.getPreviousBlockHash(),
-                    ImmutableList.copyOf(txList));
-        });
-
-        Futures.addCallback(future, new FutureCallback<>() {
-            @Override
-            public void onSuccess(RawBlock block) {
-                UserThread.execute(() -> resultHandler.accept(block));
-            }
-
-            @Override
-            public void onFailure(@NotNull Throwable throwable) {
-                log.error("Error at requestBtcBlock: blockHeight={}", blockHeight);
-                UserThread.execute(() -> errorHandler.accept(throwable));
-            }
-        });
+    /**
+     * Requests the blocks from fromBlockHeight to toBlockHeight in parallel. The blockHandler is called with the
+     * blocks in the order of their height. The returned pipeline has to be stopped if the caller does not want more
+     * blocks, e.g. at a reorg.
+     */
+    BlockRequestPipeline requestBtcBlocks(int fromBlockHeight,
+                                          int toBlockHeight,
+                                          Consumer<RawBlock> blockHandler,
+                                          ResultHandler resultHandler,
+                                          Consumer<Throwable> errorHandler) {
+        // We allow twice as many blocks in flight as we have threads, so the threads are busy while the
+        // blocks get parsed.
+        BlockRequestPipeline pipeline = new BlockRequestPipeline(this::requestBtcBlock,
+                blockRequestExecutor,
+                2 * numBlockRequestThreads,
+                fromBlockHeight,
+                toBlockHeight,
+                blockHandler,
+                resultHandler,
+                errorHandler);
+        pipeline.start();
+        return pipeline;
     }
 
 
@@ -259,6 +270,23 @@ public class RpcService {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // Called on a thread of the blockRequestExecutor
+    private RawBlock requestBtcBlock(int blockHeight) throws BitcoindException, CommunicationException {
+        long startTs = System.currentTimeMillis();
+        String blockHash = client.getBlockHash(blockHeight);
+        com.neemre.btcdcli4j.core.domain.RawBlock rawBtcBlock = client.getBlock(blockHash, 2);
+        List<RawTx> txList = rawBtcBlock.getTx().stream()
+                .map(e -> getTxFromRawTransaction(e, rawBtcBlock))
+                .collect(Collectors.toList());
+        log.info("requestBtcBlock from bitcoind at blockHeight {} with {} txs took {} ms",
+                blockHeight, txList.size(), System.currentTimeMillis() - startTs);
+        return new RawBlock(rawBtcBlock.getHeight(),
+                rawBtcBlock.getTime() * 1000, // rawBtcBlock.getTime() is in sec but we want ms
+                rawBtcBlock.getHash(),
+                rawBtcBlock.getPreviousBlockHash(),
+                ImmutableList.copyOf(txList));
+    }
+
     private RawTx getTxFromRawTransaction(RawTransaction rawBtcTx,
                                           com.neemre.btcdcli4j.core.domain.RawBlock rawBtcBlock) {
         String txId = rawBtcTx.getTxId();
@@ -0,0 +1,152 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.full.network;
+
+import bisq.core.dao.node.full.CompactBlockEncoding;
+import bisq.core.dao.node.full.RawBlock;
+import bisq.core.dao.node.messages.GetBlocksResponse;
+import bisq.core.dao.state.model.blockchain.Block;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches the blocks in the CompactBlockEncoding in segments of SEGMENT_SIZE blocks aligned to multiples of
+ * SEGMENT_SIZE. After a new release many lite nodes request the blocks from nearly the same height, so we can send
+ * them the cached segments instead of encoding all blocks again. Only the segments at the start and the end of the
+ * requested range which do not cover a full segment get encoded for each request.
+ * <p>
+ * A segment is only used if the hash of its last block matches the block at that height, so segments of blocks which
+ * got replaced by a reorg are not used. If the cache exceeds MAX_CACHE_SIZE we remove the least recently used
+ * segments.
+ */
+@Slf4j
+class BlockSegmentCache {
+    static final int SEGMENT_SIZE = GetBlocksResponse.COMPACT_BLOCK_SEGMENT_SIZE;
+    private static final long MAX_CACHE_SIZE = 50 * 1024 * 1024;
+
+    // Key is the height of the first block of the segment
+    private final Map<Integer, Segment> segmentsByStartHeight = new LinkedHashMap<>(16, 0.75f, true);
+    private long cacheSize;
+    @Getter
+    private long numHits;
+    @Getter
+    private long numMisses;
+    // Number of encoded bytes we did not need to create again
+    @Getter
+    private long numBytesSaved;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @param blocks Blocks in the order of their height without gaps
+     * @return The blocks in the CompactBlockEncoding as a list of segments in the order of the block height
+     */
+    synchronized List<byte[]> getCompactBlockSegments(List<Block> blocks) {
+        List<byte[]> compactBlockSegments = new ArrayList<>();
+        List<Block> segmentBlocks = new ArrayList<>();
+        for (Block block : blocks) {
+            if (!segmentBlocks.isEmpty() && getStartHeight(block.getHeight()) != getStartHeight(segmentBlocks.get(0).getHeight())) {
+                compactBlockSegments.add(getCompactBlockSegment(segmentBlocks));
+                segmentBlocks.clear();
+            }
+            segmentBlocks.add(block);
+        }
+        if (!segmentBlocks.isEmpty())
+            compactBlockSegments.add(getCompactBlockSegment(segmentBlocks));
+
+        log.info("BlockSegmentCache: numHits={}, numMisses={}, numBytesSaved={}, cacheSize={}, numSegments={}",
+                numHits, numMisses, numBytesSaved, cacheSize, segmentsByStartHeight.size());
+        return compactBlockSegments;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private byte[] getCompactBlockSegment(List<Block> segmentBlocks) {
+        int startHeight = segmentBlocks.get(0).getHeight();
+        boolean isFullSegment = segmentBlocks.size() == SEGMENT_SIZE && startHeight == getStartHeight(startHeight);
+        if (!isFullSegment)
+            return encode(segmentBlocks);
+
+        String hashOfLastBlock = segmentBlocks.get(segmentBlocks.size() - 1).getHash();
+        Segment segment = segmentsByStartHeight.get(startHeight);
+        if (segment != null && segment.hashOfLastBlock.equals(hashOfLastBlock)) {
+            numHits++;
+            numBytesSaved += segment.compactBlocks.length;
+            return segment.compactBlocks;
+        }
+
+        numMisses++;
+        if (segment != null) {
+            log.info("We remove the segment at height {} as its blocks have changed", startHeight);
+            removeSegment(startHeight);
+        }
+        byte[] compactBlocks = encode(segmentBlocks);
+        segmentsByStartHeight.put(startHeight, new Segment(hashOfLastBlock, compactBlocks));
+        cacheSize += compactBlocks.length;
+
+        Iterator<Map.Entry<Integer, Segment>> iterator = segmentsByStartHeight.entrySet().iterator();
+        while (cacheSize > MAX_CACHE_SIZE && iterator.hasNext()) {
+            cacheSize -= iterator.next().getValue().compactBlocks.length;
+            iterator.remove();
+        }
+        return compactBlocks;
+    }
+
+    private void removeSegment(int startHeight) {
+        Segment segment = segmentsByStartHeight.remove(startHeight);
+        if (segment != null)
+            cacheSize -= segment.compactBlocks.length;
+    }
+
+    private static byte[] encode(List<Block> blocks) {
+        return CompactBlockEncoding.encode(blocks.stream().map(RawBlock::fromBlock).collect(Collectors.toList()), true);
+    }
+
+    private static int getStartHeight(int height) {
+        return height - Math.floorMod(height, SEGMENT_SIZE);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Segment
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class Segment {
+        private final String hashOfLastBlock;
+        private final byte[] compactBlocks;
+
+        private Segment(String hashOfLastBlock, byte[] compactBlocks) {
+            this.hashOfLastBlock = hashOfLastBlock;
+            this.compactBlocks = compactBlocks;
+        }
+    }
+}
@@ -61,6 +61,7 @@ public class FullNodeNetworkService implements MessageListener, PeerManager.List
     private final Broadcaster broadcaster;
     private final MissingDataRequestService missingDataRequestService;
     private final DaoStateService daoStateService;
+    private final BlockSegmentCache blockSegmentCache = new BlockSegmentCache();
 
     // Key is connection UID
     private final Map<String, GetBlocksRequestHandler> getBlocksRequestHandlers = new HashMap<>();
@@ -101,6 +102,18 @@ public class FullNodeNetworkService implements MessageListener, PeerManager.List
         peerManager.removeListener(this);
     }
 
+    public long getNumBlockSegmentCacheHits() {
+        return blockSegmentCache.getNumHits();
+    }
+
+    public long getNumBlockSegmentCacheMisses() {
+        return blockSegmentCache.getNumMisses();
+    }
+
+    public long getNumBlockSegmentCacheBytesSaved() {
+        return blockSegmentCache.getNumBytesSaved();
+    }
+
     public void publishNewBlock(Block block) {
         log.info("Publish new block at height={} and block hash={}", block.getHeight(), block.getHash());
         RawBlock rawBlock = RawBlock.fromBlock(block);
@@ -142,6 +155,7 @@ public class FullNodeNetworkService implements MessageListener, PeerManager.List
                 if (!getBlocksRequestHandlers.containsKey(uid)) {
                     GetBlocksRequestHandler requestHandler = new GetBlocksRequestHandler(networkNode,
                             daoStateService,
+                            blockSegmentCache,
                             new GetBlocksRequestHandler.Listener() {
                                 @Override
                                 public void onComplete() {
@@ -29,12 +29,12 @@ import bisq.network.p2p.network.NetworkNode;
 
 import bisq.common.Timer;
 import bisq.common.UserThread;
+import bisq.common.app.Capability;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 
-import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -68,6 +68,7 @@ class GetBlocksRequestHandler {
 
     private final NetworkNode networkNode;
     private final DaoStateService daoStateService;
+    private final BlockSegmentCache blockSegmentCache;
     private final Listener listener;
     private Timer timeoutTimer;
     private boolean stopped;
@@ -77,9 +78,13 @@ class GetBlocksRequestHandler {
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    public GetBlocksRequestHandler(NetworkNode networkNode, DaoStateService daoStateService, Listener listener) {
+    public GetBlocksRequestHandler(NetworkNode networkNode,
+                                   DaoStateService daoStateService,
+                                   BlockSegmentCache blockSegmentCache,
+                                   Listener listener) {
         this.networkNode = networkNode;
         this.daoStateService = daoStateService;
+        this.blockSegmentCache = blockSegmentCache;
         this.listener = listener;
     }
 
@@ -89,10 +94,16 @@ class GetBlocksRequestHandler {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void onGetBlocksRequest(GetBlocksRequest getBlocksRequest, final Connection connection) {
-        // We limit number of blocks to 6000 which is about 1.5 month.
-        List<Block> blocks = new LinkedList<>(daoStateService.getBlocksFromBlockHeight(getBlocksRequest.getFromBlockHeight(), 6000));
-        List<RawBlock> rawBlocks = blocks.stream().map(RawBlock::fromBlock).collect(Collectors.toList());
-        GetBlocksResponse getBlocksResponse = new GetBlocksResponse(rawBlocks, getBlocksRequest.getNonce());
+        List<Block> blocks = daoStateService.getBlocksFromBlockHeight(getBlocksRequest.getFromBlockHeight(),
+                GetBlocksResponse.MAX_BLOCKS);
+        GetBlocksResponse getBlocksResponse;
+        if (connection.getCapabilities().containsAll(Capability.COMPACT_GET_BLOCKS_RESPONSE)) {
+            List<byte[]> compactBlockSegments = blockSegmentCache.getCompactBlockSegments(blocks);
+            getBlocksResponse = GetBlocksResponse.fromCompactBlockSegments(compactBlockSegments, getBlocksRequest.getNonce());
+        } else {
+            List<RawBlock> rawBlocks = blocks.stream().map(RawBlock::fromBlock).collect(Collectors.toList());
+            getBlocksResponse = new GetBlocksResponse(rawBlocks, getBlocksRequest.getNonce());
+        }
         log.info("Received GetBlocksRequest from {} for blocks from height {}",
                 connection.getPeersNodeAddressOptional(), getBlocksRequest.getFromBlockHeight());
         if (timeoutTimer == null) {
@@ -110,8 +121,10 @@ class GetBlocksRequestHandler {
             @Override
             public void onSuccess(Connection connection) {
                 if (!stopped) {
-                    log.info("Send DataResponse to {} succeeded. getBlocksResponse.getBlocks().size()={}",
-                            connection.getPeersNodeAddressOptional(), getBlocksResponse.getBlocks().size());
+                    log.info("Send DataResponse to {} succeeded. getBlocksResponse.getBlocks().size()={}, " +
+                                    "compact={}",
+                            connection.getPeersNodeAddressOptional(), getBlocksResponse.getBlocks().size(),
+                            getBlocksResponse.getCompactBlockSegments() != null);
                     cleanup();
                     listener.onComplete();
                 } else {
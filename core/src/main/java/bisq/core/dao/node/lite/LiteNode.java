@@ -18,6 +18,7 @@
 package bisq.core.dao.node.lite;
 
 import bisq.core.btc.wallet.BsqWalletService;
+import bisq.core.dao.monitoring.DaoStateMonitoringService;
 import bisq.core.dao.node.BsqNode;
 import bisq.core.dao.node.explorer.ExportJsonFilesService;
 import bisq.core.dao.node.full.RawBlock;
@@ -54,6 +55,7 @@ public class LiteNode extends BsqNode {
 
     private final LiteNodeNetworkService liteNodeNetworkService;
     private final BsqWalletService bsqWalletService;
+    private final DaoStateMonitoringService daoStateMonitoringService;
     private Timer checkForBlockReceivedTimer;
 
 
@@ -69,11 +71,13 @@ public class LiteNode extends BsqNode {
                     P2PService p2PService,
                     LiteNodeNetworkService liteNodeNetworkService,
                     BsqWalletService bsqWalletService,
-                    ExportJsonFilesService exportJsonFilesService) {
+                    ExportJsonFilesService exportJsonFilesService,
+                    DaoStateMonitoringService daoStateMonitoringService) {
         super(blockParser, daoStateService, daoStateSnapshotService, p2PService, exportJsonFilesService);
 
         this.liteNodeNetworkService = liteNodeNetworkService;
         this.bsqWalletService = bsqWalletService;
+        this.daoStateMonitoringService = daoStateMonitoringService;
     }
 
 
@@ -184,7 +188,8 @@ public class LiteNode extends BsqNode {
 
         // We delay the parsing to next render frame to avoid that the UI get blocked in case we parse a lot of blocks.
         // Parsing itself is very fast (3 sec. for 7000 blocks) but creating the hash chain slows down batch processing a lot
-        // (30 sec for 7000 blocks).
+        // (30 sec for 7000 blocks). The hashes are created on the hash chain thread of the daoStateMonitoringService
+        // and we only parse the next block once it can take another one, so the user thread does not wait for it.
         // The updates at block height change are not much optimized yet, so that can be for sure improved
         // 144 blocks a day would result in about 4000 in a month, so if a user downloads the app after 1 months latest
         // release it will be a bit of a performance hit. It is a one time event as the snapshots gets created and be
@@ -210,7 +215,7 @@ public class LiteNode extends BsqNode {
     }
 
     private void runDelayedBatchProcessing(List<RawBlock> blocks, Runnable resultHandler) {
-        UserThread.execute(() -> {
+        daoStateMonitoringService.runWhenReadyForNextBlock(() -> {
             if (blocks.isEmpty()) {
                 resultHandler.run();
                 return;
@@ -17,14 +17,18 @@
 
 package bisq.core.dao.node.messages;
 
+import bisq.core.dao.node.full.CompactBlockEncoding;
 import bisq.core.dao.node.full.RawBlock;
 
 import bisq.network.p2p.DirectMessage;
 import bisq.network.p2p.ExtendedDataSizePermission;
 
 import bisq.common.app.Version;
+import bisq.common.proto.ProtobufferRuntimeException;
 import bisq.common.proto.network.NetworkEnvelope;
 
+import com.google.protobuf.ByteString;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -33,15 +37,31 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 @EqualsAndHashCode(callSuper = true)
 @Getter
 @Slf4j
 public final class GetBlocksResponse extends NetworkEnvelope implements DirectMessage, ExtendedDataSizePermission {
+    // We limit number of blocks to 6000 which is about 1.5 month.
+    public static final int MAX_BLOCKS = 6000;
+    public static final int COMPACT_BLOCK_SEGMENT_SIZE = 100;
+    // The segments at the start and the end of the range might not be full segments
+    private static final int MAX_COMPACT_BLOCK_SEGMENTS = MAX_BLOCKS / COMPACT_BLOCK_SEGMENT_SIZE + 2;
+
     private final List<RawBlock> blocks;
     private final int requestNonce;
+    // Segments of blocks in the CompactBlockEncoding which are sent instead of the blocks. Only set by the sender.
+    // The receiver gets the decoded blocks.
+    @Nullable
+    private final List<byte[]> compactBlockSegments;
 
     public GetBlocksResponse(List<RawBlock> blocks, int requestNonce) {
-        this(blocks, requestNonce, Version.getP2PMessageVersion());
+        this(blocks, null, requestNonce, Version.getP2PMessageVersion());
+    }
+
+    public static GetBlocksResponse fromCompactBlockSegments(List<byte[]> compactBlockSegments, int requestNonce) {
+        return new GetBlocksResponse(new ArrayList<>(), compactBlockSegments, requestNonce, Version.getP2PMessageVersion());
     }
 
 
@@ -49,31 +69,59 @@ public final class GetBlocksResponse extends NetworkEnvelope implements DirectMe
     // PROTO BUFFER
     ///////////////////////////////////////////////////////////////////////////////////////////
 
-    private GetBlocksResponse(List<RawBlock> blocks, int requestNonce, int messageVersion) {
+    private GetBlocksResponse(List<RawBlock> blocks,
+                              @Nullable List<byte[]> compactBlockSegments,
+                              int requestNonce,
+                              int messageVersion) {
         super(messageVersion);
         this.blocks = blocks;
+        this.compactBlockSegments = compactBlockSegments;
         this.requestNonce = requestNonce;
     }
 
     @Override
     public protobuf.NetworkEnvelope toProtoNetworkEnvelope() {
+        protobuf.GetBlocksResponse.Builder builder = protobuf.GetBlocksResponse.newBuilder()
+                .setRequestNonce(requestNonce);
+        if (compactBlockSegments != null) {
+            builder.addAllCompactRawBlocks(compactBlockSegments.stream()
+                    .map(ByteString::copyFrom)
+                    .collect(Collectors.toList()));
+        } else {
+            builder.addAllRawBlocks(blocks.stream()
+                    .map(RawBlock::toProtoMessage)
+                    .collect(Collectors.toList()));
+        }
         return getNetworkEnvelopeBuilder()
-                .setGetBlocksResponse(protobuf.GetBlocksResponse.newBuilder()
-                        .addAllRawBlocks(blocks.stream()
-                                .map(RawBlock::toProtoMessage)
-                                .collect(Collectors.toList()))
-                        .setRequestNonce(requestNonce))
+                .setGetBlocksResponse(builder)
                 .build();
     }
 
     public static NetworkEnvelope fromProto(protobuf.GetBlocksResponse proto, int messageVersion) {
-        List<RawBlock> list = proto.getRawBlocksList().stream()
-                .map(RawBlock::fromProto)
-                .collect(Collectors.toList());
+        List<RawBlock> list;
+        if (!proto.getCompactRawBlocksList().isEmpty()) {
+            if (proto.getCompactRawBlocksCount() > MAX_COMPACT_BLOCK_SEGMENTS)
+                throw new ProtobufferRuntimeException("Number of compact block segments " +
+                        proto.getCompactRawBlocksCount() + " exceeds the limit of " + MAX_COMPACT_BLOCK_SEGMENTS);
+
+            list = CompactBlockEncoding.decode(proto.getCompactRawBlocksList().stream()
+                            .map(ByteString::toByteArray)
+                            .collect(Collectors.toList()),
+                    MAX_BLOCKS);
+        } else {
+            if (proto.getRawBlocksCount() > MAX_BLOCKS)
+                throw new ProtobufferRuntimeException("Number of blocks " + proto.getRawBlocksCount() +
+                        " exceeds the limit of " + MAX_BLOCKS);
+
+            list = proto.getRawBlocksList().stream()
+                    .map(RawBlock::fromProto)
+                    .collect(Collectors.toList());
+        }
         log.info("Received a GetBlocksResponse with {} blocks and {} kB size", list.size(), proto.getSerializedSize() / 1000d);
-        return new GetBlocksResponse(proto.getRawBlocksList().isEmpty() ?
+        return new GetBlocksResponse(list.isEmpty() ?
                 new ArrayList<>() :
                 list,
+                null,
                 proto.getRequestNonce(),
                 messageVersion);
     }
@@ -83,6 +131,7 @@ public final class GetBlocksResponse extends NetworkEnvelope implements DirectMe
     public String toString() {
         return "GetBlocksResponse{" +
                 "\n     blocks=" + blocks +
+                ",\n     compactBlockSegments.size()=" + (compactBlockSegments != null ? compactBlockSegments.size() : 0) +
                 ",\n     requestNonce=" + requestNonce +
                 "\n} " + super.toString();
     }
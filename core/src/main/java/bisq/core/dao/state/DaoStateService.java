@@ -44,9 +44,12 @@ import javax.inject.Inject;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
@@ -70,6 +73,19 @@ public class DaoStateService implements DaoSetupService {
     private final GenesisTxInfo genesisTxInfo;
     private final BsqFormatter bsqFormatter;
     private final List<DaoStateListener> daoStateListeners = new CopyOnWriteArrayList<>();
+
+    // Lookup indexes for the txs and txOutputs of all blocks. Txs are added as soon they get parsed so lookups return
+    // the same results as a scan over all blocks. At applySnapshot the indexes get rebuilt from the blocks.
+    private final Map<String, Tx> txCache = new HashMap<>();
+    private final Map<TxOutputKey, TxOutput> txOutputCache = new HashMap<>();
+    private final Map<TxOutputType, Set<TxOutput>> txOutputsByTxOutputTypeCache = new EnumMap<>(TxOutputType.class);
+    // Lookup indexes for the height based lookups of blocks, cycles and param changes. Blocks and cycles are appended
+    // in the order of their height, the param changes are grouped by param name and sorted by activation height. If
+    // the lists of the daoState got changed from outside (e.g. at applySnapshot) the indexes get rebuilt.
+    private final List<Block> blockIndex = new ArrayList<>();
+    private final List<Cycle> cycleIndex = new ArrayList<>();
+    private final Map<String, List<ParamChange>> paramChangesByParamName = new HashMap<>();
+    private int numIndexedParamChanges;
     @Getter
     private boolean parseBlockChainComplete;
     private boolean allowDaoStateChange;
@@ -141,16 +157,15 @@ public class DaoStateService implements DaoSetupService {
 
         daoState.getDecryptedBallotsWithMeritsList().clear();
         daoState.getDecryptedBallotsWithMeritsList().addAll(snapshot.getDecryptedBallotsWithMeritsList());
+
+        rebuildTxCaches();
+        rebuildHeightIndexes();
     }
 
     public DaoState getClone() {
         return DaoState.getClone(daoState);
     }
 
-    DaoState getClone(DaoState snapshotCandidate) {
-        return DaoState.getClone(snapshotCandidate);
-    }
-
     public byte[] getSerializedStateForHashChain() {
         return daoState.getSerializedStateForHashChain();
     }
@@ -176,6 +191,7 @@ public class DaoStateService implements DaoSetupService {
     public void addCycle(Cycle cycle) {
         assertDaoStateChange();
         getCycles().add(cycle);
+        getCycleIndex().add(cycle);
     }
 
     @Nullable
@@ -184,10 +200,21 @@ public class DaoStateService implements DaoSetupService {
     }
 
     public Optional<Cycle> getCycle(int height) {
-        return getCycles().stream()
-                .filter(cycle -> cycle.getHeightOfFirstBlock() <= height)
-                .filter(cycle -> cycle.getHeightOfLastBlock() >= height)
-                .findAny();
+        // Cycles follow each other without overlap, so we search for the last cycle starting at or before height
+        List<Cycle> cycles = getCycleIndex();
+        int low = 0;
+        int high = cycles.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (cycles.get(mid).getHeightOfFirstBlock() <= height)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        if (high >= 0 && cycles.get(high).getHeightOfLastBlock() >= height)
+            return Optional.of(cycles.get(high));
+        else
+            return Optional.empty();
     }
 
     public Optional<Integer> getStartHeightOfNextCycle(int blockHeight) {
@@ -219,6 +246,7 @@ public class DaoStateService implements DaoSetupService {
                     "We ignore that block as the first block need to be the genesis block. " +
                     "That might happen in edge cases at reorgs. Received block={}", block);
         } else {
+            getBlockIndex().add(block);
             daoState.getBlocks().add(block);
 
             if (parseBlockChainComplete)
@@ -226,7 +254,16 @@ public class DaoStateService implements DaoSetupService {
         }
     }
 
-    // Third we get the onParseBlockComplete called after all rawTxs of blocks have been parsed
+    // Third we get the parsed BSQ txs of the block added one by one
+    public void onNewTxForLastBlock(Block block, Tx tx) {
+        assertDaoStateChange();
+        block.getTxs().add(tx);
+
+        // If the block was not added (see onNewBlockWithEmptyTxs) its txs are not part of our state
+        getLastBlock().filter(lastBlock -> lastBlock == block).ifPresent(lastBlock -> addToTxCaches(tx));
+    }
+
+    // Fourth we get the onParseBlockComplete called after all rawTxs of blocks have been parsed
     public void onParseBlockComplete(Block block) {
         if (parseBlockChainComplete)
             log.info("Parse block completed: Block height {}, {} BSQ transactions.", block.getHeight(), block.getTxs().size());
@@ -290,9 +327,18 @@ public class DaoStateService implements DaoSetupService {
     }
 
     public Optional<Block> getBlockAtHeight(int height) {
-        return getBlocks().stream()
-                .filter(block -> block.getHeight() == height)
-                .findAny();
+        List<Block> blocks = getBlockIndex();
+        if (!hasBlocksWithoutGaps(blocks)) {
+            return blocks.stream()
+                    .filter(block -> block.getHeight() == height)
+                    .findAny();
+        }
+
+        int index = height - blocks.get(0).getHeight();
+        if (index >= 0 && index < blocks.size())
+            return Optional.of(blocks.get(index));
+        else
+            return Optional.empty();
     }
 
     public boolean containsBlock(Block block) {
@@ -310,7 +356,17 @@ public class DaoStateService implements DaoSetupService {
     public List<Block> getBlocksFromBlockHeight(int fromBlockHeight, int numMaxBlocks) {
         // We limit requests to numMaxBlocks blocks, to avoid performance issues and too
         // large network data in case a node requests too far back in history.
-        return getBlocks().stream()
+        List<Block> blocks = getBlockIndex();
+        if (hasBlocksWithoutGaps(blocks)) {
+            int fromIndex = Math.max(0, fromBlockHeight - blocks.get(0).getHeight());
+            if (fromIndex >= blocks.size())
+                return new ArrayList<>();
+
+            int toIndex = (int) Math.min(blocks.size(), (long) fromIndex + numMaxBlocks);
+            return new ArrayList<>(blocks.subList(fromIndex, toIndex));
+        }
+
+        return blocks.stream()
                 .filter(block -> block.getHeight() >= fromBlockHeight)
                 .sorted(Comparator.comparing(Block::getHeight))
                 .limit(numMaxBlocks)
@@ -349,15 +405,15 @@ public class DaoStateService implements DaoSetupService {
     }
 
     public TreeMap<String, Tx> getTxMap() {
-        return new TreeMap<>(getTxStream().collect(Collectors.toMap(Tx::getId, tx -> tx)));
+        return new TreeMap<>(txCache);
     }
 
     public Set<Tx> getTxs() {
-        return getTxStream().collect(Collectors.toSet());
+        return new HashSet<>(txCache.values());
     }
 
     public Optional<Tx> getTx(String txId) {
-        return getTxStream().filter(tx -> tx.getId().equals(txId)).findAny();
+        return Optional.ofNullable(txCache.get(txId));
     }
 
     public List<Tx> getInvalidTxs() {
@@ -369,7 +425,7 @@ public class DaoStateService implements DaoSetupService {
     }
 
     public boolean containsTx(String txId) {
-        return getTx(txId).isPresent();
+        return txCache.containsKey(txId);
     }
 
 
@@ -424,13 +480,11 @@ public class DaoStateService implements DaoSetupService {
     }
 
     public boolean existsTxOutput(TxOutputKey key) {
-        return getTxOutputStream().anyMatch(txOutput -> txOutput.getKey().equals(key));
+        return txOutputCache.containsKey(key);
     }
 
     public Optional<TxOutput> getTxOutput(TxOutputKey txOutputKey) {
-        return getTxOutputStream()
-                .filter(txOutput -> txOutput.getKey().equals(txOutputKey))
-                .findAny();
+        return Optional.ofNullable(txOutputCache.get(txOutputKey));
     }
 
 
@@ -514,9 +568,8 @@ public class DaoStateService implements DaoSetupService {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public Set<TxOutput> getTxOutputsByTxOutputType(TxOutputType txOutputType) {
-        return getTxOutputStream()
-                .filter(txOutput -> txOutput.getTxOutputType() == txOutputType)
-                .collect(Collectors.toSet());
+        Set<TxOutput> txOutputs = txOutputsByTxOutputTypeCache.get(txOutputType);
+        return txOutputs != null ? new HashSet<>(txOutputs) : new HashSet<>();
     }
 
     public boolean isBsqTxOutputType(TxOutput txOutput) {
@@ -875,6 +928,10 @@ public class DaoStateService implements DaoSetupService {
         return false;
     }
 
+    public List<String> getConfiscatedLockupTxList() {
+        return daoState.getConfiscatedLockupTxList();
+    }
+
     public boolean isConfiscatedLockupTxOutput(String lockupTxId) {
         return daoState.getConfiscatedLockupTxList().contains(lockupTxId);
     }
@@ -899,20 +956,26 @@ public class DaoStateService implements DaoSetupService {
                     paramChangeList.add(paramChange);
                     // Addition with older height should not be possible but to ensure correct sorting lets run a sort.
                     paramChangeList.sort(Comparator.comparingInt(ParamChange::getActivationHeight));
+                    rebuildParamChangeIndex();
                 });
     }
 
     public String getParamValue(Param param, int blockHeight) {
-        List<ParamChange> paramChangeList = new ArrayList<>(daoState.getParamChangeList());
-        if (!paramChangeList.isEmpty()) {
-            // List is sorted by height, we start from latest entries to find most recent entry.
-            for (int i = paramChangeList.size() - 1; i >= 0; i--) {
-                ParamChange paramChange = paramChangeList.get(i);
-                if (paramChange.getParamName().equals(param.name()) &&
-                        blockHeight >= paramChange.getActivationHeight()) {
-                    return paramChange.getValue();
-                }
+        List<ParamChange> paramChanges = getParamChangeIndex().get(param.name());
+        if (paramChanges != null) {
+            // List is sorted by height, we search for the most recent entry which is activated at blockHeight. If
+            // there are several entries with the same height the last one wins.
+            int low = 0;
+            int high = paramChanges.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (paramChanges.get(mid).getActivationHeight() <= blockHeight)
+                    low = mid + 1;
+                else
+                    high = mid - 1;
             }
+            if (high >= 0)
+                return paramChanges.get(high).getValue();
         }
 
         // If no value found we use default values
@@ -1040,5 +1103,71 @@ public class DaoStateService implements DaoSetupService {
         if (!allowDaoStateChange)
             throw new RuntimeException("We got a call which would change the daoState outside of the allowed event phase");
     }
+
+    private void rebuildTxCaches() {
+        txCache.clear();
+        txOutputCache.clear();
+        txOutputsByTxOutputTypeCache.clear();
+        getTxStream().forEach(this::addToTxCaches);
+    }
+
+    private List<Block> getBlockIndex() {
+        if (blockIndex.size() != getBlocks().size())
+            rebuildBlockIndex();
+        return blockIndex;
+    }
+
+    private List<Cycle> getCycleIndex() {
+        if (cycleIndex.size() != getCycles().size())
+            rebuildCycleIndex();
+        return cycleIndex;
+    }
+
+    private Map<String, List<ParamChange>> getParamChangeIndex() {
+        if (numIndexedParamChanges != daoState.getParamChangeList().size())
+            rebuildParamChangeIndex();
+        return paramChangesByParamName;
+    }
+
+    private void rebuildHeightIndexes() {
+        rebuildBlockIndex();
+        rebuildCycleIndex();
+        rebuildParamChangeIndex();
+    }
+
+    private void rebuildBlockIndex() {
+        blockIndex.clear();
+        blockIndex.addAll(getBlocks());
+    }
+
+    private void rebuildCycleIndex() {
+        cycleIndex.clear();
+        cycleIndex.addAll(getCycles());
+    }
+
+    private void rebuildParamChangeIndex() {
+        paramChangesByParamName.clear();
+        List<ParamChange> paramChangeList = daoState.getParamChangeList();
+        paramChangeList.forEach(paramChange -> paramChangesByParamName
+                .computeIfAbsent(paramChange.getParamName(), e -> new ArrayList<>())
+                .add(paramChange));
+        numIndexedParamChanges = paramChangeList.size();
+    }
+
+    // Blocks get added one after the other, so usually the block at a height is at the offset to the first block.
+    // We only use the offset if the heights of the first and last block confirm that.
+    private static boolean hasBlocksWithoutGaps(List<Block> blocks) {
+        return !blocks.isEmpty() &&
+                blocks.get(blocks.size() - 1).getHeight() - blocks.get(0).getHeight() == blocks.size() - 1;
+    }
+
+    private void addToTxCaches(Tx tx) {
+        txCache.put(tx.getId(), tx);
+        tx.getTxOutputs().forEach(txOutput -> {
+            txOutputCache.put(txOutput.getKey(), txOutput);
+            txOutputsByTxOutputTypeCache.computeIfAbsent(txOutput.getTxOutputType(), e -> new HashSet<>())
+                    .add(txOutput);
+        });
+    }
 }
 
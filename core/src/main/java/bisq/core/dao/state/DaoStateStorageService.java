@@ -20,25 +20,50 @@ package bisq.core.dao.state;
 import bisq.core.dao.monitoring.DaoStateMonitoringService;
 import bisq.core.dao.monitoring.model.DaoStateHash;
 import bisq.core.dao.state.model.DaoState;
+import bisq.core.dao.state.model.blockchain.Block;
 
 import bisq.network.p2p.storage.persistence.ResourceDataStoreService;
 import bisq.network.p2p.storage.persistence.StoreService;
 
 import bisq.common.UserThread;
+import bisq.common.storage.AppendOnlyLog;
+import bisq.common.storage.FileUtil;
+import bisq.common.storage.ResourceNotFoundException;
 import bisq.common.storage.Storage;
+import bisq.common.util.Utilities;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
 import java.io.File;
+import java.io.IOException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Manages persistence of the daoState.
+ * <p>
+ * The blocks and the hash chain only grow, so we do not write them with the snapshot but append them to two
+ * append-only logs. At each snapshot we only append the blocks and hashes added since the last snapshot, which keeps
+ * the disk writes proportional to the new blocks. The DaoStateStore file contains only the snapshot of the other data
+ * and the number and last hash of the log entries which belong to it. It is written after the logs have been synced
+ * to disk, so the logs always contain all entries the persisted snapshot refers to. Before we remove entries from the
+ * logs in case of a reorg or a reset, we write a snapshot which contains all blocks and hashes, so a crash while we
+ * rewrite the logs does not leave a snapshot which refers to removed entries.
+ * <p>
+ * If the logs do not match the persisted snapshot nevertheless, we drop the logs and start from the resource files.
+ * <p>
+ * Files of the old format which contain all blocks and hashes (e.g. the resource files) are still supported. They get
+ * converted with the next snapshot.
  */
 @Slf4j
 public class DaoStateStorageService extends StoreService<DaoStateStore> {
@@ -48,9 +73,20 @@ public class DaoStateStorageService extends StoreService<DaoStateStore> {
     // Another update due to some data field changes which would cause diff. hashes, so to enforce users to get the new
     // data we rename it to DaoStateStore
     private static final String FILE_NAME = "DaoStateStore";
+    private static final String BLOCKS_LOG_FILE_NAME = FILE_NAME + "_blocks";
+    private static final String DAO_STATE_HASHES_LOG_FILE_NAME = FILE_NAME + "_hashes";
 
     private final DaoState daoState;
     private final DaoStateMonitoringService daoStateMonitoringService;
+    private final AppendOnlyLog<protobuf.BaseBlock> blocksLog;
+    private final AppendOnlyLog<protobuf.DaoStateHash> daoStateHashesLog;
+    // The logs must only be accessed from that executor after reading at startup
+    private final ListeningExecutorService executor = Utilities.getSingleThreadExecutor("DaoStateStorageService");
+
+    // Hashes of the entries in our logs. Used to find the entries to append and to detect reorgs.
+    private final List<String> blockHashesInLog = new ArrayList<>();
+    private final List<DaoStateHash> daoStateHashesInLog = new ArrayList<>();
+    private String resourcePostFix = "";
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -66,6 +102,9 @@ public class DaoStateStorageService extends StoreService<DaoStateStore> {
         super(storageDir, daoSnapshotStorage);
         this.daoState = daoState;
         this.daoStateMonitoringService = daoStateMonitoringService;
+        blocksLog = new AppendOnlyLog<>(new File(storageDir, BLOCKS_LOG_FILE_NAME), protobuf.BaseBlock.parser());
+        daoStateHashesLog = new AppendOnlyLog<>(new File(storageDir, DAO_STATE_HASHES_LOG_FILE_NAME),
+                protobuf.DaoStateHash.parser());
 
         resourceDataStoreService.addService(this);
     }
@@ -81,13 +120,35 @@ public class DaoStateStorageService extends StoreService<DaoStateStore> {
     }
 
     public void persist(DaoState daoState, LinkedList<DaoStateHash> daoStateHashChain) {
-        persist(daoState, daoStateHashChain, 200);
+        persist(daoState, daoStateHashChain, () -> {
+        });
     }
 
-    private void persist(DaoState daoState, LinkedList<DaoStateHash> daoStateHashChain, long delayInMilli) {
-        store.setDaoState(daoState);
-        store.setDaoStateHashChain(daoStateHashChain);
-        storage.queueUpForSave(store, delayInMilli);
+    // The daoState and the daoStateHashChain must not get changed after they got passed as we access them from our
+    // executor. We write the snapshot on our executor as well, so it is always written after the log entries it
+    // refers to and before any of them get removed again.
+    @VisibleForTesting
+    void persist(DaoState daoState, LinkedList<DaoStateHash> daoStateHashChain, Runnable resultHandler) {
+        executor.execute(() -> {
+            try {
+                long ts = System.currentTimeMillis();
+                appendToLogs(daoState, daoStateHashChain);
+                log.debug("Appending to logs took {} ms", System.currentTimeMillis() - ts);
+            } catch (Throwable t) {
+                // We keep the old snapshot which still matches the logs
+                log.error("Could not append to logs. We do not persist the snapshot.", t);
+                UserThread.execute(resultHandler);
+                return;
+            }
+
+            storage.saveNow(new DaoStateStore(daoState, daoStateHashChain));
+
+            UserThread.execute(() -> {
+                store.setDaoState(daoState);
+                store.setDaoStateHashChain(daoStateHashChain);
+                resultHandler.run();
+            });
+        });
     }
 
     public DaoState getPersistedBsqState() {
@@ -99,8 +160,7 @@ public class DaoStateStorageService extends StoreService<DaoStateStore> {
     }
 
     public void resetDaoState(Runnable resultHandler) {
-        persist(new DaoState(), new LinkedList<>(), 1);
-        UserThread.runAfter(resultHandler, 300, TimeUnit.MILLISECONDS);
+        persist(new DaoState(), new LinkedList<>(), resultHandler);
     }
 
 
@@ -108,8 +168,153 @@ public class DaoStateStorageService extends StoreService<DaoStateStore> {
     // Protected
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    @Override
+    protected void readFromResources(String postFix) {
+        resourcePostFix = postFix;
+        super.readFromResources(postFix);
+    }
+
+    @Override
+    protected void readStore() {
+        super.readStore();
+        try {
+            readLogs();
+            return;
+        } catch (IOException e) {
+            log.error("Logs do not match the persisted DaoStateStore. We drop the logs and the snapshot and " +
+                    "start from the resource files. " + e.getMessage());
+        }
+
+        dropLogs();
+        try {
+            storage.removeAndBackupFile(FILE_NAME);
+        } catch (IOException e) {
+            log.error(e.toString());
+        }
+        makeFileFromResourceFile(resourcePostFix);
+        super.readStore();
+        try {
+            readLogs();
+        } catch (IOException e) {
+            // We start with an empty daoState and parse all blocks from genesis
+            log.error("Logs do not match the DaoStateStore resource file. We drop the logs and resync. " +
+                    e.getMessage());
+            dropLogs();
+            store = createStore();
+        }
+    }
+
+    @Override
+    protected void makeFileFromResourceFile(String postFix) {
+        // A resource file in the new format refers to the log resource files, so we copy them together with it.
+        boolean snapshotExists = new File(absolutePathOfStorageDir, FILE_NAME).exists();
+        super.makeFileFromResourceFile(postFix);
+        if (!snapshotExists) {
+            copyLogResourceFile(BLOCKS_LOG_FILE_NAME, postFix);
+            copyLogResourceFile(DAO_STATE_HASHES_LOG_FILE_NAME, postFix);
+        }
+    }
+
     @Override
     protected DaoStateStore createStore() {
         return new DaoStateStore(DaoState.getClone(daoState), new LinkedList<>(daoStateMonitoringService.getDaoStateHashChain()));
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void readLogs() throws IOException {
+        blockHashesInLog.clear();
+        daoStateHashesInLog.clear();
+
+        // If the store got created or has the old format we do not use the content of the logs. They get truncated with
+        // the next append.
+        LinkedList<Block> blocks = blocksLog.read(store.getNumBlocksInLog()).stream()
+                .map(Block::fromProto)
+                .collect(Collectors.toCollection(LinkedList::new));
+        if (!blocks.isEmpty() && !blocks.getLast().getHash().equals(store.getLastBlockHashInLog()))
+            throw new IOException("Last block in log does not match. Hash of last block: " + blocks.getLast().getHash());
+
+        LinkedList<DaoStateHash> daoStateHashes = daoStateHashesLog.read(store.getNumDaoStateHashesInLog()).stream()
+                .map(DaoStateHash::fromProto)
+                .collect(Collectors.toCollection(LinkedList::new));
+        if (!daoStateHashes.isEmpty() && !Arrays.equals(daoStateHashes.getLast().getHash(), store.getLastDaoStateHashInLog()))
+            throw new IOException("Last daoStateHash in log does not match. Height of last daoStateHash: " +
+                    daoStateHashes.getLast().getHeight());
+
+        if (!blocks.isEmpty()) {
+            store.getDaoState().getBlocks().addAll(blocks);
+            blocks.forEach(block -> blockHashesInLog.add(block.getHash()));
+        }
+        if (!daoStateHashes.isEmpty()) {
+            store.setDaoStateHashChain(daoStateHashes);
+            daoStateHashesInLog.addAll(daoStateHashes);
+        }
+        log.info("Read {} blocks and {} daoStateHashes from logs", blocks.size(), daoStateHashes.size());
+    }
+
+    private void dropLogs() {
+        blockHashesInLog.clear();
+        daoStateHashesInLog.clear();
+        try {
+            blocksLog.truncate(0);
+            daoStateHashesLog.truncate(0);
+        } catch (IOException e) {
+            log.error("Could not truncate logs. " + e.getMessage());
+        }
+    }
+
+    private void copyLogResourceFile(String fileName, String postFix) {
+        String resourceFileName = fileName + postFix;
+        File destinationFile = new File(absolutePathOfStorageDir, fileName);
+        try {
+            log.info("We copy resource to file: resourceFileName={}, destinationFile={}", resourceFileName, destinationFile);
+            FileUtil.resourceToFile(resourceFileName, destinationFile);
+        } catch (ResourceNotFoundException e) {
+            // The resource file contains all blocks and hashes if it has the old format
+            log.info("Could not find resourceFile " + resourceFileName + ". That is expected if the resource file " +
+                    "has the old format.");
+        } catch (Throwable e) {
+            log.error("Could not copy resourceFile " + resourceFileName + " to " +
+                    destinationFile.getAbsolutePath() + ".\n" + e.getMessage());
+        }
+    }
+
+    private void appendToLogs(DaoState daoState, LinkedList<DaoStateHash> daoStateHashChain) throws IOException {
+        LinkedList<Block> blocks = daoState.getBlocks();
+        // In case of a reorg or a reset the logs contain entries which are not in our snapshot, so we remove
+        // everything after the last common entry.
+        int numCommonBlocks = getNumCommonEntries(blockHashesInLog,
+                blocks.stream().map(Block::getHash).collect(Collectors.toList()));
+        int numCommonDaoStateHashes = getNumCommonEntries(daoStateHashesInLog, daoStateHashChain);
+        if (numCommonBlocks < blockHashesInLog.size() || numCommonDaoStateHashes < daoStateHashesInLog.size()) {
+            // The persisted snapshot refers to entries we are going to remove. We replace it first with a snapshot
+            // which does not depend on the logs.
+            log.info("We remove entries from the logs. We persist a snapshot with all blocks and hashes first.");
+            storage.saveNow(DaoStateStore.createSelfContained(daoState, daoStateHashChain));
+        }
+
+        blocksLog.truncate(numCommonBlocks);
+        blockHashesInLog.subList(numCommonBlocks, blockHashesInLog.size()).clear();
+        List<Block> newBlocks = blocks.subList(numCommonBlocks, blocks.size());
+        blocksLog.append(newBlocks.stream().map(Block::toProtoMessage).collect(Collectors.toList()));
+        newBlocks.forEach(block -> blockHashesInLog.add(block.getHash()));
+
+        daoStateHashesLog.truncate(numCommonDaoStateHashes);
+        daoStateHashesInLog.subList(numCommonDaoStateHashes, daoStateHashesInLog.size()).clear();
+        List<DaoStateHash> newDaoStateHashes = daoStateHashChain.subList(numCommonDaoStateHashes, daoStateHashChain.size());
+        daoStateHashesLog.append(newDaoStateHashes.stream().map(DaoStateHash::toProtoMessage).collect(Collectors.toList()));
+        daoStateHashesInLog.addAll(newDaoStateHashes);
+    }
+
+    // Both lists are chains where each entry commits to its predecessor, so we only need to compare from the end of
+    // the shorter list backwards until we find a match.
+    private static <T> int getNumCommonEntries(List<T> entriesInLog, List<T> entries) {
+        int index = Math.min(entriesInLog.size(), entries.size()) - 1;
+        while (index >= 0 && !entriesInLog.get(index).equals(entries.get(index)))
+            index--;
+        return index + 1;
+    }
 }
@@ -22,6 +22,7 @@ import bisq.core.dao.state.model.DaoState;
 
 import bisq.common.proto.persistable.PersistableEnvelope;
 
+import com.google.protobuf.ByteString;
 import com.google.protobuf.Message;
 
 import java.util.LinkedList;
@@ -31,6 +32,8 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 
@@ -45,23 +48,73 @@ public class DaoStateStore implements PersistableEnvelope {
     @Setter
     private LinkedList<DaoStateHash> daoStateHashChain;
 
+    // The blocks and the hash chain are persisted in append-only logs by the DaoStateStorageService. After reading
+    // from disk we use those fields to read the entries which belong to our snapshot and to verify them.
+    @Getter
+    private int numBlocksInLog;
+    @Getter
+    @Nullable
+    private String lastBlockHashInLog;
+    @Getter
+    private int numDaoStateHashesInLog;
+    @Getter
+    @Nullable
+    private byte[] lastDaoStateHashInLog;
+    // If set we write the blocks and the hash chain with the snapshot as in the old format. Such a file does not
+    // depend on the logs. Not persisted.
+    private boolean selfContained;
+
     DaoStateStore(DaoState daoState, LinkedList<DaoStateHash> daoStateHashChain) {
         this.daoState = daoState;
         this.daoStateHashChain = daoStateHashChain;
     }
 
+    static DaoStateStore createSelfContained(DaoState daoState, LinkedList<DaoStateHash> daoStateHashChain) {
+        DaoStateStore daoStateStore = new DaoStateStore(daoState, daoStateHashChain);
+        daoStateStore.selfContained = true;
+        return daoStateStore;
+    }
+
+    private DaoStateStore(DaoState daoState,
+                          LinkedList<DaoStateHash> daoStateHashChain,
+                          int numBlocksInLog,
+                          @Nullable String lastBlockHashInLog,
+                          int numDaoStateHashesInLog,
+                          @Nullable byte[] lastDaoStateHashInLog) {
+        this(daoState, daoStateHashChain);
+        this.numBlocksInLog = numBlocksInLog;
+        this.lastBlockHashInLog = lastBlockHashInLog;
+        this.numDaoStateHashesInLog = numDaoStateHashesInLog;
+        this.lastDaoStateHashInLog = lastDaoStateHashInLog;
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // PROTO BUFFER
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // We only write the snapshot of the mutable data. The blocks and the hash chain must have been appended to the
+    // logs before (see DaoStateStorageService).
     public Message toProtoMessage() {
         checkNotNull(daoState, "daoState must not be null when toProtoMessage is invoked");
+        if (selfContained) {
+            return protobuf.PersistableEnvelope.newBuilder()
+                    .setDaoStateStore(protobuf.DaoStateStore.newBuilder()
+                            .setDaoState(daoState.getBsqStateBuilder())
+                            .addAllDaoStateHash(daoStateHashChain.stream()
+                                    .map(DaoStateHash::toProtoMessage)
+                                    .collect(Collectors.toList())))
+                    .build();
+        }
+
         protobuf.DaoStateStore.Builder builder = protobuf.DaoStateStore.newBuilder()
-                .setDaoState(daoState.getBsqStateBuilder())
-                .addAllDaoStateHash(daoStateHashChain.stream()
-                        .map(DaoStateHash::toProtoMessage)
-                        .collect(Collectors.toList()));
+                .setDaoState(daoState.getBsqStateBuilderExcludingBlocks())
+                .setNumBlocksInLog(daoState.getBlocks().size())
+                .setNumDaoStateHashesInLog(daoStateHashChain.size());
+        if (!daoState.getBlocks().isEmpty())
+            builder.setLastBlockHashInLog(daoState.getBlocks().getLast().getHash());
+        if (!daoStateHashChain.isEmpty())
+            builder.setLastDaoStateHashInLog(ByteString.copyFrom(daoStateHashChain.getLast().getHash()));
         return protobuf.PersistableEnvelope.newBuilder()
                 .setDaoStateStore(builder)
                 .build();
@@ -73,6 +126,11 @@ public class DaoStateStore implements PersistableEnvelope {
                 new LinkedList<>(proto.getDaoStateHashList().stream()
                         .map(DaoStateHash::fromProto)
                         .collect(Collectors.toList()));
-        return new DaoStateStore(DaoState.fromProto(proto.getDaoState()), daoStateHashList);
+        return new DaoStateStore(DaoState.fromProto(proto.getDaoState()),
+                daoStateHashList,
+                proto.getNumBlocksInLog(),
+                proto.getLastBlockHashInLog().isEmpty() ? null : proto.getLastBlockHashInLog(),
+                proto.getNumDaoStateHashesInLog(),
+                proto.getLastDaoStateHashInLog().isEmpty() ? null : proto.getLastDaoStateHashInLog().toByteArray());
     }
 }
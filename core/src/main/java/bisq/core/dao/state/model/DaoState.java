@@ -28,16 +28,22 @@ import bisq.core.dao.state.model.governance.Issuance;
 import bisq.core.dao.state.model.governance.ParamChange;
 
 import bisq.common.proto.persistable.PersistablePayload;
+import bisq.common.util.Tuple2;
 
 import com.google.protobuf.Message;
 
 import javax.inject.Inject;
 
+import java.io.ByteArrayOutputStream;
+
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import lombok.Getter;
@@ -60,8 +66,25 @@ public class DaoState implements PersistablePayload {
     // Static
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // All objects held by the daoState are immutable (see ImmutableDaoStateModel), so we only need to copy the
+    // collections and can share their elements with the clone. This is much cheaper than a protobuf round trip which
+    // would recreate all blocks, txs and outputs.
+    // The block is the only exception as its txs get added while it is parsed, so we create a copy of the last block.
     public static DaoState getClone(DaoState daoState) {
-        return DaoState.fromProto(daoState.getBsqStateBuilder().build());
+        LinkedList<Block> blocks = new LinkedList<>(daoState.getBlocks());
+        if (!blocks.isEmpty())
+            blocks.set(blocks.size() - 1, Block.fromProto(blocks.getLast().toProtoMessage()));
+
+        return new DaoState(daoState.getChainHeight(),
+                blocks,
+                new LinkedList<>(daoState.getCycles()),
+                new TreeMap<>(daoState.getUnspentTxOutputMap()),
+                new TreeMap<>(daoState.getSpentInfoMap()),
+                new ArrayList<>(daoState.getConfiscatedLockupTxList()),
+                new TreeMap<>(daoState.getIssuanceMap()),
+                new ArrayList<>(daoState.getParamChangeList()),
+                new ArrayList<>(daoState.getEvaluatedProposalList()),
+                new ArrayList<>(daoState.getDecryptedBallotsWithMeritsList()));
     }
 
 
@@ -98,6 +121,17 @@ public class DaoState implements PersistablePayload {
     @Getter
     private final List<DecryptedBallotsWithMerits> decryptedBallotsWithMeritsList;
 
+    // Not persisted. Caches the serialized map entries used for the hash chain.
+    private final SerializedMapEntries<TxOutputKey, TxOutput> unspentTxOutputMapEntries = new SerializedMapEntries<>(
+            TxOutputKey::toString,
+            (key, txOutput) -> protobuf.DaoState.newBuilder().putUnspentTxOutputMap(key, txOutput.toProtoMessage()));
+    private final SerializedMapEntries<String, Issuance> issuanceMapEntries = new SerializedMapEntries<>(
+            key -> key,
+            (key, issuance) -> protobuf.DaoState.newBuilder().putIssuanceMap(key, issuance.toProtoMessage()));
+    private final SerializedMapEntries<TxOutputKey, SpentInfo> spentInfoMapEntries = new SerializedMapEntries<>(
+            TxOutputKey::toString,
+            (key, spentInfo) -> protobuf.DaoState.newBuilder().putSpentInfoMap(key, spentInfo.toProtoMessage()));
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
@@ -158,7 +192,7 @@ public class DaoState implements PersistablePayload {
                 .collect(Collectors.toList()));
     }
 
-    private protobuf.DaoState.Builder getBsqStateBuilderExcludingBlocks() {
+    public protobuf.DaoState.Builder getBsqStateBuilderExcludingBlocks() {
         protobuf.DaoState.Builder builder = protobuf.DaoState.newBuilder();
         builder.setChainHeight(chainHeight)
                 .addAllCycles(cycles.stream().map(Cycle::toProtoMessage).collect(Collectors.toList()))
@@ -221,7 +255,29 @@ public class DaoState implements PersistablePayload {
         // Reorgs are handled by rebuilding the hash chain from last snapshot.
         // Using the full blocks list becomes quite heavy. 7000 blocks are
         // about 1.4 MB and creating the hash takes 30 sec. With using just the last block we reduce the time to 7 sec.
-        return getBsqStateBuilderExcludingBlocks().addBlocks(getBlocks().getLast().toProtoMessage()).build().toByteArray();
+        //
+        // The result is the same as the protobuf serialization of a DaoState with only the last block. As protobuf
+        // writes the fields in the order of their field number we can write the fields one by one and use the cached
+        // serialized entries for the large maps, so only map entries which got added or changed since the last
+        // call need to be serialized.
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        write(protobuf.DaoState.newBuilder()
+                        .setChainHeight(chainHeight)
+                        .addBlocks(getBlocks().getLast().toProtoMessage())
+                        .addAllCycles(cycles.stream().map(Cycle::toProtoMessage).collect(Collectors.toList())),
+                outputStream);
+        unspentTxOutputMapEntries.write(unspentTxOutputMap, outputStream);
+        issuanceMapEntries.write(issuanceMap, outputStream);
+        write(protobuf.DaoState.newBuilder()
+                        .addAllConfiscatedLockupTxList(confiscatedLockupTxList),
+                outputStream);
+        spentInfoMapEntries.write(spentInfoMap, outputStream);
+        write(protobuf.DaoState.newBuilder()
+                        .addAllParamChangeList(paramChangeList.stream().map(ParamChange::toProtoMessage).collect(Collectors.toList()))
+                        .addAllEvaluatedProposalList(evaluatedProposalList.stream().map(EvaluatedProposal::toProtoMessage).collect(Collectors.toList()))
+                        .addAllDecryptedBallotsWithMeritsList(decryptedBallotsWithMeritsList.stream().map(DecryptedBallotsWithMerits::toProtoMessage).collect(Collectors.toList())),
+                outputStream);
+        return outputStream.toByteArray();
     }
 
     @Override
@@ -239,4 +295,59 @@ public class DaoState implements PersistablePayload {
                 ",\n     decryptedBallotsWithMeritsList=" + decryptedBallotsWithMeritsList +
                 "\n}";
     }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static void write(protobuf.DaoState.Builder builder, ByteArrayOutputStream outputStream) {
+        byte[] bytes = builder.build().toByteArray();
+        outputStream.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Holds the serialized protobuf map entries of one of our maps. The map values are immutable so we only need to
+     * serialize an entry again if the value of its key has been replaced.
+     *
+     * The entries must be written in the same order as protobuf would do it. Protobuf keeps the iteration order of
+     * the map passed to the builder, which is the HashMap created by Collectors.toMap in
+     * getBsqStateBuilderExcludingBlocks. We create our HashMap the same way with the same keys inserted in the same
+     * order, so the iteration order is the same.
+     */
+    private static class SerializedMapEntries<K, V> {
+        private final Function<K, String> keyToString;
+        private final BiFunction<String, V, protobuf.DaoState.Builder> toBuilderWithEntry;
+        // Value is the map value of the serialized entry and the serialized entry
+        private final Map<K, Tuple2<V, byte[]>> cache = new HashMap<>();
+
+        SerializedMapEntries(Function<K, String> keyToString,
+                             BiFunction<String, V, protobuf.DaoState.Builder> toBuilderWithEntry) {
+            this.keyToString = keyToString;
+            this.toBuilderWithEntry = toBuilderWithEntry;
+        }
+
+        void write(TreeMap<K, V> map, ByteArrayOutputStream outputStream) {
+            Map<String, byte[]> serializedEntries = map.entrySet().stream()
+                    .collect(Collectors.toMap(e -> keyToString.apply(e.getKey()),
+                            e -> getSerializedEntry(e.getKey(), e.getValue())));
+            serializedEntries.values().forEach(bytes -> outputStream.write(bytes, 0, bytes.length));
+
+            // After the loop above all keys of the map are in the cache, so the difference are removed entries.
+            // We only clean up if they exceed a quarter of the map size to not iterate the cache at each call.
+            if (cache.size() - map.size() > map.size() / 4)
+                cache.keySet().retainAll(map.keySet());
+        }
+
+        private byte[] getSerializedEntry(K key, V value) {
+            Tuple2<V, byte[]> cached = cache.get(key);
+            if (cached != null && cached.first == value)
+                return cached.second;
+
+            // A DaoState message with only that single map entry is serialized as the map entry itself
+            byte[] serializedEntry = toBuilderWithEntry.apply(keyToString.apply(key), value).build().toByteArray();
+            cache.put(key, new Tuple2<>(value, serializedEntry));
+            return serializedEntry;
+        }
+    }
 }
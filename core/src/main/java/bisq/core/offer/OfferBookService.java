@@ -69,6 +69,7 @@ public class OfferBookService {
     private final List<OfferBookChangedListener> offerBookChangedListeners = new LinkedList<>();
     private final FilterManager filterManager;
     private final JsonFileManager jsonFileManager;
+    private boolean dumpStatisticsScheduled;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -121,15 +122,15 @@ public class OfferBookService {
                     addOfferBookChangedListener(new OfferBookChangedListener() {
                         @Override
                         public void onAdded(Offer offer) {
-                            doDumpStatistics();
+                            scheduleDumpStatistics();
                         }
 
                         @Override
                         public void onRemoved(Offer offer) {
-                            doDumpStatistics();
+                            scheduleDumpStatistics();
                         }
                     });
-                    UserThread.runAfter(OfferBookService.this::doDumpStatistics, 1);
+                    scheduleDumpStatistics();
                 }
             });
         }
@@ -230,6 +231,19 @@ public class OfferBookService {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    // Offers get added and removed in bursts (e.g. after we received the data of a peer), so we write the file at
+    // most once per second with the offers at that time.
+    private void scheduleDumpStatistics() {
+        if (dumpStatisticsScheduled)
+            return;
+
+        dumpStatisticsScheduled = true;
+        UserThread.runAfter(() -> {
+            dumpStatisticsScheduled = false;
+            doDumpStatistics();
+        }, 1);
+    }
+
     private void doDumpStatistics() {
         // We filter the case that it is a MarketBasedPrice but the price is not available
         // That should only be possible if the price feed provider is not available
@@ -42,6 +42,7 @@ import bisq.core.trade.statistics.TradeStatistics2Store;
 import bisq.core.user.PreferencesPayload;
 import bisq.core.user.UserPayload;
 
+import bisq.network.p2p.messaging.IgnoredMailboxEntries;
 import bisq.network.p2p.peers.peerexchange.PeerList;
 import bisq.network.p2p.storage.persistence.PersistableNetworkPayloadList;
 import bisq.network.p2p.storage.persistence.SequenceNumberMap;
@@ -150,6 +151,8 @@ public class CorePersistenceProtoResolver extends CoreProtoResolver implements P
                     return UnconfirmedBsqChangeOutputList.fromProto(proto.getUnconfirmedBsqChangeOutputList());
                 case SIGNED_WITNESS_STORE:
                     return SignedWitnessStore.fromProto(proto.getSignedWitnessStore());
+                case IGNORED_MAILBOX_ENTRIES:
+                    return IgnoredMailboxEntries.fromProto(proto.getIgnoredMailboxEntries());
 
                 default:
                     throw new ProtobufferRuntimeException("Unknown proto message case(PB.PersistableEnvelope). " +
@@ -324,6 +324,10 @@ public class PriceFeedService {
                 });
     }
 
+    public void applyLatestBisqMarketPrice(TradeStatistics2 latestTradeStatistics) {
+        setBisqMarketPrice(latestTradeStatistics.getCurrencyCode(), latestTradeStatistics.getTradePrice());
+    }
+
     public Optional<Price> getBsqPrice() {
         MarketPrice bsqMarketPrice = getMarketPrice("BSQ");
         if (bsqMarketPrice != null) {
@@ -37,7 +37,11 @@ public class CoreNetworkCapabilities {
                 Capability.BLIND_VOTE,
                 Capability.DAO_STATE,
                 Capability.BUNDLE_OF_ENVELOPES,
-                Capability.MEDIATION
+                Capability.MEDIATION,
+                Capability.KEY_BLOOM_FILTER,
+                Capability.HISTORICAL_DATA_STORES,
+                Capability.CHUNKED_GET_DATA_RESPONSE,
+                Capability.COMPACT_GET_BLOCKS_RESPONSE
         );
 
         if (BisqEnvironment.isDaoActivated(bisqEnvironment)) {
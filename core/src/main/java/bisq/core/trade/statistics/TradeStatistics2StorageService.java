@@ -17,10 +17,10 @@
 
 package bisq.core.trade.statistics;
 
-import bisq.network.p2p.storage.P2PDataStorage;
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
-import bisq.network.p2p.storage.persistence.MapStoreService;
+import bisq.network.p2p.storage.persistence.HistoricalDataStoreService;
 
+import bisq.common.proto.persistable.PersistenceProtoResolver;
 import bisq.common.storage.Storage;
 
 import com.google.inject.name.Named;
@@ -29,14 +29,12 @@ import javax.inject.Inject;
 
 import java.io.File;
 
-import java.util.Map;
-
 import lombok.extern.slf4j.Slf4j;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 @Slf4j
-public class TradeStatistics2StorageService extends MapStoreService<TradeStatistics2Store, PersistableNetworkPayload> {
+public class TradeStatistics2StorageService extends HistoricalDataStoreService<TradeStatistics2Store> {
     private static final String FILE_NAME = "TradeStatistics2Store";
 
 
@@ -46,8 +44,9 @@ public class TradeStatistics2StorageService extends MapStoreService<TradeStatist
 
     @Inject
     public TradeStatistics2StorageService(@Named(Storage.STORAGE_DIR) File storageDir,
-                                          Storage<TradeStatistics2Store> persistableNetworkPayloadMapStorage) {
-        super(storageDir, persistableNetworkPayloadMapStorage);
+                                          Storage<TradeStatistics2Store> persistableNetworkPayloadMapStorage,
+                                          PersistenceProtoResolver persistenceProtoResolver) {
+        super(storageDir, persistableNetworkPayloadMapStorage, persistenceProtoResolver);
     }
 
 
@@ -60,11 +59,6 @@ public class TradeStatistics2StorageService extends MapStoreService<TradeStatist
         return FILE_NAME;
     }
 
-    @Override
-    public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMap() {
-        return store.getMap();
-    }
-
     @Override
     public boolean canHandle(PersistableNetworkPayload payload) {
         return payload instanceof TradeStatistics2;
@@ -0,0 +1,309 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.trade.statistics;
+
+import bisq.common.storage.FileUtil;
+import bisq.common.util.Utilities;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exports the trade statistics for the statsnode as newline delimited json. Each line is one
+ * {@link TradeStatisticsForJson}. The trades are partitioned by the month (UTC) of the trade date into segment files
+ * (e.g. trade_statistics/trade_statistics_2019-10.jsonl). The manifest.json file lists the segments with their
+ * number of records.
+ * <p>
+ * At startup we continue from the existing segments and only append the trades which are not exported yet. After that
+ * new trades only get appended to the segment of their month, so the file IO is proportional to the new data. The
+ * records inside a segment are in the order we received them. The manifest gets written after the segments and is
+ * based on the records which got actually written.
+ * All file IO is done on a single background thread. Trades which get added while a write is pending get written
+ * together with it.
+ * <p>
+ * The trade_statistics.json file we used to write before got replaced by the segments, so we delete it.
+ */
+@Slf4j
+class TradeStatisticsExporter {
+    static final String DIR_NAME = "trade_statistics";
+    static final String MANIFEST_FILE_NAME = "manifest.json";
+    static final String LEGACY_FILE_NAME = "trade_statistics.json";
+    private static final String SEGMENT_FILE_PREFIX = "trade_statistics_";
+    private static final String SEGMENT_FILE_SUFFIX = ".jsonl";
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM")
+            .withZone(ZoneOffset.UTC);
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Manifest
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Fields are used by Gson
+    @SuppressWarnings({"FieldCanBeLocal", "unused"})
+    private static class Manifest {
+        private final long lastUpdate;
+        private final int numRecords;
+        private final List<Segment> segments;
+
+        Manifest(long lastUpdate, int numRecords, List<Segment> segments) {
+            this.lastUpdate = lastUpdate;
+            this.numRecords = numRecords;
+            this.segments = segments;
+        }
+    }
+
+    @SuppressWarnings({"FieldCanBeLocal", "unused"})
+    private static class Segment {
+        private final String month;
+        private final String fileName;
+        private final int numRecords;
+
+        Segment(String month, String fileName, int numRecords) {
+            this.month = month;
+            this.fileName = fileName;
+            this.numRecords = numRecords;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Class fields
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private final File storageDir;
+    private final File dir;
+    private final ExecutorService executor;
+    // The offer IDs of the records in the segment files by month. Only accessed from the executor.
+    private final Map<String, Set<String>> offerIdsByMonth = new TreeMap<>();
+    // Guarded by pendingTradeStatistics
+    private final List<TradeStatistics2> pendingTradeStatistics = new ArrayList<>();
+    private boolean writeScheduled;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    TradeStatisticsExporter(File storageDir) {
+        this(storageDir, Utilities.getSingleThreadExecutor("TradeStatisticsExporter"));
+    }
+
+    @VisibleForTesting
+    TradeStatisticsExporter(File storageDir, ExecutorService executor) {
+        this.storageDir = storageDir;
+        this.executor = executor;
+        dir = new File(storageDir, DIR_NAME);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Reads the existing segments and appends the given trades which are not in the segments yet. Records of trades
+     * which are not in the given trades anymore stay in the segments.
+     */
+    void exportAll(Collection<TradeStatistics2> tradeStatistics) {
+        List<TradeStatistics2> list = new ArrayList<>(tradeStatistics);
+        executor.execute(() -> {
+            deleteLegacyFile();
+            readSegments();
+            write(list);
+        });
+    }
+
+    void export(TradeStatistics2 tradeStatistics) {
+        synchronized (pendingTradeStatistics) {
+            pendingTradeStatistics.add(tradeStatistics);
+            if (writeScheduled)
+                return;
+
+            writeScheduled = true;
+        }
+        executor.execute(this::writePending);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private, called on the executor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void writePending() {
+        List<TradeStatistics2> list;
+        synchronized (pendingTradeStatistics) {
+            list = new ArrayList<>(pendingTradeStatistics);
+            pendingTradeStatistics.clear();
+            writeScheduled = false;
+        }
+        write(list);
+    }
+
+    private void write(List<TradeStatistics2> list) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            log.warn("Could not create directory {}", dir);
+            return;
+        }
+
+        Map<String, List<TradeStatistics2>> listByMonth = list.stream()
+                .collect(Collectors.groupingBy(tradeStatistics -> getMonth(tradeStatistics.getTradeDate().getTime()),
+                        TreeMap::new,
+                        Collectors.toList()));
+        listByMonth.forEach((month, tradeStatisticsOfMonth) -> {
+            Set<String> offerIds = offerIdsByMonth.computeIfAbsent(month, key -> new HashSet<>());
+            List<TradeStatistics2> newTradeStatistics = tradeStatisticsOfMonth.stream()
+                    .filter(tradeStatistics -> !offerIds.contains(tradeStatistics.getOfferId()))
+                    .collect(Collectors.toList());
+            if (newTradeStatistics.isEmpty())
+                return;
+
+            File segmentFile = new File(dir, getSegmentFileName(month));
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(segmentFile, true), StandardCharsets.UTF_8)) {
+                for (TradeStatistics2 tradeStatistics : newTradeStatistics) {
+                    writer.write(Utilities.objectToCompactJson(new TradeStatisticsForJson(tradeStatistics)));
+                    writer.write('\n');
+                }
+            } catch (IOException e) {
+                // We don't know which records got written, so we read them from the segment. The trades which did
+                // not get written get exported at the next startup.
+                log.error("Could not write segment file {}: {}", segmentFile, e.toString());
+                readSegment(month, segmentFile);
+                return;
+            }
+            newTradeStatistics.forEach(tradeStatistics -> offerIds.add(tradeStatistics.getOfferId()));
+        });
+        offerIdsByMonth.values().removeIf(Set::isEmpty);
+        writeManifest();
+    }
+
+    private void writeManifest() {
+        List<Segment> segments = offerIdsByMonth.entrySet().stream()
+                .map(entry -> new Segment(entry.getKey(), getSegmentFileName(entry.getKey()), entry.getValue().size()))
+                .collect(Collectors.toList());
+        int numRecords = segments.stream().mapToInt(segment -> segment.numRecords).sum();
+        String json = Utilities.objectToJson(new Manifest(System.currentTimeMillis(), numRecords, segments));
+
+        // We write to a temp file first, so readers never see a partly written manifest
+        File manifestFile = new File(dir, MANIFEST_FILE_NAME);
+        File tempFile = new File(dir, MANIFEST_FILE_NAME + ".tmp");
+        try {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+                writer.write(json);
+            }
+            FileUtil.renameFile(tempFile, manifestFile);
+        } catch (IOException e) {
+            log.error("Could not write manifest file {}: {}", manifestFile, e.toString());
+        }
+    }
+
+    private void readSegments() {
+        offerIdsByMonth.clear();
+        File[] files = dir.listFiles((d, name) -> name.startsWith(SEGMENT_FILE_PREFIX) &&
+                name.endsWith(SEGMENT_FILE_SUFFIX));
+        if (files == null)
+            return;
+
+        for (File file : files) {
+            String name = file.getName();
+            String month = name.substring(SEGMENT_FILE_PREFIX.length(), name.length() - SEGMENT_FILE_SUFFIX.length());
+            readSegment(month, file);
+        }
+    }
+
+    // Reads the offer IDs of the records of the segment. A partly written last record gets removed from the file.
+    // If the segment is corrupted we delete it, so its trades get written again.
+    private void readSegment(String month, File segmentFile) {
+        Set<String> offerIds = new HashSet<>();
+        try {
+            byte[] bytes = Files.readAllBytes(segmentFile.toPath());
+            int length = bytes.length;
+            while (length > 0 && bytes[length - 1] != '\n')
+                length--;
+
+            if (length < bytes.length) {
+                log.warn("Segment file {} ends with a partly written record. We remove it.", segmentFile);
+                try (FileChannel channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.WRITE)) {
+                    channel.truncate(length);
+                }
+            }
+
+            JsonParser jsonParser = new JsonParser();
+            for (String line : new String(bytes, 0, length, StandardCharsets.UTF_8).split("\n")) {
+                if (line.isEmpty())
+                    continue;
+
+                JsonElement offerId = jsonParser.parse(line).getAsJsonObject().get("offerId");
+                if (offerId == null || !offerIds.add(offerId.getAsString()))
+                    throw new IOException("Invalid record " + line);
+            }
+            offerIdsByMonth.put(month, offerIds);
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not read segment file {}. We delete it. {}", segmentFile, e.toString());
+            offerIdsByMonth.remove(month);
+            if (segmentFile.exists() && !segmentFile.delete())
+                log.warn("Could not delete segment file {}", segmentFile);
+        }
+    }
+
+    private void deleteLegacyFile() {
+        File legacyFile = new File(storageDir, LEGACY_FILE_NAME);
+        if (legacyFile.exists()) {
+            log.info("The trade statistics are exported to the {} directory. We delete the outdated {}.",
+                    DIR_NAME, legacyFile);
+            if (!legacyFile.delete())
+                log.warn("Could not delete {}", legacyFile);
+        }
+    }
+
+    private static String getMonth(long time) {
+        return MONTH_FORMATTER.format(Instant.ofEpochMilli(time));
+    }
+
+    private static String getSegmentFileName(String month) {
+        return SEGMENT_FILE_PREFIX + month + SEGMENT_FILE_SUFFIX;
+    }
+}
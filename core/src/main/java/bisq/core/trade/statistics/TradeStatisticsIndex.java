@@ -0,0 +1,160 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.trade.statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+/**
+ * Indexes the trade statistics by offer ID and by currency. The trade statistics of each currency and of all
+ * currencies are kept sorted by trade date with the trade dates in a primitive array, so the trades of a time range
+ * are found with a binary search instead of a scan over all trade statistics.
+ * <p>
+ * Not thread safe. Only accessed from the user thread.
+ */
+class TradeStatisticsIndex {
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // TradesByDate
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class TradesByDate {
+        private final List<TradeStatistics2> list = new ArrayList<>();
+        private long[] tradeDates = new long[16];
+
+        void add(TradeStatistics2 tradeStatistics) {
+            long tradeDate = tradeStatistics.getTradeDate().getTime();
+            // New trades are usually the most recent ones, then we append at the end. Items with the same date are
+            // kept in the order they got added.
+            int index = indexOfFirstAfter(tradeDate);
+            int size = list.size();
+            if (size == tradeDates.length)
+                tradeDates = Arrays.copyOf(tradeDates, size * 2);
+            System.arraycopy(tradeDates, index, tradeDates, index + 1, size - index);
+            tradeDates[index] = tradeDate;
+            list.add(index, tradeStatistics);
+        }
+
+        List<TradeStatistics2> getAll() {
+            return new ArrayList<>(list);
+        }
+
+        List<TradeStatistics2> getAfter(long date) {
+            return new ArrayList<>(list.subList(indexOfFirstAfter(date), list.size()));
+        }
+
+        Optional<TradeStatistics2> getLatest() {
+            return list.isEmpty() ? Optional.empty() : Optional.of(list.get(list.size() - 1));
+        }
+
+        int size() {
+            return list.size();
+        }
+
+        private int indexOfFirstAfter(long date) {
+            int low = 0;
+            int high = list.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (tradeDates[mid] <= date)
+                    low = mid + 1;
+                else
+                    high = mid - 1;
+            }
+            return low;
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Class fields
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private final Map<String, TradeStatistics2> tradeStatisticsByOfferId = new HashMap<>();
+    private final Map<String, TradesByDate> tradesByCurrencyCode = new HashMap<>();
+    private final TradesByDate allTrades = new TradesByDate();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    boolean containsOfferId(String offerId) {
+        return tradeStatisticsByOfferId.containsKey(offerId);
+    }
+
+    /**
+     * @return False if we have already a trade statistics object with the same offer ID. That might happen if both
+     * the maker and the taker published the tradeStatistics.
+     */
+    boolean add(TradeStatistics2 tradeStatistics) {
+        if (tradeStatisticsByOfferId.putIfAbsent(tradeStatistics.getOfferId(), tradeStatistics) != null)
+            return false;
+
+        tradesByCurrencyCode.computeIfAbsent(tradeStatistics.getCurrencyCode(), e -> new TradesByDate())
+                .add(tradeStatistics);
+        allTrades.add(tradeStatistics);
+        return true;
+    }
+
+    /**
+     * @param currencyCode The currency code or null for the trades of all currencies.
+     * @return The trades sorted by trade date.
+     */
+    List<TradeStatistics2> getTradeStatistics(@Nullable String currencyCode) {
+        TradesByDate tradesByDate = getTradesByDate(currencyCode);
+        return tradesByDate != null ? tradesByDate.getAll() : new ArrayList<>();
+    }
+
+    /**
+     * @param currencyCode The currency code or null for the trades of all currencies.
+     * @param date         Time in ms. Only trades after that date are returned.
+     * @return The trades sorted by trade date.
+     */
+    List<TradeStatistics2> getTradeStatisticsAfter(@Nullable String currencyCode, long date) {
+        TradesByDate tradesByDate = getTradesByDate(currencyCode);
+        return tradesByDate != null ? tradesByDate.getAfter(date) : new ArrayList<>();
+    }
+
+    Optional<TradeStatistics2> getLatestTradeStatistics(String currencyCode) {
+        TradesByDate tradesByDate = tradesByCurrencyCode.get(currencyCode);
+        return tradesByDate != null ? tradesByDate.getLatest() : Optional.empty();
+    }
+
+    Map<String, Integer> getNumTradeStatisticsByCurrencyCode() {
+        Map<String, Integer> map = new HashMap<>();
+        tradesByCurrencyCode.forEach((currencyCode, tradesByDate) -> map.put(currencyCode, tradesByDate.size()));
+        return map;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Nullable
+    private TradesByDate getTradesByDate(@Nullable String currencyCode) {
+        return currencyCode != null ? tradesByCurrencyCode.get(currencyCode) : allTrades;
+    }
+}
@@ -43,6 +43,7 @@ import javafx.collections.ObservableSet;
 import java.io.File;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -52,17 +53,22 @@ import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 @Slf4j
 public class TradeStatisticsManager {
 
     private final JsonFileManager jsonFileManager;
+    private final TradeStatisticsExporter tradeStatisticsExporter;
     private final P2PService p2PService;
     private final PriceFeedService priceFeedService;
     private final ReferralIdService referralIdService;
     private final boolean dumpStatistics;
     private final ObservableSet<TradeStatistics2> observableTradeStatisticsSet = FXCollections.observableSet();
+    // Contains the same items as observableTradeStatisticsSet
+    private final TradeStatisticsIndex tradeStatisticsIndex = new TradeStatisticsIndex();
 
     @Inject
     public TradeStatisticsManager(P2PService p2PService,
@@ -77,6 +83,7 @@ public class TradeStatisticsManager {
         this.referralIdService = referralIdService;
         this.dumpStatistics = dumpStatistics;
         jsonFileManager = new JsonFileManager(storageDir);
+        tradeStatisticsExporter = new TradeStatisticsExporter(storageDir);
 
         appendOnlyDataStoreService.addService(tradeStatistics2StorageService);
     }
@@ -106,11 +113,16 @@ public class TradeStatisticsManager {
                 .map(e -> (TradeStatistics2) e)
                 .filter(TradeStatistics2::isValid)
                 .forEach(e -> addToMap(e, map));
+        // We add the items sorted by date so the index only needs to append them
+        map.values().stream()
+                .sorted(Comparator.comparing(TradeStatistics2::getTradeDate))
+                .forEach(tradeStatisticsIndex::add);
         observableTradeStatisticsSet.addAll(map.values());
 
         priceFeedService.applyLatestBisqMarketPrice(observableTradeStatisticsSet);
 
-        dump();
+        if (dumpStatistics)
+            tradeStatisticsExporter.exportAll(tradeStatisticsIndex.getTradeStatistics(null));
     }
 
     public void publishTradeStatistics(List<Trade> trades) {
@@ -149,20 +161,45 @@ public class TradeStatisticsManager {
         return observableTradeStatisticsSet;
     }
 
+    /**
+     * @param currencyCode The currency code or null for the trades of all currencies.
+     * @return The trades sorted by trade date.
+     */
+    public List<TradeStatistics2> getTradeStatistics(@Nullable String currencyCode) {
+        return tradeStatisticsIndex.getTradeStatistics(currencyCode);
+    }
+
+    /**
+     * @param currencyCode The currency code or null for the trades of all currencies.
+     * @param date         Only trades after that date are returned.
+     * @return The trades sorted by trade date.
+     */
+    public List<TradeStatistics2> getTradeStatisticsAfter(@Nullable String currencyCode, Date date) {
+        return tradeStatisticsIndex.getTradeStatisticsAfter(currencyCode, date.getTime());
+    }
+
+    public Map<String, Integer> getNumTradeStatisticsByCurrencyCode() {
+        return tradeStatisticsIndex.getNumTradeStatisticsByCurrencyCode();
+    }
+
     private void addToMap(TradeStatistics2 tradeStatistics, boolean storeLocally) {
         if (!observableTradeStatisticsSet.contains(tradeStatistics)) {
 
-            if (observableTradeStatisticsSet.stream()
-                    .anyMatch(e -> (e.getOfferId().equals(tradeStatistics.getOfferId()))))
+            if (tradeStatisticsIndex.containsOfferId(tradeStatistics.getOfferId()))
                 return;
 
             if (!tradeStatistics.isValid())
                 return;
 
+            tradeStatisticsIndex.add(tradeStatistics);
             observableTradeStatisticsSet.add(tradeStatistics);
             if (storeLocally) {
-                priceFeedService.applyLatestBisqMarketPrice(observableTradeStatisticsSet);
-                dump();
+                // Only the market price of the currency of the new trade can have changed
+                tradeStatisticsIndex.getLatestTradeStatistics(tradeStatistics.getCurrencyCode())
+                        .ifPresent(priceFeedService::applyLatestBisqMarketPrice);
+
+                if (dumpStatistics)
+                    tradeStatisticsExporter.export(tradeStatistics);
             }
         }
     }
@@ -172,21 +209,4 @@ public class TradeStatisticsManager {
         if (prevValue != null)
             log.trace("We have already an item with the same offer ID. That might happen if both the maker and the taker published the tradeStatistics");
     }
-
-    private void dump() {
-        if (dumpStatistics) {
-            // We store the statistics as json so it is easy for further processing (e.g. for web based services)
-            // TODO This is just a quick solution for storing to one file.
-            // 1 statistic entry has 500 bytes as json.
-            // Need a more scalable solution later when we get more volume.
-            // The flag will only be activated by dedicated nodes, so it should not be too critical for the moment, but needs to
-            // get improved. Maybe a LevelDB like DB...? Could be impl. in a headless version only.
-            List<TradeStatisticsForJson> list = observableTradeStatisticsSet.stream().map(TradeStatisticsForJson::new)
-                    .sorted((o1, o2) -> (Long.compare(o2.tradeDate, o1.tradeDate)))
-                    .collect(Collectors.toList());
-            TradeStatisticsForJson[] array = new TradeStatisticsForJson[list.size()];
-            list.toArray(array);
-            jsonFileManager.writeToDisc(Utilities.objectToJson(array), "trade_statistics");
-        }
-    }
 }
@@ -0,0 +1,181 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.monitoring;
+
+import bisq.core.dao.monitoring.model.DaoStateHash;
+import bisq.core.dao.monitoring.network.DaoStateNetworkService;
+import bisq.core.dao.state.DaoStateService;
+import bisq.core.dao.state.GenesisTxInfo;
+import bisq.core.dao.state.model.blockchain.Block;
+
+import bisq.network.p2p.seed.SeedNodeRepository;
+
+import bisq.common.crypto.Hash;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.apache.commons.lang3.ArrayUtils;
+
+import java.io.File;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DaoStateMonitoringServiceTest {
+    private static final int GENESIS_BLOCK_HEIGHT = 100;
+    private static final long TIMEOUT_MS = 5000;
+
+    private DaoStateService daoStateService;
+    private ListeningExecutorService hashChainExecutor;
+    private DaoStateMonitoringService daoStateMonitoringService;
+
+    @Before
+    public void setup() {
+        daoStateService = mock(DaoStateService.class);
+        GenesisTxInfo genesisTxInfo = mock(GenesisTxInfo.class);
+        when(genesisTxInfo.getGenesisBlockHeight()).thenReturn(GENESIS_BLOCK_HEIGHT);
+        hashChainExecutor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+        daoStateMonitoringService = new DaoStateMonitoringService(daoStateService,
+                mock(DaoStateNetworkService.class),
+                genesisTxInfo,
+                mock(SeedNodeRepository.class),
+                new File("."),
+                true,
+                hashChainExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        hashChainExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testHashChain() {
+        // Blocks before the genesis block are ignored
+        createHashFromBlock(GENESIS_BLOCK_HEIGHT - 1, new byte[]{9});
+        assertTrue(daoStateMonitoringService.getDaoStateHashChain().isEmpty());
+
+        for (int i = 0; i < 5; i++) {
+            createHashFromBlock(GENESIS_BLOCK_HEIGHT + i, new byte[]{(byte) i, 1, 2});
+        }
+
+        List<DaoStateHash> daoStateHashChain = daoStateMonitoringService.getDaoStateHashChain();
+        assertEquals(5, daoStateHashChain.size());
+        assertEquals(5, daoStateMonitoringService.getDaoStateBlockChain().size());
+        byte[] prevHash = new byte[0];
+        for (int i = 0; i < daoStateHashChain.size(); i++) {
+            DaoStateHash daoStateHash = daoStateHashChain.get(i);
+            assertEquals(GENESIS_BLOCK_HEIGHT + i, daoStateHash.getHeight());
+            assertArrayEquals(prevHash, daoStateHash.getPrevHash());
+            // Each hash commits to the previous hash and the state at its height
+            byte[] expectedHash = Hash.getSha256Ripemd160hash(ArrayUtils.addAll(prevHash, new byte[]{(byte) i, 1, 2}));
+            assertArrayEquals(expectedHash, daoStateHash.getHash());
+            assertArrayEquals(expectedHash, daoStateMonitoringService.getDaoStateBlockChain().get(i).getHash());
+            prevHash = expectedHash;
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBlockNotAbovePreviousBlock() {
+        createHashFromBlock(GENESIS_BLOCK_HEIGHT, new byte[]{1});
+        createHashFromBlock(GENESIS_BLOCK_HEIGHT + 2, new byte[]{2});
+    }
+
+    @Test
+    public void testRunWhenReadyForNextBlockWaitsForOldestPendingHash() throws Exception {
+        CountDownLatch hashingBlockedLatch = blockHashChainExecutor();
+        for (int i = 0; i < DaoStateMonitoringService.MAX_PENDING_HASHES - 1; i++) {
+            createHashFromBlock(GENESIS_BLOCK_HEIGHT + i, new byte[]{(byte) i});
+        }
+
+        // Below the limit the runnable runs at once
+        AtomicBoolean ran = new AtomicBoolean();
+        daoStateMonitoringService.runWhenReadyForNextBlock(() -> ran.set(true));
+        assertTrue(ran.get());
+
+        // At the limit the runnable waits for the oldest pending hash
+        createHashFromBlock(GENESIS_BLOCK_HEIGHT + DaoStateMonitoringService.MAX_PENDING_HASHES - 1, new byte[]{9});
+        CountDownLatch readyLatch = new CountDownLatch(1);
+        daoStateMonitoringService.runWhenReadyForNextBlock(readyLatch::countDown);
+        assertFalse(readyLatch.await(100, TimeUnit.MILLISECONDS));
+
+        hashingBlockedLatch.countDown();
+        assertTrue(readyLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(DaoStateMonitoringService.MAX_PENDING_HASHES,
+                daoStateMonitoringService.getDaoStateHashChain().size());
+    }
+
+    @Test
+    public void testApplySnapshotDropsPendingHashes() throws Exception {
+        CountDownLatch hashingBlockedLatch = blockHashChainExecutor();
+        createHashFromBlock(GENESIS_BLOCK_HEIGHT, new byte[]{1});
+        createHashFromBlock(GENESIS_BLOCK_HEIGHT + 1, new byte[]{2});
+
+        DaoStateHash snapshotHash = new DaoStateHash(GENESIS_BLOCK_HEIGHT, new byte[]{7}, new byte[0]);
+        daoStateMonitoringService.applySnapshot(new LinkedList<>(List.of(snapshotHash)));
+
+        // The dropped hashes get created but do not get added to the hash chain
+        hashingBlockedLatch.countDown();
+        hashChainExecutor.submit(() -> {
+        }).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        List<DaoStateHash> daoStateHashChain = daoStateMonitoringService.getDaoStateHashChain();
+        assertEquals(1, daoStateHashChain.size());
+        assertSame(snapshotHash, daoStateHashChain.get(0));
+
+        // The next block continues the hash chain of the snapshot
+        createHashFromBlock(GENESIS_BLOCK_HEIGHT + 1, new byte[]{3});
+        daoStateHashChain = daoStateMonitoringService.getDaoStateHashChain();
+        assertEquals(2, daoStateHashChain.size());
+        assertArrayEquals(snapshotHash.getHash(), daoStateHashChain.get(1).getPrevHash());
+        assertEquals(2, daoStateMonitoringService.getDaoStateBlockChain().size());
+    }
+
+    // Blocks the hash chain thread until the returned latch is counted down
+    private CountDownLatch blockHashChainExecutor() {
+        CountDownLatch latch = new CountDownLatch(1);
+        hashChainExecutor.execute(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        return latch;
+    }
+
+    private void createHashFromBlock(int height, byte[] serializedState) {
+        when(daoStateService.getSerializedStateForHashChain()).thenReturn(serializedState);
+        daoStateMonitoringService.createHashFromBlock(new Block(height, 0, "hash" + height, "hash" + (height - 1)));
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.explorer;
+
+import bisq.core.dao.state.DaoStateService;
+import bisq.core.dao.state.model.blockchain.Block;
+import bisq.core.dao.state.model.blockchain.SpentInfo;
+import bisq.core.dao.state.model.blockchain.Tx;
+import bisq.core.dao.state.model.blockchain.TxInput;
+import bisq.core.dao.state.model.blockchain.TxOutput;
+import bisq.core.dao.state.model.blockchain.TxOutputKey;
+
+import bisq.common.storage.FileUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExportJsonFilesServiceTest {
+    private File storageDir;
+    private LinkedList<Block> blocks;
+    private Map<TxOutputKey, SpentInfo> spentInfoMap;
+    private List<String> confiscatedLockupTxList;
+    private ExportJsonFilesService exportJsonFilesService;
+
+    @Before
+    public void setup() throws IOException {
+        storageDir = Files.createTempDirectory("ExportJsonFilesServiceTest").toFile();
+        blocks = new LinkedList<>();
+        spentInfoMap = new HashMap<>();
+        confiscatedLockupTxList = new ArrayList<>();
+
+        DaoStateService daoStateService = mock(DaoStateService.class);
+        when(daoStateService.isParseBlockChainComplete()).thenReturn(true);
+        when(daoStateService.getBlocks()).thenAnswer(invocation -> blocks);
+        when(daoStateService.getLastBlock()).thenAnswer(invocation -> Optional.ofNullable(blocks.peekLast()));
+        when(daoStateService.getBlockAtHeight(anyInt())).thenAnswer(invocation -> blocks.stream()
+                .filter(block -> block.getHeight() == (int) invocation.getArgument(0))
+                .findAny());
+        when(daoStateService.getBlocksFromBlockHeight(anyInt(), anyInt())).thenAnswer(invocation -> blocks.stream()
+                .filter(block -> block.getHeight() >= (int) invocation.getArgument(0))
+                .collect(Collectors.toList()));
+        when(daoStateService.getTxStream()).thenAnswer(invocation -> blocks.stream()
+                .flatMap(block -> block.getTxs().stream()));
+        when(daoStateService.getTx(anyString())).thenAnswer(invocation -> blocks.stream()
+                .flatMap(block -> block.getTxs().stream())
+                .filter(tx -> tx.getId().equals(invocation.getArgument(0)))
+                .findAny());
+        when(daoStateService.getConnectedTxOutput(any(TxInput.class))).thenAnswer(invocation -> {
+            TxInput txInput = invocation.getArgument(0);
+            return blocks.stream()
+                    .flatMap(block -> block.getTxs().stream())
+                    .filter(tx -> tx.getId().equals(txInput.getConnectedTxOutputTxId()))
+                    .map(tx -> tx.getTxOutputs().get(txInput.getConnectedTxOutputIndex()))
+                    .findAny();
+        });
+        when(daoStateService.isBsqTxOutputType(any(TxOutput.class))).thenReturn(true);
+        when(daoStateService.getSpentInfo(any(TxOutput.class))).thenAnswer(invocation ->
+                Optional.ofNullable(spentInfoMap.get(((TxOutput) invocation.getArgument(0)).getKey())));
+        when(daoStateService.isUnspent(any(TxOutputKey.class))).thenAnswer(invocation ->
+                !spentInfoMap.containsKey(invocation.getArgument(0)));
+        when(daoStateService.getConfiscatedLockupTxList()).thenReturn(confiscatedLockupTxList);
+
+        exportJsonFilesService = new ExportJsonFilesService(daoStateService, storageDir, true);
+        exportJsonFilesService.start();
+
+        addBlock(100, createTx("a", 100));
+        addBlock(101, createTx("b", 101));
+        export();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        exportJsonFilesService.shutDown();
+        FileUtil.deleteDirectory(storageDir);
+    }
+
+    @Test
+    public void testExportAllAtFirstExport() throws Exception {
+        assertEquals(List.of(100, 101), getExportedBlockHeights());
+        assertTrue(getTxFile("a").exists());
+        assertTrue(getTxFile("b").exists());
+        assertTrue(new File(storageDir, "json/txo/a:0.json").exists());
+    }
+
+    @Test
+    public void testExportOnlyChangedTxs() throws Exception {
+        deleteTxFiles();
+
+        // c spends the output of a, so the spent info of a has changed
+        addBlock(102, createTx("c", 102, new TxInput("a", 0, null)));
+        spentInfoMap.put(new TxOutputKey("a", 0), SpentInfo.fromProto(protobuf.SpentInfo.newBuilder()
+                .setBlockHeight(102)
+                .setTxId("c")
+                .build()));
+        export();
+
+        assertEquals(List.of(100, 101, 102), getExportedBlockHeights());
+        assertTrue(getTxFile("c").exists());
+        assertTrue(getTxFile("a").exists());
+        assertFalse(getTxFile("b").exists());
+        assertTrue(readFile(getTxFile("a")).contains("\"c\""));
+        assertTrue(readFile(new File(storageDir, "json/txo/a:0.json")).contains("\"c\""));
+    }
+
+    @Test
+    public void testExportAllAfterReorg() throws Exception {
+        deleteTxFiles();
+
+        blocks.removeLast();
+        addBlock(101, "otherHash101", createTx("b2", 101));
+        addBlock(102, createTx("c", 102));
+        export();
+
+        assertEquals(List.of(100, 101, 102), getExportedBlockHeights());
+        assertTrue(getTxFile("a").exists());
+        assertTrue(getTxFile("b2").exists());
+        assertTrue(getTxFile("c").exists());
+    }
+
+    @Test
+    public void testExportAllAfterFailedExport() throws Exception {
+        // Writing the tx files fails without the tx dir
+        File txDir = new File(storageDir, "json/tx");
+        FileUtil.deleteDirectory(txDir);
+        addBlock(102, createTx("c", 102));
+        export();
+        assertFalse(getTxFile("c").exists());
+
+        assertTrue(txDir.mkdir());
+        addBlock(103, createTx("d", 103));
+        export();
+
+        // The blocks log got rewritten, so it does not contain block 102 twice
+        assertEquals(List.of(100, 101, 102, 103), getExportedBlockHeights());
+        assertTrue(getTxFile("a").exists());
+        assertTrue(getTxFile("b").exists());
+        assertTrue(getTxFile("c").exists());
+        assertTrue(getTxFile("d").exists());
+    }
+
+    @Test
+    public void testExportConfiscatedBondTxs() throws Exception {
+        deleteTxFiles();
+
+        confiscatedLockupTxList.add("a");
+        addBlock(102, createTx("c", 102));
+        export();
+
+        assertTrue(getTxFile("a").exists());
+        assertFalse(getTxFile("b").exists());
+        assertTrue(getTxFile("c").exists());
+
+        // We export the confiscated bond only once
+        deleteTxFiles();
+        addBlock(103, createTx("d", 103));
+        export();
+        assertFalse(getTxFile("a").exists());
+        assertTrue(getTxFile("d").exists());
+    }
+
+    private void export() throws Exception {
+        exportJsonFilesService.maybeExportToJson();
+        exportJsonFilesService.awaitPendingExports();
+    }
+
+    private void addBlock(int height, Tx tx) {
+        addBlock(height, "hash" + height, tx);
+    }
+
+    private void addBlock(int height, String hash, Tx tx) {
+        Block block = new Block(height, height * 600L, hash, blocks.isEmpty() ? "" : blocks.getLast().getHash());
+        block.getTxs().add(tx);
+        blocks.add(block);
+    }
+
+    private static Tx createTx(String txId, int height, TxInput... txInputs) {
+        protobuf.BaseTx.Builder builder = protobuf.BaseTx.newBuilder()
+                .setTxVersion("1")
+                .setId(txId)
+                .setBlockHeight(height)
+                .setBlockHash("hash" + height)
+                .setTime(height * 600L)
+                .setTx(protobuf.Tx.newBuilder()
+                        .setTxType(protobuf.TxType.TRANSFER_BSQ)
+                        .addTxOutputs(protobuf.BaseTxOutput.newBuilder()
+                                .setIndex(0)
+                                .setValue(1000)
+                                .setTxId(txId)
+                                .setBlockHeight(height)
+                                .setTxOutput(protobuf.TxOutput.newBuilder()
+                                        .setTxOutputType(protobuf.TxOutputType.BSQ_OUTPUT))));
+        for (TxInput txInput : txInputs)
+            builder.addTxInputs(txInput.toProtoMessage());
+        return Tx.fromProto(builder.build());
+    }
+
+    private List<Integer> getExportedBlockHeights() throws IOException {
+        return Files.readAllLines(new File(storageDir, "json/all/blocks.jsonl").toPath(), StandardCharsets.UTF_8)
+                .stream()
+                .map(line -> Integer.parseInt(line.replaceAll("^\\{\"height\":(\\d+),.*", "$1")))
+                .collect(Collectors.toList());
+    }
+
+    private File getTxFile(String txId) {
+        return new File(storageDir, "json/tx/" + txId + ".json");
+    }
+
+    private void deleteTxFiles() {
+        for (String dir : List.of("json/tx", "json/txo")) {
+            File[] files = new File(storageDir, dir).listFiles();
+            if (files != null) {
+                for (File file : files)
+                    assertTrue(file.delete());
+            }
+        }
+    }
+
+    private static String readFile(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.full;
+
+import bisq.common.UserThread;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BlockRequestPipelineTest {
+    private Executor previousUserThreadExecutor;
+    private ExecutorService userThread;
+    private ListeningExecutorService blockRequestExecutor;
+
+    @Before
+    public void setUp() {
+        previousUserThreadExecutor = UserThread.getExecutor();
+        userThread = Executors.newSingleThreadExecutor();
+        UserThread.setExecutor(userThread);
+        blockRequestExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+    }
+
+    @After
+    public void tearDown() {
+        blockRequestExecutor.shutdownNow();
+        userThread.shutdownNow();
+        UserThread.setExecutor(previousUserThreadExecutor);
+    }
+
+    @Test
+    public void testBlocksAreDeliveredInOrder() throws InterruptedException {
+        Random random = new Random();
+        List<Integer> heights = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        BlockRequestPipeline pipeline = new BlockRequestPipeline(blockHeight -> {
+            // Later requests often complete earlier
+            Thread.sleep(random.nextInt(5));
+            return createRawBlock(blockHeight);
+        }, blockRequestExecutor, 8, 100, 199,
+                rawBlock -> heights.add(rawBlock.getHeight()),
+                latch::countDown,
+                throwable -> {
+                });
+        UserThread.execute(pipeline::start);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(100, heights.size());
+        for (int i = 0; i < heights.size(); i++)
+            assertEquals(100 + i, (int) heights.get(i));
+    }
+
+    @Test
+    public void testStopAndError() throws InterruptedException {
+        // The handler stops the pipeline at the first block, we must not get more blocks or the result
+        AtomicInteger numBlocks = new AtomicInteger();
+        CountDownLatch stopped = new CountDownLatch(1);
+        BlockRequestPipeline[] pipeline = new BlockRequestPipeline[1];
+        pipeline[0] = new BlockRequestPipeline(BlockRequestPipelineTest::createRawBlock, blockRequestExecutor, 8, 0, 99,
+                rawBlock -> {
+                    numBlocks.incrementAndGet();
+                    pipeline[0].stop();
+                    stopped.countDown();
+                },
+                () -> numBlocks.addAndGet(1000),
+                throwable -> numBlocks.addAndGet(1000));
+        UserThread.execute(pipeline[0]::start);
+        assertTrue(stopped.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, numBlocks.get());
+
+        // A failed request is reported and no later block is delivered
+        List<Integer> heights = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        CountDownLatch failed = new CountDownLatch(1);
+        UserThread.execute(() -> new BlockRequestPipeline(blockHeight -> {
+            if (blockHeight == 5)
+                throw new RpcException("test", null);
+            return createRawBlock(blockHeight);
+        }, blockRequestExecutor, 8, 0, 99,
+                rawBlock -> heights.add(rawBlock.getHeight()),
+                failed::countDown,
+                throwable -> {
+                    errors.add(throwable);
+                    failed.countDown();
+                })
+                .start());
+        assertTrue(failed.await(10, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(5, heights.size());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof RpcException);
+    }
+
+    private static RawBlock createRawBlock(int blockHeight) {
+        return new RawBlock(blockHeight, 0, "hash" + blockHeight, "hash" + (blockHeight - 1), ImmutableList.of());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.full;
+
+import bisq.core.dao.state.model.blockchain.PubKeyScript;
+import bisq.core.dao.state.model.blockchain.ScriptType;
+import bisq.core.dao.state.model.blockchain.TxInput;
+
+import bisq.common.proto.ProtobufferRuntimeException;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompactBlockEncodingTest {
+
+    @Test
+    public void testDecodedBlocksAreEqualToProtoBlocks() {
+        List<RawBlock> rawBlocks = createRawBlocks(50);
+        // PubKeyScript.equals only matches the same instance, so we compare the protobuf representation. The
+        // protobuf serialisation converts null to empty strings and empty values to null at some fields.
+        List<protobuf.BaseBlock> protoBlocks = toProto(rawBlocks.stream()
+                .map(rawBlock -> RawBlock.fromProto(rawBlock.toProtoMessage()))
+                .collect(Collectors.toList()));
+
+        assertEquals(protoBlocks, toProto(CompactBlockEncoding.decode(CompactBlockEncoding.encode(rawBlocks, false))));
+        assertEquals(protoBlocks, toProto(CompactBlockEncoding.decode(CompactBlockEncoding.encode(rawBlocks, true))));
+        assertEquals(new ArrayList<>(), CompactBlockEncoding.decode(CompactBlockEncoding.encode(new ArrayList<>(), true)));
+
+        int protoSize = protoBlocks.stream().mapToInt(protobuf.BaseBlock::getSerializedSize).sum();
+        assertTrue(CompactBlockEncoding.encode(rawBlocks, false).length < protoSize / 2);
+    }
+
+    @Test(expected = ProtobufferRuntimeException.class)
+    public void testInvalidData() {
+        byte[] encoded = CompactBlockEncoding.encode(createRawBlocks(5), false);
+        CompactBlockEncoding.decode(Arrays.copyOf(encoded, encoded.length - 10));
+    }
+
+    @Test
+    public void testDecodeSegments() {
+        List<RawBlock> rawBlocks = createRawBlocks(10);
+        List<byte[]> segments = List.of(CompactBlockEncoding.encode(rawBlocks.subList(0, 4), true),
+                CompactBlockEncoding.encode(rawBlocks.subList(4, 10), true));
+
+        List<protobuf.BaseBlock> protoBlocks = toProto(rawBlocks.stream()
+                .map(rawBlock -> RawBlock.fromProto(rawBlock.toProtoMessage()))
+                .collect(Collectors.toList()));
+        assertEquals(protoBlocks, toProto(CompactBlockEncoding.decode(segments, 10)));
+    }
+
+    @Test(expected = ProtobufferRuntimeException.class)
+    public void testBlockLimitOfAllSegments() {
+        byte[] segment = CompactBlockEncoding.encode(createRawBlocks(5), true);
+        CompactBlockEncoding.decode(List.of(segment, segment), 8);
+    }
+
+    @Test
+    public void testDecodedSizeLimitOfAllSegments() {
+        // The zeros of the op return data get deflated to a small segment
+        RawTxOutput rawTxOutput = new RawTxOutput(0, 0, hash(1), null, null,
+                new byte[CompactBlockEncoding.MAX_DECODED_SIZE / 2], 100);
+        RawTx rawTx = new RawTx("1", hash(1), 100, hash(100), 60_000_000L, ImmutableList.of(),
+                ImmutableList.of(rawTxOutput));
+        byte[] segment = CompactBlockEncoding.encode(List.of(new RawBlock(100, 60_000_000L, hash(100), null,
+                ImmutableList.of(rawTx))), true);
+        assertTrue(segment.length < 1024 * 1024);
+
+        assertEquals(1, CompactBlockEncoding.decode(List.of(segment), 10).size());
+        try {
+            CompactBlockEncoding.decode(List.of(segment, segment), 10);
+            fail();
+        } catch (ProtobufferRuntimeException ignore) {
+        }
+    }
+
+    private static List<protobuf.BaseBlock> toProto(List<RawBlock> rawBlocks) {
+        return rawBlocks.stream().map(RawBlock::toProtoMessage).collect(Collectors.toList());
+    }
+
+    private static List<RawBlock> createRawBlocks(int numBlocks) {
+        List<RawBlock> rawBlocks = new ArrayList<>();
+        String previousTxId = hash(999_999);
+        for (int height = 100; height < 100 + numBlocks; height++) {
+            String blockHash = hash(height);
+            long time = height * 600_000L;
+            List<RawTx> rawTxs = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String txId = hash(height * 10 + i);
+                ImmutableList<TxInput> txInputs = ImmutableList.of(
+                        new TxInput(previousTxId, 1, i == 0 ? null : "02" + hash(i)),
+                        new TxInput(hash(1), 0, ""));
+                PubKeyScript pubKeyScript = new PubKeyScript(1,
+                        ScriptType.WITNESS_V0_KEYHASH,
+                        ImmutableList.of("bc1qaddress" + i),
+                        "0 " + hash(i).substring(0, 40),
+                        "0014" + hash(i).substring(0, 40));
+                ImmutableList<RawTxOutput> rawTxOutputs = ImmutableList.of(
+                        new RawTxOutput(0, 1000 + i, txId, pubKeyScript, "bc1qaddress" + i, null, height),
+                        new RawTxOutput(1, 0, txId, null, null, new byte[]{0x14, 0x01, 0x02}, height),
+                        // Values which do not fit the enclosing tx and a not lower case hex txId
+                        new RawTxOutput(5, -1, "ABC", null, "", new byte[0], height - 1));
+                rawTxs.add(new RawTx(i == 2 ? "0" : "1", txId, height, blockHash, time, txInputs, rawTxOutputs));
+                previousTxId = txId;
+            }
+            String previousBlockHash = height == 100 ? null : hash(height - 1);
+            rawBlocks.add(new RawBlock(height, time, blockHash, previousBlockHash, ImmutableList.copyOf(rawTxs)));
+        }
+        return rawBlocks;
+    }
+
+    private static String hash(int value) {
+        return String.format("%064x", value);
+    }
+}
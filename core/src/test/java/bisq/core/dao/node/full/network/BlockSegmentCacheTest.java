@@ -0,0 +1,82 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.full.network;
+
+import bisq.core.dao.node.full.CompactBlockEncoding;
+import bisq.core.dao.node.full.RawBlock;
+import bisq.core.dao.state.model.blockchain.BaseBlock;
+import bisq.core.dao.state.model.blockchain.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BlockSegmentCacheTest {
+
+    @Test
+    public void testGetCompactBlockSegments() {
+        BlockSegmentCache blockSegmentCache = new BlockSegmentCache();
+        // Blocks 150 to 420: a partial segment, 2 full segments and a partial segment at the chain tip
+        List<Block> blocks = createBlocks(150, 420, "");
+        List<byte[]> segments = blockSegmentCache.getCompactBlockSegments(blocks);
+        assertEquals(4, segments.size());
+        assertEquals(getHeights(blocks), getHeights(decode(segments)));
+        assertEquals(0, blockSegmentCache.getNumHits());
+        assertEquals(2, blockSegmentCache.getNumMisses());
+
+        // A request from another height gets the cached segments
+        blocks = createBlocks(190, 420, "");
+        segments = blockSegmentCache.getCompactBlockSegments(blocks);
+        assertEquals(getHeights(blocks), getHeights(decode(segments)));
+        assertEquals(2, blockSegmentCache.getNumHits());
+        assertEquals(2, blockSegmentCache.getNumMisses());
+        assertEquals(segments.get(1).length + segments.get(2).length, blockSegmentCache.getNumBytesSaved());
+
+        // After a reorg which replaced the blocks from 350 we must not use the segment from 300 to 399
+        blocks = createBlocks(190, 349, "");
+        blocks.addAll(createBlocks(350, 420, "reorg"));
+        segments = blockSegmentCache.getCompactBlockSegments(blocks);
+        List<RawBlock> rawBlocks = decode(segments);
+        assertEquals(getHeights(blocks), getHeights(rawBlocks));
+        assertEquals("reorg" + 399, rawBlocks.get(399 - 190).getHash());
+        assertEquals(3, blockSegmentCache.getNumHits());
+        assertEquals(3, blockSegmentCache.getNumMisses());
+    }
+
+    private static List<Block> createBlocks(int fromHeight, int toHeight, String hashPrefix) {
+        List<Block> blocks = new ArrayList<>();
+        for (int height = fromHeight; height <= toHeight; height++) {
+            blocks.add(new Block(height, height * 600_000L, hashPrefix + height, hashPrefix + (height - 1)));
+        }
+        return blocks;
+    }
+
+    private static List<RawBlock> decode(List<byte[]> segments) {
+        return segments.stream()
+                .flatMap(segment -> CompactBlockEncoding.decode(segment).stream())
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> getHeights(List<? extends BaseBlock> blocks) {
+        return blocks.stream().map(BaseBlock::getHeight).collect(Collectors.toList());
+    }
+}
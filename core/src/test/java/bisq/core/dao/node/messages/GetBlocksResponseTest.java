@@ -0,0 +1,69 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.node.messages;
+
+import bisq.core.dao.node.full.CompactBlockEncoding;
+
+import bisq.common.proto.ProtobufferRuntimeException;
+
+import com.google.protobuf.ByteString;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GetBlocksResponseTest {
+
+    @Test
+    public void testEmptyCompactBlockSegments() {
+        ByteString segment = ByteString.copyFrom(CompactBlockEncoding.encode(new ArrayList<>(), true));
+        protobuf.GetBlocksResponse proto = protobuf.GetBlocksResponse.newBuilder()
+                .addAllCompactRawBlocks(Collections.nCopies(GetBlocksResponse.MAX_BLOCKS /
+                        GetBlocksResponse.COMPACT_BLOCK_SEGMENT_SIZE + 2, segment))
+                .setRequestNonce(1)
+                .build();
+
+        GetBlocksResponse getBlocksResponse = (GetBlocksResponse) GetBlocksResponse.fromProto(proto, 0);
+        assertEquals(0, getBlocksResponse.getBlocks().size());
+        assertEquals(1, getBlocksResponse.getRequestNonce());
+    }
+
+    @Test(expected = ProtobufferRuntimeException.class)
+    public void testTooManyCompactBlockSegments() {
+        ByteString segment = ByteString.copyFrom(CompactBlockEncoding.encode(new ArrayList<>(), true));
+        protobuf.GetBlocksResponse proto = protobuf.GetBlocksResponse.newBuilder()
+                .addAllCompactRawBlocks(Collections.nCopies(GetBlocksResponse.MAX_BLOCKS /
+                        GetBlocksResponse.COMPACT_BLOCK_SEGMENT_SIZE + 3, segment))
+                .build();
+
+        GetBlocksResponse.fromProto(proto, 0);
+    }
+
+    @Test(expected = ProtobufferRuntimeException.class)
+    public void testTooManyRawBlocks() {
+        protobuf.GetBlocksResponse proto = protobuf.GetBlocksResponse.newBuilder()
+                .addAllRawBlocks(Collections.nCopies(GetBlocksResponse.MAX_BLOCKS + 1,
+                        protobuf.BaseBlock.getDefaultInstance()))
+                .build();
+
+        GetBlocksResponse.fromProto(proto, 0);
+    }
+}
@@ -17,15 +17,29 @@
 
 package bisq.core.dao.state;
 
+import bisq.core.dao.governance.param.Param;
 import bisq.core.dao.state.model.DaoState;
 import bisq.core.dao.state.model.blockchain.Block;
+import bisq.core.dao.state.model.blockchain.SpentInfo;
+import bisq.core.dao.state.model.blockchain.Tx;
+import bisq.core.dao.state.model.blockchain.TxOutput;
+import bisq.core.dao.state.model.blockchain.TxOutputKey;
+import bisq.core.dao.state.model.blockchain.TxOutputType;
+import bisq.core.dao.state.model.blockchain.TxType;
+import bisq.core.dao.state.model.governance.Cycle;
+import bisq.core.dao.state.model.governance.DaoPhase;
 import bisq.core.util.BsqFormatter;
 
 import org.bitcoinj.core.Coin;
 
+import com.google.common.collect.ImmutableList;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class DaoStateServiceTest {
     @Test
     public void testIsBlockHashKnown() {
@@ -69,4 +83,197 @@ public class DaoStateServiceTest {
                 stateService.isBlockHashKnown("fakeblockhash4")
         );
     }
+
+    @Test
+    public void testTxLookups() {
+        DaoStateService stateService = new DaoStateService(
+                new DaoState(),
+                new GenesisTxInfo("fakegenesistxid", 0, Coin.parseCoin("2.5").value),
+                new BsqFormatter());
+
+        Block block = new Block(0, 1534800000, "fakeblockhash0", null);
+        stateService.onNewBlockHeight(0);
+        stateService.onNewBlockWithEmptyTxs(block);
+        stateService.onNewTxForLastBlock(block, createTx("tx0", 0, TxOutputType.GENESIS_OUTPUT));
+        stateService.onParseBlockComplete(block);
+
+        block = new Block(1, 1534800001, "fakeblockhash1", "fakeblockhash0");
+        stateService.onNewBlockHeight(1);
+        stateService.onNewBlockWithEmptyTxs(block);
+        stateService.onNewTxForLastBlock(block, createTx("tx1", 1, TxOutputType.LOCKUP_OUTPUT));
+        Assert.assertTrue("Tx must be found before block parsing is completed.", stateService.containsTx("tx1"));
+        stateService.onParseBlockComplete(block);
+
+        Assert.assertTrue(stateService.containsTx("tx0"));
+        Assert.assertEquals("tx1", stateService.getTx("tx1").get().getId());
+        Assert.assertFalse(stateService.getTx("tx2").isPresent());
+        Assert.assertTrue(stateService.existsTxOutput(new TxOutputKey("tx1", 0)));
+        Assert.assertFalse(stateService.existsTxOutput(new TxOutputKey("tx1", 1)));
+        Assert.assertEquals(1, stateService.getLockupTxOutputs().size());
+        Assert.assertEquals(0, stateService.getUnlockTxOutputs().size());
+        Assert.assertEquals(2, stateService.getTxMap().size());
+
+        // A snapshot without the last block must not keep its txs in the lookups
+        DaoState snapshot = stateService.getClone();
+        snapshot.getBlocks().removeLast();
+        stateService.applySnapshot(snapshot);
+
+        Assert.assertTrue(stateService.containsTx("tx0"));
+        Assert.assertFalse(stateService.containsTx("tx1"));
+        Assert.assertFalse(stateService.getTxOutput(new TxOutputKey("tx1", 0)).isPresent());
+        Assert.assertTrue(stateService.getLockupTxOutputs().isEmpty());
+    }
+
+    @Test
+    public void testHeightLookups() {
+        DaoStateService stateService = new DaoStateService(
+                new DaoState(),
+                new GenesisTxInfo("fakegenesistxid", 100, Coin.parseCoin("2.5").value),
+                new BsqFormatter());
+
+        for (int height = 100; height < 130; height++) {
+            Block block = new Block(height, 1534800000 + height, "fakeblockhash" + height, null);
+            stateService.onNewBlockHeight(height);
+            stateService.onNewBlockWithEmptyTxs(block);
+            if (height % 10 == 0)
+                stateService.addCycle(new Cycle(height, ImmutableList.of(new DaoPhase(DaoPhase.Phase.PROPOSAL, 10))));
+        }
+
+        Assert.assertEquals("fakeblockhash100", stateService.getBlockAtHeight(100).get().getHash());
+        Assert.assertEquals("fakeblockhash117", stateService.getBlockAtHeight(117).get().getHash());
+        Assert.assertFalse(stateService.getBlockAtHeight(99).isPresent());
+        Assert.assertFalse(stateService.getBlockAtHeight(130).isPresent());
+        Assert.assertEquals(5, stateService.getBlocksFromBlockHeight(125, 10).size());
+        Assert.assertEquals(125, stateService.getBlocksFromBlockHeight(125, 10).get(0).getHeight());
+        Assert.assertEquals(3, stateService.getBlocksFromBlockHeight(0, 3).size());
+        Assert.assertTrue(stateService.getBlocksFromBlockHeight(130, 10).isEmpty());
+
+        Assert.assertEquals(110, stateService.getCycle(110).get().getHeightOfFirstBlock());
+        Assert.assertEquals(110, stateService.getCycle(119).get().getHeightOfFirstBlock());
+        Assert.assertEquals(120, stateService.getCycle(129).get().getHeightOfFirstBlock());
+        Assert.assertFalse(stateService.getCycle(99).isPresent());
+        Assert.assertFalse(stateService.getCycle(130).isPresent());
+
+        // New params get activated with the next cycle, the last change at the same height wins
+        stateService.setNewParam(105, Param.DEFAULT_MAKER_FEE_BSQ, "1.00");
+        stateService.setNewParam(115, Param.DEFAULT_MAKER_FEE_BSQ, "2.00");
+        stateService.setNewParam(116, Param.DEFAULT_MAKER_FEE_BSQ, "3.00");
+        stateService.setNewParam(117, Param.QUORUM_REIMBURSEMENT, "100");
+        Assert.assertEquals(Param.DEFAULT_MAKER_FEE_BSQ.getDefaultValue(),
+                stateService.getParamValue(Param.DEFAULT_MAKER_FEE_BSQ, 109));
+        Assert.assertEquals("1.00", stateService.getParamValue(Param.DEFAULT_MAKER_FEE_BSQ, 110));
+        Assert.assertEquals("1.00", stateService.getParamValue(Param.DEFAULT_MAKER_FEE_BSQ, 119));
+        Assert.assertEquals("3.00", stateService.getParamValue(Param.DEFAULT_MAKER_FEE_BSQ, 120));
+        Assert.assertEquals("100", stateService.getParamValue(Param.QUORUM_REIMBURSEMENT, 125));
+
+        // The lookups must follow the state after a snapshot got applied
+        DaoState snapshot = stateService.getClone();
+        snapshot.getBlocks().removeLast();
+        snapshot.getCycles().removeLast();
+        snapshot.getParamChangeList().clear();
+        stateService.applySnapshot(snapshot);
+
+        Assert.assertFalse(stateService.getBlockAtHeight(129).isPresent());
+        Assert.assertEquals("fakeblockhash128", stateService.getBlockAtHeight(128).get().getHash());
+        Assert.assertFalse(stateService.getCycle(125).isPresent());
+        Assert.assertEquals(Param.DEFAULT_MAKER_FEE_BSQ.getDefaultValue(),
+                stateService.getParamValue(Param.DEFAULT_MAKER_FEE_BSQ, 120));
+    }
+
+    @Test
+    public void testSerializedStateForHashChain() {
+        DaoStateService stateService = new DaoStateService(
+                new DaoState(),
+                new GenesisTxInfo("fakegenesistxid", 0, Coin.parseCoin("2.5").value),
+                new BsqFormatter());
+
+        List<TxOutput> txOutputs = new ArrayList<>();
+        String previousBlockHash = null;
+        for (int height = 0; height < 3; height++) {
+            Block block = new Block(height, 1534800000 + height, "fakeblockhash" + height, previousBlockHash);
+            stateService.onNewBlockHeight(height);
+            stateService.onNewBlockWithEmptyTxs(block);
+            for (int i = 0; i < 50; i++) {
+                Tx tx = createTx("tx" + height + "-" + i, height, TxOutputType.BSQ_OUTPUT);
+                stateService.onNewTxForLastBlock(block, tx);
+                TxOutput txOutput = tx.getTxOutputs().get(0);
+                stateService.addUnspentTxOutput(txOutput);
+                txOutputs.add(txOutput);
+            }
+            // Spend some of the outputs of the previous block
+            if (height > 0) {
+                for (int i = 0; i < 10; i++) {
+                    TxOutput spentTxOutput = txOutputs.get((height - 1) * 50 + i);
+                    stateService.removeUnspentTxOutput(spentTxOutput);
+                    stateService.setSpentInfo(spentTxOutput.getKey(), new SpentInfo(height, "tx" + height + "-" + i, 0));
+                }
+            }
+            stateService.onParseBlockComplete(block);
+
+            Assert.assertArrayEquals("Serialized state must match the protobuf serialization with only the last block",
+                    getExpectedSerializedStateForHashChain(stateService),
+                    stateService.getSerializedStateForHashChain());
+            previousBlockHash = block.getHash();
+        }
+    }
+
+    @Test
+    public void testGetClone() {
+        DaoStateService stateService = new DaoStateService(
+                new DaoState(),
+                new GenesisTxInfo("fakegenesistxid", 0, Coin.parseCoin("2.5").value),
+                new BsqFormatter());
+
+        Block block = new Block(0, 1534800000, "fakeblockhash0", null);
+        stateService.onNewBlockHeight(0);
+        stateService.onNewBlockWithEmptyTxs(block);
+        Tx tx = createTx("tx0", 0, TxOutputType.GENESIS_OUTPUT);
+        stateService.onNewTxForLastBlock(block, tx);
+        stateService.addUnspentTxOutput(tx.getTxOutputs().get(0));
+        stateService.onParseBlockComplete(block);
+
+        DaoState clone = stateService.getClone();
+        byte[] serializedClone = clone.toProtoMessage().toByteArray();
+
+        block = new Block(1, 1534800001, "fakeblockhash1", "fakeblockhash0");
+        stateService.onNewBlockHeight(1);
+        stateService.onNewBlockWithEmptyTxs(block);
+        stateService.onNewTxForLastBlock(block, createTx("tx1", 1, TxOutputType.BSQ_OUTPUT));
+        stateService.removeUnspentTxOutput(tx.getTxOutputs().get(0));
+        stateService.onParseBlockComplete(block);
+
+        Assert.assertArrayEquals("Changes of the daoState must not change the clone",
+                serializedClone,
+                clone.toProtoMessage().toByteArray());
+        Assert.assertEquals(1, clone.getBlocks().size());
+        Assert.assertEquals(1, clone.getUnspentTxOutputMap().size());
+        Assert.assertArrayEquals(stateService.getClone().toProtoMessage().toByteArray(),
+                DaoState.fromProto(stateService.getClone().getBsqStateBuilder().build()).toProtoMessage().toByteArray());
+    }
+
+    private static byte[] getExpectedSerializedStateForHashChain(DaoStateService stateService) {
+        DaoState daoState = stateService.getClone();
+        return daoState.getBsqStateBuilder()
+                .clearBlocks()
+                .addBlocks(daoState.getBlocks().getLast().toProtoMessage())
+                .build()
+                .toByteArray();
+    }
+
+    private static Tx createTx(String txId, int blockHeight, TxOutputType txOutputType) {
+        protobuf.BaseTxOutput txOutput = protobuf.BaseTxOutput.newBuilder()
+                .setIndex(0)
+                .setValue(1000)
+                .setTxId(txId)
+                .setBlockHeight(blockHeight)
+                .setTxOutput(protobuf.TxOutput.newBuilder().setTxOutputType(txOutputType.toProtoMessage()))
+                .build();
+        return Tx.fromProto(protobuf.BaseTx.newBuilder()
+                .setId(txId)
+                .setBlockHeight(blockHeight)
+                .setTx(protobuf.Tx.newBuilder()
+                        .addTxOutputs(txOutput)
+                        .setTxType(TxType.TRANSFER_BSQ.toProtoMessage()))
+                .build());
+    }
 }
@@ -0,0 +1,290 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.dao.state;
+
+import bisq.core.dao.monitoring.DaoStateMonitoringService;
+import bisq.core.dao.monitoring.model.DaoStateHash;
+import bisq.core.dao.state.model.DaoState;
+import bisq.core.dao.state.model.blockchain.Block;
+
+import bisq.network.p2p.storage.persistence.ResourceDataStoreService;
+
+import bisq.common.storage.AppendOnlyLog;
+import bisq.common.storage.FileUtil;
+import bisq.common.storage.Storage;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DaoStateStorageServiceTest {
+    // There are no resource files with that postfix, so we start without data
+    private static final String POST_FIX = "_TEST";
+
+    private File storageDir;
+    private Storage<DaoStateStore> storage;
+    // The content of the DaoStateStore file
+    private byte[] persistedSnapshot;
+    // Used to simulate a crash, the snapshots after that number of writes get lost
+    private int remainingSnapshotWrites;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+        storageDir = Files.createTempDirectory("DaoStateStorageServiceTest").toFile();
+        remainingSnapshotWrites = Integer.MAX_VALUE;
+
+        storage = mock(Storage.class);
+        doAnswer(invocation -> {
+            if (remainingSnapshotWrites > 0) {
+                remainingSnapshotWrites--;
+                persistedSnapshot = ((DaoStateStore) invocation.getArgument(0)).toProtoMessage().toByteArray();
+            }
+            return null;
+        }).when(storage).saveNow(any());
+        when(storage.initAndGetPersistedWithFileName(anyString(), anyLong())).thenAnswer(invocation ->
+                persistedSnapshot == null ?
+                        null :
+                        DaoStateStore.fromProto(protobuf.PersistableEnvelope.parseFrom(persistedSnapshot).getDaoStateStore()));
+        doAnswer(invocation -> {
+            persistedSnapshot = null;
+            return null;
+        }).when(storage).removeAndBackupFile(anyString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(storageDir);
+    }
+
+    @Test
+    public void testReadPersistedStateAfterRestart() throws Exception {
+        DaoStateStorageService service = startService();
+        persist(service, createBlocks(1, 3, ""), createDaoStateHashes(1, 3, ""));
+        persist(service, createBlocks(1, 5, ""), createDaoStateHashes(1, 5, ""));
+
+        DaoStateStorageService restartedService = startService();
+
+        assertEquals(getHashes(createBlocks(1, 5, "")), getHashes(restartedService.getPersistedBsqState().getBlocks()));
+        assertEquals(createDaoStateHashes(1, 5, ""), restartedService.getPersistedDaoStateHashChain());
+        // The second snapshot only appended the new blocks
+        assertEquals(getHashes(createBlocks(1, 5, "")), getHashes(readBlocksLog()));
+    }
+
+    @Test
+    public void testRecoverFromCrashBeforeSnapshotGotWritten() throws Exception {
+        DaoStateStorageService service = startService();
+        persist(service, createBlocks(1, 3, ""), createDaoStateHashes(1, 3, ""));
+        // The logs get appended but the app crashes before the snapshot got written
+        remainingSnapshotWrites = 0;
+        persist(service, createBlocks(1, 5, ""), createDaoStateHashes(1, 5, ""));
+        remainingSnapshotWrites = Integer.MAX_VALUE;
+
+        DaoStateStorageService restartedService = startService();
+
+        // The entries of the logs which do not belong to the snapshot are ignored
+        assertEquals(getHashes(createBlocks(1, 3, "")), getHashes(restartedService.getPersistedBsqState().getBlocks()));
+        assertEquals(createDaoStateHashes(1, 3, ""), restartedService.getPersistedDaoStateHashChain());
+
+        // And get overwritten with the next snapshot
+        List<Block> blocks = createBlocks(1, 3, "");
+        blocks.addAll(createBlocks(4, 4, "b"));
+        List<DaoStateHash> daoStateHashes = createDaoStateHashes(1, 3, "");
+        daoStateHashes.addAll(createDaoStateHashes(4, 4, "b"));
+        persist(restartedService, blocks, daoStateHashes);
+
+        DaoStateStorageService secondRestartedService = startService();
+        assertEquals(getHashes(blocks), getHashes(secondRestartedService.getPersistedBsqState().getBlocks()));
+        assertEquals(daoStateHashes, secondRestartedService.getPersistedDaoStateHashChain());
+        assertEquals(getHashes(blocks), getHashes(readBlocksLog()));
+    }
+
+    @Test
+    public void testDropLogsIfLastBlockDoesNotMatchSnapshot() throws Exception {
+        DaoStateStorageService service = startService();
+        persist(service, createBlocks(1, 3, ""), createDaoStateHashes(1, 3, ""));
+        // We replace the last block in the log
+        AppendOnlyLog<protobuf.BaseBlock> blocksLog = createBlocksLog();
+        blocksLog.read(2);
+        blocksLog.truncate(2);
+        blocksLog.append(createBlocks(3, 3, "b").stream().map(Block::toProtoMessage).collect(Collectors.toList()));
+
+        DaoStateStorageService restartedService = startService();
+
+        // Without resource files we start from genesis
+        assertTrue(restartedService.getPersistedBsqState().getBlocks().isEmpty());
+        assertTrue(restartedService.getPersistedDaoStateHashChain().isEmpty());
+        verify(storage).removeAndBackupFile("DaoStateStore");
+        assertTrue(readBlocksLog().isEmpty());
+        assertEquals(0, new File(storageDir, "DaoStateStore_hashes").length());
+    }
+
+    @Test
+    public void testDropLogsIfTheyMissEntriesOfSnapshot() throws Exception {
+        DaoStateStorageService service = startService();
+        persist(service, createBlocks(1, 3, ""), createDaoStateHashes(1, 3, ""));
+        AppendOnlyLog<protobuf.BaseBlock> blocksLog = createBlocksLog();
+        blocksLog.read(2);
+        blocksLog.truncate(2);
+
+        DaoStateStorageService restartedService = startService();
+
+        assertTrue(restartedService.getPersistedBsqState().getBlocks().isEmpty());
+        assertTrue(restartedService.getPersistedDaoStateHashChain().isEmpty());
+        verify(storage).removeAndBackupFile("DaoStateStore");
+
+        // We can persist again after we dropped the logs
+        persist(restartedService, createBlocks(1, 2, ""), createDaoStateHashes(1, 2, ""));
+        assertEquals(getHashes(createBlocks(1, 2, "")), getHashes(startService().getPersistedBsqState().getBlocks()));
+    }
+
+    @Test
+    public void testTruncateLogsAtReorg() throws Exception {
+        DaoStateStorageService service = startService();
+        persist(service, createBlocks(1, 5, ""), createDaoStateHashes(1, 5, ""));
+
+        List<Block> blocks = createBlocks(1, 3, "");
+        blocks.addAll(createBlocks(4, 5, "b"));
+        List<DaoStateHash> daoStateHashes = createDaoStateHashes(1, 3, "");
+        daoStateHashes.addAll(createDaoStateHashes(4, 5, "b"));
+        persist(service, blocks, daoStateHashes);
+
+        assertEquals(getHashes(blocks), getHashes(readBlocksLog()));
+        DaoStateStorageService restartedService = startService();
+        assertEquals(getHashes(blocks), getHashes(restartedService.getPersistedBsqState().getBlocks()));
+        assertEquals(daoStateHashes, restartedService.getPersistedDaoStateHashChain());
+    }
+
+    @Test
+    public void testRecoverFromCrashWhileTruncatingLogsAtReorg() throws Exception {
+        DaoStateStorageService service = startService();
+        persist(service, createBlocks(1, 5, ""), createDaoStateHashes(1, 5, ""));
+
+        // Only the snapshot with all blocks and hashes which we write before we truncate the logs gets written
+        remainingSnapshotWrites = 1;
+        List<Block> blocks = createBlocks(1, 3, "");
+        blocks.addAll(createBlocks(4, 4, "b"));
+        List<DaoStateHash> daoStateHashes = createDaoStateHashes(1, 3, "");
+        daoStateHashes.addAll(createDaoStateHashes(4, 4, "b"));
+        persist(service, blocks, daoStateHashes);
+        assertEquals(0, remainingSnapshotWrites);
+        remainingSnapshotWrites = Integer.MAX_VALUE;
+
+        DaoStateStorageService restartedService = startService();
+        assertEquals(getHashes(blocks), getHashes(restartedService.getPersistedBsqState().getBlocks()));
+        assertEquals(daoStateHashes, restartedService.getPersistedDaoStateHashChain());
+
+        // The next snapshot refers to the logs again
+        blocks.addAll(createBlocks(5, 5, "b"));
+        daoStateHashes.addAll(createDaoStateHashes(5, 5, "b"));
+        persist(restartedService, blocks, daoStateHashes);
+        assertEquals(getHashes(blocks), getHashes(readBlocksLog()));
+        DaoStateStorageService secondRestartedService = startService();
+        assertEquals(getHashes(blocks), getHashes(secondRestartedService.getPersistedBsqState().getBlocks()));
+        assertEquals(daoStateHashes, secondRestartedService.getPersistedDaoStateHashChain());
+    }
+
+    @Test
+    public void testResetDaoState() throws Exception {
+        DaoStateStorageService service = startService();
+        persist(service, createBlocks(1, 3, ""), createDaoStateHashes(1, 3, ""));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        service.resetDaoState(latch::countDown);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        assertTrue(readBlocksLog().isEmpty());
+        DaoStateStorageService restartedService = startService();
+        assertTrue(restartedService.getPersistedBsqState().getBlocks().isEmpty());
+        assertTrue(restartedService.getPersistedDaoStateHashChain().isEmpty());
+    }
+
+    // Like a start of the app, which reads the persisted data
+    private DaoStateStorageService startService() {
+        DaoStateMonitoringService daoStateMonitoringService = mock(DaoStateMonitoringService.class);
+        when(daoStateMonitoringService.getDaoStateHashChain()).thenReturn(new LinkedList<>());
+        DaoStateStorageService service = new DaoStateStorageService(mock(ResourceDataStoreService.class),
+                new DaoState(),
+                daoStateMonitoringService,
+                storageDir,
+                storage);
+        service.readFromResources(POST_FIX);
+        return service;
+    }
+
+    private static void persist(DaoStateStorageService service,
+                                List<Block> blocks,
+                                List<DaoStateHash> daoStateHashes) throws InterruptedException {
+        DaoState daoState = new DaoState();
+        daoState.getBlocks().addAll(blocks);
+        CountDownLatch latch = new CountDownLatch(1);
+        service.persist(daoState, new LinkedList<>(daoStateHashes), latch::countDown);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    private AppendOnlyLog<protobuf.BaseBlock> createBlocksLog() {
+        return new AppendOnlyLog<>(new File(storageDir, "DaoStateStore_blocks"), protobuf.BaseBlock.parser());
+    }
+
+    private List<Block> readBlocksLog() throws IOException {
+        return createBlocksLog().readAll().stream().map(Block::fromProto).collect(Collectors.toList());
+    }
+
+    // The fork is part of the hashes so we get different blocks at the same height
+    private static List<Block> createBlocks(int fromHeight, int toHeight, String fork) {
+        List<Block> blocks = new ArrayList<>();
+        for (int height = fromHeight; height <= toHeight; height++)
+            blocks.add(new Block(height, height * 600L, "hash" + fork + height, "hash" + fork + (height - 1)));
+        return blocks;
+    }
+
+    private static List<DaoStateHash> createDaoStateHashes(int fromHeight, int toHeight, String fork) {
+        List<DaoStateHash> daoStateHashes = new ArrayList<>();
+        for (int height = fromHeight; height <= toHeight; height++)
+            daoStateHashes.add(new DaoStateHash(height, (fork + height).getBytes(StandardCharsets.UTF_8),
+                    (fork + (height - 1)).getBytes(StandardCharsets.UTF_8)));
+        return daoStateHashes;
+    }
+
+    private static List<String> getHashes(List<Block> blocks) {
+        return blocks.stream().map(Block::getHash).collect(Collectors.toList());
+    }
+}
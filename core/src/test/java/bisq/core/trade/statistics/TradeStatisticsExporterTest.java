@@ -0,0 +1,262 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.trade.statistics;
+
+import bisq.core.offer.OfferPayload;
+
+import bisq.common.storage.FileUtil;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TradeStatisticsExporterTest {
+    private static final long OCTOBER = LocalDateTime.of(2019, 10, 15, 12, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+    private static final long NOVEMBER = LocalDateTime.of(2019, 11, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    private File storageDir;
+    private File dir;
+
+    @Before
+    public void setup() throws IOException {
+        storageDir = Files.createTempDirectory("TradeStatisticsExporterTest").toFile();
+        dir = new File(storageDir, TradeStatisticsExporter.DIR_NAME);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(storageDir);
+    }
+
+    @Test
+    public void testExportAllSplitsByMonth() throws IOException {
+        TradeStatisticsExporter exporter = createExporter();
+        exporter.exportAll(List.of(createTradeStatistics("offer1", OCTOBER),
+                createTradeStatistics("offer2", NOVEMBER - 1),
+                createTradeStatistics("offer3", NOVEMBER)));
+
+        assertEquals(List.of("offer1", "offer2"), readOfferIds("2019-10"));
+        assertEquals(List.of("offer3"), readOfferIds("2019-11"));
+        assertEquals(Map.of("2019-10", 2, "2019-11", 1), readManifest());
+    }
+
+    @Test
+    public void testExportAppendsToSegmentOfMonth() throws IOException {
+        TradeStatisticsExporter exporter = createExporter();
+        exporter.exportAll(List.of(createTradeStatistics("offer1", OCTOBER)));
+
+        exporter.export(createTradeStatistics("offer2", OCTOBER + 1));
+        exporter.export(createTradeStatistics("offer3", NOVEMBER));
+
+        assertEquals(List.of("offer1", "offer2"), readOfferIds("2019-10"));
+        assertEquals(List.of("offer3"), readOfferIds("2019-11"));
+        assertEquals(Map.of("2019-10", 2, "2019-11", 1), readManifest());
+
+        // A trade we have exported already does not get written again
+        exporter.export(createTradeStatistics("offer2", OCTOBER + 1));
+        assertEquals(List.of("offer1", "offer2"), readOfferIds("2019-10"));
+    }
+
+    @Test
+    public void testTradesAddedWhileWriteIsPendingGetWrittenTogether() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+        try {
+            TradeStatisticsExporter exporter = new TradeStatisticsExporter(storageDir, executor);
+            CountDownLatch latch = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignore) {
+                }
+            });
+
+            exporter.export(createTradeStatistics("offer1", OCTOBER));
+            exporter.export(createTradeStatistics("offer2", OCTOBER + 1));
+            exporter.export(createTradeStatistics("offer3", NOVEMBER));
+            assertEquals(1, executor.getQueue().size());
+
+            latch.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of("offer1", "offer2"), readOfferIds("2019-10"));
+        assertEquals(List.of("offer3"), readOfferIds("2019-11"));
+        assertEquals(Map.of("2019-10", 2, "2019-11", 1), readManifest());
+    }
+
+    @Test
+    public void testExportAllContinuesFromExistingSegments() throws IOException {
+        createExporter().exportAll(List.of(createTradeStatistics("offer1", OCTOBER),
+                createTradeStatistics("offer2", NOVEMBER)));
+        File novemberSegment = getSegmentFile("2019-11");
+        // Some file systems only store full seconds
+        long lastModified = (novemberSegment.lastModified() / 1000 - 10) * 1000;
+        assertTrue(novemberSegment.setLastModified(lastModified));
+
+        // After a restart only the new trades get appended
+        createExporter().exportAll(List.of(createTradeStatistics("offer1", OCTOBER),
+                createTradeStatistics("offer2", NOVEMBER),
+                createTradeStatistics("offer3", OCTOBER + 1)));
+
+        assertEquals(List.of("offer1", "offer3"), readOfferIds("2019-10"));
+        assertEquals(List.of("offer2"), readOfferIds("2019-11"));
+        assertEquals(lastModified, novemberSegment.lastModified());
+        assertEquals(Map.of("2019-10", 2, "2019-11", 1), readManifest());
+    }
+
+    @Test
+    public void testExportAllRemovesPartlyWrittenRecord() throws IOException {
+        createExporter().exportAll(List.of(createTradeStatistics("offer1", OCTOBER),
+                createTradeStatistics("offer2", OCTOBER + 1)));
+        // Like a write which failed in the middle of the last record
+        Files.write(getSegmentFile("2019-10").toPath(), "{\"currency\":\"EU".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        createExporter().exportAll(List.of(createTradeStatistics("offer1", OCTOBER),
+                createTradeStatistics("offer2", OCTOBER + 1),
+                createTradeStatistics("offer3", OCTOBER + 2)));
+
+        assertEquals(List.of("offer1", "offer2", "offer3"), readOfferIds("2019-10"));
+        assertEquals(Map.of("2019-10", 3), readManifest());
+    }
+
+    @Test
+    public void testExportAllRewritesCorruptedSegment() throws IOException {
+        createExporter().exportAll(List.of(createTradeStatistics("offer1", OCTOBER),
+                createTradeStatistics("offer2", NOVEMBER)));
+        Files.write(getSegmentFile("2019-10").toPath(), "no json\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        createExporter().exportAll(List.of(createTradeStatistics("offer1", OCTOBER),
+                createTradeStatistics("offer2", NOVEMBER)));
+
+        assertEquals(List.of("offer1"), readOfferIds("2019-10"));
+        assertEquals(List.of("offer2"), readOfferIds("2019-11"));
+        assertEquals(Map.of("2019-10", 1, "2019-11", 1), readManifest());
+    }
+
+    @Test
+    public void testManifestIsBasedOnWrittenRecords() throws IOException {
+        TradeStatisticsExporter exporter = createExporter();
+        exporter.exportAll(List.of(createTradeStatistics("offer1", OCTOBER)));
+
+        // The segment of november cannot be written
+        assertTrue(getSegmentFile("2019-11").mkdir());
+        exporter.export(createTradeStatistics("offer2", NOVEMBER));
+        exporter.export(createTradeStatistics("offer3", OCTOBER + 1));
+
+        assertEquals(List.of("offer1", "offer3"), readOfferIds("2019-10"));
+        assertEquals(Map.of("2019-10", 2), readManifest());
+    }
+
+    @Test
+    public void testExportAllDeletesLegacyFile() throws IOException {
+        File legacyFile = new File(storageDir, TradeStatisticsExporter.LEGACY_FILE_NAME);
+        Files.write(legacyFile.toPath(), "[]".getBytes(StandardCharsets.UTF_8));
+
+        createExporter().exportAll(List.of(createTradeStatistics("offer1", OCTOBER)));
+
+        assertFalse(legacyFile.exists());
+        assertEquals(List.of("offer1"), readOfferIds("2019-10"));
+    }
+
+    private TradeStatisticsExporter createExporter() {
+        return new TradeStatisticsExporter(storageDir, MoreExecutors.newDirectExecutorService());
+    }
+
+    private File getSegmentFile(String month) {
+        return new File(dir, "trade_statistics_" + month + ".jsonl");
+    }
+
+    private List<String> readOfferIds(String month) throws IOException {
+        JsonParser jsonParser = new JsonParser();
+        return Files.readAllLines(getSegmentFile(month).toPath(), StandardCharsets.UTF_8).stream()
+                .map(line -> jsonParser.parse(line).getAsJsonObject().get("offerId").getAsString())
+                .collect(Collectors.toList());
+    }
+
+    private Map<String, Integer> readManifest() throws IOException {
+        String json = new String(Files.readAllBytes(new File(dir, TradeStatisticsExporter.MANIFEST_FILE_NAME).toPath()),
+                StandardCharsets.UTF_8);
+        JsonObject manifest = new JsonParser().parse(json).getAsJsonObject();
+        JsonArray segments = manifest.getAsJsonArray("segments");
+        Map<String, Integer> numRecordsByMonth = new HashMap<>();
+        int numRecords = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            JsonObject segment = segments.get(i).getAsJsonObject();
+            String month = segment.get("month").getAsString();
+            assertEquals(getSegmentFile(month).getName(), segment.get("fileName").getAsString());
+            numRecordsByMonth.put(month, segment.get("numRecords").getAsInt());
+            numRecords += segment.get("numRecords").getAsInt();
+        }
+        assertEquals(numRecords, manifest.get("numRecords").getAsInt());
+        return numRecordsByMonth;
+    }
+
+    private static TradeStatistics2 createTradeStatistics(String offerId, long tradeDate) {
+        return new TradeStatistics2(OfferPayload.Direction.BUY,
+                "BTC",
+                "EUR",
+                "SEPA",
+                0,
+                false,
+                0,
+                100000,
+                100000,
+                offerId,
+                10000,
+                100000,
+                tradeDate,
+                "depositTxId",
+                new byte[20],
+                null);
+    }
+}
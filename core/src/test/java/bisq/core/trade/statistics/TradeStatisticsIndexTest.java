@@ -0,0 +1,81 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.core.trade.statistics;
+
+import bisq.core.offer.OfferPayload;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TradeStatisticsIndexTest {
+
+    @Test
+    public void testLookups() {
+        TradeStatisticsIndex index = new TradeStatisticsIndex();
+        // Not added in the order of the trade dates
+        long[] tradeDates = {500, 100, 300, 300, 900, 700, 200, 800, 600, 400};
+        for (int i = 0; i < tradeDates.length; i++) {
+            assertTrue(index.add(createTradeStatistics("offer" + i, i % 2 == 0 ? "EUR" : "USD", tradeDates[i])));
+        }
+        assertFalse(index.add(createTradeStatistics("offer3", "EUR", 1000)));
+        assertTrue(index.containsOfferId("offer9"));
+        assertFalse(index.containsOfferId("offer10"));
+
+        assertEquals(10, index.getTradeStatistics(null).size());
+        assertEquals("[100, 200, 300, 300, 400, 500, 600, 700, 800, 900]",
+                getTradeDates(index.getTradeStatistics(null)).toString());
+        assertEquals("[200, 300, 500, 600, 900]", getTradeDates(index.getTradeStatistics("EUR")).toString());
+        assertEquals("[700, 800, 900]", getTradeDates(index.getTradeStatisticsAfter(null, 600)).toString());
+        assertEquals("[100, 300, 400, 700, 800]", getTradeDates(index.getTradeStatisticsAfter("USD", 0)).toString());
+        assertTrue(index.getTradeStatisticsAfter("USD", 800).isEmpty());
+        assertTrue(index.getTradeStatistics("XMR").isEmpty());
+
+        assertEquals("offer4", index.getLatestTradeStatistics("EUR").get().getOfferId());
+        assertFalse(index.getLatestTradeStatistics("XMR").isPresent());
+        assertEquals(5, (int) index.getNumTradeStatisticsByCurrencyCode().get("USD"));
+    }
+
+    private static List<Long> getTradeDates(List<TradeStatistics2> list) {
+        return list.stream().map(e -> e.getTradeDate().getTime()).collect(Collectors.toList());
+    }
+
+    private static TradeStatistics2 createTradeStatistics(String offerId, String currencyCode, long tradeDate) {
+        return new TradeStatistics2(OfferPayload.Direction.BUY,
+                "BTC",
+                currencyCode,
+                "SEPA",
+                0,
+                false,
+                0,
+                100000,
+                100000,
+                offerId,
+                10000,
+                100000,
+                tradeDate,
+                "depositTxId",
+                new byte[20],
+                null);
+    }
+}
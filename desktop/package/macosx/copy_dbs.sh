@@ -6,7 +6,13 @@ cd $(dirname $0)/../../../
 
 dbDir=$BISQ_DIR/btc_mainnet/db
 resDir=p2p/src/main/resources
+version=$(sed -n 's/.*String VERSION = "\(.*\)";/\1/p' common/src/main/java/bisq/common/app/Version.java)
 
-cp "$dbDir/TradeStatistics2Store" "$resDir/TradeStatistics2Store_BTC_MAINNET"
-cp "$dbDir/AccountAgeWitnessStore" "$resDir/AccountAgeWitnessStore_BTC_MAINNET"
+# The db stores contain only the data which is not in the historical stores of the previous releases. They become the
+# historical stores of this release, so the version has to be added to Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS.
+cp "$dbDir/TradeStatistics2Store" "$resDir/TradeStatistics2Store_${version}_BTC_MAINNET"
+cp "$dbDir/AccountAgeWitnessStore" "$resDir/AccountAgeWitnessStore_${version}_BTC_MAINNET"
 cp "$dbDir/DaoStateStore" "$resDir/DaoStateStore_BTC_MAINNET"
+# The DaoStateStore refers to the blocks and hashes in its logs, so they must be copied from the same state
+cp "$dbDir/DaoStateStore_blocks" "$resDir/DaoStateStore_blocks_BTC_MAINNET"
+cp "$dbDir/DaoStateStore_hashes" "$resDir/DaoStateStore_hashes_BTC_MAINNET"
@@ -66,6 +66,7 @@ import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -149,17 +150,10 @@ class TradesChartsViewModel extends ActivatableViewModel {
 
     private void fillTradeCurrencies() {
         // Don't use a set as we need all entries
-        List<TradeCurrency> tradeCurrencyList = tradeStatisticsManager.getObservableTradeStatisticsSet().stream()
-                .map(e -> {
-                    Optional<TradeCurrency> tradeCurrencyOptional = CurrencyUtil.getTradeCurrency(e.getCurrencyCode());
-                    if (tradeCurrencyOptional.isPresent())
-                        return tradeCurrencyOptional.get();
-                    else
-                        return null;
-
-                })
-                .filter(e -> e != null)
-                .collect(Collectors.toList());
+        List<TradeCurrency> tradeCurrencyList = new ArrayList<>();
+        tradeStatisticsManager.getNumTradeStatisticsByCurrencyCode().forEach((currencyCode, numTrades) ->
+                CurrencyUtil.getTradeCurrency(currencyCode)
+                        .ifPresent(tradeCurrency -> tradeCurrencyList.addAll(Collections.nCopies(numTrades, tradeCurrency))));
 
         currencyListItems.updateWithCurrencies(tradeCurrencyList, showAllCurrencyListItem);
     }
@@ -253,9 +247,8 @@ class TradesChartsViewModel extends ActivatableViewModel {
     }
 
     private void updateChartData() {
-        tradeStatisticsByCurrency.setAll(tradeStatisticsManager.getObservableTradeStatisticsSet().stream()
-                .filter(e -> showAllTradeCurrenciesProperty.get() || e.getCurrencyCode().equals(getCurrencyCode()))
-                .collect(Collectors.toList()));
+        String currencyCode = showAllTradeCurrenciesProperty.get() ? null : getCurrencyCode();
+        tradeStatisticsByCurrency.setAll(tradeStatisticsManager.getTradeStatistics(currencyCode));
 
         // Generate date range and create sets for all ticks
         itemsPerInterval = new HashMap<>();
@@ -268,15 +261,17 @@ class TradesChartsViewModel extends ActivatableViewModel {
             time = roundToTick(time, tickUnit);
         }
 
-        // Get all entries for the defined time interval
-        tradeStatisticsByCurrency.stream().forEach(e -> {
-            for (long i = maxTicks; i > 0; --i) {
-                Pair<Date, Set<TradeStatistics2>> p = itemsPerInterval.get(i);
-                if (e.getTradeDate().after(p.getKey())) {
-                    p.getValue().add(e);
-                    break;
-                }
-            }
+        // Get all entries for the defined time interval. Entries go to the last tick they are after, so we look
+        // that tick up by a binary search over the tick start times. Index 0 is the start time of tick 1.
+        long[] tickStartTimes = new long[maxTicks];
+        for (int i = 1; i <= maxTicks; i++) {
+            tickStartTimes[i - 1] = itemsPerInterval.get((long) i).getKey().getTime();
+        }
+        tradeStatisticsManager.getTradeStatisticsAfter(currencyCode, itemsPerInterval.get(1L).getKey()).forEach(e -> {
+            int index = Arrays.binarySearch(tickStartTimes, e.getTradeDate().getTime());
+            int tickIndex = index >= 0 ? index - 1 : -index - 2;
+            if (tickIndex >= 0)
+                itemsPerInterval.get((long) tickIndex + 1).getValue().add(e);
         });
 
         // create CandleData for defined time interval
@@ -0,0 +1,195 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.peers.getdata;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.payload.CapabilityRequiringPayload;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import bisq.network.p2p.storage.persistence.AppendOnlyDataStoreService;
+import bisq.network.p2p.storage.persistence.MapStoreService;
+import bisq.network.p2p.storage.persistence.PersistableNetworkPayloadList;
+
+import bisq.common.app.Capabilities;
+import bisq.common.app.Capability;
+import bisq.common.storage.Storage;
+
+import java.nio.file.Files;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the filtering of the append-only data for a GetDataRequest. The peer knows all but the most recent
+ * payloads, which is the usual case after a restart. A part of the payloads requires a capability, which the peer
+ * might not support. The missing payloads are either defined by the list of the known keys or by a bloom filter of them.
+ *
+ * Run with: ./gradlew :p2p:jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GetDataRequestHandlerBenchmark {
+    private static final int NUM_MISSING_PAYLOADS = 100;
+
+    @Param({"10000", "100000", "200000"})
+    public int numPayloads;
+
+    @Param({"true", "false"})
+    public boolean peerSupportsCapability;
+
+    private AppendOnlyDataStoreService appendOnlyDataStoreService;
+    private Set<byte[]> excludedKeys;
+    private protobuf.KeyBloomFilter excludedKeysFilter;
+    private Capabilities peersCapabilities;
+
+    @SuppressWarnings("deprecation")
+    @Setup
+    public void setup() throws IOException {
+        File storageDir = Files.createTempDirectory("GetDataRequestHandlerBenchmark").toFile();
+        storageDir.deleteOnExit();
+        BenchmarkStoreService storeService = new BenchmarkStoreService(storageDir);
+        BenchmarkStoreService capabilityRequiringStoreService = new BenchmarkStoreService(storageDir);
+        appendOnlyDataStoreService = new AppendOnlyDataStoreService(null);
+        appendOnlyDataStoreService.addService(storeService);
+        appendOnlyDataStoreService.addService(capabilityRequiringStoreService);
+
+        Random random = new Random(1);
+        for (int i = 0; i < numPayloads; i++) {
+            byte[] hash = new byte[20];
+            random.nextBytes(hash);
+            // About 5 % of the payloads require a capability
+            if (i % 20 == 0)
+                capabilityRequiringStoreService.getMap().put(new P2PDataStorage.ByteArray(hash), new CapabilityRequiringBenchmarkPayload(hash));
+            else
+                storeService.getMap().put(new P2PDataStorage.ByteArray(hash), new BenchmarkPayload(hash));
+        }
+
+        excludedKeys = appendOnlyDataStoreService.getMap().keySet().stream()
+                .skip(NUM_MISSING_PAYLOADS)
+                .map(e -> e.bytes)
+                .collect(Collectors.toSet());
+        excludedKeysFilter = KeyBloomFilter.create(P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(excludedKeys)).toProtoMessage();
+
+        peersCapabilities = peerSupportsCapability ?
+                new Capabilities(Capability.SIGNED_ACCOUNT_AGE_WITNESS, Capability.MEDIATION) :
+                new Capabilities(Capability.MEDIATION);
+    }
+
+    @Benchmark
+    public Set<PersistableNetworkPayload> getFilteredPersistableNetworkPayload() {
+        // Same steps as in GetDataRequestHandler.handle
+        Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(excludedKeys);
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = appendOnlyDataStoreService.getMap(peersCapabilities, null);
+        return GetDataRequestHandler.getFilteredPersistableNetworkPayload(map, excludedKeysAsByteArray::contains);
+    }
+
+    @Benchmark
+    public Set<PersistableNetworkPayload> getFilteredPersistableNetworkPayloadWithKeyBloomFilter() {
+        KeyBloomFilter keyBloomFilter = KeyBloomFilter.fromProto(excludedKeysFilter);
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = appendOnlyDataStoreService.getMap(peersCapabilities, null);
+        return GetDataRequestHandler.getFilteredPersistableNetworkPayload(map, keyBloomFilter::mightContain);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Benchmark data
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @SuppressWarnings("deprecation")
+    private static class BenchmarkStoreService extends MapStoreService<PersistableNetworkPayloadList, PersistableNetworkPayload> {
+        BenchmarkStoreService(File storageDir) {
+            super(storageDir, new Storage<>(storageDir, null, null));
+            store = createStore();
+        }
+
+        @Override
+        public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMap() {
+            return store.getMap();
+        }
+
+        @Override
+        public boolean canHandle(PersistableNetworkPayload payload) {
+            return false;
+        }
+
+        @Override
+        public String getFileName() {
+            return "BenchmarkStore";
+        }
+
+        @Override
+        protected PersistableNetworkPayloadList createStore() {
+            return new PersistableNetworkPayloadList();
+        }
+    }
+
+    private static class BenchmarkPayload implements PersistableNetworkPayload {
+        private final byte[] hash;
+
+        BenchmarkPayload(byte[] hash) {
+            this.hash = hash;
+        }
+
+        @Override
+        public protobuf.PersistableNetworkPayload toProtoMessage() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte[] getHash() {
+            return hash;
+        }
+
+        @Override
+        public boolean verifyHashSize() {
+            return true;
+        }
+    }
+
+    private static class CapabilityRequiringBenchmarkPayload extends BenchmarkPayload implements CapabilityRequiringPayload {
+        CapabilityRequiringBenchmarkPayload(byte[] hash) {
+            super(hash);
+        }
+
+        @Override
+        public Capabilities getRequiredCapabilities() {
+            return new Capabilities(Capability.SIGNED_ACCOUNT_AGE_WITNESS);
+        }
+    }
+}
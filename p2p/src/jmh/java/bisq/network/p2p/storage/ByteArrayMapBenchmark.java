@@ -0,0 +1,118 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the ByteArrayMap with the ConcurrentHashMap we used for the append-only stores. The keys are 20 byte
+ * hashes like those of the account age witnesses and trade statistics. The retained heap of the keys and the map is
+ * printed at setup, the values are shared and not counted.
+ *
+ * Run with: ./gradlew :p2p:jmh -Pjmh.include=ByteArrayMapBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ByteArrayMapBenchmark {
+    private static final int NUM_LOOKUPS = 10_000;
+
+    @Param({"100000", "500000"})
+    public int numEntries;
+
+    @Param({"ConcurrentHashMap", "ByteArrayMap"})
+    public String mapType;
+
+    private Map<P2PDataStorage.ByteArray, Object> map;
+    private List<P2PDataStorage.ByteArray> lookupKeys;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        Object value = new Object();
+        long usedHeapBefore = getUsedHeap();
+        map = mapType.equals("ByteArrayMap") ? new ByteArrayMap<>() : new ConcurrentHashMap<>();
+        for (int i = 0; i < numEntries; i++)
+            map.put(new P2PDataStorage.ByteArray(getRandomHash(random)), value);
+        long retainedHeap = getUsedHeap() - usedHeapBefore;
+        System.out.printf("%n%s with %d entries retains %.1f MB, %d bytes per entry%n", mapType, numEntries,
+                retainedHeap / 1024d / 1024d, retainedHeap / numEntries);
+
+        // Half of the keys we look up are contained
+        List<P2PDataStorage.ByteArray> keys = new ArrayList<>(map.keySet());
+        lookupKeys = new ArrayList<>(NUM_LOOKUPS);
+        for (int i = 0; i < NUM_LOOKUPS; i++) {
+            lookupKeys.add(i % 2 == 0 ?
+                    new P2PDataStorage.ByteArray(keys.get(random.nextInt(keys.size())).bytes.clone()) :
+                    new P2PDataStorage.ByteArray(getRandomHash(random)));
+        }
+    }
+
+    @Benchmark
+    public int containsKey() {
+        int result = 0;
+        for (P2PDataStorage.ByteArray key : lookupKeys) {
+            if (map.containsKey(key))
+                result++;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int iterateValues() {
+        int result = 0;
+        for (Object value : map.values()) {
+            if (value != null)
+                result++;
+        }
+        return result;
+    }
+
+    private static byte[] getRandomHash(Random random) {
+        byte[] hash = new byte[20];
+        random.nextBytes(hash);
+        return hash;
+    }
+
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -17,6 +17,7 @@
 
 package bisq.network.p2p;
 
+import bisq.network.p2p.storage.messages.BroadcastMessage;
 import bisq.network.p2p.storage.payload.CapabilityRequiringPayload;
 
 import bisq.common.app.Capabilities;
@@ -62,7 +63,9 @@ public final class BundleOfEnvelopes extends NetworkEnvelope implements Extended
     public protobuf.NetworkEnvelope toProtoNetworkEnvelope() {
         return getNetworkEnvelopeBuilder()
                 .setBundleOfEnvelopes(protobuf.BundleOfEnvelopes.newBuilder().addAllEnvelopes(envelopes.stream()
-                        .map(NetworkEnvelope::toProtoNetworkEnvelope)
+                        .map(envelope -> envelope instanceof BroadcastMessage ?
+                                ((BroadcastMessage) envelope).getCachedProtoNetworkEnvelope() :
+                                envelope.toProtoNetworkEnvelope())
                         .collect(Collectors.toList())))
                 .build();
     }
@@ -0,0 +1,125 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.network.p2p.messaging.IgnoredMailboxEntries;
+import bisq.network.p2p.storage.P2PDataStorage;
+
+import bisq.common.crypto.CryptoException;
+import bisq.common.proto.ProtobufferException;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nullable;
+
+/**
+ * Remembers the results of the mailbox entry decryptions by the hash of the mailbox payload, so we do the expensive
+ * RSA decryption of an entry only once.
+ * <p>
+ * Entries which we cannot decrypt are not intended for us. Their hashes are persisted in the ignoredMailboxEntries.
+ * Entries which we could decrypt but not parse might be parsed by a newer version of the app, so we only ignore them
+ * until the next start.
+ * <p>
+ * Not thread safe. Only accessed from the user thread.
+ */
+@Slf4j
+class MailboxEntryDecryptionResults {
+    @Getter
+    private final IgnoredMailboxEntries ignoredMailboxEntries = new IgnoredMailboxEntries();
+    private final Set<P2PDataStorage.ByteArray> notParsableEntries = new HashSet<>();
+    private final Map<P2PDataStorage.ByteArray, DecryptedMessageWithPubKey> decryptedEntries = new HashMap<>();
+    private final Set<P2PDataStorage.ByteArray> pendingDecryptions = new HashSet<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    boolean isIgnored(P2PDataStorage.ByteArray hashOfPayload) {
+        return ignoredMailboxEntries.getHashes().contains(hashOfPayload) ||
+                notParsableEntries.contains(hashOfPayload);
+    }
+
+    @Nullable
+    DecryptedMessageWithPubKey getDecrypted(P2PDataStorage.ByteArray hashOfPayload) {
+        return decryptedEntries.get(hashOfPayload);
+    }
+
+    /**
+     * @return False if the decryption of that entry is pending already.
+     */
+    boolean startDecryption(P2PDataStorage.ByteArray hashOfPayload) {
+        return pendingDecryptions.add(hashOfPayload);
+    }
+
+    /**
+     * @return False if the entry got removed while the decryption was pending. We do not keep the result then.
+     */
+    boolean onDecrypted(P2PDataStorage.ByteArray hashOfPayload, DecryptedMessageWithPubKey decryptedMessageWithPubKey) {
+        if (!pendingDecryptions.remove(hashOfPayload))
+            return false;
+
+        decryptedEntries.put(hashOfPayload, decryptedMessageWithPubKey);
+        return true;
+    }
+
+    /**
+     * @return True if the ignoredMailboxEntries have changed and need to be persisted.
+     */
+    boolean onDecryptionFailed(P2PDataStorage.ByteArray hashOfPayload, Throwable throwable) {
+        pendingDecryptions.remove(hashOfPayload);
+        if (throwable instanceof CryptoException) {
+            log.debug(throwable.toString());
+            log.debug("Decryption of prefixedSealedAndSignedMessage.sealedAndSigned failed. " +
+                    "That is expected if the message is not intended for us.");
+            // A retry would fail again, so we do not try it anymore
+            return ignoredMailboxEntries.getHashes().add(hashOfPayload);
+        } else if (throwable instanceof ProtobufferException) {
+            // The message is for us but we cannot parse it. A new version of the app might be able to do so.
+            log.error("Protobuffer data could not be processed: {}", throwable.toString());
+            notParsableEntries.add(hashOfPayload);
+        } else {
+            // We do not ignore the entry as a retry might succeed
+            log.error("Decryption of mailbox entry failed: {}", throwable.toString());
+        }
+        return false;
+    }
+
+    void onRemoved(P2PDataStorage.ByteArray hashOfPayload) {
+        pendingDecryptions.remove(hashOfPayload);
+        decryptedEntries.remove(hashOfPayload);
+        notParsableEntries.remove(hashOfPayload);
+    }
+
+    /**
+     * Entries which are not in the network anymore will not come back, so we do not need to keep their hashes.
+     *
+     * @return True if the ignoredMailboxEntries have changed and need to be persisted.
+     */
+    boolean retainIgnoredEntries(Collection<P2PDataStorage.ByteArray> hashesOfPayloads) {
+        notParsableEntries.retainAll(hashesOfPayloads);
+        return ignoredMailboxEntries.getHashes().retainAll(hashesOfPayloads);
+    }
+}
@@ -22,6 +22,7 @@ import bisq.network.p2p.network.BridgeAddressProvider;
 import bisq.network.p2p.network.LocalhostNetworkNode;
 import bisq.network.p2p.network.NetworkNode;
 import bisq.network.p2p.network.NewTor;
+import bisq.network.p2p.network.NioNetworkNode;
 import bisq.network.p2p.network.RunningTor;
 import bisq.network.p2p.network.TorNetworkNode;
 
@@ -42,6 +43,7 @@ public class NetworkNodeProvider implements Provider<NetworkNode> {
     public NetworkNodeProvider(NetworkProtoResolver networkProtoResolver,
                                BridgeAddressProvider bridgeAddressProvider,
                                @Named(NetworkOptionKeys.USE_LOCALHOST_FOR_P2P) boolean useLocalhostForP2P,
+                               @Named(NetworkOptionKeys.USE_NIO_NETWORK_NODE) boolean useNioNetworkNode,
                                @Named(NetworkOptionKeys.PORT_KEY) int port,
                                @Named(NetworkOptionKeys.TOR_DIR) File torDir,
                                @Named(NetworkOptionKeys.TORRC_FILE) String torrcFile,
@@ -52,7 +54,9 @@ public class NetworkNodeProvider implements Provider<NetworkNode> {
                                @Named(NetworkOptionKeys.TOR_STREAM_ISOLATION) boolean streamIsolation,
                                @Named(NetworkOptionKeys.EXTERNAL_TOR_USE_SAFECOOKIE) boolean useSafeCookieAuthentication ) {
         networkNode = useLocalhostForP2P ?
-                new LocalhostNetworkNode(port, networkProtoResolver) :
+                (useNioNetworkNode ?
+                        new NioNetworkNode(port, networkProtoResolver) :
+                        new LocalhostNetworkNode(port, networkProtoResolver)) :
                 new TorNetworkNode(port, networkProtoResolver, streamIsolation,
                         !controlPort.isEmpty() ?
                                 new RunningTor(torDir, Integer.parseInt(controlPort), password, cookieFile, useSafeCookieAuthentication) :
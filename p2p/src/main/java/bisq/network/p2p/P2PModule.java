@@ -78,6 +78,9 @@ public class P2PModule extends AppModule {
         Boolean useLocalhostForP2P = environment.getProperty(NetworkOptionKeys.USE_LOCALHOST_FOR_P2P, boolean.class, false);
         bind(boolean.class).annotatedWith(Names.named(NetworkOptionKeys.USE_LOCALHOST_FOR_P2P)).toInstance(useLocalhostForP2P);
 
+        Boolean useNioNetworkNode = environment.getProperty(NetworkOptionKeys.USE_NIO_NETWORK_NODE, boolean.class, false);
+        bind(boolean.class).annotatedWith(Names.named(NetworkOptionKeys.USE_NIO_NETWORK_NODE)).toInstance(useNioNetworkNode);
+
         File torDir = new File(environment.getRequiredProperty(NetworkOptionKeys.TOR_DIR));
         bind(File.class).annotatedWith(named(NetworkOptionKeys.TOR_DIR)).toInstance(torDir);
 
@@ -20,6 +20,7 @@ package bisq.network.p2p;
 import bisq.network.Socks5ProxyProvider;
 import bisq.network.crypto.EncryptionService;
 import bisq.network.p2p.messaging.DecryptedMailboxListener;
+import bisq.network.p2p.messaging.IgnoredMailboxEntries;
 import bisq.network.p2p.network.CloseConnectionReason;
 import bisq.network.p2p.network.Connection;
 import bisq.network.p2p.network.ConnectionListener;
@@ -55,6 +56,7 @@ import bisq.common.crypto.PubKeyRing;
 import bisq.common.proto.ProtobufferException;
 import bisq.common.proto.network.NetworkEnvelope;
 import bisq.common.proto.persistable.PersistedDataHost;
+import bisq.common.storage.Storage;
 import bisq.common.util.Utilities;
 
 import com.google.inject.Inject;
@@ -62,7 +64,11 @@ import com.google.inject.Inject;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import org.fxmisc.easybind.EasyBind;
 import org.fxmisc.easybind.Subscription;
@@ -83,6 +89,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -100,6 +107,7 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         HashMapChangedListener, PersistedDataHost {
     private static final Logger log = LoggerFactory.getLogger(P2PService.class);
     public static final int MAX_CONNECTIONS_DEFAULT = 12;
+    private static final int MAX_MAILBOX_DECRYPTION_THREADS = 4;
 
     private final SeedNodeRepository seedNodeRepository;
     private final EncryptionService encryptionService;
@@ -119,6 +127,11 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     private final Set<DecryptedMailboxListener> decryptedMailboxListeners = new CopyOnWriteArraySet<>();
     private final Set<P2PServiceListener> p2pServiceListeners = new CopyOnWriteArraySet<>();
     private final Map<String, ProtectedMailboxStorageEntry> mailboxMap = new HashMap<>();
+    // The RSA decryption of mailbox entries is expensive, so we do it on the mailboxDecryptionExecutor and remember
+    // the results.
+    private final ListeningExecutorService mailboxDecryptionExecutor;
+    private final Storage<IgnoredMailboxEntries> ignoredMailboxEntriesStorage;
+    private final MailboxEntryDecryptionResults mailboxEntryDecryptionResults = new MailboxEntryDecryptionResults();
     private final Set<Runnable> shutDownResultHandlers = new CopyOnWriteArraySet<>();
     private final BooleanProperty hiddenServicePublished = new SimpleBooleanProperty();
     private final BooleanProperty preliminaryDataReceived = new SimpleBooleanProperty();
@@ -148,7 +161,8 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
                       SeedNodeRepository seedNodeRepository,
                       Socks5ProxyProvider socks5ProxyProvider,
                       EncryptionService encryptionService,
-                      KeyRing keyRing) {
+                      KeyRing keyRing,
+                      Storage<IgnoredMailboxEntries> ignoredMailboxEntriesStorage) {
         this.networkNode = networkNode;
         this.peerManager = peerManager;
         this.p2PDataStorage = p2PDataStorage;
@@ -160,6 +174,14 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
         this.socks5ProxyProvider = socks5ProxyProvider;
         this.encryptionService = encryptionService;
         this.keyRing = keyRing;
+        this.ignoredMailboxEntriesStorage = ignoredMailboxEntriesStorage;
+
+        int numMailboxDecryptionThreads = Math.min(Runtime.getRuntime().availableProcessors(), MAX_MAILBOX_DECRYPTION_THREADS);
+        mailboxDecryptionExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(numMailboxDecryptionThreads,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("MailboxDecryption-%d")
+                        .setDaemon(true)
+                        .build()));
 
         this.networkNode.addConnectionListener(this);
         this.networkNode.addMessageListener(this);
@@ -180,6 +202,11 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
     public void readPersisted() {
         p2PDataStorage.readPersisted();
         peerManager.readPersisted();
+
+        IgnoredMailboxEntries ignoredMailboxEntries = mailboxEntryDecryptionResults.getIgnoredMailboxEntries();
+        IgnoredMailboxEntries persisted = ignoredMailboxEntriesStorage.initAndGetPersisted(ignoredMailboxEntries, 1000);
+        if (persisted != null)
+            ignoredMailboxEntries.getHashes().addAll(persisted.getHashes());
     }
 
 
@@ -230,6 +257,8 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
             if (keepAliveManager != null)
                 keepAliveManager.shutDown();
 
+            mailboxDecryptionExecutor.shutdownNow();
+
             if (networkReadySubscription != null)
                 networkReadySubscription.unsubscribe();
 
@@ -441,6 +470,8 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
 
     @Override
     public void onRemoved(ProtectedStorageEntry data) {
+        if (data instanceof ProtectedMailboxStorageEntry)
+            mailboxEntryDecryptionResults.onRemoved(getHashOfPayload((ProtectedMailboxStorageEntry) data));
     }
 
 
@@ -517,35 +548,69 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
             MailboxStoragePayload mailboxStoragePayload = protectedMailboxStorageEntry.getMailboxStoragePayload();
             PrefixedSealedAndSignedMessage prefixedSealedAndSignedMessage = mailboxStoragePayload.getPrefixedSealedAndSignedMessage();
             if (verifyAddressPrefixHash(prefixedSealedAndSignedMessage)) {
-                try {
-                    DecryptedMessageWithPubKey decryptedMessageWithPubKey = encryptionService.decryptAndVerify(
-                            prefixedSealedAndSignedMessage.getSealedAndSigned());
-                    if (decryptedMessageWithPubKey.getNetworkEnvelope() instanceof MailboxMessage) {
-                        MailboxMessage mailboxMessage = (MailboxMessage) decryptedMessageWithPubKey.getNetworkEnvelope();
-                        NodeAddress senderNodeAddress = mailboxMessage.getSenderNodeAddress();
-                        checkNotNull(senderNodeAddress, "senderAddress must not be null for mailbox network_messages");
-
-                        mailboxMap.put(mailboxMessage.getUid(), protectedMailboxStorageEntry);
-                        log.info("Received a {} mailbox message with messageUid {} and senderAddress {}", mailboxMessage.getClass().getSimpleName(), mailboxMessage.getUid(), senderNodeAddress);
-                        decryptedMailboxListeners.forEach(
-                                e -> e.onMailboxMessageAdded(decryptedMessageWithPubKey, senderNodeAddress));
-                    } else {
-                        log.warn("tryDecryptMailboxData: Expected MailboxMessage but got other type. " +
-                                "decryptedMsgWithPubKey.message={}", decryptedMessageWithPubKey.getNetworkEnvelope());
-                    }
-                } catch (CryptoException e) {
-                    log.debug(e.toString());
-                    log.debug("Decryption of prefixedSealedAndSignedMessage.sealedAndSigned failed. " +
-                            "That is expected if the message is not intended for us.");
-                } catch (ProtobufferException e) {
-                    log.error("Protobuffer data could not be processed: {}", e.toString());
+                P2PDataStorage.ByteArray hashOfPayload = getHashOfPayload(protectedMailboxStorageEntry);
+                if (mailboxEntryDecryptionResults.isIgnored(hashOfPayload)) {
+                    log.trace("We failed to decrypt or parse that mailbox entry already.");
+                    return;
+                }
+
+                DecryptedMessageWithPubKey decryptedMessageWithPubKey = mailboxEntryDecryptionResults.getDecrypted(hashOfPayload);
+                if (decryptedMessageWithPubKey != null) {
+                    onMailboxEntryDecrypted(protectedMailboxStorageEntry, decryptedMessageWithPubKey);
+                    return;
                 }
+
+                // We might get called again before the decryption is completed
+                if (!mailboxEntryDecryptionResults.startDecryption(hashOfPayload))
+                    return;
+
+                ListenableFuture<DecryptedMessageWithPubKey> future = mailboxDecryptionExecutor.submit(() ->
+                        encryptionService.decryptAndVerify(prefixedSealedAndSignedMessage.getSealedAndSigned()));
+                Futures.addCallback(future, new FutureCallback<>() {
+                    @Override
+                    public void onSuccess(DecryptedMessageWithPubKey result) {
+                        UserThread.execute(() -> {
+                            // The entry might have been removed while the decryption was pending
+                            if (mailboxEntryDecryptionResults.onDecrypted(hashOfPayload, result))
+                                onMailboxEntryDecrypted(protectedMailboxStorageEntry, result);
+                        });
+                    }
+
+                    @Override
+                    public void onFailure(@NotNull Throwable throwable) {
+                        UserThread.execute(() -> {
+                            if (mailboxEntryDecryptionResults.onDecryptionFailed(hashOfPayload, throwable))
+                                ignoredMailboxEntriesStorage.queueUpForSave();
+                        });
+                    }
+                });
             } else {
                 log.trace("Wrong blurredAddressHash. The message is not intended for us.");
             }
         }
     }
 
+    private void onMailboxEntryDecrypted(ProtectedMailboxStorageEntry protectedMailboxStorageEntry,
+                                         DecryptedMessageWithPubKey decryptedMessageWithPubKey) {
+        if (decryptedMessageWithPubKey.getNetworkEnvelope() instanceof MailboxMessage) {
+            MailboxMessage mailboxMessage = (MailboxMessage) decryptedMessageWithPubKey.getNetworkEnvelope();
+            NodeAddress senderNodeAddress = mailboxMessage.getSenderNodeAddress();
+            checkNotNull(senderNodeAddress, "senderAddress must not be null for mailbox network_messages");
+
+            mailboxMap.put(mailboxMessage.getUid(), protectedMailboxStorageEntry);
+            log.info("Received a {} mailbox message with messageUid {} and senderAddress {}", mailboxMessage.getClass().getSimpleName(), mailboxMessage.getUid(), senderNodeAddress);
+            decryptedMailboxListeners.forEach(
+                    e -> e.onMailboxMessageAdded(decryptedMessageWithPubKey, senderNodeAddress));
+        } else {
+            log.warn("tryDecryptMailboxData: Expected MailboxMessage but got other type. " +
+                    "decryptedMsgWithPubKey.message={}", decryptedMessageWithPubKey.getNetworkEnvelope());
+        }
+    }
+
+    private P2PDataStorage.ByteArray getHashOfPayload(ProtectedMailboxStorageEntry protectedMailboxStorageEntry) {
+        return new P2PDataStorage.ByteArray(P2PDataStorage.get32ByteHash(protectedMailboxStorageEntry.getMailboxStoragePayload()));
+    }
+
     public void sendEncryptedMailboxMessage(NodeAddress peersNodeAddress, PubKeyRing peersPubKeyRing,
                                             NetworkEnvelope message,
                                             SendMailboxMessageListener sendMailboxMessageListener) {
@@ -643,10 +708,14 @@ public class P2PService implements SetupListener, MessageListener, ConnectionLis
 
     private void maybeProcessAllMailboxEntries() {
         if (isBootstrapped) {
-            p2PDataStorage.getMap().values().forEach(protectedStorageEntry -> {
+            Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> map = p2PDataStorage.getMap();
+            map.values().forEach(protectedStorageEntry -> {
                 if (protectedStorageEntry instanceof ProtectedMailboxStorageEntry)
                     processMailboxEntry((ProtectedMailboxStorageEntry) protectedStorageEntry);
             });
+
+            if (mailboxEntryDecryptionResults.retainIgnoredEntries(map.keySet()))
+                ignoredMailboxEntriesStorage.queueUpForSave();
         }
     }
 
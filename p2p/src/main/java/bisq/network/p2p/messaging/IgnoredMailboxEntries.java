@@ -0,0 +1,68 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.messaging;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+
+import bisq.common.proto.persistable.PersistableEnvelope;
+
+import com.google.protobuf.ByteString;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import lombok.Getter;
+
+/**
+ * Hashes of the mailbox entries which we failed to decrypt, so they are not intended for us. We persist them to not
+ * try the expensive decryption again after a restart or at a new data update.
+ */
+public class IgnoredMailboxEntries implements PersistableEnvelope {
+    @Getter
+    private final Set<P2PDataStorage.ByteArray> hashes = ConcurrentHashMap.newKeySet();
+
+    public IgnoredMailboxEntries() {
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private IgnoredMailboxEntries(Collection<P2PDataStorage.ByteArray> hashes) {
+        this.hashes.addAll(hashes);
+    }
+
+    @Override
+    public protobuf.PersistableEnvelope toProtoMessage() {
+        return protobuf.PersistableEnvelope.newBuilder()
+                .setIgnoredMailboxEntries(protobuf.IgnoredMailboxEntries.newBuilder()
+                        .addAllHashes(hashes.stream()
+                                .map(hash -> ByteString.copyFrom(hash.bytes))
+                                .collect(Collectors.toList())))
+                .build();
+    }
+
+    public static IgnoredMailboxEntries fromProto(protobuf.IgnoredMailboxEntries proto) {
+        return new IgnoredMailboxEntries(proto.getHashesList().stream()
+                .map(hash -> new P2PDataStorage.ByteArray(hash.toByteArray()))
+                .collect(Collectors.toList()));
+    }
+}
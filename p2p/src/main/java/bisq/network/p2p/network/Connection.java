@@ -31,6 +31,7 @@ import bisq.network.p2p.peers.keepalive.messages.KeepAliveMessage;
 import bisq.network.p2p.peers.keepalive.messages.Ping;
 import bisq.network.p2p.storage.messages.AddDataMessage;
 import bisq.network.p2p.storage.messages.AddPersistableNetworkPayloadMessage;
+import bisq.network.p2p.storage.messages.BroadcastMessage;
 import bisq.network.p2p.storage.messages.RefreshOfferMessage;
 import bisq.network.p2p.storage.payload.CapabilityRequiringPayload;
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
@@ -122,7 +123,7 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
 
     // Leaving some constants package-private for tests to know limits.
     private static final int PERMITTED_MESSAGE_SIZE = 200 * 1024;                       // 200 kb
-    private static final int MAX_PERMITTED_MESSAGE_SIZE = 10 * 1024 * 1024;             // 10 MB (425 offers resulted in about 660 kb, mailbox msg will add more to it) offer has usually 2 kb, mailbox 3kb.
+    static final int MAX_PERMITTED_MESSAGE_SIZE = 10 * 1024 * 1024;             // 10 MB (425 offers resulted in about 660 kb, mailbox msg will add more to it) offer has usually 2 kb, mailbox 3kb.
     //TODO decrease limits again after testing
     private static final int SOCKET_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(120);
 
@@ -136,6 +137,9 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     private final Socket socket;
+    // Set if the connection uses a non-blocking channel of the NioNetworkNode
+    @Nullable
+    private final NioChannel nioChannel;
     // private final MessageListener messageListener;
     private final ConnectionListener connectionListener;
     @Getter
@@ -150,7 +154,7 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
     private final int sendMsgThrottleSleep;
 
     // set in init
-    private SynchronizedProtoOutputStream protoOutputStream;
+    private ProtoOutputStream protoOutputStream;
 
     // mutable data, set from other threads but not changed internally.
     @Getter
@@ -184,7 +188,25 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
                ConnectionListener connectionListener,
                @Nullable NodeAddress peersNodeAddress,
                NetworkProtoResolver networkProtoResolver) {
+        this(socket, null, messageListener, connectionListener, peersNodeAddress, networkProtoResolver);
+    }
+
+    Connection(NioChannel nioChannel,
+               MessageListener messageListener,
+               ConnectionListener connectionListener,
+               @Nullable NodeAddress peersNodeAddress,
+               NetworkProtoResolver networkProtoResolver) {
+        this(nioChannel.socket(), nioChannel, messageListener, connectionListener, peersNodeAddress, networkProtoResolver);
+    }
+
+    private Connection(Socket socket,
+                       @Nullable NioChannel nioChannel,
+                       MessageListener messageListener,
+                       ConnectionListener connectionListener,
+                       @Nullable NodeAddress peersNodeAddress,
+                       NetworkProtoResolver networkProtoResolver) {
         this.socket = socket;
+        this.nioChannel = nioChannel;
         this.connectionListener = connectionListener;
         uid = UUID.randomUUID().toString();
         statistic = new Statistic();
@@ -204,16 +226,24 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
 
     private void init(@Nullable NodeAddress peersNodeAddress) {
         try {
+            // Used as read timeout by the NioChannel as well
             socket.setSoTimeout(SOCKET_TIMEOUT);
-            // Need to access first the ObjectOutputStream otherwise the ObjectInputStream would block
-            // See: https://stackoverflow.com/questions/5658089/java-creating-a-new-objectinputstream-blocks/5658109#5658109
-            // When you construct an ObjectInputStream, in the constructor the class attempts to read a header that
-            // the associated ObjectOutputStream on the other end of the connection has written.
-            // It will not return until that header has been read.
-            protoOutputStream = new SynchronizedProtoOutputStream(socket.getOutputStream(), statistic);
-            protoInputStream = socket.getInputStream();
-            // We create a thread for handling inputStream data
-            singleThreadExecutor.submit(this);
+            if (nioChannel != null) {
+                // Reading and writing is done by the selector threads of the NioNetworkNode, so we do not need a
+                // thread for the inputStream.
+                protoOutputStream = new NioProtoOutputStream(nioChannel, statistic);
+                nioChannel.start(this::onReceivedNioProto, this::onNioEndOfStream, this::handleException);
+            } else {
+                // Need to access first the ObjectOutputStream otherwise the ObjectInputStream would block
+                // See: https://stackoverflow.com/questions/5658089/java-creating-a-new-objectinputstream-blocks/5658109#5658109
+                // When you construct an ObjectInputStream, in the constructor the class attempts to read a header that
+                // the associated ObjectOutputStream on the other end of the connection has written.
+                // It will not return until that header has been read.
+                protoOutputStream = new SynchronizedProtoOutputStream(socket.getOutputStream(), statistic);
+                protoInputStream = socket.getInputStream();
+                // We create a thread for handling inputStream data
+                singleThreadExecutor.submit(this);
+            }
 
             if (peersNodeAddress != null)
                 setPeersNodeAddress(peersNodeAddress);
@@ -246,27 +276,33 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
                 try {
                     String peersNodeAddress = peersNodeAddressOptional.map(NodeAddress::toString).orElse("null");
 
-                    protobuf.NetworkEnvelope proto = networkEnvelope.toProtoNetworkEnvelope();
-                    log.trace("Sending message: {}", Utilities.toTruncatedString(proto.toString(), 10000));
+                    protobuf.NetworkEnvelope proto = networkEnvelope instanceof BroadcastMessage ?
+                            ((BroadcastMessage) networkEnvelope).getCachedProtoNetworkEnvelope() :
+                            networkEnvelope.toProtoNetworkEnvelope();
+                    // We check the log level as the text format of large messages is expensive
+                    if (log.isTraceEnabled())
+                        log.trace("Sending message: {}", Utilities.toTruncatedString(proto.toString(), 10000));
 
                     if (networkEnvelope instanceof Ping | networkEnvelope instanceof RefreshOfferMessage) {
                         // pings and offer refresh msg we don't want to log in production
-                        log.trace("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                                        "Sending direct message to peer" +
-                                        "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
-                                        "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
-                                peersNodeAddress, uid, proto.toString(), proto.getSerializedSize());
+                        if (log.isTraceEnabled())
+                            log.trace("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
+                                            "Sending direct message to peer" +
+                                            "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
+                                            "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
+                                    peersNodeAddress, uid, proto.toString(), proto.getSerializedSize());
                     } else if (networkEnvelope instanceof PrefixedSealedAndSignedMessage && peersNodeAddressOptional.isPresent()) {
                         setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
 
-                        log.debug("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
-                                        "Sending direct message to peer" +
-                                        "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
-                                        "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
-                                peersNodeAddress, uid, Utilities.toTruncatedString(networkEnvelope), -1);
+                        if (log.isDebugEnabled())
+                            log.debug("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
+                                            "Sending direct message to peer" +
+                                            "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
+                                            "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
+                                    peersNodeAddress, uid, Utilities.toTruncatedString(networkEnvelope), -1);
                     } else if (networkEnvelope instanceof GetDataResponse && ((GetDataResponse) networkEnvelope).isGetUpdatedDataResponse()) {
                         setPeerType(Connection.PeerType.PEER);
-                    } else {
+                    } else if (log.isDebugEnabled()) {
                         log.debug("\n\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n" +
                                         "Write object to outputStream to peer: {} (uid={})\ntruncated message={} / size={}" +
                                         "\n>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>>\n",
@@ -287,7 +323,7 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
                             synchronized (lock) {
                                 // check if current envelope fits size
                                 // - no? create new envelope
-                                if (queueOfBundles.isEmpty() || queueOfBundles.element().toProtoNetworkEnvelope().getSerializedSize() + networkEnvelope.toProtoNetworkEnvelope().getSerializedSize() > MAX_PERMITTED_MESSAGE_SIZE * 0.9) {
+                                if (queueOfBundles.isEmpty() || queueOfBundles.element().toProtoNetworkEnvelope().getSerializedSize() + proto.getSerializedSize() > MAX_PERMITTED_MESSAGE_SIZE * 0.9) {
                                     // - no? create a bucket
                                     queueOfBundles.add(new BundleOfEnvelopes());
 
@@ -531,7 +567,8 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
             protoOutputStream.onConnectionShutdown();
 
             try {
-                protoInputStream.close();
+                if (protoInputStream != null)
+                    protoInputStream.close();
             } catch (IOException e) {
                 log.error(e.getMessage());
                 e.printStackTrace();
@@ -721,173 +758,209 @@ public class Connection implements HasCapabilities, Runnable, MessageListener {
                         return;
                     }
 
-                    NetworkEnvelope networkEnvelope = networkProtoResolver.fromProto(proto);
-                    lastReadTimeStamp = now;
-                    log.debug("<< Received networkEnvelope of type: {}", networkEnvelope.getClass().getSimpleName());
-                    int size = proto.getSerializedSize();
-                    // We comment out that part as only debug and trace log level is used. For debugging purposes
-                    // we leave the code though.
-                        /*if (networkEnvelope instanceof Pong || networkEnvelope instanceof RefreshOfferMessage) {
-                            // We only log Pong and RefreshOfferMsg when in dev environment (trace)
-                            log.trace("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
-                                            "New data arrived at inputHandler of connection {}.\n" +
-                                            "Received object (truncated)={} / size={}"
-                                            + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
-                                    connection,
-                                    Utilities.toTruncatedString(proto.toString()),
-                                    size);
-                        } else {
-                            // We want to log all incoming network_messages (except Pong and RefreshOfferMsg)
-                            // so we log before the data type checks
-                            //log.info("size={}; object={}", size, Utilities.toTruncatedString(rawInputObject.toString(), 100));
-                            log.debug("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
-                                            "New data arrived at inputHandler of connection {}.\n" +
-                                            "Received object (truncated)={} / size={}"
-                                            + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
-                                    connection,
-                                    Utilities.toTruncatedString(proto.toString()),
-                                    size);
-                        }*/
-
-                    // We want to track the size of each object even if it is invalid data
-                    statistic.addReceivedBytes(size);
-
-                    // We want to track the network_messages also before the checks, so do it early...
-                    statistic.addReceivedMessage(networkEnvelope);
-
-                    // First we check the size
-                    boolean exceeds;
-                    if (networkEnvelope instanceof ExtendedDataSizePermission) {
-                        exceeds = size > MAX_PERMITTED_MESSAGE_SIZE;
-                        if (log.isDebugEnabled()) {
-                            log.debug("size={}; object={}", size, Utilities.toTruncatedString(proto, 100));
-                        }
-                    } else {
-                        exceeds = size > PERMITTED_MESSAGE_SIZE;
-                    }
+                    if (!onReceivedProto(proto, now))
+                        return;
+                } catch (InvalidClassException e) {
+                    log.error(e.getMessage());
+                    e.printStackTrace();
+                    reportInvalidRequest(RuleViolation.INVALID_CLASS);
+                } catch (ProtobufferException | NoClassDefFoundError e) {
+                    log.error(e.getMessage());
+                    e.printStackTrace();
+                    reportInvalidRequest(RuleViolation.INVALID_DATA_TYPE);
+                } catch (Throwable t) {
+                    handleException(t);
+                }
+            }
+        } catch (Throwable t) {
+            handleException(t);
+        }
+    }
 
-                    if (networkEnvelope instanceof AddPersistableNetworkPayloadMessage &&
-                            !((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().verifyHashSize()) {
-                        log.warn("PersistableNetworkPayload.verifyHashSize failed. hashSize={}; object={}",
-                                ((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().getHash().length,
-                                Utilities.toTruncatedString(proto));
-                        if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
-                            return;
-                    }
+    // Returns false if we must not read more messages from the peer
+    private boolean onReceivedProto(protobuf.NetworkEnvelope proto, long now) throws ProtobufferException {
+        NetworkEnvelope networkEnvelope = networkProtoResolver.fromProto(proto);
+        lastReadTimeStamp = now;
+        log.debug("<< Received networkEnvelope of type: {}", networkEnvelope.getClass().getSimpleName());
+        int size = proto.getSerializedSize();
+        // We comment out that part as only debug and trace log level is used. For debugging purposes
+        // we leave the code though.
+            /*if (networkEnvelope instanceof Pong || networkEnvelope instanceof RefreshOfferMessage) {
+                // We only log Pong and RefreshOfferMsg when in dev environment (trace)
+                log.trace("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
+                                "New data arrived at inputHandler of connection {}.\n" +
+                                "Received object (truncated)={} / size={}"
+                                + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
+                        connection,
+                        Utilities.toTruncatedString(proto.toString()),
+                        size);
+            } else {
+                // We want to log all incoming network_messages (except Pong and RefreshOfferMsg)
+                // so we log before the data type checks
+                //log.info("size={}; object={}", size, Utilities.toTruncatedString(rawInputObject.toString(), 100));
+                log.debug("\n\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n" +
+                                "New data arrived at inputHandler of connection {}.\n" +
+                                "Received object (truncated)={} / size={}"
+                                + "\n<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<<\n",
+                        connection,
+                        Utilities.toTruncatedString(proto.toString()),
+                        size);
+            }*/
+
+        // We want to track the size of each object even if it is invalid data
+        statistic.addReceivedBytes(size);
+
+        // We want to track the network_messages also before the checks, so do it early...
+        statistic.addReceivedMessage(networkEnvelope);
+
+        // First we check the size
+        boolean exceeds;
+        if (networkEnvelope instanceof ExtendedDataSizePermission) {
+            exceeds = size > MAX_PERMITTED_MESSAGE_SIZE;
+            if (log.isDebugEnabled()) {
+                log.debug("size={}; object={}", size, Utilities.toTruncatedString(proto, 100));
+            }
+        } else {
+            exceeds = size > PERMITTED_MESSAGE_SIZE;
+        }
 
-                    if (exceeds) {
-                        log.warn("size > MAX_MSG_SIZE. size={}; object={}", size, Utilities.toTruncatedString(proto));
+        if (networkEnvelope instanceof AddPersistableNetworkPayloadMessage &&
+                !((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().verifyHashSize()) {
+            log.warn("PersistableNetworkPayload.verifyHashSize failed. hashSize={}; object={}",
+                    ((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload().getHash().length,
+                    Utilities.toTruncatedString(proto));
+            if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
+                return false;
+        }
 
-                        if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
-                            return;
-                    }
+        if (exceeds) {
+            log.warn("size > MAX_MSG_SIZE. size={}; object={}", size, Utilities.toTruncatedString(proto));
 
-                    if (violatesThrottleLimit() && reportInvalidRequest(RuleViolation.THROTTLE_LIMIT_EXCEEDED))
-                        return;
+            if (reportInvalidRequest(RuleViolation.MAX_MSG_SIZE_EXCEEDED))
+                return false;
+        }
 
-                    // Check P2P network ID
-                    if (proto.getMessageVersion() != Version.getP2PMessageVersion()
-                            && reportInvalidRequest(RuleViolation.WRONG_NETWORK_ID)) {
-                        log.warn("RuleViolation.WRONG_NETWORK_ID. version of message={}, app version={}, " +
-                                        "proto.toTruncatedString={}", proto.getMessageVersion(),
-                                Version.getP2PMessageVersion(),
-                                Utilities.toTruncatedString(proto.toString()));
-                        return;
-                    }
+        if (violatesThrottleLimit() && reportInvalidRequest(RuleViolation.THROTTLE_LIMIT_EXCEEDED))
+            return false;
 
-                    if (networkEnvelope instanceof SupportedCapabilitiesMessage) {
-                        Capabilities supportedCapabilities = ((SupportedCapabilitiesMessage) networkEnvelope).getSupportedCapabilities();
-                        if (supportedCapabilities != null) {
-                            if (!capabilities.equals(supportedCapabilities)) {
-                                capabilities.set(supportedCapabilities);
+        // Check P2P network ID
+        if (proto.getMessageVersion() != Version.getP2PMessageVersion()
+                && reportInvalidRequest(RuleViolation.WRONG_NETWORK_ID)) {
+            log.warn("RuleViolation.WRONG_NETWORK_ID. version of message={}, app version={}, " +
+                            "proto.toTruncatedString={}", proto.getMessageVersion(),
+                    Version.getP2PMessageVersion(),
+                    Utilities.toTruncatedString(proto.toString()));
+            return false;
+        }
 
-                                // Capabilities can be empty. We only check for mandatory if we get some capabilities.
-                                if (!capabilities.isEmpty() && !Capabilities.hasMandatoryCapability(capabilities)) {
-                                    shutDown(CloseConnectionReason.MANDATORY_CAPABILITIES_NOT_SUPPORTED);
-                                    return;
-                                }
+        if (networkEnvelope instanceof SupportedCapabilitiesMessage) {
+            Capabilities supportedCapabilities = ((SupportedCapabilitiesMessage) networkEnvelope).getSupportedCapabilities();
+            if (supportedCapabilities != null) {
+                if (!capabilities.equals(supportedCapabilities)) {
+                    capabilities.set(supportedCapabilities);
 
-                                capabilitiesListeners.forEach(weakListener -> {
-                                    SupportedCapabilitiesListener supportedCapabilitiesListener = weakListener.get();
-                                    if (supportedCapabilitiesListener != null) {
-                                        UserThread.execute(() -> supportedCapabilitiesListener.onChanged(supportedCapabilities));
-                                    }
-                                });
-                            }
-                        }
+                    // Capabilities can be empty. We only check for mandatory if we get some capabilities.
+                    if (!capabilities.isEmpty() && !Capabilities.hasMandatoryCapability(capabilities)) {
+                        shutDown(CloseConnectionReason.MANDATORY_CAPABILITIES_NOT_SUPPORTED);
+                        return false;
                     }
 
-                    if (networkEnvelope instanceof CloseConnectionMessage) {
-                        // If we get a CloseConnectionMessage we shut down
-                        if (log.isDebugEnabled()) {
-                            log.debug("CloseConnectionMessage received. Reason={}\n\t" +
-                                    "connection={}", proto.getCloseConnectionMessage().getReason(), this);
-                        }
-                        if (CloseConnectionReason.PEER_BANNED.name().equals(proto.getCloseConnectionMessage().getReason())) {
-                            log.warn("We got shut down because we are banned by the other peer. (InputHandler.run CloseConnectionMessage)");
-                            shutDown(CloseConnectionReason.PEER_BANNED);
-                        } else {
-                            shutDown(CloseConnectionReason.CLOSE_REQUESTED_BY_PEER);
-                        }
-                        return;
-                    } else if (!stopped) {
-                        // We don't want to get the activity ts updated by ping/pong msg
-                        if (!(networkEnvelope instanceof KeepAliveMessage))
-                            statistic.updateLastActivityTimestamp();
-
-                        if (networkEnvelope instanceof GetDataRequest)
-                            setPeerType(PeerType.INITIAL_DATA_REQUEST);
-
-                        // First a seed node gets a message from a peer (PreliminaryDataRequest using
-                        // AnonymousMessage interface) which does not have its hidden service
-                        // published, so it does not know its address. As the IncomingConnection does not have the
-                        // peersNodeAddress set that connection cannot be used for outgoing network_messages until we
-                        // get the address set.
-                        // At the data update message (DataRequest using SendersNodeAddressMessage interface)
-                        // after the HS is published we get the peer's address set.
-
-                        // There are only those network_messages used for new connections to a peer:
-                        // 1. PreliminaryDataRequest
-                        // 2. DataRequest (implements SendersNodeAddressMessage)
-                        // 3. GetPeersRequest (implements SendersNodeAddressMessage)
-                        // 4. DirectMessage (implements SendersNodeAddressMessage)
-                        if (networkEnvelope instanceof SendersNodeAddressMessage) {
-                            NodeAddress senderNodeAddress = ((SendersNodeAddressMessage) networkEnvelope).getSenderNodeAddress();
-                            if (senderNodeAddress != null) {
-                                Optional<NodeAddress> peersNodeAddressOptional = getPeersNodeAddressOptional();
-                                if (peersNodeAddressOptional.isPresent()) {
-                                    // If we have already the peers address we check again if it matches our stored one
-                                    checkArgument(peersNodeAddressOptional.get().equals(senderNodeAddress),
-                                            "senderNodeAddress not matching connections peer address.\n\t" +
-                                                    "message=" + networkEnvelope);
-                                } else {
-                                    // We must not shut down a banned peer at that moment as it would trigger a connection termination
-                                    // and we could not send the CloseConnectionMessage.
-                                    // We check for a banned peer inside setPeersNodeAddress() and shut down if banned.
-                                    setPeersNodeAddress(senderNodeAddress);
-                                }
-                            }
+                    capabilitiesListeners.forEach(weakListener -> {
+                        SupportedCapabilitiesListener supportedCapabilitiesListener = weakListener.get();
+                        if (supportedCapabilitiesListener != null) {
+                            UserThread.execute(() -> supportedCapabilitiesListener.onChanged(supportedCapabilities));
                         }
+                    });
+                }
+            }
+        }
 
-                        if (networkEnvelope instanceof PrefixedSealedAndSignedMessage)
-                            setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
-
-                        onMessage(networkEnvelope, this);
+        if (networkEnvelope instanceof CloseConnectionMessage) {
+            // If we get a CloseConnectionMessage we shut down
+            if (log.isDebugEnabled()) {
+                log.debug("CloseConnectionMessage received. Reason={}\n\t" +
+                        "connection={}", proto.getCloseConnectionMessage().getReason(), this);
+            }
+            if (CloseConnectionReason.PEER_BANNED.name().equals(proto.getCloseConnectionMessage().getReason())) {
+                log.warn("We got shut down because we are banned by the other peer. (InputHandler.run CloseConnectionMessage)");
+                shutDown(CloseConnectionReason.PEER_BANNED);
+            } else {
+                shutDown(CloseConnectionReason.CLOSE_REQUESTED_BY_PEER);
+            }
+            return false;
+        } else if (!stopped) {
+            // We don't want to get the activity ts updated by ping/pong msg
+            if (!(networkEnvelope instanceof KeepAliveMessage))
+                statistic.updateLastActivityTimestamp();
+
+            if (networkEnvelope instanceof GetDataRequest)
+                setPeerType(PeerType.INITIAL_DATA_REQUEST);
+
+            // First a seed node gets a message from a peer (PreliminaryDataRequest using
+            // AnonymousMessage interface) which does not have its hidden service
+            // published, so it does not know its address. As the IncomingConnection does not have the
+            // peersNodeAddress set that connection cannot be used for outgoing network_messages until we
+            // get the address set.
+            // At the data update message (DataRequest using SendersNodeAddressMessage interface)
+            // after the HS is published we get the peer's address set.
+
+            // There are only those network_messages used for new connections to a peer:
+            // 1. PreliminaryDataRequest
+            // 2. DataRequest (implements SendersNodeAddressMessage)
+            // 3. GetPeersRequest (implements SendersNodeAddressMessage)
+            // 4. DirectMessage (implements SendersNodeAddressMessage)
+            if (networkEnvelope instanceof SendersNodeAddressMessage) {
+                NodeAddress senderNodeAddress = ((SendersNodeAddressMessage) networkEnvelope).getSenderNodeAddress();
+                if (senderNodeAddress != null) {
+                    Optional<NodeAddress> peersNodeAddressOptional = getPeersNodeAddressOptional();
+                    if (peersNodeAddressOptional.isPresent()) {
+                        // If we have already the peers address we check again if it matches our stored one
+                        checkArgument(peersNodeAddressOptional.get().equals(senderNodeAddress),
+                                "senderNodeAddress not matching connections peer address.\n\t" +
+                                        "message=" + networkEnvelope);
+                    } else {
+                        // We must not shut down a banned peer at that moment as it would trigger a connection termination
+                        // and we could not send the CloseConnectionMessage.
+                        // We check for a banned peer inside setPeersNodeAddress() and shut down if banned.
+                        setPeersNodeAddress(senderNodeAddress);
                     }
-                } catch (InvalidClassException e) {
-                    log.error(e.getMessage());
-                    e.printStackTrace();
-                    reportInvalidRequest(RuleViolation.INVALID_CLASS);
-                } catch (ProtobufferException | NoClassDefFoundError e) {
-                    log.error(e.getMessage());
-                    e.printStackTrace();
-                    reportInvalidRequest(RuleViolation.INVALID_DATA_TYPE);
-                } catch (Throwable t) {
-                    handleException(t);
                 }
             }
+
+            if (networkEnvelope instanceof PrefixedSealedAndSignedMessage)
+                setPeerType(Connection.PeerType.DIRECT_MSG_PEER);
+
+            onMessage(networkEnvelope, this);
+        }
+        return true;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // NioChannel handlers
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called on a selector thread of the NioNetworkNode. We do not throttle with a sleep as in the InputHandler as that
+    // would block all channels of that selector thread. The throttle limit gets checked nevertheless.
+    private void onReceivedNioProto(protobuf.NetworkEnvelope proto) {
+        if (stopped) {
+            nioChannel.stopReading();
+            return;
+        }
+
+        try {
+            if (!onReceivedProto(proto, System.currentTimeMillis()))
+                nioChannel.stopReading();
+        } catch (ProtobufferException | NoClassDefFoundError e) {
+            log.error(e.getMessage());
+            e.printStackTrace();
+            reportInvalidRequest(RuleViolation.INVALID_DATA_TYPE);
         } catch (Throwable t) {
             handleException(t);
         }
     }
+
+    private void onNioEndOfStream() {
+        log.debug("Received EOF. That is expected if client got stopped without proper shutdown.");
+        shutDown(CloseConnectionReason.NO_PROTO_BUFFER_ENV);
+    }
 }
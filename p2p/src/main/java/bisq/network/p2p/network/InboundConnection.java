@@ -28,4 +28,11 @@ public class InboundConnection extends Connection {
                              NetworkProtoResolver networkProtoResolver) {
         super(socket, messageListener, connectionListener, null, networkProtoResolver);
     }
+
+    InboundConnection(NioChannel nioChannel,
+                      MessageListener messageListener,
+                      ConnectionListener connectionListener,
+                      NetworkProtoResolver networkProtoResolver) {
+        super(nioChannel, messageListener, connectionListener, null, networkProtoResolver);
+    }
 }
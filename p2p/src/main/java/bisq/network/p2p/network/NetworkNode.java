@@ -64,7 +64,7 @@ public abstract class NetworkNode implements MessageListener {
     private static final int CREATE_SOCKET_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(120);
 
     final int servicePort;
-    private final NetworkProtoResolver networkProtoResolver;
+    final NetworkProtoResolver networkProtoResolver;
 
     private final CopyOnWriteArraySet<InboundConnection> inBoundConnections = new CopyOnWriteArraySet<>();
     private final CopyOnWriteArraySet<MessageListener> messageListeners = new CopyOnWriteArraySet<>();
@@ -187,11 +187,7 @@ public abstract class NetworkNode implements MessageListener {
                                 connectionListeners.stream().forEach(e -> e.onError(throwable));
                             }
                         };
-                        outboundConnection = new OutboundConnection(socket,
-                                NetworkNode.this,
-                                connectionListener,
-                                peersNodeAddress,
-                                networkProtoResolver);
+                        outboundConnection = createOutboundConnection(socket, connectionListener, peersNodeAddress);
 
                         if (log.isDebugEnabled()) {
                             log.debug("\n\n%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%\n" +
@@ -400,7 +396,15 @@ public abstract class NetworkNode implements MessageListener {
     }
 
     void startServer(ServerSocket serverSocket) {
-        final ConnectionListener connectionListener = new ConnectionListener() {
+        server = new Server(serverSocket,
+                NetworkNode.this,
+                createInboundConnectionListener(),
+                networkProtoResolver);
+        executorService.submit(server);
+    }
+
+    ConnectionListener createInboundConnectionListener() {
+        return new ConnectionListener() {
             @Override
             public void onConnection(Connection connection) {
                 if (!connection.isStopped()) {
@@ -425,11 +429,12 @@ public abstract class NetworkNode implements MessageListener {
                 connectionListeners.stream().forEach(e -> e.onError(throwable));
             }
         };
-        server = new Server(serverSocket,
-                NetworkNode.this,
-                connectionListener,
-                networkProtoResolver);
-        executorService.submit(server);
+    }
+
+    OutboundConnection createOutboundConnection(Socket socket,
+                                                ConnectionListener connectionListener,
+                                                NodeAddress peersNodeAddress) throws IOException {
+        return new OutboundConnection(socket, this, connectionListener, peersNodeAddress, networkProtoResolver);
     }
 
     private Optional<OutboundConnection> lookupOutBoundConnection(NodeAddress peersNodeAddress) {
@@ -0,0 +1,329 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.network;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Non-blocking socket channel of a connection. Reading and writing is done by a selector thread of the
+ * NioSelectorPool, so we do not need threads per connection.
+ * <p>
+ * We use the same framing as the blocking connections (length delimited protobuf messages), so both can talk to each
+ * other. The received messages are passed to the proto handler on the selector thread. Messages to send are written
+ * to the output stream by any thread and get queued until the selector thread can write them to the socket.
+ */
+@Slf4j
+class NioChannel {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // We reject frames which cannot hold a permitted message before we read them. The margin is for the frames of
+    // messages slightly above the limit, so they get rejected by the connection after parsing as with blocking
+    // connections.
+    @VisibleForTesting
+    static final int MAX_FRAME_SIZE = Connection.MAX_PERMITTED_MESSAGE_SIZE + 64 * 1024;
+    // If the peer does not read our data we do not want to queue up data without limit
+    private static final int MAX_QUEUED_BYTES = 32 * 1024 * 1024;
+
+    private final SocketChannel socketChannel;
+    private final NioSelectorPool selectorPool;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicBoolean writeRequested = new AtomicBoolean();
+    private final OutputStream outputStream = new FrameOutputStream();
+
+    private volatile NioSelectorPool.SelectorLoop selectorLoop;
+
+    // Only accessed by the selector thread
+    private ByteBuffer frameBuffer;
+    private int frameSize;
+    private SelectionKey selectionKey;
+    private long lastReadTimeStamp;
+
+    private Consumer<protobuf.NetworkEnvelope> protoHandler;
+    private Runnable endOfStreamHandler;
+    private Consumer<Throwable> exceptionHandler;
+    private volatile boolean readingStopped;
+    private volatile boolean failed;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    NioChannel(SocketChannel socketChannel, NioSelectorPool selectorPool) throws IOException {
+        this.socketChannel = socketChannel;
+        this.selectorPool = selectorPool;
+
+        socketChannel.configureBlocking(false);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Registers the channel at the selector pool. All handlers are called on the selector thread and must not block.
+     */
+    void start(Consumer<protobuf.NetworkEnvelope> protoHandler,
+               Runnable endOfStreamHandler,
+               Consumer<Throwable> exceptionHandler) {
+        this.protoHandler = protoHandler;
+        this.endOfStreamHandler = endOfStreamHandler;
+        this.exceptionHandler = exceptionHandler;
+        selectorPool.register(this);
+    }
+
+    /**
+     * The socket adapter of the channel. It must not be used for reading or writing as the channel is non-blocking,
+     * but it supports closing, socket options and the address info.
+     */
+    Socket socket() {
+        return socketChannel.socket();
+    }
+
+    /**
+     * Each flush of the output stream queues the data written since the last flush as a whole. Callers need to
+     * synchronize writing a message and the flush.
+     */
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * We do not deliver more messages, e.g. after a rule violation which causes the connection to get closed.
+     */
+    void stopReading() {
+        readingStopped = true;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Called by NioSelectorPool
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    SocketChannel getSocketChannel() {
+        return socketChannel;
+    }
+
+    NioSelectorPool.SelectorLoop getSelectorLoop() {
+        return selectorLoop;
+    }
+
+    void setSelectorLoop(NioSelectorPool.SelectorLoop selectorLoop) {
+        this.selectorLoop = selectorLoop;
+    }
+
+    void onRegistered(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+        lastReadTimeStamp = System.currentTimeMillis();
+        updateInterestOps();
+    }
+
+    void onReadable() {
+        try {
+            if (readingStopped) {
+                updateInterestOps();
+                return;
+            }
+
+            int numBytes = socketChannel.read(readBuffer);
+            if (numBytes == -1) {
+                selectionKey.cancel();
+                if (!readingStopped)
+                    endOfStreamHandler.run();
+                return;
+            }
+
+            lastReadTimeStamp = System.currentTimeMillis();
+            readBuffer.flip();
+            try {
+                while (!readingStopped && readFrame()) {
+                    protobuf.NetworkEnvelope proto = protobuf.NetworkEnvelope.parseFrom(frameBuffer.array());
+                    frameBuffer = null;
+                    protoHandler.accept(proto);
+                }
+            } finally {
+                readBuffer.compact();
+            }
+
+            if (readingStopped && selectionKey.isValid())
+                updateInterestOps();
+        } catch (Throwable t) {
+            onException(t);
+        }
+    }
+
+    void onWritable() {
+        try {
+            ByteBuffer buffer;
+            while ((buffer = writeQueue.peek()) != null) {
+                socketChannel.write(buffer);
+                if (buffer.hasRemaining())
+                    return;
+
+                writeQueue.poll();
+                queuedBytes.addAndGet(-buffer.capacity());
+            }
+            // If a writer adds data after we found the queue empty it requests the write interest again after we
+            // removed it.
+            updateInterestOps();
+        } catch (Throwable t) {
+            onException(t);
+        }
+    }
+
+    void onWriteRequested() {
+        writeRequested.set(false);
+        if (selectionKey != null && selectionKey.isValid())
+            updateInterestOps();
+    }
+
+    void checkTimeout(long now) {
+        try {
+            int timeout = socketChannel.socket().getSoTimeout();
+            if (timeout > 0 && !readingStopped && !failed && now - lastReadTimeStamp > timeout)
+                onException(new SocketTimeoutException("No data received for " + (now - lastReadTimeStamp) + " ms"));
+        } catch (IOException e) {
+            onException(e);
+        }
+    }
+
+    void onException(Throwable throwable) {
+        if (selectionKey != null)
+            selectionKey.cancel();
+
+        if (!failed) {
+            failed = true;
+            exceptionHandler.accept(throwable);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Returns true if the frameBuffer contains a complete frame
+    private boolean readFrame() throws IOException {
+        if (frameBuffer == null) {
+            frameSize = readFrameSize();
+            if (frameSize < 0)
+                return false;
+
+            // We grow the buffer as the data arrives, so a peer cannot make us allocate the whole frame by only
+            // sending the size prefix
+            frameBuffer = ByteBuffer.allocate(Math.min(frameSize, READ_BUFFER_SIZE));
+        }
+
+        int numBytes = Math.min(readBuffer.remaining(), frameSize - frameBuffer.position());
+        if (numBytes > frameBuffer.remaining()) {
+            int capacity = Math.min(frameSize, Math.max(frameBuffer.capacity() * 2, frameBuffer.position() + numBytes));
+            ByteBuffer grownFrameBuffer = ByteBuffer.allocate(capacity);
+            frameBuffer.flip();
+            grownFrameBuffer.put(frameBuffer);
+            frameBuffer = grownFrameBuffer;
+        }
+
+        ByteBuffer slice = readBuffer.slice();
+        slice.limit(numBytes);
+        frameBuffer.put(slice);
+        readBuffer.position(readBuffer.position() + numBytes);
+        // At the last growth the capacity is the frame size, so the array of a complete frame holds exactly the frame
+        return frameBuffer.position() == frameSize;
+    }
+
+    // Reads the varint32 size prefix. Returns -1 and consumes nothing if we have not received it completely.
+    private int readFrameSize() throws IOException {
+        int frameSize = 0;
+        int position = readBuffer.position();
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position == readBuffer.limit())
+                return -1;
+
+            byte b = readBuffer.get(position++);
+            frameSize |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (frameSize < 0 || frameSize > MAX_FRAME_SIZE)
+                    throw new StreamCorruptedException("Frame size " + frameSize + " exceeds the limit of " + MAX_FRAME_SIZE);
+
+                readBuffer.position(position);
+                return frameSize;
+            }
+        }
+        throw new StreamCorruptedException("Malformed frame size");
+    }
+
+    private void updateInterestOps() {
+        int interestOps = readingStopped ? 0 : SelectionKey.OP_READ;
+        if (!writeQueue.isEmpty())
+            interestOps |= SelectionKey.OP_WRITE;
+        selectionKey.interestOps(interestOps);
+    }
+
+    private void enqueue(ByteBuffer buffer) throws IOException {
+        if (failed || !socketChannel.isOpen())
+            throw new IOException("Channel is closed");
+
+        if (queuedBytes.addAndGet(buffer.capacity()) > MAX_QUEUED_BYTES) {
+            queuedBytes.addAndGet(-buffer.capacity());
+            throw new IOException("Write queue of channel exceeds the limit of " + MAX_QUEUED_BYTES + " bytes");
+        }
+
+        writeQueue.add(buffer);
+        if (writeRequested.compareAndSet(false, true))
+            selectorPool.requestWrite(this);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // FrameOutputStream
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private class FrameOutputStream extends ByteArrayOutputStream {
+        @Override
+        public synchronized void flush() throws IOException {
+            if (size() == 0)
+                return;
+
+            ByteBuffer buffer = ByteBuffer.wrap(toByteArray());
+            reset();
+            enqueue(buffer);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.network;
+
+import bisq.network.p2p.NodeAddress;
+
+import bisq.common.UserThread;
+import bisq.common.proto.network.NetworkProtoResolver;
+
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import java.io.IOException;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Localhost network node like the LocalhostNetworkNode but with non-blocking connections. Reading and writing of all
+ * connections is done by a small pool of selector threads instead of a read thread per connection, so we can test
+ * nodes with many connections locally.
+ */
+// Run in UserThread
+@Slf4j
+public class NioNetworkNode extends NetworkNode {
+    // We give the connections time to send the CloseConnectionMessage before we stop the selector threads
+    private static final long SHUT_DOWN_DELAY_MS = 500;
+
+    private static int simulateTorDelayTorNode = 500;
+    private static int simulateTorDelayHiddenService = 500;
+
+    public static void setSimulateTorDelayTorNode(int simulateTorDelayTorNode) {
+        NioNetworkNode.simulateTorDelayTorNode = simulateTorDelayTorNode;
+    }
+
+    public static void setSimulateTorDelayHiddenService(int simulateTorDelayHiddenService) {
+        NioNetworkNode.simulateTorDelayHiddenService = simulateTorDelayHiddenService;
+    }
+
+    private NioSelectorPool selectorPool;
+    @Nullable
+    private ServerSocketChannel serverSocketChannel;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public NioNetworkNode(int port, NetworkProtoResolver networkProtoResolver) {
+        super(port, networkProtoResolver);
+    }
+
+    @Override
+    public void start(@Nullable SetupListener setupListener) {
+        if (setupListener != null)
+            addSetupListener(setupListener);
+
+        createExecutorService();
+        try {
+            selectorPool = new NioSelectorPool("NioNetworkNode-" + servicePort);
+        } catch (IOException e) {
+            log.error("Exception at creating the selector pool", e);
+            setupListeners.forEach(listener -> listener.onSetupFailed(e));
+            return;
+        }
+
+        // simulate tor connection delay
+        UserThread.runAfter(() -> {
+            nodeAddressProperty.set(new NodeAddress("localhost", servicePort));
+
+            setupListeners.forEach(SetupListener::onTorNodeReady);
+
+            // simulate tor HS publishing delay
+            UserThread.runAfter(() -> {
+                try {
+                    startNioServer();
+                } catch (IOException e) {
+                    log.error("Exception at startNioServer", e);
+                }
+                setupListeners.forEach(SetupListener::onHiddenServicePublished);
+            }, simulateTorDelayTorNode, TimeUnit.MILLISECONDS);
+        }, simulateTorDelayHiddenService, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void shutDown(Runnable shutDownCompleteHandler) {
+        closeServerSocketChannel();
+        super.shutDown(null);
+
+        UserThread.runAfter(() -> {
+            if (selectorPool != null)
+                selectorPool.shutDown();
+
+            if (shutDownCompleteHandler != null)
+                shutDownCompleteHandler.run();
+        }, SHUT_DOWN_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Protected
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Called from NetworkNode thread
+    @Override
+    protected Socket createSocket(NodeAddress peerNodeAddress) throws IOException {
+        // We connect in blocking mode, the NioChannel switches to non-blocking mode
+        SocketChannel socketChannel = SocketChannel.open(new InetSocketAddress(peerNodeAddress.getHostName(),
+                peerNodeAddress.getPort()));
+        return socketChannel.socket();
+    }
+
+    @Override
+    OutboundConnection createOutboundConnection(Socket socket,
+                                                ConnectionListener connectionListener,
+                                                NodeAddress peersNodeAddress) throws IOException {
+        return new OutboundConnection(new NioChannel(socket.getChannel(), selectorPool),
+                this,
+                connectionListener,
+                peersNodeAddress,
+                networkProtoResolver);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void startNioServer() throws IOException {
+        serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.bind(new InetSocketAddress(servicePort));
+
+        ConnectionListener connectionListener = createInboundConnectionListener();
+        // Called on a selector thread
+        selectorPool.registerServer(serverSocketChannel, socketChannel -> {
+            try {
+                InboundConnection connection = new InboundConnection(new NioChannel(socketChannel, selectorPool),
+                        this,
+                        connectionListener,
+                        networkProtoResolver);
+                log.debug("Accepted new inbound connection. remoteAddress={}, connection.uid={}",
+                        socketChannel.socket().getRemoteSocketAddress(), connection.getUid());
+            } catch (IOException e) {
+                log.error("Exception at creating the inbound connection", e);
+                try {
+                    socketChannel.close();
+                } catch (IOException ignore) {
+                }
+            }
+        });
+    }
+
+    private void closeServerSocketChannel() {
+        if (serverSocketChannel != null) {
+            try {
+                serverSocketChannel.close();
+            } catch (IOException e) {
+                log.debug("Exception at closing the serverSocketChannel. " + e.getMessage());
+            }
+            serverSocketChannel = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.network;
+
+import bisq.common.proto.network.NetworkEnvelope;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Writes to the output stream of a NioChannel, which only queues the data. So unlike SynchronizedProtoOutputStream we
+ * do not need a thread for writing and the caller does not get blocked by a slow peer.
+ */
+@ThreadSafe
+class NioProtoOutputStream extends ProtoOutputStream {
+
+    NioProtoOutputStream(NioChannel nioChannel, Statistic statistic) {
+        super(nioChannel.getOutputStream(), statistic);
+    }
+
+    // The message and the flush which queues it must not be interleaved with other messages
+    @Override
+    synchronized void writeEnvelope(NetworkEnvelope envelope) {
+        super.writeEnvelope(envelope);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.network;
+
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Small pool of selector threads which do the reading and writing of all NioChannels, so the number of threads does
+ * not grow with the number of connections. Each channel is assigned to one selector thread for its lifetime.
+ */
+@Slf4j
+class NioSelectorPool {
+    private static final int MAX_SELECTOR_THREADS = 4;
+    private static final long TIMEOUT_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    private final List<SelectorLoop> selectorLoops = new ArrayList<>();
+    private final AtomicInteger nextSelectorLoop = new AtomicInteger();
+    private volatile boolean stopped;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    NioSelectorPool(String name) throws IOException {
+        int numThreads = Math.min(Runtime.getRuntime().availableProcessors(), MAX_SELECTOR_THREADS);
+        for (int i = 0; i < numThreads; i++) {
+            SelectorLoop selectorLoop = new SelectorLoop(Selector.open());
+            selectorLoops.add(selectorLoop);
+            Thread thread = new Thread(selectorLoop, name + "-selector-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Accepts connections at the serverSocketChannel. The acceptHandler gets called with the non-blocking socket
+     * channel on a selector thread.
+     */
+    void registerServer(ServerSocketChannel serverSocketChannel, Consumer<SocketChannel> acceptHandler) throws IOException {
+        serverSocketChannel.configureBlocking(false);
+        SelectorLoop selectorLoop = selectorLoops.get(0);
+        selectorLoop.execute(() -> {
+            try {
+                serverSocketChannel.register(selectorLoop.selector, SelectionKey.OP_ACCEPT, acceptHandler);
+            } catch (IOException e) {
+                log.error("Could not register serverSocketChannel", e);
+            }
+        });
+    }
+
+    void shutDown() {
+        stopped = true;
+        selectorLoops.forEach(selectorLoop -> selectorLoop.selector.wakeup());
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Package private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    void register(NioChannel channel) {
+        SelectorLoop selectorLoop = selectorLoops.get(Math.floorMod(nextSelectorLoop.getAndIncrement(), selectorLoops.size()));
+        channel.setSelectorLoop(selectorLoop);
+        selectorLoop.execute(() -> {
+            try {
+                channel.onRegistered(channel.getSocketChannel().register(selectorLoop.selector, 0, channel));
+            } catch (Throwable t) {
+                channel.onException(t);
+            }
+        });
+    }
+
+    void requestWrite(NioChannel channel) {
+        channel.getSelectorLoop().execute(() -> {
+            try {
+                channel.onWriteRequested();
+            } catch (Throwable t) {
+                channel.onException(t);
+            }
+        });
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // SelectorLoop
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    class SelectorLoop implements Runnable {
+        private final Selector selector;
+        // Registrations and interest changes must be done by the selector thread
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private long lastTimeoutCheck;
+
+        private SelectorLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        private void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!stopped) {
+                    selector.select(TIMEOUT_CHECK_INTERVAL);
+
+                    // A failing task or channel must not stop the loop, as that would stall all other channels
+                    // of the loop. We only close the failing channel.
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        try {
+                            task.run();
+                        } catch (Throwable t) {
+                            log.error("Selector task failed", t);
+                        }
+                    }
+
+                    Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                    while (iterator.hasNext()) {
+                        SelectionKey key = iterator.next();
+                        iterator.remove();
+                        try {
+                            if (key.isValid())
+                                onSelected(key);
+                        } catch (Throwable t) {
+                            onKeyFailed(key, t);
+                        }
+                    }
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastTimeoutCheck >= TIMEOUT_CHECK_INTERVAL) {
+                        lastTimeoutCheck = now;
+                        for (SelectionKey key : new ArrayList<>(selector.keys())) {
+                            try {
+                                if (key.isValid() && key.attachment() instanceof NioChannel)
+                                    ((NioChannel) key.attachment()).checkTimeout(now);
+                            } catch (Throwable t) {
+                                onKeyFailed(key, t);
+                            }
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                // Only a failure of the selector itself ends up here
+                log.error("Selector loop failed", t);
+            } finally {
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    log.error("Could not close selector", e);
+                }
+            }
+        }
+
+        private void onKeyFailed(SelectionKey key, Throwable throwable) {
+            if (key.attachment() instanceof NioChannel) {
+                try {
+                    ((NioChannel) key.attachment()).onException(throwable);
+                } catch (Throwable t) {
+                    log.error("Exception handler of channel failed", t);
+                    key.cancel();
+                }
+            } else {
+                log.error("Handling of selection key failed", throwable);
+                key.cancel();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void onSelected(SelectionKey key) {
+            if (key.attachment() instanceof NioChannel) {
+                NioChannel channel = (NioChannel) key.attachment();
+                if (key.isReadable())
+                    channel.onReadable();
+                if (key.isValid() && key.isWritable())
+                    channel.onWritable();
+            } else if (key.isAcceptable()) {
+                ServerSocketChannel serverSocketChannel = (ServerSocketChannel) key.channel();
+                try {
+                    SocketChannel socketChannel;
+                    while ((socketChannel = serverSocketChannel.accept()) != null) {
+                        try {
+                            ((Consumer<SocketChannel>) key.attachment()).accept(socketChannel);
+                        } catch (Throwable t) {
+                            // We only drop that connection and keep accepting others
+                            log.error("Could not handle accepted connection", t);
+                            closeQuietly(socketChannel);
+                        }
+                    }
+                } catch (IOException e) {
+                    if (!stopped)
+                        log.error("Could not accept connection", e);
+                }
+            }
+        }
+
+        private void closeQuietly(SocketChannel socketChannel) {
+            try {
+                socketChannel.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
@@ -31,4 +31,12 @@ public class OutboundConnection extends Connection {
                               NetworkProtoResolver networkProtoResolver) {
         super(socket, messageListener, connectionListener, peersNodeAddress, networkProtoResolver);
     }
+
+    OutboundConnection(NioChannel nioChannel,
+                       MessageListener messageListener,
+                       ConnectionListener connectionListener,
+                       NodeAddress peersNodeAddress,
+                       NetworkProtoResolver networkProtoResolver) {
+        super(nioChannel, messageListener, connectionListener, peersNodeAddress, networkProtoResolver);
+    }
 }
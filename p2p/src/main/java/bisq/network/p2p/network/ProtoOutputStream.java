@@ -18,6 +18,7 @@
 package bisq.network.p2p.network;
 
 import bisq.network.p2p.peers.keepalive.messages.KeepAliveMessage;
+import bisq.network.p2p.storage.messages.BroadcastMessage;
 
 import bisq.common.proto.network.NetworkEnvelope;
 
@@ -59,11 +60,20 @@ class ProtoOutputStream {
     }
 
     private void writeEnvelopeOrThrow(NetworkEnvelope envelope) throws IOException {
-        protobuf.NetworkEnvelope proto = envelope.toProtoNetworkEnvelope();
-        proto.writeDelimitedTo(delegate);
+        int size;
+        if (envelope instanceof BroadcastMessage) {
+            // We write the bytes which got serialized at the first send of the broadcast
+            BroadcastMessage broadcastMessage = (BroadcastMessage) envelope;
+            delegate.write(broadcastMessage.getSerializedDelimitedProto());
+            size = broadcastMessage.getCachedProtoNetworkEnvelope().getSerializedSize();
+        } else {
+            protobuf.NetworkEnvelope proto = envelope.toProtoNetworkEnvelope();
+            proto.writeDelimitedTo(delegate);
+            size = proto.getSerializedSize();
+        }
         delegate.flush();
 
-        statistic.addSentBytes(proto.getSerializedSize());
+        statistic.addSentBytes(size);
         statistic.addSentMessage(envelope);
 
         if (!(envelope instanceof KeepAliveMessage)) {
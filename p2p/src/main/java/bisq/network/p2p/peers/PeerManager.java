@@ -564,6 +564,27 @@ public class PeerManager implements ConnectionListener, PersistedDataHost {
     //  Misc
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * @return The capabilities of the peer from our connection to it or from our persisted and reported peers.
+     */
+    public Optional<Capabilities> findPeersCapabilities(NodeAddress nodeAddress) {
+        Optional<Capabilities> capabilitiesFromConnection = networkNode.getConfirmedConnections().stream()
+                .filter(connection -> connection.getPeersNodeAddressOptional().filter(nodeAddress::equals).isPresent())
+                .map(Connection::getCapabilities)
+                .filter(capabilities -> !capabilities.isEmpty())
+                .findAny();
+        if (capabilitiesFromConnection.isPresent())
+            return capabilitiesFromConnection;
+
+        Set<Peer> allPeers = new HashSet<>(getPersistedPeers());
+        allPeers.addAll(getReportedPeers());
+        return allPeers.stream()
+                .filter(peer -> peer.getNodeAddress().equals(nodeAddress))
+                .map(Peer::getCapabilities)
+                .filter(capabilities -> !capabilities.isEmpty())
+                .findAny();
+    }
+
     public boolean hasSufficientConnections() {
         return networkNode.getNodeAddressesOfConfirmedConnections().size() >= minConnections;
     }
@@ -31,25 +31,34 @@ import bisq.network.p2p.storage.payload.ProtectedStoragePayload;
 
 import bisq.common.Timer;
 import bisq.common.UserThread;
+import bisq.common.app.Capability;
 import bisq.common.util.Utilities;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.SettableFuture;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 @Slf4j
 public class GetDataRequestHandler {
     private static final long TIMEOUT = 90;
+    // Much smaller than Connection.MAX_PERMITTED_MESSAGE_SIZE, so a chunk never exceeds it
+    private static final int MAX_CHUNK_SIZE = 1024 * 1024;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -72,6 +81,11 @@ public class GetDataRequestHandler {
     private final Listener listener;
     private Timer timeoutTimer;
     private boolean stopped;
+    // Items which are not sent yet if we send the response in chunks
+    @Nullable
+    private Iterator<ProtectedStorageEntry> remainingDataIterator;
+    @Nullable
+    private Iterator<PersistableNetworkPayload> remainingPersistableNetworkPayloadIterator;
 
 
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -90,67 +104,49 @@ public class GetDataRequestHandler {
     ///////////////////////////////////////////////////////////////////////////////////////////
 
     public void handle(GetDataRequest getDataRequest, final Connection connection) {
-        GetDataResponse getDataResponse = new GetDataResponse(getFilteredProtectedStorageEntries(getDataRequest, connection),
-                getFilteredPersistableNetworkPayload(getDataRequest, connection),
-                getDataRequest.getNonce(),
-                getDataRequest instanceof GetUpdatedDataRequest);
-
-        if (timeoutTimer == null) {
-            timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
-                        String errorMessage = "A timeout occurred for getDataResponse " +
-                                " on connection:" + connection;
-                        handleFault(errorMessage, CloseConnectionReason.SEND_MSG_TIMEOUT, connection);
-                    },
-                    TIMEOUT, TimeUnit.SECONDS);
+        Set<P2PDataStorage.ByteArray> excludedKeys = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
+        // If the requester sent a bloom filter the excludedKeys contain only the keys of the ProtectedStorageEntry items
+        KeyBloomFilter excludedKeysFilter = getDataRequest.getExcludedKeysFilter();
+        Predicate<P2PDataStorage.ByteArray> isExcludedPersistableNetworkPayload = excludedKeysFilter != null ?
+                excludedKeysFilter::mightContain :
+                excludedKeys::contains;
+        Set<ProtectedStorageEntry> dataSet = getFilteredProtectedStorageEntries(excludedKeys, connection);
+        Set<PersistableNetworkPayload> persistableNetworkPayloadSet = getFilteredPersistableNetworkPayload(
+                dataStorage.getAppendOnlyDataStoreMap(connection.getCapabilities(), getDataRequest.getVersion()),
+                isExcludedPersistableNetworkPayload);
+        boolean isGetUpdatedDataResponse = getDataRequest instanceof GetUpdatedDataRequest;
+
+        if (connection.getCapabilities().containsAll(Capability.CHUNKED_GET_DATA_RESPONSE)) {
+            // We only create the next chunk after the previous one got sent, so we never hold more than one
+            // serialized chunk in memory and the peer can process the chunks as they arrive.
+            remainingDataIterator = dataSet.iterator();
+            remainingPersistableNetworkPayloadIterator = persistableNetworkPayloadSet.iterator();
+            sendGetDataResponse(getNextChunk(getDataRequest.getNonce(), isGetUpdatedDataResponse), connection);
+        } else {
+            sendGetDataResponse(new GetDataResponse(dataSet,
+                            persistableNetworkPayloadSet,
+                            getDataRequest.getNonce(),
+                            isGetUpdatedDataResponse),
+                    connection);
         }
-
-        SettableFuture<Connection> future = networkNode.sendMessage(connection, getDataResponse);
-        Futures.addCallback(future, new FutureCallback<Connection>() {
-            @Override
-            public void onSuccess(Connection connection) {
-                if (!stopped) {
-                    log.trace("Send DataResponse to {} succeeded. getDataResponse={}",
-                            connection.getPeersNodeAddressOptional(), getDataResponse);
-                    cleanup();
-                    listener.onComplete();
-                } else {
-                    log.trace("We have stopped already. We ignore that networkNode.sendMessage.onSuccess call.");
-                }
-            }
-
-            @Override
-            public void onFailure(@NotNull Throwable throwable) {
-                if (!stopped) {
-                    String errorMessage = "Sending getDataRequest to " + connection +
-                            " failed. That is expected if the peer is offline. getDataResponse=" + getDataResponse + "." +
-                            "Exception: " + throwable.getMessage();
-                    handleFault(errorMessage, CloseConnectionReason.SEND_MSG_FAILURE, connection);
-                } else {
-                    log.trace("We have stopped already. We ignore that networkNode.sendMessage.onFailure call.");
-                }
-            }
-        });
     }
 
-    private Set<PersistableNetworkPayload> getFilteredPersistableNetworkPayload(GetDataRequest getDataRequest, Connection connection) {
-        final Set<P2PDataStorage.ByteArray> tempLookupSet = new HashSet<>();
-        Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
-
-        return dataStorage.getAppendOnlyDataStoreMap().entrySet().stream()
-                .filter(e -> !excludedKeysAsByteArray.contains(e.getKey()))
+    // The map is already filtered by the capabilities of the peer and its keys are the hashes of the payloads.
+    @VisibleForTesting
+    static Set<PersistableNetworkPayload> getFilteredPersistableNetworkPayload(Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map,
+                                                                               Predicate<P2PDataStorage.ByteArray> isExcluded) {
+        return map.entrySet().stream()
+                .filter(e -> !isExcluded.test(e.getKey()))
                 .map(Map.Entry::getValue)
-                .filter(payload -> (connection.noCapabilityRequiredOrCapabilityIsSupported(payload)))
-                .filter(payload -> tempLookupSet.add(new P2PDataStorage.ByteArray(payload.getHash())))
                 .collect(Collectors.toSet());
     }
 
-    private Set<ProtectedStorageEntry> getFilteredProtectedStorageEntries(GetDataRequest getDataRequest, Connection connection) {
+    private Set<ProtectedStorageEntry> getFilteredProtectedStorageEntries(Set<P2PDataStorage.ByteArray> excludedKeys, Connection connection) {
         final Set<ProtectedStorageEntry> filteredDataSet = new HashSet<>();
         final Set<Integer> lookupSet = new HashSet<>();
 
-        Set<P2PDataStorage.ByteArray> excludedKeysAsByteArray = P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys());
         Set<ProtectedStorageEntry> filteredSet = dataStorage.getMap().entrySet().stream()
-                .filter(e -> !excludedKeysAsByteArray.contains(e.getKey()))
+                .filter(e -> !excludedKeys.contains(e.getKey()))
                 .map(Map.Entry::getValue)
                 .collect(Collectors.toSet());
 
@@ -175,6 +171,49 @@ public class GetDataRequestHandler {
         return filteredDataSet;
     }
 
+    /**
+     * Creates a chunk of a GetDataResponse from the remaining items. The serialized size of a chunk exceeds
+     * maxChunkSize by at most the size of one item. The chunk has the hasMoreChunks flag set if there are items left.
+     * We get the size of the items from their protos, which are kept in the chunk, so we serialize each item only once.
+     */
+    @VisibleForTesting
+    static GetDataResponse createChunk(Iterator<ProtectedStorageEntry> remainingDataIterator,
+                                       Iterator<PersistableNetworkPayload> remainingPersistableNetworkPayloadIterator,
+                                       int requestNonce,
+                                       boolean isGetUpdatedDataResponse,
+                                       int maxChunkSize) {
+        Set<ProtectedStorageEntry> dataSet = new HashSet<>();
+        List<protobuf.StorageEntryWrapper> dataSetProto = new ArrayList<>();
+        Set<PersistableNetworkPayload> persistableNetworkPayloadSet = new HashSet<>();
+        List<protobuf.PersistableNetworkPayload> persistableNetworkPayloadSetProto = new ArrayList<>();
+        int chunkSize = 0;
+        while (chunkSize < maxChunkSize && remainingDataIterator.hasNext()) {
+            ProtectedStorageEntry protectedStorageEntry = remainingDataIterator.next();
+            if (dataSet.add(protectedStorageEntry)) {
+                protobuf.StorageEntryWrapper proto = GetDataResponse.toStorageEntryWrapper(protectedStorageEntry);
+                dataSetProto.add(proto);
+                chunkSize += proto.getSerializedSize();
+            }
+        }
+        while (chunkSize < maxChunkSize && remainingPersistableNetworkPayloadIterator.hasNext()) {
+            PersistableNetworkPayload persistableNetworkPayload = remainingPersistableNetworkPayloadIterator.next();
+            if (persistableNetworkPayloadSet.add(persistableNetworkPayload)) {
+                protobuf.PersistableNetworkPayload proto = persistableNetworkPayload.toProtoMessage();
+                persistableNetworkPayloadSetProto.add(proto);
+                chunkSize += proto.getSerializedSize();
+            }
+        }
+
+        boolean hasMoreChunks = remainingDataIterator.hasNext() || remainingPersistableNetworkPayloadIterator.hasNext();
+        return new GetDataResponse(dataSet,
+                dataSetProto,
+                persistableNetworkPayloadSet,
+                persistableNetworkPayloadSetProto,
+                requestNonce,
+                isGetUpdatedDataResponse,
+                hasMoreChunks);
+    }
+
     public void stop() {
         cleanup();
     }
@@ -184,6 +223,57 @@ public class GetDataRequestHandler {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    private GetDataResponse getNextChunk(int requestNonce, boolean isGetUpdatedDataResponse) {
+        return createChunk(remainingDataIterator,
+                remainingPersistableNetworkPayloadIterator,
+                requestNonce,
+                isGetUpdatedDataResponse,
+                MAX_CHUNK_SIZE);
+    }
+
+    private void sendGetDataResponse(GetDataResponse getDataResponse, Connection connection) {
+        // We restart the timeout for each chunk, setup before sending to avoid race conditions
+        stopTimeoutTimer();
+        timeoutTimer = UserThread.runAfter(() -> {
+                    String errorMessage = "A timeout occurred for getDataResponse " +
+                            " on connection:" + connection;
+                    handleFault(errorMessage, CloseConnectionReason.SEND_MSG_TIMEOUT, connection);
+                },
+                TIMEOUT, TimeUnit.SECONDS);
+
+        SettableFuture<Connection> future = networkNode.sendMessage(connection, getDataResponse);
+        Futures.addCallback(future, new FutureCallback<Connection>() {
+            @Override
+            public void onSuccess(Connection connection) {
+                if (!stopped) {
+                    log.trace("Send DataResponse to {} succeeded. getDataResponse={}",
+                            connection.getPeersNodeAddressOptional(), getDataResponse);
+                    if (getDataResponse.isHasMoreChunks()) {
+                        sendGetDataResponse(getNextChunk(getDataResponse.getRequestNonce(),
+                                getDataResponse.isGetUpdatedDataResponse()), connection);
+                    } else {
+                        cleanup();
+                        listener.onComplete();
+                    }
+                } else {
+                    log.trace("We have stopped already. We ignore that networkNode.sendMessage.onSuccess call.");
+                }
+            }
+
+            @Override
+            public void onFailure(@NotNull Throwable throwable) {
+                if (!stopped) {
+                    String errorMessage = "Sending getDataRequest to " + connection +
+                            " failed. That is expected if the peer is offline. getDataResponse=" + getDataResponse + "." +
+                            "Exception: " + throwable.getMessage();
+                    handleFault(errorMessage, CloseConnectionReason.SEND_MSG_FAILURE, connection);
+                } else {
+                    log.trace("We have stopped already. We ignore that networkNode.sendMessage.onFailure call.");
+                }
+            }
+        });
+    }
+
     private void handleFault(String errorMessage, CloseConnectionReason closeConnectionReason, Connection connection) {
         if (!stopped) {
             log.info(errorMessage + "\n\tcloseConnectionReason=" + closeConnectionReason);
@@ -196,6 +286,12 @@ public class GetDataRequestHandler {
 
     private void cleanup() {
         stopped = true;
+        stopTimeoutTimer();
+        remainingDataIterator = null;
+        remainingPersistableNetworkPayloadIterator = null;
+    }
+
+    private void stopTimeoutTimer() {
         if (timeoutTimer != null) {
             timeoutTimer.stop();
             timeoutTimer = null;
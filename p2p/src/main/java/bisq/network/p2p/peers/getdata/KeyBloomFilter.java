@@ -0,0 +1,135 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.peers.getdata;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+
+import bisq.common.proto.network.NetworkPayload;
+
+import com.google.protobuf.ByteString;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+
+import java.nio.ByteBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import java.util.Collection;
+import java.util.Random;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Bloom filter of the keys of the PersistableNetworkPayload items we have already. It is sent instead of the list of
+ * those keys in the GetDataRequest if the peer supports Capability.KEY_BLOOM_FILTER. With 200 000 keys the filter has
+ * about 480 kB instead of about 4.4 MB for the keys.
+ * <p>
+ * A false positive means that the peer does not send us a payload which we do not have. We use a new random tweak for
+ * each filter, so the false positives of the requests to different peers and of later requests are independent and
+ * we get the missing payload from one of them.
+ */
+@Slf4j
+public final class KeyBloomFilter implements NetworkPayload {
+    private static final double FALSE_POSITIVE_PROBABILITY = 0.0001;
+    // The serialized bloom filter starts with a byte for the strategy, a byte for the number of hash functions and an
+    // int for the number of longs of the data.
+    private static final int HEADER_SIZE = 6;
+
+    @Getter
+    private final int tweak;
+    private final BloomFilter<P2PDataStorage.ByteArray> bloomFilter;
+
+    public static KeyBloomFilter create(Collection<P2PDataStorage.ByteArray> keys) {
+        int tweak = new Random().nextInt();
+        BloomFilter<P2PDataStorage.ByteArray> bloomFilter = BloomFilter.create(getFunnel(tweak),
+                Math.max(keys.size(), 1),
+                FALSE_POSITIVE_PROBABILITY);
+        keys.forEach(bloomFilter::put);
+        return new KeyBloomFilter(tweak, bloomFilter);
+    }
+
+    private KeyBloomFilter(int tweak, BloomFilter<P2PDataStorage.ByteArray> bloomFilter) {
+        this.tweak = tweak;
+        this.bloomFilter = bloomFilter;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // PROTO BUFFER
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public protobuf.KeyBloomFilter toProtoMessage() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            bloomFilter.writeTo(outputStream);
+        } catch (IOException e) {
+            // Cannot happen with a ByteArrayOutputStream
+            throw new RuntimeException(e);
+        }
+        return protobuf.KeyBloomFilter.newBuilder()
+                .setTweak(tweak)
+                .setBloomFilter(ByteString.copyFrom(outputStream.toByteArray()))
+                .build();
+    }
+
+    public static KeyBloomFilter fromProto(protobuf.KeyBloomFilter proto) {
+        byte[] bytes = proto.getBloomFilter().toByteArray();
+        // We check the size of the data before we let guava allocate the array for it
+        checkArgument(bytes.length >= HEADER_SIZE &&
+                        bytes.length == HEADER_SIZE + 8L * ByteBuffer.wrap(bytes, 2, 4).getInt(),
+                "Invalid size of bloomFilter");
+        try {
+            return new KeyBloomFilter(proto.getTweak(),
+                    BloomFilter.readFrom(proto.getBloomFilter().newInput(), getFunnel(proto.getTweak())));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid bloomFilter", e);
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public boolean mightContain(P2PDataStorage.ByteArray key) {
+        return bloomFilter.mightContain(key);
+    }
+
+    @Override
+    public String toString() {
+        return "KeyBloomFilter{" +
+                "\n     tweak=" + tweak +
+                ",\n     expectedFpp=" + bloomFilter.expectedFpp() +
+                "\n}";
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static Funnel<P2PDataStorage.ByteArray> getFunnel(int tweak) {
+        return (key, into) -> into.putInt(tweak).putBytes(key.bytes);
+    }
+}
@@ -37,6 +37,7 @@ import bisq.common.Timer;
 import bisq.common.UserThread;
 import bisq.common.app.Capabilities;
 import bisq.common.app.Capability;
+import bisq.common.app.Version;
 import bisq.common.proto.network.NetworkEnvelope;
 import bisq.common.proto.network.NetworkPayload;
 
@@ -46,7 +47,9 @@ import com.google.common.util.concurrent.SettableFuture;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -126,9 +129,31 @@ class RequestDataHandler implements MessageListener {
             // PersistedStoragePayload items don't get removed, so we don't have an issue with the case that
             // an object gets removed in between PreliminaryGetDataRequest and the GetUpdatedDataRequest and we would
             // miss that event if we do not load the full set or use some delta handling.
-            Set<byte[]> excludedKeys = dataStorage.getAppendOnlyDataStoreMap().keySet().stream()
-                    .map(e -> e.bytes)
-                    .collect(Collectors.toSet());
+            // If we know that the peer supports it we send a bloom filter of the keys of the PersistableNetworkPayload
+            // items instead of the keys, which is much smaller. Otherwise we use the list of keys as before.
+            // If the peer supports historical data stores we send our version instead of the keys of the historical
+            // data we have.
+            Optional<Capabilities> peersCapabilities = peerManager.findPeersCapabilities(nodeAddress);
+            boolean useKeyBloomFilter = peersCapabilities
+                    .map(capabilities -> capabilities.containsAll(Capability.KEY_BLOOM_FILTER))
+                    .orElse(false);
+            boolean useHistoricalDataStores = peersCapabilities
+                    .map(capabilities -> capabilities.containsAll(Capability.HISTORICAL_DATA_STORES))
+                    .orElse(false);
+            Set<P2PDataStorage.ByteArray> appendOnlyDataKeys = useHistoricalDataStores ?
+                    dataStorage.getAppendOnlyDataStoreMapOfLiveData().keySet() :
+                    dataStorage.getAppendOnlyDataStoreMap().keySet();
+            String version = useHistoricalDataStores ? Version.VERSION : null;
+            KeyBloomFilter excludedKeysFilter = null;
+            Set<byte[]> excludedKeys;
+            if (useKeyBloomFilter) {
+                excludedKeysFilter = KeyBloomFilter.create(appendOnlyDataKeys);
+                excludedKeys = new HashSet<>();
+            } else {
+                excludedKeys = appendOnlyDataKeys.stream()
+                        .map(e -> e.bytes)
+                        .collect(Collectors.toSet());
+            }
 
             Set<byte[]> excludedKeysFromPersistedEntryMap = dataStorage.getProtectedDataStoreMap().keySet()
                     .stream()
@@ -138,9 +163,10 @@ class RequestDataHandler implements MessageListener {
             excludedKeys.addAll(excludedKeysFromPersistedEntryMap);
 
             if (isPreliminaryDataRequest)
-                getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys);
+                getDataRequest = new PreliminaryGetDataRequest(nonce, excludedKeys, excludedKeysFilter, version);
             else
-                getDataRequest = new GetUpdatedDataRequest(networkNode.getNodeAddress(), nonce, excludedKeys);
+                getDataRequest = new GetUpdatedDataRequest(networkNode.getNodeAddress(), nonce, excludedKeys,
+                        excludedKeysFilter, version);
 
             if (timeoutTimer == null) {
                 timeoutTimer = UserThread.runAfter(() -> {  // setup before sending to avoid race conditions
@@ -217,43 +243,25 @@ class RequestDataHandler implements MessageListener {
 
                         final NodeAddress sender = connection.getPeersNodeAddressOptional().get();
 
-                        long ts = System.currentTimeMillis();
-                        AtomicInteger counter = new AtomicInteger();
-                        dataSet.forEach(e -> {
-                            // We don't broadcast here (last param) as we are only connected to the seed node and would be pointless
-                            dataStorage.addProtectedStorageEntry(e, sender, null, false, false);
-                            counter.getAndIncrement();
-
+                        // If the peer sends the response in chunks we wait for the next chunk with a new timeout.
+                        // Otherwise we don't want to process a repeated response while the signatures get verified.
+                        boolean isLastChunk = !getDataResponse.isHasMoreChunks();
+                        if (isLastChunk)
+                            networkNode.removeMessageListener(this);
+                        else
+                            startChunkTimeoutTimer(sender);
+
+                        // The signatures get verified in parallel, we process the data after all are verified.
+                        // The chunks get processed in the order we received them.
+                        long verificationStartTime = System.currentTimeMillis();
+                        dataStorage.verifySignatures(dataSet, verifiedDataSet -> {
+                            log.info("Verifying the signatures of {} protectedStorageEntries took {} ms.",
+                                    dataSet.size(), System.currentTimeMillis() - verificationStartTime);
+                            if (!stopped)
+                                processGetDataResponse(verifiedDataSet, persistableNetworkPayloadSet, sender, isLastChunk);
+                            else
+                                log.warn("We have stopped already. We ignore the verified data of the GetDataResponse.");
                         });
-                        log.info("Processing {} protectedStorageEntries took {} ms.", counter.get(), System.currentTimeMillis() - ts);
-
-                        // engage the firstRequest logic only if we are a seed node. Normal clients get here twice at most.
-                        if (!Capabilities.app.containsAll(Capability.SEED_NODE))
-                            firstRequest = true;
-
-                        if (persistableNetworkPayloadSet != null && firstRequest) {
-                            ts = System.currentTimeMillis();
-                            persistableNetworkPayloadSet.forEach(e -> {
-                                if (e instanceof LazyProcessedPayload) {
-                                    // We use an optimized method as many checks are not required in that case to avoid
-                                    // performance issues.
-                                    // Processing 82645 items took now 61 ms compared to earlier version where it took ages (> 2min).
-                                    // Usually we only get about a few hundred or max. a few 1000 items. 82645 is all
-                                    // trade stats stats and all account age witness data.
-                                    dataStorage.addPersistableNetworkPayloadFromInitialRequest(e);
-                                } else {
-                                    // We don't broadcast here as we are only connected to the seed node and would be pointless
-                                    dataStorage.addPersistableNetworkPayload(e, sender, false,
-                                            false, false, false);
-                                }
-                            });
-                            log.info("Processing {} persistableNetworkPayloads took {} ms.",
-                                    persistableNetworkPayloadSet.size(), System.currentTimeMillis() - ts);
-                        }
-
-                        cleanup();
-                        listener.onComplete();
-                        firstRequest = false;
                     } else {
                         log.warn("Nonce not matching. That can happen rarely if we get a response after a canceled " +
                                         "handshake (timeout causes connection close but peer might have sent a msg before " +
@@ -278,6 +286,51 @@ class RequestDataHandler implements MessageListener {
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    private void processGetDataResponse(List<ProtectedStorageEntry> dataSet,
+                                        @Nullable Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
+                                        NodeAddress sender,
+                                        boolean isLastChunk) {
+        long ts = System.currentTimeMillis();
+        AtomicInteger counter = new AtomicInteger();
+        dataSet.forEach(e -> {
+            // We don't broadcast here (last param) as we are only connected to the seed node and would be pointless
+            dataStorage.addProtectedStorageEntry(e, sender, null, false, false);
+            counter.getAndIncrement();
+
+        });
+        log.info("Processing {} protectedStorageEntries took {} ms.", counter.get(), System.currentTimeMillis() - ts);
+
+        // engage the firstRequest logic only if we are a seed node. Normal clients get here twice at most.
+        if (!Capabilities.app.containsAll(Capability.SEED_NODE))
+            firstRequest = true;
+
+        if (persistableNetworkPayloadSet != null && firstRequest) {
+            ts = System.currentTimeMillis();
+            persistableNetworkPayloadSet.forEach(e -> {
+                if (e instanceof LazyProcessedPayload) {
+                    // We use an optimized method as many checks are not required in that case to avoid
+                    // performance issues.
+                    // Processing 82645 items took now 61 ms compared to earlier version where it took ages (> 2min).
+                    // Usually we only get about a few hundred or max. a few 1000 items. 82645 is all
+                    // trade stats stats and all account age witness data.
+                    dataStorage.addPersistableNetworkPayloadFromInitialRequest(e);
+                } else {
+                    // We don't broadcast here as we are only connected to the seed node and would be pointless
+                    dataStorage.addPersistableNetworkPayload(e, sender, false,
+                            false, false, false);
+                }
+            });
+            log.info("Processing {} persistableNetworkPayloads took {} ms.",
+                    persistableNetworkPayloadSet.size(), System.currentTimeMillis() - ts);
+        }
+
+        if (isLastChunk) {
+            cleanup();
+            listener.onComplete();
+            firstRequest = false;
+        }
+    }
+
     private void logContents(NetworkEnvelope networkEnvelope,
                              Set<ProtectedStorageEntry> dataSet,
                              Set<PersistableNetworkPayload> persistableNetworkPayloadSet) {
@@ -341,6 +394,21 @@ class RequestDataHandler implements MessageListener {
         stopTimeoutTimer();
     }
 
+    private void startChunkTimeoutTimer(NodeAddress nodeAddress) {
+        stopTimeoutTimer();
+        timeoutTimer = UserThread.runAfter(() -> {
+                    if (!stopped) {
+                        String errorMessage = "A timeout occurred at waiting for the next chunk of the getDataResponse " +
+                                "from nodeAddress:" + nodeAddress;
+                        log.debug(errorMessage + " / RequestDataHandler=" + RequestDataHandler.this);
+                        handleFault(errorMessage, nodeAddress, CloseConnectionReason.SEND_MSG_TIMEOUT);
+                    } else {
+                        log.trace("We have stopped already. We ignore that timeoutTimer.run call.");
+                    }
+                },
+                TIMEOUT);
+    }
+
     private void stopTimeoutTimer() {
         if (timeoutTimer != null) {
             timeoutTimer.stop();
@@ -18,6 +18,7 @@
 package bisq.network.p2p.peers.getdata.messages;
 
 import bisq.network.p2p.ExtendedDataSizePermission;
+import bisq.network.p2p.peers.getdata.KeyBloomFilter;
 
 import bisq.common.proto.network.NetworkEnvelope;
 
@@ -27,6 +28,8 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import javax.annotation.Nullable;
+
 @EqualsAndHashCode(callSuper = true)
 @Getter
 @ToString
@@ -34,12 +37,25 @@ public abstract class GetDataRequest extends NetworkEnvelope implements Extended
     protected final int nonce;
     // Keys for ProtectedStorageEntry items to be excluded from the request because the peer has them already
     protected final Set<byte[]> excludedKeys;
+    // Filter of the keys of the PersistableNetworkPayload items the requester has already. If set, excludedKeys
+    // contains only the keys of the ProtectedStorageEntry items. Only used if the peer supports
+    // Capability.KEY_BLOOM_FILTER.
+    @Nullable
+    protected final KeyBloomFilter excludedKeysFilter;
+    // Version of the requester. The requester has the historical data stores up to that version and does not include
+    // their keys. Only used if the peer supports Capability.HISTORICAL_DATA_STORES.
+    @Nullable
+    protected final String version;
 
     public GetDataRequest(int messageVersion,
                           int nonce,
-                          Set<byte[]> excludedKeys) {
+                          Set<byte[]> excludedKeys,
+                          @Nullable KeyBloomFilter excludedKeysFilter,
+                          @Nullable String version) {
         super(messageVersion);
         this.nonce = nonce;
         this.excludedKeys = excludedKeys;
+        this.excludedKeysFilter = excludedKeysFilter;
+        this.version = version;
     }
 }
@@ -29,11 +29,13 @@ import bisq.common.proto.network.NetworkEnvelope;
 import bisq.common.proto.network.NetworkProtoResolver;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
@@ -56,15 +58,64 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
     @Nullable
     private final Capabilities supportedCapabilities;
 
+    // Peers with Capability.CHUNKED_GET_DATA_RESPONSE get the response split into chunks. All but the last chunk
+    // have that flag set. Older peers send the whole response at once, so the flag is not set.
+    private final boolean hasMoreChunks;
+
+    // The protos of the items if they got already built at creating a chunk, so we don't serialize them again at
+    // sending. Transient fields are not part of equals and hashCode.
+    @Nullable
+    @ToString.Exclude
+    private final transient List<protobuf.StorageEntryWrapper> dataSetProto;
+    @Nullable
+    @ToString.Exclude
+    private final transient List<protobuf.PersistableNetworkPayload> persistableNetworkPayloadSetProto;
+
     public GetDataResponse(Set<ProtectedStorageEntry> dataSet,
                            @Nullable Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
                            int requestNonce,
                            boolean isGetUpdatedDataResponse) {
+        this(dataSet,
+                persistableNetworkPayloadSet,
+                requestNonce,
+                isGetUpdatedDataResponse,
+                false);
+    }
+
+    public GetDataResponse(Set<ProtectedStorageEntry> dataSet,
+                           @Nullable Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
+                           int requestNonce,
+                           boolean isGetUpdatedDataResponse,
+                           boolean hasMoreChunks) {
         this(dataSet,
                 persistableNetworkPayloadSet,
                 requestNonce,
                 isGetUpdatedDataResponse,
                 Capabilities.app,
+                hasMoreChunks,
+                null,
+                null,
+                Version.getP2PMessageVersion());
+    }
+
+    /**
+     * Used for chunks. The protos must be the protos of the items in dataSet and persistableNetworkPayloadSet.
+     */
+    public GetDataResponse(Set<ProtectedStorageEntry> dataSet,
+                           List<protobuf.StorageEntryWrapper> dataSetProto,
+                           Set<PersistableNetworkPayload> persistableNetworkPayloadSet,
+                           List<protobuf.PersistableNetworkPayload> persistableNetworkPayloadSetProto,
+                           int requestNonce,
+                           boolean isGetUpdatedDataResponse,
+                           boolean hasMoreChunks) {
+        this(dataSet,
+                persistableNetworkPayloadSet,
+                requestNonce,
+                isGetUpdatedDataResponse,
+                Capabilities.app,
+                hasMoreChunks,
+                dataSetProto,
+                persistableNetworkPayloadSetProto,
                 Version.getP2PMessageVersion());
     }
 
@@ -77,6 +128,9 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                             int requestNonce,
                             boolean isGetUpdatedDataResponse,
                             @Nullable Capabilities supportedCapabilities,
+                            boolean hasMoreChunks,
+                            @Nullable List<protobuf.StorageEntryWrapper> dataSetProto,
+                            @Nullable List<protobuf.PersistableNetworkPayload> persistableNetworkPayloadSetProto,
                             int messageVersion) {
         super(messageVersion);
 
@@ -85,34 +139,47 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
         this.requestNonce = requestNonce;
         this.isGetUpdatedDataResponse = isGetUpdatedDataResponse;
         this.supportedCapabilities = supportedCapabilities;
+        this.hasMoreChunks = hasMoreChunks;
+        this.dataSetProto = dataSetProto;
+        this.persistableNetworkPayloadSetProto = persistableNetworkPayloadSetProto;
     }
 
     @Override
     public protobuf.NetworkEnvelope toProtoNetworkEnvelope() {
         final protobuf.GetDataResponse.Builder builder = protobuf.GetDataResponse.newBuilder()
-                .addAllDataSet(dataSet.stream()
-                        .map(protectedStorageEntry -> protectedStorageEntry instanceof ProtectedMailboxStorageEntry ?
-                                protobuf.StorageEntryWrapper.newBuilder()
-                                        .setProtectedMailboxStorageEntry((protobuf.ProtectedMailboxStorageEntry) protectedStorageEntry.toProtoMessage())
-                                        .build()
-                                :
-                                protobuf.StorageEntryWrapper.newBuilder()
-                                        .setProtectedStorageEntry((protobuf.ProtectedStorageEntry) protectedStorageEntry.toProtoMessage())
-                                        .build())
-                        .collect(Collectors.toList()))
+                .addAllDataSet(dataSetProto != null ?
+                        dataSetProto :
+                        dataSet.stream()
+                                .map(GetDataResponse::toStorageEntryWrapper)
+                                .collect(Collectors.toList()))
                 .setRequestNonce(requestNonce)
-                .setIsGetUpdatedDataResponse(isGetUpdatedDataResponse);
+                .setIsGetUpdatedDataResponse(isGetUpdatedDataResponse)
+                .setHasMoreChunks(hasMoreChunks);
 
         Optional.ofNullable(supportedCapabilities).ifPresent(e -> builder.addAllSupportedCapabilities(Capabilities.toIntList(supportedCapabilities)));
-        Optional.ofNullable(persistableNetworkPayloadSet).ifPresent(set -> builder.addAllPersistableNetworkPayloadItems(set.stream()
-                .map(PersistableNetworkPayload::toProtoMessage)
-                .collect(Collectors.toList())));
+        if (persistableNetworkPayloadSetProto != null)
+            builder.addAllPersistableNetworkPayloadItems(persistableNetworkPayloadSetProto);
+        else
+            Optional.ofNullable(persistableNetworkPayloadSet).ifPresent(set -> builder.addAllPersistableNetworkPayloadItems(set.stream()
+                    .map(PersistableNetworkPayload::toProtoMessage)
+                    .collect(Collectors.toList())));
 
         return getNetworkEnvelopeBuilder()
                 .setGetDataResponse(builder)
                 .build();
     }
 
+    public static protobuf.StorageEntryWrapper toStorageEntryWrapper(ProtectedStorageEntry protectedStorageEntry) {
+        return protectedStorageEntry instanceof ProtectedMailboxStorageEntry ?
+                protobuf.StorageEntryWrapper.newBuilder()
+                        .setProtectedMailboxStorageEntry((protobuf.ProtectedMailboxStorageEntry) protectedStorageEntry.toProtoMessage())
+                        .build()
+                :
+                protobuf.StorageEntryWrapper.newBuilder()
+                        .setProtectedStorageEntry((protobuf.ProtectedStorageEntry) protectedStorageEntry.toProtoMessage())
+                        .build();
+    }
+
     public static GetDataResponse fromProto(protobuf.GetDataResponse proto, NetworkProtoResolver resolver, int messageVersion) {
         Set<ProtectedStorageEntry> dataSet = new HashSet<>(
                 proto.getDataSetList().stream()
@@ -132,6 +199,9 @@ public final class GetDataResponse extends NetworkEnvelope implements SupportedC
                 proto.getRequestNonce(),
                 proto.getIsGetUpdatedDataResponse(),
                 Capabilities.fromIntList(proto.getSupportedCapabilitiesList()),
+                proto.getHasMoreChunks(),
+                null,
+                null,
                 messageVersion);
     }
 }
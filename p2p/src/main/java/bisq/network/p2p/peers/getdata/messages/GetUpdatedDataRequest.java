@@ -19,18 +19,22 @@ package bisq.network.p2p.peers.getdata.messages;
 
 import bisq.network.p2p.NodeAddress;
 import bisq.network.p2p.SendersNodeAddressMessage;
+import bisq.network.p2p.peers.getdata.KeyBloomFilter;
 
 import bisq.common.app.Version;
 import bisq.common.proto.ProtoUtil;
 
 import com.google.protobuf.ByteString;
 
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import lombok.EqualsAndHashCode;
 import lombok.Value;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 @EqualsAndHashCode(callSuper = true)
@@ -41,9 +45,19 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
     public GetUpdatedDataRequest(NodeAddress senderNodeAddress,
                                  int nonce,
                                  Set<byte[]> excludedKeys) {
+        this(senderNodeAddress, nonce, excludedKeys, null, null);
+    }
+
+    public GetUpdatedDataRequest(NodeAddress senderNodeAddress,
+                                 int nonce,
+                                 Set<byte[]> excludedKeys,
+                                 @Nullable KeyBloomFilter excludedKeysFilter,
+                                 @Nullable String version) {
         this(senderNodeAddress,
                 nonce,
                 excludedKeys,
+                excludedKeysFilter,
+                version,
                 Version.getP2PMessageVersion());
     }
 
@@ -55,10 +69,14 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
     private GetUpdatedDataRequest(NodeAddress senderNodeAddress,
                                   int nonce,
                                   Set<byte[]> excludedKeys,
+                                  @Nullable KeyBloomFilter excludedKeysFilter,
+                                  @Nullable String version,
                                   int messageVersion) {
         super(messageVersion,
                 nonce,
-                excludedKeys);
+                excludedKeys,
+                excludedKeysFilter,
+                version);
         checkNotNull(senderNodeAddress, "senderNodeAddress must not be null at GetUpdatedDataRequest");
         this.senderNodeAddress = senderNodeAddress;
     }
@@ -72,6 +90,9 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
                         .map(ByteString::copyFrom)
                         .collect(Collectors.toList()));
 
+        Optional.ofNullable(excludedKeysFilter).ifPresent(e -> builder.setExcludedKeysFilter(excludedKeysFilter.toProtoMessage()));
+        Optional.ofNullable(version).ifPresent(builder::setVersion);
+
         return getNetworkEnvelopeBuilder()
                 .setGetUpdatedDataRequest(builder)
                 .build();
@@ -81,6 +102,8 @@ public final class GetUpdatedDataRequest extends GetDataRequest implements Sende
         return new GetUpdatedDataRequest(NodeAddress.fromProto(proto.getSenderNodeAddress()),
                 proto.getNonce(),
                 ProtoUtil.byteSetFromProtoByteStringList(proto.getExcludedKeysList()),
+                proto.hasExcludedKeysFilter() ? KeyBloomFilter.fromProto(proto.getExcludedKeysFilter()) : null,
+                ProtoUtil.stringOrNullFromProto(proto.getVersion()),
                 messageVersion);
     }
 }
@@ -19,6 +19,7 @@ package bisq.network.p2p.peers.getdata.messages;
 
 import bisq.network.p2p.AnonymousMessage;
 import bisq.network.p2p.SupportedCapabilitiesMessage;
+import bisq.network.p2p.peers.getdata.KeyBloomFilter;
 
 import bisq.common.app.Capabilities;
 import bisq.common.app.Version;
@@ -45,7 +46,14 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
 
     public PreliminaryGetDataRequest(int nonce,
                                      Set<byte[]> excludedKeys) {
-        this(nonce, excludedKeys, Capabilities.app, Version.getP2PMessageVersion());
+        this(nonce, excludedKeys, null, null);
+    }
+
+    public PreliminaryGetDataRequest(int nonce,
+                                     Set<byte[]> excludedKeys,
+                                     @Nullable KeyBloomFilter excludedKeysFilter,
+                                     @Nullable String version) {
+        this(nonce, excludedKeys, excludedKeysFilter, version, Capabilities.app, Version.getP2PMessageVersion());
     }
 
 
@@ -55,9 +63,11 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
 
     private PreliminaryGetDataRequest(int nonce,
                                       Set<byte[]> excludedKeys,
+                                      @Nullable KeyBloomFilter excludedKeysFilter,
+                                      @Nullable String version,
                                       @Nullable Capabilities supportedCapabilities,
                                       int messageVersion) {
-        super(messageVersion, nonce, excludedKeys);
+        super(messageVersion, nonce, excludedKeys, excludedKeysFilter, version);
 
         this.supportedCapabilities = supportedCapabilities;
     }
@@ -71,6 +81,8 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
                         .collect(Collectors.toList()));
 
         Optional.ofNullable(supportedCapabilities).ifPresent(e -> builder.addAllSupportedCapabilities(Capabilities.toIntList(supportedCapabilities)));
+        Optional.ofNullable(excludedKeysFilter).ifPresent(e -> builder.setExcludedKeysFilter(excludedKeysFilter.toProtoMessage()));
+        Optional.ofNullable(version).ifPresent(builder::setVersion);
 
         return getNetworkEnvelopeBuilder()
                 .setPreliminaryGetDataRequest(builder)
@@ -84,6 +96,8 @@ public final class PreliminaryGetDataRequest extends GetDataRequest implements A
 
         return new PreliminaryGetDataRequest(proto.getNonce(),
                 ProtoUtil.byteSetFromProtoByteStringList(proto.getExcludedKeysList()),
+                proto.hasExcludedKeysFilter() ? KeyBloomFilter.fromProto(proto.getExcludedKeysFilter()) : null,
+                ProtoUtil.stringOrNullFromProto(proto.getVersion()),
                 supportedCapabilities,
                 messageVersion);
     }
@@ -0,0 +1,507 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage;
+
+import java.security.SecureRandom;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import java.nio.ByteOrder;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Map for hashes as keys, e.g. the 20 byte hashes of the append-only data. A HashMap with ByteArray keys costs a
+ * ByteArray, a byte array and a map entry object per entry. Here the entries are stored in insertion order in flat
+ * arrays: the key bytes inline in an int array, the cached hash in an int array and the value in an object array. The
+ * hash table (open addressing with linear probing) only holds the indices of the entries.
+ * <p>
+ * All keys are expected to have the same length, which is taken from the first key. Keys of other lengths are
+ * supported but kept in a HashMap.
+ * <p>
+ * Access is synchronized, including the compound operations like putIfAbsent. Like the ConcurrentHashMap we used
+ * before, the iterators never throw a
+ * ConcurrentModificationException but might not reflect changes done after their creation. The ByteArray keys
+ * returned by the iterators are created on the fly. Null values are not permitted.
+ */
+public class ByteArrayMap<V> extends AbstractMap<P2PDataStorage.ByteArray, V> {
+    private static final int MIN_CAPACITY = 16;
+    // Linear probing gets slow with higher load factors. The table costs only 4 bytes per slot.
+    private static final double MAX_LOAD_FACTOR = 0.6;
+    private static final VarHandle INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    // Random seed so the slots of the keys cannot be predicted by peers who could try to create colliding hashes
+    private final long seed = new SecureRandom().nextLong();
+
+    private int keyLength = -1;
+    private int intsPerKey;
+    // Index of the entry + 1 for each slot, 0 for free slots. Slots of removed entries are not freed until we
+    // rebuild the table.
+    private int[] table;
+    // Entries in insertion order. Removed entries have a null value.
+    private int[] keys;
+    private int[] hashes;
+    private Object[] values;
+    // Number of entries including the removed ones
+    private int numEntries;
+    private int size;
+
+    // Keys which do not have the keyLength
+    private final Map<P2PDataStorage.ByteArray, V> otherKeys = new HashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public ByteArrayMap() {
+    }
+
+    public ByteArrayMap(Map<P2PDataStorage.ByteArray, ? extends V> map) {
+        putAll(map);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Map implementation
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public synchronized int size() {
+        return size + otherKeys.size();
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public synchronized V get(Object key) {
+        if (!(key instanceof P2PDataStorage.ByteArray))
+            return null;
+
+        byte[] bytes = ((P2PDataStorage.ByteArray) key).bytes;
+        if (bytes.length != keyLength)
+            return otherKeys.get(key);
+
+        int index = findEntry(bytes, hash(bytes));
+        return index >= 0 ? valueAt(values, index) : null;
+    }
+
+    @Override
+    public synchronized V put(P2PDataStorage.ByteArray key, V value) {
+        checkNotNull(value, "Null values are not permitted");
+        byte[] bytes = key.bytes;
+        if (table == null)
+            init(bytes.length);
+
+        if (bytes.length != keyLength)
+            return otherKeys.put(key, value);
+
+        int hash = hash(bytes);
+        int index = findEntry(bytes, hash);
+        if (index >= 0) {
+            V previous = valueAt(values, index);
+            values[index] = value;
+            return previous;
+        }
+
+        if (numEntries == values.length)
+            growEntries();
+        if (numEntries + 1 > table.length * MAX_LOAD_FACTOR)
+            rebuildTable(table.length * 2);
+
+        index = numEntries++;
+        int offset = index * intsPerKey;
+        for (int i = 0; i < intsPerKey; i++)
+            keys[offset + i] = getInt(bytes, i);
+        hashes[index] = hash;
+        values[index] = value;
+        table[findFreeSlot(hash)] = index + 1;
+        size++;
+        return null;
+    }
+
+    @Override
+    public synchronized V remove(Object key) {
+        if (!(key instanceof P2PDataStorage.ByteArray))
+            return null;
+
+        byte[] bytes = ((P2PDataStorage.ByteArray) key).bytes;
+        if (bytes.length != keyLength)
+            return otherKeys.remove(key);
+
+        int index = findEntry(bytes, hash(bytes));
+        if (index < 0)
+            return null;
+
+        V previous = valueAt(values, index);
+        values[index] = null;
+        size--;
+        return previous;
+    }
+
+    // The default implementations of the Map interface consist of several calls, so we synchronize them to make them
+    // atomic like at the ConcurrentHashMap
+
+    @Override
+    public synchronized V putIfAbsent(P2PDataStorage.ByteArray key, V value) {
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public synchronized boolean remove(Object key, Object value) {
+        return super.remove(key, value);
+    }
+
+    @Override
+    public synchronized boolean replace(P2PDataStorage.ByteArray key, V oldValue, V newValue) {
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public synchronized V replace(P2PDataStorage.ByteArray key, V value) {
+        return super.replace(key, value);
+    }
+
+    @Override
+    public synchronized V computeIfAbsent(P2PDataStorage.ByteArray key,
+                                          Function<? super P2PDataStorage.ByteArray, ? extends V> mappingFunction) {
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public synchronized V computeIfPresent(
+            P2PDataStorage.ByteArray key,
+            BiFunction<? super P2PDataStorage.ByteArray, ? super V, ? extends V> remappingFunction) {
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public synchronized V compute(
+            P2PDataStorage.ByteArray key,
+            BiFunction<? super P2PDataStorage.ByteArray, ? super V, ? extends V> remappingFunction) {
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public synchronized V merge(P2PDataStorage.ByteArray key,
+                                V value,
+                                BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public synchronized void clear() {
+        keyLength = -1;
+        table = null;
+        keys = null;
+        hashes = null;
+        values = null;
+        numEntries = 0;
+        size = 0;
+        otherKeys.clear();
+    }
+
+    @Override
+    public Set<Entry<P2PDataStorage.ByteArray, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<P2PDataStorage.ByteArray, V>> iterator() {
+                return new EntryIterator<>() {
+                    @Override
+                    Entry<P2PDataStorage.ByteArray, V> get(@Nullable P2PDataStorage.ByteArray key, V value) {
+                        return new SimpleImmutableEntry<>(key, value);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ByteArrayMap.this.size();
+            }
+        };
+    }
+
+    // We override values as we do not need to create the keys for iterating the values
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new EntryIterator<>() {
+                    @Override
+                    V get(@Nullable P2PDataStorage.ByteArray key, V value) {
+                        return value;
+                    }
+
+                    @Override
+                    boolean needsKey() {
+                        return false;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ByteArrayMap.this.size();
+            }
+        };
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void init(int keyLength) {
+        this.keyLength = keyLength;
+        intsPerKey = (keyLength + 3) / 4;
+        table = new int[MIN_CAPACITY];
+        keys = new int[MIN_CAPACITY * intsPerKey];
+        hashes = new int[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+    }
+
+    // We always create new arrays and leave the old ones unchanged for the iterators which might still use them
+    private void growEntries() {
+        if (size < numEntries * 3 / 4) {
+            // Many entries got removed, so we only drop them
+            int[] newKeys = new int[keys.length];
+            int[] newHashes = new int[hashes.length];
+            Object[] newValues = new Object[values.length];
+            int newNumEntries = 0;
+            for (int i = 0; i < numEntries; i++) {
+                if (values[i] != null) {
+                    System.arraycopy(keys, i * intsPerKey, newKeys, newNumEntries * intsPerKey, intsPerKey);
+                    newHashes[newNumEntries] = hashes[i];
+                    newValues[newNumEntries] = values[i];
+                    newNumEntries++;
+                }
+            }
+            keys = newKeys;
+            hashes = newHashes;
+            values = newValues;
+            numEntries = newNumEntries;
+            rebuildTable(table.length);
+        } else {
+            int capacity = values.length + values.length / 2;
+            keys = Arrays.copyOf(keys, capacity * intsPerKey);
+            hashes = Arrays.copyOf(hashes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private void rebuildTable(int capacity) {
+        table = new int[capacity];
+        for (int i = 0; i < numEntries; i++) {
+            if (values[i] != null)
+                table[findFreeSlot(hashes[i])] = i + 1;
+        }
+    }
+
+    // Returns the index of the entry or -1
+    private int findEntry(byte[] bytes, int hash) {
+        if (table == null)
+            return -1;
+
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int index = table[slot] - 1;
+            if (index < 0)
+                return -1;
+
+            if (hashes[index] == hash && values[index] != null && keyEquals(index, bytes))
+                return index;
+        }
+    }
+
+    private int findFreeSlot(int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private boolean keyEquals(int index, byte[] bytes) {
+        int offset = index * intsPerKey;
+        for (int i = 0; i < intsPerKey; i++) {
+            if (keys[offset + i] != getInt(bytes, i))
+                return false;
+        }
+        return true;
+    }
+
+    private static byte[] getKey(int[] keys, int index, int keyLength, int intsPerKey) {
+        byte[] bytes = new byte[keyLength];
+        int offset = index * intsPerKey;
+        for (int i = 0; i < keyLength; i++)
+            bytes[i] = (byte) (keys[offset + i / 4] >>> (24 - 8 * (i % 4)));
+        return bytes;
+    }
+
+    // Big endian, the last int is padded with zeros
+    private static int getInt(byte[] bytes, int index) {
+        int start = index * 4;
+        if (start + 4 <= bytes.length)
+            return (int) INT_VIEW.get(bytes, start);
+
+        int result = 0;
+        for (int i = start; i < start + 4; i++)
+            result = (result << 8) | (i < bytes.length ? bytes[i] & 0xFF : 0);
+        return result;
+    }
+
+    private int hash(byte[] bytes) {
+        long hash = seed;
+        for (int i = 0; i < intsPerKey; i++)
+            hash = (hash ^ getInt(bytes, i)) * 0x9E3779B97F4A7C15L;
+        // Finalizer of MurmurHash3
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private static <V> V valueAt(Object[] values, int index) {
+        return (V) values[index];
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // EntryIterator
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private abstract class EntryIterator<T> implements Iterator<T> {
+        // We keep the arrays we started with. If the map creates new arrays our arrays do not change anymore.
+        private final int[] keys;
+        private final Object[] values;
+        private final int numEntries;
+        private final int keyLength;
+        private final int intsPerKey;
+        private final Iterator<Entry<P2PDataStorage.ByteArray, V>> otherKeysIterator;
+        private int nextIndex;
+        @Nullable
+        private T next;
+        // Entry index or other key of the element returned by next, needed for remove
+        private int nextElementIndex = -1;
+        private int lastIndex = -1;
+        @Nullable
+        private P2PDataStorage.ByteArray nextOtherKey;
+        @Nullable
+        private P2PDataStorage.ByteArray lastOtherKey;
+
+        EntryIterator() {
+            synchronized (ByteArrayMap.this) {
+                keys = ByteArrayMap.this.keys;
+                values = ByteArrayMap.this.values;
+                numEntries = ByteArrayMap.this.numEntries;
+                keyLength = ByteArrayMap.this.keyLength;
+                intsPerKey = ByteArrayMap.this.intsPerKey;
+                List<Entry<P2PDataStorage.ByteArray, V>> otherEntries = new ArrayList<>(otherKeys.entrySet());
+                otherKeysIterator = otherEntries.iterator();
+            }
+        }
+
+        abstract T get(@Nullable P2PDataStorage.ByteArray key, V value);
+
+        boolean needsKey() {
+            return true;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null)
+                next = findNext();
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            T result = next;
+            lastIndex = nextElementIndex;
+            lastOtherKey = nextOtherKey;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            checkState(lastIndex >= 0 || lastOtherKey != null, "next was not called");
+            ByteArrayMap.this.remove(lastIndex >= 0 ? getKeyAt(lastIndex) : lastOtherKey);
+            lastIndex = -1;
+            lastOtherKey = null;
+        }
+
+        @Nullable
+        private T findNext() {
+            if (values != null) {
+                // We need the lock for the visibility of the changes done by other threads
+                synchronized (ByteArrayMap.this) {
+                    while (nextIndex < numEntries) {
+                        int index = nextIndex++;
+                        V value = valueAt(values, index);
+                        if (value != null) {
+                            nextElementIndex = index;
+                            nextOtherKey = null;
+                            return get(needsKey() ? getKeyAt(index) : null, value);
+                        }
+                    }
+                }
+            }
+
+            if (otherKeysIterator.hasNext()) {
+                Entry<P2PDataStorage.ByteArray, V> entry = otherKeysIterator.next();
+                nextElementIndex = -1;
+                nextOtherKey = entry.getKey();
+                return get(entry.getKey(), entry.getValue());
+            }
+            return null;
+        }
+
+        private P2PDataStorage.ByteArray getKeyAt(int index) {
+            return new P2PDataStorage.ByteArray(getKey(keys, index, keyLength, intsPerKey));
+        }
+    }
+}
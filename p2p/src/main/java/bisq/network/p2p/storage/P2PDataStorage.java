@@ -49,6 +49,7 @@ import bisq.network.p2p.storage.persistence.SequenceNumberMap;
 
 import bisq.common.Timer;
 import bisq.common.UserThread;
+import bisq.common.app.Capabilities;
 import bisq.common.crypto.CryptoException;
 import bisq.common.crypto.Hash;
 import bisq.common.crypto.Sig;
@@ -66,6 +67,9 @@ import com.google.protobuf.ByteString;
 import javax.inject.Inject;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -74,16 +78,25 @@ import java.security.PublicKey;
 
 import java.time.Clock;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import lombok.EqualsAndHashCode;
@@ -99,6 +112,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
      * How many days to keep an entry before it is purged.
      */
     private static final int PURGE_AGE_DAYS = 10;
+    private static final long PURGE_SEQUENCE_NUMBER_MAP_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
 
     @VisibleForTesting
     public static int CHECK_TTL_INTERVAL_SEC = 60;
@@ -112,7 +126,10 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     private final Map<ByteArray, ProtectedStorageEntry> map = new ConcurrentHashMap<>();
     private final Set<ByteArray> removedAddOncePayloads = new HashSet<>();
     private final Set<HashMapChangedListener> hashMapChangedListeners = new CopyOnWriteArraySet<>();
+    // Expiry and owner indexes of the map. All changes of the map need to be done with putEntry and removeEntry.
+    private final ProtectedStorageEntryIndex protectedStorageEntryIndex = new ProtectedStorageEntryIndex();
     private Timer removeExpiredEntriesTimer;
+    private long lastSequenceNumberMapPurge;
 
     private final Storage<SequenceNumberMap> sequenceNumberMapStorage;
     private final SequenceNumberMap sequenceNumberMap = new SequenceNumberMap();
@@ -121,6 +138,11 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     private final Set<ProtectedDataStoreListener> protectedDataStoreListeners = new CopyOnWriteArraySet<>();
     private final Clock clock;
 
+    private final SignatureVerifier signatureVerifier = new SignatureVerifier();
+    // Broadcast messages and received data get applied in the order we received them after their signatures got
+    // verified. Only accessed from the user thread.
+    private final Queue<PendingVerification> pendingVerifications = new ArrayDeque<>();
+
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
     ///////////////////////////////////////////////////////////////////////////////////////////
@@ -162,7 +184,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         protectedDataStoreService.readFromResources(postFix);
         resourceDataStoreService.readFromResources(postFix);
 
-        map.putAll(protectedDataStoreService.getMap());
+        protectedDataStoreService.getMap().forEach(this::putEntry);
     }
 
 
@@ -173,6 +195,8 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     public void shutDown() {
         if (removeExpiredEntriesTimer != null)
             removeExpiredEntriesTimer.stop();
+
+        signatureVerifier.shutDown();
     }
 
     public void onBootstrapComplete() {
@@ -183,17 +207,15 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             // object when we get it sent from new peers, we don’t remove the sequence number from the map.
             // That way an ADD message for an already expired data will fail because the sequence number
             // is equal and not larger as expected.
-            Map<ByteArray, ProtectedStorageEntry> temp = new HashMap<>(map);
+            // We only look at the entries which are due in the expiry index instead of iterating the whole map.
             Set<ProtectedStorageEntry> toRemoveSet = new HashSet<>();
-            temp.entrySet().stream()
-                    .filter(entry -> entry.getValue().isExpired())
-                    .forEach(entry -> {
-                        ByteArray hashOfPayload = entry.getKey();
+            protectedStorageEntryIndex.pollExpired(map::get, map.size())
+                    .forEach(hashOfPayload -> {
                         ProtectedStorageEntry protectedStorageEntry = map.get(hashOfPayload);
                         if (!(protectedStorageEntry.getProtectedStoragePayload() instanceof PersistableNetworkPayload)) {
                             toRemoveSet.add(protectedStorageEntry);
                             log.debug("We found an expired data entry. We remove the protectedData:\n\t" + Utilities.toTruncatedString(protectedStorageEntry));
-                            map.remove(hashOfPayload);
+                            removeEntry(hashOfPayload);
                         }
                     });
 
@@ -206,8 +228,13 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             });
             hashMapChangedListeners.forEach(HashMapChangedListener::onBatchRemoveExpiredDataCompleted);
 
-            if (sequenceNumberMap.size() > 1000)
+            // Purging requires iterating the whole sequenceNumberMap, as entries get purged only after days we do it
+            // rarely.
+            long now = System.currentTimeMillis();
+            if (sequenceNumberMap.size() > 1000 && now - lastSequenceNumberMapPurge > PURGE_SEQUENCE_NUMBER_MAP_INTERVAL_MS) {
+                lastSequenceNumberMapPurge = now;
                 sequenceNumberMap.setMap(getPurgedSequenceNumberMap(sequenceNumberMap.getMap()));
+            }
         }, CHECK_TTL_INTERVAL_SEC);
     }
 
@@ -215,6 +242,15 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         return appendOnlyDataStoreService.getMap();
     }
 
+    public Map<ByteArray, PersistableNetworkPayload> getAppendOnlyDataStoreMapOfLiveData() {
+        return appendOnlyDataStoreService.getMapOfLiveData();
+    }
+
+    public Map<ByteArray, PersistableNetworkPayload> getAppendOnlyDataStoreMap(Capabilities capabilities,
+                                                                              @Nullable String version) {
+        return appendOnlyDataStoreService.getMap(capabilities, version);
+    }
+
     public Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> getProtectedDataStoreMap() {
         return protectedDataStoreService.getMap();
     }
@@ -228,22 +264,38 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     public void onMessage(NetworkEnvelope networkEnvelope, Connection connection) {
         if (networkEnvelope instanceof BroadcastMessage) {
             connection.getPeersNodeAddressOptional().ifPresent(peersNodeAddress -> {
-                if (networkEnvelope instanceof AddDataMessage) {
-                    addProtectedStorageEntry(((AddDataMessage) networkEnvelope).getProtectedStorageEntry(), peersNodeAddress, null, false);
-                } else if (networkEnvelope instanceof RemoveDataMessage) {
-                    remove(((RemoveDataMessage) networkEnvelope).getProtectedStorageEntry(), peersNodeAddress, false);
-                } else if (networkEnvelope instanceof RemoveMailboxDataMessage) {
-                    removeMailboxData(((RemoveMailboxDataMessage) networkEnvelope).getProtectedMailboxStorageEntry(), peersNodeAddress, false);
-                } else if (networkEnvelope instanceof RefreshOfferMessage) {
-                    refreshTTL((RefreshOfferMessage) networkEnvelope, peersNodeAddress, false);
-                } else if (networkEnvelope instanceof AddPersistableNetworkPayloadMessage) {
-                    addPersistableNetworkPayload(((AddPersistableNetworkPayloadMessage) networkEnvelope).getPersistableNetworkPayload(),
-                            peersNodeAddress, false, true, false, true);
+                BroadcastMessage broadcastMessage = (BroadcastMessage) networkEnvelope;
+                if (broadcastMessage instanceof AddPersistableNetworkPayloadMessage && pendingVerifications.isEmpty()) {
+                    // Nothing to verify and nothing to wait for
+                    applyBroadcastMessage(broadcastMessage, peersNodeAddress);
+                } else {
+                    verifyAndApply(Collections.singletonList(broadcastMessage), this::checkSignature, results -> {
+                        if (results.get(0))
+                            applyBroadcastMessage(broadcastMessage, peersNodeAddress);
+                        else
+                            log.warn("We ignore a {} from {} as the signature is invalid.",
+                                    broadcastMessage.getClass().getSimpleName(), peersNodeAddress);
+                    });
                 }
             });
         }
     }
 
+    private void applyBroadcastMessage(BroadcastMessage broadcastMessage, NodeAddress peersNodeAddress) {
+        if (broadcastMessage instanceof AddDataMessage) {
+            addProtectedStorageEntry(((AddDataMessage) broadcastMessage).getProtectedStorageEntry(), peersNodeAddress, null, false);
+        } else if (broadcastMessage instanceof RemoveDataMessage) {
+            remove(((RemoveDataMessage) broadcastMessage).getProtectedStorageEntry(), peersNodeAddress, false);
+        } else if (broadcastMessage instanceof RemoveMailboxDataMessage) {
+            removeMailboxData(((RemoveMailboxDataMessage) broadcastMessage).getProtectedMailboxStorageEntry(), peersNodeAddress, false);
+        } else if (broadcastMessage instanceof RefreshOfferMessage) {
+            refreshTTL((RefreshOfferMessage) broadcastMessage, peersNodeAddress, false);
+        } else if (broadcastMessage instanceof AddPersistableNetworkPayloadMessage) {
+            addPersistableNetworkPayload(((AddPersistableNetworkPayloadMessage) broadcastMessage).getPersistableNetworkPayload(),
+                    peersNodeAddress, false, true, false, true);
+        }
+    }
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // ConnectionListener implementation
@@ -256,44 +308,36 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     @Override
     public void onDisconnect(CloseConnectionReason closeConnectionReason, Connection connection) {
         if (connection.hasPeersNodeAddress() && !closeConnectionReason.isIntended) {
-            map.values()
-                    .forEach(protectedStorageEntry -> {
-                        NetworkPayload networkPayload = protectedStorageEntry.getProtectedStoragePayload();
-                        if (networkPayload instanceof ExpirablePayload && networkPayload instanceof RequiresOwnerIsOnlinePayload) {
-                            NodeAddress ownerNodeAddress = ((RequiresOwnerIsOnlinePayload) networkPayload).getOwnerNodeAddress();
-                            if (connection.getPeersNodeAddressOptional().isPresent() &&
-                                    ownerNodeAddress.equals(connection.getPeersNodeAddressOptional().get())) {
-                                // We have a RequiresLiveOwnerData data object with the node address of the
-                                // disconnected peer. We remove that data from our map.
-
-                                // Check if we have the data (e.g. OfferPayload)
-                                ByteArray hashOfPayload = get32ByteHashAsByteArray(networkPayload);
-                                boolean containsKey = map.containsKey(hashOfPayload);
-                                if (containsKey) {
-                                    log.debug("We remove the data as the data owner got disconnected with " +
-                                            "closeConnectionReason=" + closeConnectionReason);
-
-                                    // We only set the data back by half of the TTL and remove the data only if is has
-                                    // expired after that back dating.
-                                    // We might get connection drops which are not caused by the node going offline, so
-                                    // we give more tolerance with that approach, giving the node the change to
-                                    // refresh the TTL with a refresh message.
-                                    // We observed those issues during stress tests, but it might have been caused by the
-                                    // test set up (many nodes/connections over 1 router)
-                                    // TODO investigate what causes the disconnections.
-                                    // Usually the are: SOCKET_TIMEOUT ,TERMINATED (EOFException)
-                                    protectedStorageEntry.backDate();
-                                    if (protectedStorageEntry.isExpired()) {
-                                        log.info("We found an expired data entry which we have already back dated. " +
-                                                "We remove the protectedStoragePayload:\n\t" + Utilities.toTruncatedString(protectedStorageEntry.getProtectedStoragePayload(), 100));
-                                        doRemoveProtectedExpirableData(protectedStorageEntry, hashOfPayload);
-                                    }
-                                } else {
-                                    log.debug("Remove data ignored as we don't have an entry for that data.");
-                                }
-                            }
-                        }
-                    });
+            NodeAddress peersNodeAddress = connection.getPeersNodeAddressOptional().get();
+            // The owner index contains the hashes of the ExpirablePayload and RequiresOwnerIsOnlinePayload entries
+            // with the node address of the disconnected peer, so we do not need to iterate the whole map.
+            protectedStorageEntryIndex.getHashesByOwner(peersNodeAddress).forEach(hashOfPayload -> {
+                // Check if we have the data (e.g. OfferPayload)
+                ProtectedStorageEntry protectedStorageEntry = map.get(hashOfPayload);
+                if (protectedStorageEntry != null) {
+                    log.debug("We remove the data as the data owner got disconnected with " +
+                            "closeConnectionReason=" + closeConnectionReason);
+
+                    // We only set the data back by half of the TTL and remove the data only if is has
+                    // expired after that back dating.
+                    // We might get connection drops which are not caused by the node going offline, so
+                    // we give more tolerance with that approach, giving the node the change to
+                    // refresh the TTL with a refresh message.
+                    // We observed those issues during stress tests, but it might have been caused by the
+                    // test set up (many nodes/connections over 1 router)
+                    // TODO investigate what causes the disconnections.
+                    // Usually the are: SOCKET_TIMEOUT ,TERMINATED (EOFException)
+                    protectedStorageEntry.backDate();
+                    protectedStorageEntryIndex.onPut(hashOfPayload, protectedStorageEntry);
+                    if (protectedStorageEntry.isExpired()) {
+                        log.info("We found an expired data entry which we have already back dated. " +
+                                "We remove the protectedStoragePayload:\n\t" + Utilities.toTruncatedString(protectedStorageEntry.getProtectedStoragePayload(), 100));
+                        doRemoveProtectedExpirableData(protectedStorageEntry, hashOfPayload);
+                    }
+                } else {
+                    log.debug("Remove data ignored as we don't have an entry for that data.");
+                }
+            });
         }
     }
 
@@ -361,6 +405,28 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         }
     }
 
+    /**
+     * Verifies the signatures of the entries on the signature verification threads and calls the resultHandler on the
+     * user thread with the entries which have a valid signature, in the order of the given entries. Adding those
+     * entries does not verify the signatures again. Broadcast messages we receive in the meantime get applied after
+     * the resultHandler got called.
+     */
+    public void verifySignatures(Collection<ProtectedStorageEntry> protectedStorageEntries,
+                                 Consumer<List<ProtectedStorageEntry>> resultHandler) {
+        List<ProtectedStorageEntry> entries = new ArrayList<>(protectedStorageEntries);
+        verifyAndApply(entries, this::checkSignature, results -> {
+            List<ProtectedStorageEntry> verifiedEntries = new ArrayList<>(entries.size());
+            for (int i = 0; i < entries.size(); i++) {
+                if (results.get(i))
+                    verifiedEntries.add(entries.get(i));
+            }
+            if (verifiedEntries.size() < entries.size())
+                log.warn("We ignore {} entries as their signature is invalid.", entries.size() - verifiedEntries.size());
+
+            resultHandler.accept(verifiedEntries);
+        });
+    }
+
     public boolean addProtectedStorageEntry(ProtectedStorageEntry protectedStorageEntry, @Nullable NodeAddress sender,
                                             @Nullable BroadcastHandler.Listener listener, boolean isDataOwner) {
         return addProtectedStorageEntry(protectedStorageEntry, sender, listener, isDataOwner, true);
@@ -397,7 +463,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
             if (!containsKey || hasSequenceNrIncreased) {
                 // At startup we don't have the item so we store it. At updates of the seq nr we store as well.
-                map.put(hashOfPayload, protectedStorageEntry);
+                putEntry(hashOfPayload, protectedStorageEntry);
                 hashMapChangedListeners.forEach(e -> e.onAdded(protectedStorageEntry));
                 // printData("after add");
             } else {
@@ -406,8 +472,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
             if (hasSequenceNrIncreased) {
                 sequenceNumberMap.put(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
-                // We set the delay higher as we might receive a batch of items
-                sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 2000);
+                sequenceNumberMapStorage.appendToJournal(sequenceNumberMap.getJournalEntry(hashOfPayload));
 
                 if (allowBroadcast)
                     broadcastProtectedStorageEntry(protectedStorageEntry, sender, listener, isDataOwner);
@@ -455,11 +520,12 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
                         checkSignature(ownerPubKey, hashOfDataAndSeqNr, signature)) {
                     log.debug("refreshDate called for storedData:\n\t" + StringUtils.abbreviate(storedData.toString(), 100));
                     storedData.refreshTTL();
+                    protectedStorageEntryIndex.onPut(hashOfPayload, storedData);
                     storedData.updateSequenceNumber(sequenceNumber);
                     storedData.updateSignature(signature);
                     printData("after refreshTTL");
                     sequenceNumberMap.put(hashOfPayload, new MapValue(sequenceNumber, System.currentTimeMillis()));
-                    sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 1000);
+                    sequenceNumberMapStorage.appendToJournal(sequenceNumberMap.getJournalEntry(hashOfPayload));
 
                     broadcast(refreshTTLMessage, sender, null, isDataOwner);
                     return true;
@@ -492,7 +558,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             doRemoveProtectedExpirableData(protectedStorageEntry, hashOfPayload);
             printData("after remove");
             sequenceNumberMap.put(hashOfPayload, new MapValue(protectedStorageEntry.getSequenceNumber(), System.currentTimeMillis()));
-            sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 300);
+            sequenceNumberMapStorage.appendToJournal(sequenceNumberMap.getJournalEntry(hashOfPayload));
 
             maybeAddToRemoveAddOncePayloads(protectedStoragePayload, hashOfPayload);
 
@@ -542,7 +608,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
             doRemoveProtectedExpirableData(protectedMailboxStorageEntry, hashOfPayload);
             printData("after removeMailboxData");
             sequenceNumberMap.put(hashOfPayload, new MapValue(sequenceNumber, System.currentTimeMillis()));
-            sequenceNumberMapStorage.queueUpForSave(SequenceNumberMap.clone(sequenceNumberMap), 300);
+            sequenceNumberMapStorage.appendToJournal(sequenceNumberMap.getJournalEntry(hashOfPayload));
 
             maybeAddToRemoveAddOncePayloads(protectedStoragePayload, hashOfPayload);
 
@@ -639,8 +705,19 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     // Private
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    private void putEntry(ByteArray hashOfPayload, ProtectedStorageEntry protectedStorageEntry) {
+        map.put(hashOfPayload, protectedStorageEntry);
+        protectedStorageEntryIndex.onPut(hashOfPayload, protectedStorageEntry);
+    }
+
+    private void removeEntry(ByteArray hashOfPayload) {
+        ProtectedStorageEntry removed = map.remove(hashOfPayload);
+        if (removed != null)
+            protectedStorageEntryIndex.onRemoved(hashOfPayload, removed);
+    }
+
     private void doRemoveProtectedExpirableData(ProtectedStorageEntry protectedStorageEntry, ByteArray hashOfPayload) {
-        map.remove(hashOfPayload);
+        removeEntry(hashOfPayload);
         log.trace("Data removed from our map. We broadcast the message to our peers.");
         hashMapChangedListeners.forEach(e -> e.onRemoved(protectedStorageEntry));
     }
@@ -694,7 +771,7 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
 
     private boolean checkSignature(PublicKey ownerPubKey, byte[] hashOfDataAndSeqNr, byte[] signature) {
         try {
-            boolean result = Sig.verify(ownerPubKey, hashOfDataAndSeqNr, signature);
+            boolean result = signatureVerifier.verify(ownerPubKey, hashOfDataAndSeqNr, signature);
             if (!result)
                 log.warn("Signature verification failed at checkSignature. " +
                         "That should not happen.");
@@ -711,6 +788,38 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
         return checkSignature(protectedStorageEntry.getOwnerPubKey(), hashOfDataAndSeqNr, protectedStorageEntry.getSignature());
     }
 
+    // Called from the signature verification threads. Returns true for messages without a signature we can check in
+    // advance, they are checked completely when we apply them.
+    private boolean checkSignature(BroadcastMessage broadcastMessage) {
+        if (broadcastMessage instanceof AddDataMessage) {
+            return checkSignature(((AddDataMessage) broadcastMessage).getProtectedStorageEntry());
+        } else if (broadcastMessage instanceof RemoveDataMessage) {
+            return checkSignature(((RemoveDataMessage) broadcastMessage).getProtectedStorageEntry());
+        } else if (broadcastMessage instanceof RemoveMailboxDataMessage) {
+            return checkSignature(((RemoveMailboxDataMessage) broadcastMessage).getProtectedMailboxStorageEntry());
+        } else if (broadcastMessage instanceof RefreshOfferMessage) {
+            RefreshOfferMessage refreshOfferMessage = (RefreshOfferMessage) broadcastMessage;
+            ProtectedStorageEntry storedData = map.get(new ByteArray(refreshOfferMessage.getHashOfPayload()));
+            return storedData == null ||
+                    checkSignature(storedData.getProtectedStoragePayload().getOwnerPubKey(),
+                            refreshOfferMessage.getHashOfDataAndSeqNr(),
+                            refreshOfferMessage.getSignature());
+        } else {
+            return true;
+        }
+    }
+
+    private <T> void verifyAndApply(List<T> items, Predicate<T> signatureCheck, Consumer<List<Boolean>> resultHandler) {
+        ListenableFuture<List<Boolean>> future = signatureVerifier.verify(items, signatureCheck);
+        pendingVerifications.add(new PendingVerification(future, items.size(), resultHandler));
+        future.addListener(() -> UserThread.execute(this::applyPendingVerifications), MoreExecutors.directExecutor());
+    }
+
+    private void applyPendingVerifications() {
+        while (!pendingVerifications.isEmpty() && pendingVerifications.peek().future.isDone())
+            pendingVerifications.poll().apply();
+    }
+
     // Check that the pubkey of the storage entry matches the allowed pubkey for the addition or removal operation
     // in the contained mailbox message, or the pubKey of other kinds of network_messages.
     private boolean checkPublicKeys(ProtectedStorageEntry protectedStorageEntry, boolean isAddOperation) {
@@ -874,6 +983,33 @@ public class P2PDataStorage implements MessageListener, ConnectionListener, Pers
     }
 
 
+    private static final class PendingVerification {
+        private final ListenableFuture<List<Boolean>> future;
+        private final int numItems;
+        private final Consumer<List<Boolean>> resultHandler;
+
+        PendingVerification(ListenableFuture<List<Boolean>> future,
+                            int numItems,
+                            Consumer<List<Boolean>> resultHandler) {
+            this.future = future;
+            this.numItems = numItems;
+            this.resultHandler = resultHandler;
+        }
+
+        void apply() {
+            List<Boolean> results;
+            try {
+                results = Futures.getDone(future);
+            } catch (ExecutionException | CancellationException e) {
+                // We accept all items as their signatures get checked again when we add them
+                log.warn("Signature verification failed with an exception. We verify at adding the data.", e);
+                results = Collections.nCopies(numItems, true);
+            }
+            resultHandler.accept(results);
+        }
+    }
+
+
     /**
      * Used as key object in map for cryptographic hash of stored data as byte[] as primitive data type cannot be
      * used as key
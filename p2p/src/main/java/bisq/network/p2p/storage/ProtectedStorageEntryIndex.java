@@ -0,0 +1,171 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage;
+
+import bisq.network.p2p.NodeAddress;
+import bisq.network.p2p.storage.payload.ExpirablePayload;
+import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+import bisq.network.p2p.storage.payload.ProtectedStoragePayload;
+import bisq.network.p2p.storage.payload.RequiresOwnerIsOnlinePayload;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Indexes of the entries of the P2PDataStorage map, so we do not need to iterate the whole map for removing the
+ * expired entries or the entries of a disconnected owner.
+ * <p>
+ * The expiry queue is ordered by the time at which the entries expire. We do not remove items from the queue if an
+ * entry gets removed, replaced or its TTL gets changed but add a new item at each change instead. When an item is due
+ * we check the current entry of its hash, so outdated items only cost the queue slot until they are due.
+ */
+@Slf4j
+class ProtectedStorageEntryIndex {
+    // If more than half of the queued items are outdated we rebuild the queue
+    private static final int MIN_QUEUE_SIZE_FOR_REBUILD = 1000;
+
+    private final PriorityQueue<ExpiryItem> expiryQueue = new PriorityQueue<>(
+            Comparator.comparingLong(item -> item.expiryTimeStamp));
+    private final Map<NodeAddress, Set<P2PDataStorage.ByteArray>> hashesByOwner = new HashMap<>();
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Has to be called if an entry got added to or replaced in the map or if its creationTimeStamp has changed.
+     */
+    synchronized void onPut(P2PDataStorage.ByteArray hashOfPayload, ProtectedStorageEntry protectedStorageEntry) {
+        ProtectedStoragePayload protectedStoragePayload = protectedStorageEntry.getProtectedStoragePayload();
+        if (!(protectedStoragePayload instanceof ExpirablePayload))
+            return;
+
+        expiryQueue.add(new ExpiryItem(getExpiryTimeStamp(protectedStorageEntry), hashOfPayload));
+
+        if (protectedStoragePayload instanceof RequiresOwnerIsOnlinePayload) {
+            NodeAddress ownerNodeAddress = ((RequiresOwnerIsOnlinePayload) protectedStoragePayload).getOwnerNodeAddress();
+            if (ownerNodeAddress != null)
+                hashesByOwner.computeIfAbsent(ownerNodeAddress, key -> new HashSet<>()).add(hashOfPayload);
+        }
+    }
+
+    synchronized void onRemoved(P2PDataStorage.ByteArray hashOfPayload, ProtectedStorageEntry protectedStorageEntry) {
+        ProtectedStoragePayload protectedStoragePayload = protectedStorageEntry.getProtectedStoragePayload();
+        if (protectedStoragePayload instanceof RequiresOwnerIsOnlinePayload) {
+            NodeAddress ownerNodeAddress = ((RequiresOwnerIsOnlinePayload) protectedStoragePayload).getOwnerNodeAddress();
+            Set<P2PDataStorage.ByteArray> hashes = ownerNodeAddress != null ? hashesByOwner.get(ownerNodeAddress) : null;
+            if (hashes != null) {
+                hashes.remove(hashOfPayload);
+                if (hashes.isEmpty())
+                    hashesByOwner.remove(ownerNodeAddress);
+            }
+        }
+    }
+
+    /**
+     * @return The hashes of the expirable entries which require their owner to be online.
+     */
+    synchronized Set<P2PDataStorage.ByteArray> getHashesByOwner(NodeAddress ownerNodeAddress) {
+        Set<P2PDataStorage.ByteArray> hashes = hashesByOwner.get(ownerNodeAddress);
+        return hashes != null ? new HashSet<>(hashes) : Collections.emptySet();
+    }
+
+    /**
+     * Removes the due items from the queue and returns the hashes of the entries which are expired.
+     *
+     * @param entryLookup Returns the current entry of a hash or null if there is none
+     * @param numEntries  The number of entries in the map
+     */
+    synchronized List<P2PDataStorage.ByteArray> pollExpired(Function<P2PDataStorage.ByteArray, ProtectedStorageEntry> entryLookup,
+                                                            int numEntries) {
+        long now = System.currentTimeMillis();
+        List<P2PDataStorage.ByteArray> result = new ArrayList<>();
+        Set<P2PDataStorage.ByteArray> added = new HashSet<>();
+        while (!expiryQueue.isEmpty() && expiryQueue.peek().expiryTimeStamp < now) {
+            P2PDataStorage.ByteArray hashOfPayload = expiryQueue.poll().hashOfPayload;
+            ProtectedStorageEntry protectedStorageEntry = entryLookup.apply(hashOfPayload);
+            // If the entry was not expired it got refreshed or replaced and has a newer item in the queue
+            if (protectedStorageEntry != null && protectedStorageEntry.isExpired() && added.add(hashOfPayload))
+                result.add(hashOfPayload);
+        }
+
+        if (expiryQueue.size() > MIN_QUEUE_SIZE_FOR_REBUILD && expiryQueue.size() > 2 * numEntries)
+            rebuildExpiryQueue(entryLookup);
+
+        return result;
+    }
+
+
+    @VisibleForTesting
+    synchronized int getExpiryQueueSize() {
+        return expiryQueue.size();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // Removes the items of removed entries and all but the latest item of the others
+    private void rebuildExpiryQueue(Function<P2PDataStorage.ByteArray, ProtectedStorageEntry> entryLookup) {
+        int sizeBefore = expiryQueue.size();
+        Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> entries = new HashMap<>();
+        expiryQueue.forEach(item -> {
+            ProtectedStorageEntry protectedStorageEntry = entryLookup.apply(item.hashOfPayload);
+            if (protectedStorageEntry != null)
+                entries.put(item.hashOfPayload, protectedStorageEntry);
+        });
+        expiryQueue.clear();
+        entries.forEach((hashOfPayload, protectedStorageEntry) ->
+                expiryQueue.add(new ExpiryItem(getExpiryTimeStamp(protectedStorageEntry), hashOfPayload)));
+        log.info("We rebuilt the expiry queue. Size before: {}, size after: {}", sizeBefore, expiryQueue.size());
+    }
+
+    private static long getExpiryTimeStamp(ProtectedStorageEntry protectedStorageEntry) {
+        ProtectedStoragePayload protectedStoragePayload = protectedStorageEntry.getProtectedStoragePayload();
+        return protectedStorageEntry.getCreationTimeStamp() + ((ExpirablePayload) protectedStoragePayload).getTTL();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // ExpiryItem
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private static class ExpiryItem {
+        private final long expiryTimeStamp;
+        private final P2PDataStorage.ByteArray hashOfPayload;
+
+        private ExpiryItem(long expiryTimeStamp, P2PDataStorage.ByteArray hashOfPayload) {
+            this.expiryTimeStamp = expiryTimeStamp;
+            this.hashOfPayload = hashOfPayload;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage;
+
+import bisq.common.crypto.CryptoException;
+import bisq.common.crypto.Hash;
+import bisq.common.crypto.Sig;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.security.PublicKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The DSA signature verification is the most expensive part of adding data to the P2PDataStorage. We verify the
+ * signatures of a GetDataResponse or of a burst of broadcast messages in parallel on a thread pool and remember the
+ * signatures we have verified, so the re-broadcasts of the same data we get from most of our peers do not cost
+ * another verification.
+ */
+@Slf4j
+class SignatureVerifier {
+    // Enough to cover all offers, mailbox messages and other protected data of the network. Each entry costs about
+    // 100 bytes.
+    private static final int MAX_VERIFIED_SIGNATURES = 50_000;
+    // Items verified by one task. Verifying a single signature costs much more than passing a task to the pool, but
+    // there is no point in creating thousands of tasks for a GetDataResponse either.
+    private static final int BATCH_SIZE = 50;
+
+    private final ListeningExecutorService executor;
+    // Hashes of the verified (pubKey, hash, signature) triples. We drop the oldest ones if we exceed the limit.
+    private final Set<P2PDataStorage.ByteArray> verifiedSignatures = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<P2PDataStorage.ByteArray, Boolean> eldest) {
+                    return size() > MAX_VERIFIED_SIGNATURES;
+                }
+            }));
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    SignatureVerifier() {
+        executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("SignatureVerification-%d")
+                        .setDaemon(true)
+                        .build()));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Verifies the signature or returns true without verification if we have verified the same triple before.
+     * Can be called from any thread.
+     */
+    boolean verify(PublicKey publicKey, byte[] hash, byte[] signature) throws CryptoException {
+        P2PDataStorage.ByteArray key = getKey(publicKey, hash, signature);
+        if (verifiedSignatures.contains(key))
+            return true;
+
+        boolean result = Sig.verify(publicKey, hash, signature);
+        if (result)
+            verifiedSignatures.add(key);
+
+        return result;
+    }
+
+    /**
+     * Applies the signatureCheck to the items on the thread pool. The result contains the results of the checks in
+     * the order of the items. The signatureCheck is expected to use {@link #verify(PublicKey, byte[], byte[])}, so
+     * checking the same signature again afterwards is cheap.
+     */
+    <T> ListenableFuture<List<Boolean>> verify(List<T> items, Predicate<T> signatureCheck) {
+        try {
+            List<ListenableFuture<List<Boolean>>> futures = Lists.partition(items, BATCH_SIZE).stream()
+                    .map(batch -> executor.submit(() -> batch.stream()
+                            .map(signatureCheck::test)
+                            .collect(Collectors.toList())))
+                    .collect(Collectors.toList());
+            return Futures.transform(Futures.allAsList(futures), results -> {
+                List<Boolean> result = new ArrayList<>(items.size());
+                results.forEach(result::addAll);
+                return result;
+            }, MoreExecutors.directExecutor());
+        } catch (RejectedExecutionException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    // We prefix each part with its length, otherwise bytes could be moved from the hash to the signature without
+    // changing the key.
+    private static P2PDataStorage.ByteArray getKey(PublicKey publicKey, byte[] hash, byte[] signature) {
+        byte[] publicKeyBytes = publicKey.getEncoded();
+        return new P2PDataStorage.ByteArray(Hash.getSha256Hash(Bytes.concat(
+                Ints.toByteArray(publicKeyBytes.length), publicKeyBytes,
+                Ints.toByteArray(hash.length), hash,
+                Ints.toByteArray(signature.length), signature)));
+    }
+}
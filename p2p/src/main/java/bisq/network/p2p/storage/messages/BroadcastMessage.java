@@ -19,11 +19,55 @@ package bisq.network.p2p.storage.messages;
 
 import bisq.common.proto.network.NetworkEnvelope;
 
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.IOException;
+
 import lombok.EqualsAndHashCode;
 
+import javax.annotation.Nullable;
+
 @EqualsAndHashCode(callSuper = true)
 public abstract class BroadcastMessage extends NetworkEnvelope {
+    // A broadcast message gets sent to many peers, so we build the proto and serialize it only once and write the
+    // same bytes to all connections. Transient fields are not part of equals and hashCode.
+    @Nullable
+    private transient protobuf.NetworkEnvelope cachedProtoNetworkEnvelope;
+    @Nullable
+    private transient byte[] cachedSerializedDelimitedProto;
+
     protected BroadcastMessage(int messageVersion) {
         super(messageVersion);
     }
+
+    /**
+     * The proto gets built at the first call, so the message must not be changed after it got sent.
+     */
+    public synchronized protobuf.NetworkEnvelope getCachedProtoNetworkEnvelope() {
+        if (cachedProtoNetworkEnvelope == null)
+            cachedProtoNetworkEnvelope = toProtoNetworkEnvelope();
+        return cachedProtoNetworkEnvelope;
+    }
+
+    /**
+     * @return The length delimited serialized proto as it gets written to the connections.
+     */
+    public synchronized byte[] getSerializedDelimitedProto() {
+        if (cachedSerializedDelimitedProto == null) {
+            protobuf.NetworkEnvelope proto = getCachedProtoNetworkEnvelope();
+            int size = proto.getSerializedSize();
+            byte[] bytes = new byte[CodedOutputStream.computeUInt32SizeNoTag(size) + size];
+            CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(bytes);
+            try {
+                codedOutputStream.writeUInt32NoTag(size);
+                proto.writeTo(codedOutputStream);
+                codedOutputStream.checkNoSpaceLeft();
+            } catch (IOException e) {
+                // Cannot happen as we write to an array of the exact size
+                throw new RuntimeException(e);
+            }
+            cachedSerializedDelimitedProto = bytes;
+        }
+        return cachedSerializedDelimitedProto;
+    }
 }
@@ -18,19 +18,32 @@
 package bisq.network.p2p.storage.persistence;
 
 import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.payload.CapabilityRequiringPayload;
 import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
 
+import bisq.common.app.Capabilities;
+import bisq.common.app.Version;
 import bisq.common.proto.persistable.PersistableEnvelope;
+import bisq.common.util.Tuple2;
 
 import javax.inject.Inject;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
+
 /**
  * Used for PersistableNetworkPayload data which gets appended to a map storage.
  */
@@ -43,6 +56,19 @@ public class AppendOnlyDataStoreService {
     @SuppressWarnings("deprecation")
     private PersistableNetworkPayloadListService persistableNetworkPayloadListService;
 
+    // Live views on the maps of all services, so we do not need to merge them at each call.
+    // Each payload type is handled by only one service, so the maps of the services do not overlap.
+    private final Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = new MergedMapView<>(() ->
+            services.stream().map(MapStoreService::getMap).collect(Collectors.toList()));
+    private final Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> mapOfLiveData = new MergedMapView<>(() ->
+            services.stream().map(AppendOnlyDataStoreService::getMapOfLiveData).collect(Collectors.toList()));
+
+    // Keys of the CapabilityRequiringPayloads grouped by their required capabilities. Created at first use.
+    private Map<Capabilities, Set<P2PDataStorage.ByteArray>> keysByRequiredCapabilities;
+    // Maps filtered by the capabilities and the historical data version of the peers. Most peers have the same
+    // capabilities and versions so we can reuse them.
+    private final Map<Tuple2<Capabilities, String>, Map<P2PDataStorage.ByteArray, PersistableNetworkPayload>> mapByCapabilitiesAndVersion = new HashMap<>();
+
 
     ///////////////////////////////////////////////////////////////////////////////////////////
     // Constructor
@@ -56,10 +82,12 @@ public class AppendOnlyDataStoreService {
 
     public void addService(MapStoreService<? extends PersistableEnvelope, PersistableNetworkPayload> service) {
         services.add(service);
+        resetCapabilitiesIndex();
     }
 
     public void readFromResources(String postFix) {
         services.forEach(service -> service.readFromResources(postFix));
+        resetCapabilitiesIndex();
 
         // transferDeprecatedDataStructure();
     }
@@ -75,15 +103,128 @@ public class AppendOnlyDataStoreService {
         persistableNetworkPayloadListService.removeFile();
     }
 
+    /**
+     * @return Unmodifiable live view on the data of all services.
+     */
     public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMap() {
-        return services.stream()
-                .flatMap(service -> service.getMap().entrySet().stream())
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        return map;
+    }
+
+    /**
+     * @return Unmodifiable live view on the data of all services which is not part of a historical data store.
+     */
+    public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMapOfLiveData() {
+        return mapOfLiveData;
+    }
+
+    /**
+     * @param capabilities The capabilities of a peer
+     * @param version The version of a peer or null if the peer did not send it. The peer has the historical data
+     *                stores of all versions up to that version.
+     * @return Unmodifiable live view on the data of all services without the historical data the peer has and without
+     * the CapabilityRequiringPayloads which require capabilities not contained in capabilities.
+     */
+    public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMap(Capabilities capabilities,
+                                                                           @Nullable String version) {
+        if (keysByRequiredCapabilities == null)
+            createCapabilitiesIndex();
+
+        // We copy the capabilities as the capabilities of a connection might change.
+        // We use the version tag of the historical data instead of the version to keep the number of entries small.
+        String versionTag = getHistoricalVersionTag(version, Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS);
+        Tuple2<Capabilities, String> key = new Tuple2<>(new Capabilities(capabilities), versionTag);
+        return mapByCapabilitiesAndVersion.computeIfAbsent(key, e -> {
+            Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> mapSinceVersion = getMapSinceVersion(e.second);
+            Set<P2PDataStorage.ByteArray> excludedKeys = new HashSet<>();
+            keysByRequiredCapabilities.forEach((requiredCapabilities, keys) -> {
+                if (!e.first.containsAll(requiredCapabilities))
+                    excludedKeys.addAll(keys);
+            });
+            return excludedKeys.isEmpty() ?
+                    mapSinceVersion :
+                    Maps.filterKeys(mapSinceVersion, hash -> !excludedKeys.contains(hash));
+        });
     }
 
     public void put(P2PDataStorage.ByteArray hashAsByteArray, PersistableNetworkPayload payload) {
         services.stream()
                 .filter(service -> service.canHandle(payload))
                 .forEach(service -> service.putIfAbsent(hashAsByteArray, payload));
+
+        if (keysByRequiredCapabilities != null && payload instanceof CapabilityRequiringPayload) {
+            addToCapabilitiesIndex(hashAsByteArray, payload);
+            // The filtered maps are views, so we only need to recreate them if the excluded keys might have changed
+            mapByCapabilitiesAndVersion.clear();
+        }
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void createCapabilitiesIndex() {
+        keysByRequiredCapabilities = new HashMap<>();
+        map.forEach(this::addToCapabilitiesIndex);
+    }
+
+    private void addToCapabilitiesIndex(P2PDataStorage.ByteArray hash, PersistableNetworkPayload payload) {
+        if (payload instanceof CapabilityRequiringPayload) {
+            Capabilities requiredCapabilities = ((CapabilityRequiringPayload) payload).getRequiredCapabilities();
+            keysByRequiredCapabilities.computeIfAbsent(requiredCapabilities, key -> new HashSet<>()).add(hash);
+        }
+    }
+
+    private void resetCapabilitiesIndex() {
+        keysByRequiredCapabilities = null;
+        mapByCapabilitiesAndVersion.clear();
+    }
+
+    private Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMapSinceVersion(@Nullable String versionTag) {
+        if (versionTag == null)
+            return map;
+
+        // The views of the historical data stores are live. The stores of the other services might get replaced, so
+        // we get their maps at each access.
+        List<Supplier<Map<P2PDataStorage.ByteArray, PersistableNetworkPayload>>> mapSuppliers = new ArrayList<>();
+        services.forEach(service -> {
+            if (service instanceof HistoricalDataStoreService) {
+                Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> mapSinceVersion =
+                        ((HistoricalDataStoreService<?>) service).getMapSinceVersion(versionTag);
+                mapSuppliers.add(() -> mapSinceVersion);
+            } else {
+                mapSuppliers.add(service::getMap);
+            }
+        });
+        return new MergedMapView<>(() -> mapSuppliers.stream()
+                .map(Supplier::get)
+                .collect(Collectors.toList()));
+    }
+
+    // Returns the version of the newest historical data store the peer with that version has
+    @VisibleForTesting
+    @Nullable
+    static String getHistoricalVersionTag(@Nullable String version, List<String> historicalVersionTags) {
+        if (version == null)
+            return null;
+
+        try {
+            String versionTag = null;
+            for (String tag : historicalVersionTags) {
+                if (!Version.isNewVersion(tag, version))
+                    versionTag = tag;
+            }
+            return versionTag;
+        } catch (RuntimeException e) {
+            log.warn("Invalid version {}. We ignore it and send all data.", version);
+            return null;
+        }
+    }
+
+    private static Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMapOfLiveData(
+            MapStoreService<? extends PersistableEnvelope, PersistableNetworkPayload> service) {
+        return service instanceof HistoricalDataStoreService ?
+                ((HistoricalDataStoreService<?>) service).getMapOfLiveData() :
+                service.getMap();
     }
 }
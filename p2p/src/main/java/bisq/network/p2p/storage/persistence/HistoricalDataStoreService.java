@@ -0,0 +1,218 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+
+import bisq.common.app.Version;
+import bisq.common.proto.persistable.PersistenceProtoResolver;
+import bisq.common.storage.Storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.File;
+import java.io.InputStream;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nullable;
+
+/**
+ * Handles append-only data which is split into read-only historical stores and a live store.
+ * <p>
+ * The historical stores are resource files shipped with the releases listed in
+ * Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS. Each contains the data added since the previous listed release. We
+ * read them directly from the resources and never write them.
+ * The live store in our db directory contains only the data which is not in a historical store, so at each new data
+ * item we only need to rewrite that small file.
+ * <p>
+ * A peer which sends its version in the data request has the historical stores up to that version, so we do not need
+ * to send it that data and the peer does not need to send us their keys.
+ */
+@Slf4j
+public abstract class HistoricalDataStoreService<T extends PersistableNetworkPayloadStore> extends MapStoreService<T, PersistableNetworkPayload> {
+    private final PersistenceProtoResolver persistenceProtoResolver;
+    private final List<String> historicalVersionTags;
+    // Historical data by version tag, sorted by version
+    private ImmutableMap<String, Map<P2PDataStorage.ByteArray, PersistableNetworkPayload>> historicalMapsByVersion = ImmutableMap.of();
+    private final Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map;
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Constructor
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    public HistoricalDataStoreService(File storageDir,
+                                      Storage<T> storage,
+                                      PersistenceProtoResolver persistenceProtoResolver) {
+        this(storageDir, storage, persistenceProtoResolver, Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS);
+    }
+
+    @VisibleForTesting
+    HistoricalDataStoreService(File storageDir,
+                               Storage<T> storage,
+                               PersistenceProtoResolver persistenceProtoResolver,
+                               List<String> historicalVersionTags) {
+        super(storageDir, storage);
+        this.persistenceProtoResolver = persistenceProtoResolver;
+        this.historicalVersionTags = historicalVersionTags;
+
+        map = new MergedMapView<>(() -> getMaps(historicalMapsByVersion.values()));
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // API
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return Unmodifiable view on the live data and all historical data.
+     */
+    @Override
+    public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMap() {
+        return map;
+    }
+
+    /**
+     * @return The data which is not part of a historical store.
+     */
+    public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMapOfLiveData() {
+        return Collections.unmodifiableMap(store.getMap());
+    }
+
+    /**
+     * @param version Version of the peer or null if unknown.
+     * @return Unmodifiable view on the live data and the historical data of all versions newer than version. If the
+     * version is invalid we return all data.
+     */
+    public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMapSinceVersion(@Nullable String version) {
+        if (version == null)
+            return map;
+
+        List<String> newerVersionTags;
+        try {
+            newerVersionTags = historicalVersionTags.stream()
+                    .filter(versionTag -> Version.isNewVersion(versionTag, version))
+                    .collect(Collectors.toList());
+        } catch (RuntimeException e) {
+            log.warn("Invalid version {}. We return all data.", version);
+            return map;
+        }
+        // The historical maps get replaced if we read the stores again, so we look them up at each access
+        return new MergedMapView<>(() -> getMaps(newerVersionTags.stream()
+                .map(historicalMapsByVersion::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList())));
+    }
+
+    @Override
+    PersistableNetworkPayload putIfAbsent(P2PDataStorage.ByteArray hash, PersistableNetworkPayload payload) {
+        PersistableNetworkPayload previous = getMap().get(hash);
+        if (previous != null)
+            return previous;
+
+        store.getMap().put(hash, payload);
+        persist();
+        return null;
+    }
+
+    @Override
+    PersistableNetworkPayload remove(P2PDataStorage.ByteArray hash) {
+        // Historical data cannot be removed
+        PersistableNetworkPayload result = store.getMap().remove(hash);
+        persist();
+        return result;
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Protected
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    protected void readFromResources(String postFix) {
+        readHistoricalStores(postFix);
+        super.readFromResources(postFix);
+
+        // The live store might contain data of historical stores which got added in an update, or it is the old
+        // store containing all data. We remove that data so we do not persist it again.
+        Set<P2PDataStorage.ByteArray> historicalKeys = store.getMap().keySet().stream()
+                .filter(hash -> historicalMapsByVersion.values().stream().anyMatch(e -> e.containsKey(hash)))
+                .collect(Collectors.toSet());
+        if (!historicalKeys.isEmpty()) {
+            log.info("We remove {} entries from the live store {} as they are contained in the historical stores",
+                    historicalKeys.size(), getFileName());
+            historicalKeys.forEach(store.getMap()::remove);
+            persist();
+        }
+    }
+
+    @VisibleForTesting
+    @Nullable
+    InputStream getResourceAsStream(String resourceFileName) {
+        return ClassLoader.getSystemClassLoader().getResourceAsStream(resourceFileName);
+    }
+
+
+    ///////////////////////////////////////////////////////////////////////////////////////////
+    // Private
+    ///////////////////////////////////////////////////////////////////////////////////////////
+
+    private void readHistoricalStores(String postFix) {
+        ImmutableMap.Builder<String, Map<P2PDataStorage.ByteArray, PersistableNetworkPayload>> builder = ImmutableMap.builder();
+        historicalVersionTags.forEach(version -> {
+            String resourceFileName = getFileName() + "_" + version + postFix;
+            try (InputStream inputStream = getResourceAsStream(resourceFileName)) {
+                if (inputStream == null) {
+                    log.info("Could not find historical resourceFile {}. That is expected if none is provided for that version.",
+                            resourceFileName);
+                    return;
+                }
+
+                protobuf.PersistableEnvelope proto = protobuf.PersistableEnvelope.parseDelimitedFrom(inputStream);
+                @SuppressWarnings("unchecked")
+                T historicalStore = (T) persistenceProtoResolver.fromProto(proto);
+                builder.put(version, Collections.unmodifiableMap(historicalStore.getMap()));
+                log.info("Read historical resourceFile {} with {} entries", resourceFileName, historicalStore.getMap().size());
+            } catch (Throwable t) {
+                log.error("Could not read historical resourceFile " + resourceFileName, t);
+            }
+        });
+        historicalMapsByVersion = builder.build();
+    }
+
+    // The store gets replaced at readStore, so we must not keep a reference to its map
+    private List<Map<P2PDataStorage.ByteArray, PersistableNetworkPayload>> getMaps(
+            Collection<Map<P2PDataStorage.ByteArray, PersistableNetworkPayload>> historicalMaps) {
+        return ImmutableList.<Map<P2PDataStorage.ByteArray, PersistableNetworkPayload>>builder()
+                .add(store.getMap())
+                .addAll(historicalMaps)
+                .build();
+    }
+}
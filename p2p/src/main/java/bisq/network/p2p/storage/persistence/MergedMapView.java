@@ -0,0 +1,79 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import com.google.common.collect.Iterators;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Unmodifiable live view on several maps, so we do not need to merge them into a new map at each access.
+ * The maps must not contain the same keys. If they do, get returns the value of the first map containing the key,
+ * but size and the iteration count the entry of each map.
+ */
+class MergedMapView<K, V> extends AbstractMap<K, V> {
+    // We get the maps at each access as the underlying maps might get replaced
+    private final Supplier<List<Map<K, V>>> mapsSupplier;
+
+    MergedMapView(Supplier<List<Map<K, V>>> mapsSupplier) {
+        this.mapsSupplier = mapsSupplier;
+    }
+
+    @Override
+    public V get(Object key) {
+        for (Map<K, V> map : mapsSupplier.get()) {
+            V value = map.get(key);
+            if (value != null)
+                return value;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return mapsSupplier.get().stream().anyMatch(map -> map.containsKey(key));
+    }
+
+    @Override
+    public int size() {
+        return mapsSupplier.get().stream().mapToInt(Map::size).sum();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return Iterators.unmodifiableIterator(Iterators.concat(mapsSupplier.get().stream()
+                        .map(map -> map.entrySet().iterator())
+                        .iterator()));
+            }
+
+            @Override
+            public int size() {
+                return MergedMapView.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import bisq.network.p2p.storage.ByteArrayMap;
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+
+import bisq.common.proto.persistable.PersistableEnvelope;
+
+import java.util.Map;
+
+import lombok.Getter;
+
+/**
+ * Base class for the stores of PersistableNetworkPayload items which are used by a HistoricalDataStoreService.
+ */
+public abstract class PersistableNetworkPayloadStore implements PersistableEnvelope {
+    // The stores contain up to a few 100k items, so we use the compact ByteArrayMap
+    @Getter
+    protected Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = new ByteArrayMap<>();
+
+    public boolean containsKey(P2PDataStorage.ByteArray hash) {
+        return map.containsKey(hash);
+    }
+}
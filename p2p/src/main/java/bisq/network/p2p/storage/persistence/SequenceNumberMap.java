@@ -19,7 +19,9 @@ package bisq.network.p2p.storage.persistence;
 
 import bisq.network.p2p.storage.P2PDataStorage;
 
-import bisq.common.proto.persistable.PersistableEnvelope;
+import bisq.common.proto.persistable.JournaledPersistableEnvelope;
+
+import com.google.protobuf.Parser;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -27,17 +29,18 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import lombok.Getter;
-import lombok.Setter;
 
 /**
  * This class was not generalized to HashMapPersistable (like we did with #ListPersistable) because
  * in protobuffer the map construct can't be anything, so the straightforward mapping was not possible.
  * Hence this Persistable class.
+ * <p>
+ * Changes are persisted as journal entries, so we do not need to write the whole map at each change.
  */
-public class SequenceNumberMap implements PersistableEnvelope {
+public class SequenceNumberMap implements JournaledPersistableEnvelope<protobuf.SequenceNumberEntry> {
+    // The map gets written on the FileManager thread while we change it on the user thread, so it must stay concurrent
     @Getter
-    @Setter
-    private Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> map = new ConcurrentHashMap<>();
+    private volatile Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> map = new ConcurrentHashMap<>();
 
     public SequenceNumberMap() {
     }
@@ -68,6 +71,21 @@ public class SequenceNumberMap implements PersistableEnvelope {
                 .build();
     }
 
+    @Override
+    public Parser<protobuf.SequenceNumberEntry> getJournalEntryParser() {
+        return protobuf.SequenceNumberEntry.parser();
+    }
+
+    // An entry without mapValue is a removed entry
+    @Override
+    public void applyJournalEntry(protobuf.SequenceNumberEntry journalEntry) {
+        P2PDataStorage.ByteArray key = P2PDataStorage.ByteArray.fromProto(journalEntry.getBytes());
+        if (journalEntry.hasMapValue())
+            map.put(key, P2PDataStorage.MapValue.fromProto(journalEntry.getMapValue()));
+        else
+            map.remove(key);
+    }
+
     public static SequenceNumberMap fromProto(protobuf.SequenceNumberMap proto) {
         HashMap<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> map = new HashMap<>();
         proto.getSequenceNumberEntriesList().stream()
@@ -80,6 +98,14 @@ public class SequenceNumberMap implements PersistableEnvelope {
     // API
     ///////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * Replaces the content with a concurrent copy of map. We don't clear our map as the FileManager thread might
+     * write it meanwhile.
+     */
+    public void setMap(Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> map) {
+        this.map = new ConcurrentHashMap<>(map);
+    }
+
     // Delegates
     public int size() {
         return map.size();
@@ -96,4 +122,16 @@ public class SequenceNumberMap implements PersistableEnvelope {
     public void put(P2PDataStorage.ByteArray key, P2PDataStorage.MapValue value) {
         map.put(key, value);
     }
+
+    /**
+     * @return The journal entry for the current value of key.
+     */
+    public protobuf.SequenceNumberEntry getJournalEntry(P2PDataStorage.ByteArray key) {
+        protobuf.SequenceNumberEntry.Builder builder = protobuf.SequenceNumberEntry.newBuilder()
+                .setBytes(key.toProtoMessage());
+        P2PDataStorage.MapValue value = map.get(key);
+        if (value != null)
+            builder.setMapValue(value.toProtoMessage());
+        return builder.build();
+    }
 }
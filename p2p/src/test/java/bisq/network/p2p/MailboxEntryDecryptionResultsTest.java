@@ -0,0 +1,105 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+
+import bisq.common.crypto.CryptoException;
+import bisq.common.proto.ProtobufferException;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MailboxEntryDecryptionResultsTest {
+    private final P2PDataStorage.ByteArray hash1 = new P2PDataStorage.ByteArray(new byte[]{1});
+    private final P2PDataStorage.ByteArray hash2 = new P2PDataStorage.ByteArray(new byte[]{2});
+    private final P2PDataStorage.ByteArray hash3 = new P2PDataStorage.ByteArray(new byte[]{3});
+
+    @Test
+    public void testDecryptedEntriesAreRemembered() {
+        MailboxEntryDecryptionResults results = new MailboxEntryDecryptionResults();
+        assertNull(results.getDecrypted(hash1));
+        assertTrue(results.startDecryption(hash1));
+        // Pending already
+        assertFalse(results.startDecryption(hash1));
+
+        DecryptedMessageWithPubKey decryptedMessageWithPubKey = new DecryptedMessageWithPubKey(null, null);
+        assertTrue(results.onDecrypted(hash1, decryptedMessageWithPubKey));
+        assertSame(decryptedMessageWithPubKey, results.getDecrypted(hash1));
+        assertFalse(results.isIgnored(hash1));
+
+        results.onRemoved(hash1);
+        assertNull(results.getDecrypted(hash1));
+        assertTrue(results.startDecryption(hash1));
+    }
+
+    @Test
+    public void testEntryRemovedWhileDecryptionIsPending() {
+        MailboxEntryDecryptionResults results = new MailboxEntryDecryptionResults();
+        assertTrue(results.startDecryption(hash1));
+        results.onRemoved(hash1);
+
+        // The result of the removed entry is not kept
+        assertFalse(results.onDecrypted(hash1, new DecryptedMessageWithPubKey(null, null)));
+        assertNull(results.getDecrypted(hash1));
+
+        // If the entry gets added again we decrypt it again
+        assertTrue(results.startDecryption(hash1));
+        assertTrue(results.onDecrypted(hash1, new DecryptedMessageWithPubKey(null, null)));
+    }
+
+    @Test
+    public void testOnlyEntriesNotForUsArePersisted() {
+        MailboxEntryDecryptionResults results = new MailboxEntryDecryptionResults();
+        results.startDecryption(hash1);
+        results.startDecryption(hash2);
+        results.startDecryption(hash3);
+
+        assertTrue(results.onDecryptionFailed(hash1, new CryptoException("not for us")));
+        assertFalse(results.onDecryptionFailed(hash2, new ProtobufferException("unknown message")));
+        assertFalse(results.onDecryptionFailed(hash3, new RuntimeException()));
+
+        assertTrue(results.isIgnored(hash1));
+        assertTrue(results.getIgnoredMailboxEntries().getHashes().contains(hash1));
+        // Not parsable entries are ignored until the next start only
+        assertTrue(results.isIgnored(hash2));
+        assertFalse(results.getIgnoredMailboxEntries().getHashes().contains(hash2));
+        // Other failures get retried
+        assertFalse(results.isIgnored(hash3));
+        assertTrue(results.startDecryption(hash3));
+    }
+
+    @Test
+    public void testRetainIgnoredEntries() {
+        MailboxEntryDecryptionResults results = new MailboxEntryDecryptionResults();
+        results.onDecryptionFailed(hash1, new CryptoException("not for us"));
+        results.onDecryptionFailed(hash2, new CryptoException("not for us"));
+
+        assertFalse(results.retainIgnoredEntries(Arrays.asList(hash1, hash2, hash3)));
+        assertTrue(results.retainIgnoredEntries(Collections.singletonList(hash2)));
+        assertFalse(results.isIgnored(hash1));
+        assertTrue(results.isIgnored(hash2));
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.network;
+
+import com.google.protobuf.CodedOutputStream;
+
+import java.nio.channels.ServerSocketChannel;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NioChannelTest {
+    private static final long TIMEOUT_MS = 5000;
+
+    private NioSelectorPool selectorPool;
+    private ServerSocketChannel serverSocketChannel;
+    private Socket peer;
+    private NioChannel nioChannel;
+    private BlockingQueue<protobuf.NetworkEnvelope> receivedProtos;
+    private BlockingQueue<Throwable> exceptions;
+    private CountDownLatch endOfStreamLatch;
+
+    @Before
+    public void setup() throws IOException {
+        selectorPool = new NioSelectorPool("NioChannelTest");
+        serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.bind(new InetSocketAddress("localhost", 0));
+        // The peer uses a blocking socket, so we control how the data arrives
+        peer = new Socket("localhost", serverSocketChannel.socket().getLocalPort());
+        peer.setTcpNoDelay(true);
+        nioChannel = new NioChannel(serverSocketChannel.accept(), selectorPool);
+
+        receivedProtos = new LinkedBlockingQueue<>();
+        exceptions = new LinkedBlockingQueue<>();
+        endOfStreamLatch = new CountDownLatch(1);
+        nioChannel.start(receivedProtos::add, endOfStreamLatch::countDown, exceptions::add);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        peer.close();
+        nioChannel.socket().close();
+        serverSocketChannel.close();
+        selectorPool.shutDown();
+    }
+
+    @Test
+    public void testSeveralFramesInOneRead() throws Exception {
+        writeToChannel(concat(getFrame(createPing(1)), getFrame(createPing(2)), getFrame(createPing(3))));
+
+        for (int nonce = 1; nonce <= 3; nonce++)
+            assertEquals(nonce, pollProto().getPing().getNonce());
+        assertNull(exceptions.poll());
+    }
+
+    @Test
+    public void testPartialFrames() throws Exception {
+        byte[] ping = getFrame(createPing(1));
+        // The size prefix of the large frame has 3 bytes
+        byte[] large = getFrame(createCloseConnectionMessage(100_000));
+        byte[] bytes = concat(ping, large);
+
+        // The first write ends in the middle of the size prefix of the second frame
+        writeToChannel(Arrays.copyOfRange(bytes, 0, ping.length + 1));
+        assertEquals(1, pollProto().getPing().getNonce());
+        Thread.sleep(100);
+        writeToChannel(Arrays.copyOfRange(bytes, ping.length + 1, ping.length + 2));
+        Thread.sleep(100);
+        // The frame is larger than the read buffer, so it gets received in several reads and its buffer grows
+        writeToChannel(Arrays.copyOfRange(bytes, ping.length + 2, ping.length + 80_000));
+        Thread.sleep(100);
+        assertNull(receivedProtos.poll());
+        writeToChannel(Arrays.copyOfRange(bytes, ping.length + 80_000, bytes.length));
+
+        assertEquals(100_000, pollProto().getCloseConnectionMessage().getReason().length());
+        assertNull(exceptions.poll());
+    }
+
+    @Test
+    public void testOversizedFrameSize() throws Exception {
+        writeToChannel(getVarint(NioChannel.MAX_FRAME_SIZE + 1));
+
+        assertTrue(pollException() instanceof StreamCorruptedException);
+        assertNull(receivedProtos.poll());
+    }
+
+    @Test
+    public void testNegativeFrameSize() throws Exception {
+        writeToChannel(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x0F});
+
+        assertTrue(pollException() instanceof StreamCorruptedException);
+    }
+
+    @Test
+    public void testMalformedFrameSize() throws Exception {
+        // A varint32 has at most 5 bytes
+        writeToChannel(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x01});
+
+        assertTrue(pollException() instanceof StreamCorruptedException);
+        assertNull(receivedProtos.poll());
+    }
+
+    @Test
+    public void testMalformedFrame() throws Exception {
+        writeToChannel(new byte[]{3, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF});
+
+        assertNotNull(pollException());
+        assertNull(receivedProtos.poll());
+    }
+
+    @Test
+    public void testEndOfStream() throws Exception {
+        peer.close();
+
+        assertTrue(endOfStreamLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        OutputStream outputStream = nioChannel.getOutputStream();
+        createPing(1).writeDelimitedTo(outputStream);
+        createCloseConnectionMessage(100_000).writeDelimitedTo(outputStream);
+        outputStream.flush();
+
+        peer.setSoTimeout((int) TIMEOUT_MS);
+        assertEquals(1, protobuf.NetworkEnvelope.parseDelimitedFrom(peer.getInputStream()).getPing().getNonce());
+        assertEquals(100_000, protobuf.NetworkEnvelope.parseDelimitedFrom(peer.getInputStream())
+                .getCloseConnectionMessage().getReason().length());
+    }
+
+    @Test
+    public void testWriteQueueLimit() {
+        // The peer does not read, so once the socket buffers are full the data gets queued
+        OutputStream outputStream = nioChannel.getOutputStream();
+        byte[] data = new byte[1024 * 1024];
+        IOException exception = null;
+        for (int i = 0; i < 200 && exception == null; i++) {
+            try {
+                outputStream.write(data);
+                outputStream.flush();
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+
+        assertNotNull(exception);
+        assertTrue(exception.getMessage().contains("exceeds the limit"));
+    }
+
+    @Test
+    public void testFailingChannelDoesNotStopSelectorLoop() throws Exception {
+        // A channel of the same selector thread which fails with its handlers
+        Socket failingPeer = null;
+        NioChannel failingChannel = null;
+        try {
+            for (int i = 0; i < 10; i++) {
+                failingPeer = new Socket("localhost", serverSocketChannel.socket().getLocalPort());
+                failingChannel = new NioChannel(serverSocketChannel.accept(), selectorPool);
+                failingChannel.start(proto -> {
+                    throw new RuntimeException("Failing proto handler");
+                }, () -> {
+                }, throwable -> {
+                    throw new RuntimeException("Failing exception handler");
+                });
+                if (failingChannel.getSelectorLoop() == nioChannel.getSelectorLoop())
+                    break;
+
+                failingPeer.close();
+                failingChannel.socket().close();
+            }
+            assertTrue(failingChannel.getSelectorLoop() == nioChannel.getSelectorLoop());
+
+            failingPeer.getOutputStream().write(getFrame(createPing(1)));
+            Thread.sleep(100);
+            writeToChannel(getFrame(createPing(2)));
+
+            assertEquals(2, pollProto().getPing().getNonce());
+            assertNull(exceptions.poll());
+        } finally {
+            if (failingPeer != null)
+                failingPeer.close();
+            if (failingChannel != null)
+                failingChannel.socket().close();
+        }
+    }
+
+    private void writeToChannel(byte[] bytes) throws IOException {
+        peer.getOutputStream().write(bytes);
+        peer.getOutputStream().flush();
+    }
+
+    private protobuf.NetworkEnvelope pollProto() throws InterruptedException {
+        protobuf.NetworkEnvelope proto = receivedProtos.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(proto);
+        return proto;
+    }
+
+    private Throwable pollException() throws InterruptedException {
+        Throwable throwable = exceptions.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(throwable);
+        return throwable;
+    }
+
+    private static protobuf.NetworkEnvelope createPing(int nonce) {
+        return protobuf.NetworkEnvelope.newBuilder()
+                .setPing(protobuf.Ping.newBuilder().setNonce(nonce))
+                .build();
+    }
+
+    private static protobuf.NetworkEnvelope createCloseConnectionMessage(int reasonLength) {
+        char[] reason = new char[reasonLength];
+        Arrays.fill(reason, 'x');
+        return protobuf.NetworkEnvelope.newBuilder()
+                .setCloseConnectionMessage(protobuf.CloseConnectionMessage.newBuilder().setReason(new String(reason)))
+                .build();
+    }
+
+    private static byte[] getFrame(protobuf.NetworkEnvelope proto) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        proto.writeDelimitedTo(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] getVarint(int value) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CodedOutputStream codedOutputStream = CodedOutputStream.newInstance(outputStream);
+        codedOutputStream.writeUInt32NoTag(value);
+        codedOutputStream.flush();
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... arrays) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (byte[] array : arrays)
+            outputStream.write(array);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.network;
+
+import bisq.network.p2p.CloseConnectionMessage;
+import bisq.network.p2p.peers.keepalive.messages.Ping;
+
+import bisq.common.Payload;
+import bisq.common.proto.ProtobufferException;
+import bisq.common.proto.network.NetworkEnvelope;
+import bisq.common.proto.network.NetworkPayload;
+import bisq.common.proto.network.NetworkProtoResolver;
+import bisq.common.proto.persistable.PersistableEnvelope;
+import bisq.common.util.Tuple2;
+
+import java.net.ServerSocket;
+
+import java.io.IOException;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class NioNetworkNodeTest {
+    private static final long TIMEOUT_MS = 10_000;
+
+    private NioNetworkNode nioNetworkNode;
+    private LocalhostNetworkNode localhostNetworkNode;
+    private BlockingQueue<Tuple2<Ping, Connection>> nioNodeMessages;
+    private BlockingQueue<Tuple2<Ping, Connection>> localhostNodeMessages;
+    private BlockingQueue<CloseConnectionReason> nioNodeDisconnects;
+    private BlockingQueue<CloseConnectionReason> localhostNodeDisconnects;
+
+    @Before
+    public void setup() throws Exception {
+        NioNetworkNode.setSimulateTorDelayTorNode(0);
+        NioNetworkNode.setSimulateTorDelayHiddenService(0);
+        LocalhostNetworkNode.setSimulateTorDelayTorNode(0);
+        LocalhostNetworkNode.setSimulateTorDelayHiddenService(0);
+
+        nioNetworkNode = new NioNetworkNode(getFreePort(), new PingResolver());
+        localhostNetworkNode = new LocalhostNetworkNode(getFreePort(), new PingResolver());
+        nioNodeMessages = new LinkedBlockingQueue<>();
+        localhostNodeMessages = new LinkedBlockingQueue<>();
+        nioNodeDisconnects = new LinkedBlockingQueue<>();
+        localhostNodeDisconnects = new LinkedBlockingQueue<>();
+        addListeners(nioNetworkNode, nioNodeMessages, nioNodeDisconnects);
+        addListeners(localhostNetworkNode, localhostNodeMessages, localhostNodeDisconnects);
+
+        start(nioNetworkNode);
+        start(localhostNetworkNode);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        CountDownLatch shutDownLatch = new CountDownLatch(2);
+        nioNetworkNode.shutDown(shutDownLatch::countDown);
+        localhostNetworkNode.shutDown(shutDownLatch::countDown);
+        shutDownLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testOutboundConnection() throws Exception {
+        testRoundTrip(nioNetworkNode, localhostNetworkNode, localhostNodeMessages, nioNodeMessages,
+                localhostNodeDisconnects);
+    }
+
+    @Test
+    public void testInboundConnection() throws Exception {
+        testRoundTrip(localhostNetworkNode, nioNetworkNode, nioNodeMessages, localhostNodeMessages,
+                nioNodeDisconnects);
+    }
+
+    // The sender connects to the receiver and sends a ping, the receiver answers at the same connection and the
+    // sender closes the connection.
+    private void testRoundTrip(NetworkNode sender,
+                               NetworkNode receiver,
+                               BlockingQueue<Tuple2<Ping, Connection>> receiverMessages,
+                               BlockingQueue<Tuple2<Ping, Connection>> senderMessages,
+                               BlockingQueue<CloseConnectionReason> receiverDisconnects) throws Exception {
+        Connection connection = sender.sendMessage(receiver.getNodeAddress(), new Ping(1, 0))
+                .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        Tuple2<Ping, Connection> ping = receiverMessages.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(ping);
+        assertEquals(1, ping.first.getNonce());
+        receiver.sendMessage(ping.second, new Ping(2, 0)).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        Tuple2<Ping, Connection> answer = senderMessages.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(answer);
+        assertEquals(2, answer.first.getNonce());
+        assertEquals(connection, answer.second);
+
+        connection.shutDown(CloseConnectionReason.APP_SHUT_DOWN);
+        assertEquals(CloseConnectionReason.CLOSE_REQUESTED_BY_PEER,
+                receiverDisconnects.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertTrue(ping.second.isStopped());
+    }
+
+    private static void addListeners(NetworkNode networkNode,
+                                     BlockingQueue<Tuple2<Ping, Connection>> messages,
+                                     BlockingQueue<CloseConnectionReason> disconnects) {
+        networkNode.addMessageListener((networkEnvelope, connection) -> {
+            if (networkEnvelope instanceof Ping)
+                messages.add(new Tuple2<>((Ping) networkEnvelope, connection));
+        });
+        networkNode.addConnectionListener(new ConnectionListener() {
+            @Override
+            public void onConnection(Connection connection) {
+            }
+
+            @Override
+            public void onDisconnect(CloseConnectionReason closeConnectionReason, Connection connection) {
+                disconnects.add(closeConnectionReason);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+        });
+    }
+
+    private static void start(NetworkNode networkNode) throws InterruptedException {
+        CountDownLatch startupLatch = new CountDownLatch(1);
+        networkNode.start(new SetupListener() {
+            @Override
+            public void onTorNodeReady() {
+            }
+
+            @Override
+            public void onHiddenServicePublished() {
+                startupLatch.countDown();
+            }
+
+            @Override
+            public void onSetupFailed(Throwable throwable) {
+            }
+
+            @Override
+            public void onRequestCustomBridges() {
+            }
+        });
+        assertTrue(startupLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private static int getFreePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    private static class PingResolver implements NetworkProtoResolver {
+        @Override
+        public NetworkEnvelope fromProto(protobuf.NetworkEnvelope proto) throws ProtobufferException {
+            switch (proto.getMessageCase()) {
+                case PING:
+                    return Ping.fromProto(proto.getPing(), proto.getMessageVersion());
+                case CLOSE_CONNECTION_MESSAGE:
+                    return CloseConnectionMessage.fromProto(proto.getCloseConnectionMessage(),
+                            proto.getMessageVersion());
+                default:
+                    throw new ProtobufferException("Unknown message case " + proto.getMessageCase());
+            }
+        }
+
+        @Override
+        public NetworkPayload fromProto(protobuf.StoragePayload proto) {
+            return null;
+        }
+
+        @Override
+        public NetworkPayload fromProto(protobuf.StorageEntryWrapper proto) {
+            return null;
+        }
+
+        @Override
+        public Payload fromProto(protobuf.PaymentAccountPayload proto) {
+            return null;
+        }
+
+        @Override
+        public PersistableEnvelope fromProto(protobuf.PersistableNetworkPayload proto) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.peers.getdata;
+
+import bisq.network.p2p.network.Connection;
+import bisq.network.p2p.network.NetworkNode;
+import bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import bisq.network.p2p.peers.getdata.messages.PreliminaryGetDataRequest;
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.mocks.MockPersistableNetworkPayload;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+import bisq.network.p2p.storage.payload.ProtectedStoragePayload;
+
+import bisq.common.app.Capabilities;
+import bisq.common.app.Capability;
+import bisq.common.crypto.Sig;
+import bisq.common.proto.network.NetworkEnvelope;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.security.KeyPair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GetDataRequestHandlerTest {
+    private static final KeyPair KEY_PAIR = Sig.generateKeyPair();
+
+    private NetworkNode networkNode;
+    private P2PDataStorage dataStorage;
+    private Connection connection;
+    private GetDataRequestHandler.Listener listener;
+    private List<SettableFuture<Connection>> sendFutures;
+
+    @Before
+    public void setup() {
+        networkNode = mock(NetworkNode.class);
+        dataStorage = mock(P2PDataStorage.class);
+        connection = mock(Connection.class);
+        listener = mock(GetDataRequestHandler.Listener.class);
+        sendFutures = new ArrayList<>();
+        when(networkNode.sendMessage(eq(connection), any(NetworkEnvelope.class))).thenAnswer(invocation -> {
+            SettableFuture<Connection> future = SettableFuture.create();
+            sendFutures.add(future);
+            return future;
+        });
+    }
+
+    @Test
+    public void testCreateChunk() {
+        List<ProtectedStorageEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            entries.add(createProtectedStorageEntry(i));
+        List<PersistableNetworkPayload> payloads = new ArrayList<>();
+        for (int i = 0; i < 50; i++)
+            payloads.add(new MockPersistableNetworkPayload(new byte[100 + i]));
+        int maxItemSize = payloads.get(payloads.size() - 1).toProtoMessage().getSerializedSize();
+        int maxChunkSize = 1000;
+
+        List<GetDataResponse> chunks = new ArrayList<>();
+        Iterator<ProtectedStorageEntry> dataIterator = entries.iterator();
+        Iterator<PersistableNetworkPayload> payloadIterator = payloads.iterator();
+        GetDataResponse chunk;
+        do {
+            chunk = GetDataRequestHandler.createChunk(dataIterator, payloadIterator, 7, true, maxChunkSize);
+            chunks.add(chunk);
+        } while (chunk.isHasMoreChunks());
+
+        assertTrue(chunks.size() > 2);
+        Set<ProtectedStorageEntry> receivedEntries = new HashSet<>();
+        Set<PersistableNetworkPayload> receivedPayloads = new HashSet<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            GetDataResponse getDataResponse = chunks.get(i);
+            assertEquals(i < chunks.size() - 1, getDataResponse.isHasMoreChunks());
+            assertEquals(7, getDataResponse.getRequestNonce());
+            assertTrue(getDataResponse.isGetUpdatedDataResponse());
+
+            // A chunk exceeds the max. chunk size at most by the last item we added
+            protobuf.GetDataResponse proto = getDataResponse.toProtoNetworkEnvelope().getGetDataResponse();
+            int itemsSize = proto.getDataSetList().stream().mapToInt(e -> e.getSerializedSize()).sum() +
+                    proto.getPersistableNetworkPayloadItemsList().stream().mapToInt(e -> e.getSerializedSize()).sum();
+            assertTrue(itemsSize < maxChunkSize + maxItemSize);
+
+            // The protos we kept at creating the chunk must be the protos of the items of the chunk
+            assertEquals(getDataResponse.getDataSet().size(), proto.getDataSetCount());
+            assertEquals(getDataResponse.getPersistableNetworkPayloadSet().size(),
+                    proto.getPersistableNetworkPayloadItemsCount());
+            GetDataResponse notChunked = new GetDataResponse(getDataResponse.getDataSet(),
+                    getDataResponse.getPersistableNetworkPayloadSet(), 7, true);
+            assertEquals(new HashSet<>(notChunked.toProtoNetworkEnvelope().getGetDataResponse().getDataSetList()),
+                    new HashSet<>(proto.getDataSetList()));
+            assertEquals(new HashSet<>(notChunked.toProtoNetworkEnvelope().getGetDataResponse().getPersistableNetworkPayloadItemsList()),
+                    new HashSet<>(proto.getPersistableNetworkPayloadItemsList()));
+
+            // Each item is sent only once
+            getDataResponse.getDataSet().forEach(e -> assertTrue(receivedEntries.add(e)));
+            getDataResponse.getPersistableNetworkPayloadSet().forEach(e -> assertTrue(receivedPayloads.add(e)));
+        }
+        assertEquals(new HashSet<>(entries), receivedEntries);
+        assertEquals(new HashSet<>(payloads), receivedPayloads);
+    }
+
+    @Test
+    public void testCreateChunkWithoutItems() {
+        GetDataResponse chunk = GetDataRequestHandler.createChunk(new ArrayList<ProtectedStorageEntry>().iterator(),
+                new ArrayList<PersistableNetworkPayload>().iterator(), 7, false, 1000);
+        assertFalse(chunk.isHasMoreChunks());
+        assertTrue(chunk.getDataSet().isEmpty());
+        assertTrue(chunk.getPersistableNetworkPayloadSet().isEmpty());
+    }
+
+    @Test
+    public void testSendNextChunkAfterPreviousGotSent() {
+        when(connection.getCapabilities()).thenReturn(new Capabilities(Capability.CHUNKED_GET_DATA_RESPONSE));
+        // About 3 MB, so we get 3 or 4 chunks of 1 MB
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> payloads = createPayloads(30, 100_000);
+        when(dataStorage.getAppendOnlyDataStoreMap(any(Capabilities.class), anyString())).thenReturn(payloads);
+        GetDataRequestHandler handler = new GetDataRequestHandler(networkNode, dataStorage, listener);
+
+        handler.handle(new PreliminaryGetDataRequest(7, new HashSet<>(), null, "1.2.0"), connection);
+
+        ArgumentCaptor<GetDataResponse> captor = ArgumentCaptor.forClass(GetDataResponse.class);
+        Set<PersistableNetworkPayload> receivedPayloads = new HashSet<>();
+        for (int i = 0; ; i++) {
+            // We only get the next chunk once the previous one got sent
+            verify(networkNode, times(i + 1)).sendMessage(eq(connection), captor.capture());
+            GetDataResponse chunk = captor.getValue();
+            receivedPayloads.addAll(chunk.getPersistableNetworkPayloadSet());
+            verify(listener, never()).onComplete();
+
+            sendFutures.get(i).set(connection);
+            if (!chunk.isHasMoreChunks())
+                break;
+
+            assertTrue(i < 10);
+        }
+
+        assertTrue(sendFutures.size() >= 3);
+        assertEquals(new HashSet<>(payloads.values()), receivedPayloads);
+        verify(listener).onComplete();
+    }
+
+    @Test
+    public void testSendWholeResponseToPeerWithoutCapability() {
+        when(connection.getCapabilities()).thenReturn(new Capabilities());
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> payloads = createPayloads(30, 100_000);
+        when(dataStorage.getAppendOnlyDataStoreMap(any(Capabilities.class), anyString())).thenReturn(payloads);
+        GetDataRequestHandler handler = new GetDataRequestHandler(networkNode, dataStorage, listener);
+
+        handler.handle(new PreliminaryGetDataRequest(7, new HashSet<>(), null, "1.2.0"), connection);
+
+        ArgumentCaptor<GetDataResponse> captor = ArgumentCaptor.forClass(GetDataResponse.class);
+        verify(networkNode).sendMessage(eq(connection), captor.capture());
+        assertFalse(captor.getValue().isHasMoreChunks());
+        assertEquals(new HashSet<>(payloads.values()), captor.getValue().getPersistableNetworkPayloadSet());
+
+        sendFutures.get(0).set(connection);
+        verify(listener).onComplete();
+    }
+
+    @Test
+    public void testExcludePayloadsOfKeyBloomFilter() {
+        when(connection.getCapabilities()).thenReturn(new Capabilities());
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> payloads = createPayloads(30, 100);
+        when(dataStorage.getAppendOnlyDataStoreMap(any(Capabilities.class), anyString())).thenReturn(payloads);
+        List<P2PDataStorage.ByteArray> keys = new ArrayList<>(payloads.keySet());
+        KeyBloomFilter filter = KeyBloomFilter.create(keys.subList(0, 20));
+        GetDataRequestHandler handler = new GetDataRequestHandler(networkNode, dataStorage, listener);
+
+        handler.handle(new PreliminaryGetDataRequest(7, new HashSet<>(), filter, "1.2.0"), connection);
+
+        ArgumentCaptor<GetDataResponse> captor = ArgumentCaptor.forClass(GetDataResponse.class);
+        verify(networkNode).sendMessage(eq(connection), captor.capture());
+        Set<PersistableNetworkPayload> receivedPayloads = captor.getValue().getPersistableNetworkPayloadSet();
+        keys.subList(0, 20).forEach(key -> assertFalse(receivedPayloads.contains(payloads.get(key))));
+        // A false positive of the filter would exclude a payload the requester does not have
+        assertTrue(receivedPayloads.size() <= 10);
+        receivedPayloads.forEach(payload -> assertTrue(keys.subList(20, 30).contains(
+                new P2PDataStorage.ByteArray(payload.getHash()))));
+    }
+
+    @Test
+    public void testExcludeKeysOfRequestWithoutKeyBloomFilter() {
+        when(connection.getCapabilities()).thenReturn(new Capabilities());
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> payloads = createPayloads(30, 100);
+        when(dataStorage.getAppendOnlyDataStoreMap(any(Capabilities.class), anyString())).thenReturn(payloads);
+        List<P2PDataStorage.ByteArray> keys = new ArrayList<>(payloads.keySet());
+        Set<byte[]> excludedKeys = new HashSet<>();
+        keys.subList(0, 20).forEach(key -> excludedKeys.add(key.bytes));
+        GetDataRequestHandler handler = new GetDataRequestHandler(networkNode, dataStorage, listener);
+
+        handler.handle(new PreliminaryGetDataRequest(7, excludedKeys, null, "1.2.0"), connection);
+
+        ArgumentCaptor<GetDataResponse> captor = ArgumentCaptor.forClass(GetDataResponse.class);
+        verify(networkNode).sendMessage(eq(connection), captor.capture());
+        Set<PersistableNetworkPayload> expectedPayloads = new HashSet<>();
+        keys.subList(20, 30).forEach(key -> expectedPayloads.add(payloads.get(key)));
+        assertEquals(expectedPayloads, captor.getValue().getPersistableNetworkPayloadSet());
+    }
+
+    private static Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> createPayloads(int numPayloads, int size) {
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> payloads = new HashMap<>();
+        for (int i = 0; i < numPayloads; i++) {
+            byte[] hash = new byte[size];
+            hash[0] = (byte) i;
+            MockPersistableNetworkPayload payload = new MockPersistableNetworkPayload(hash);
+            payloads.put(payload.getKey(), payload);
+        }
+        return payloads;
+    }
+
+    private static ProtectedStorageEntry createProtectedStorageEntry(int sequenceNumber) {
+        ProtectedStoragePayload protectedStoragePayload = mock(ProtectedStoragePayload.class);
+        when(protectedStoragePayload.toProtoMessage()).thenReturn(protobuf.StoragePayload.getDefaultInstance());
+        return new ProtectedStorageEntry(protectedStoragePayload, KEY_PAIR.getPublic(), sequenceNumber,
+                new byte[]{(byte) sequenceNumber});
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.peers.getdata;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+
+import com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyBloomFilterTest {
+    private final Random random = new Random(1);
+
+    @Test
+    public void testNoFalseNegatives() {
+        List<P2PDataStorage.ByteArray> keys = createKeys(10_000);
+        KeyBloomFilter filter = KeyBloomFilter.create(keys);
+
+        keys.forEach(key -> assertTrue(filter.mightContain(key)));
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        KeyBloomFilter filter = KeyBloomFilter.create(createKeys(10_000));
+
+        // With a false positive probability of 0.0001 we expect about 10 false positives
+        long numFalsePositives = createKeys(100_000).stream().filter(filter::mightContain).count();
+        assertTrue("numFalsePositives=" + numFalsePositives, numFalsePositives < 50);
+    }
+
+    @Test
+    public void testSize() {
+        KeyBloomFilter filter = KeyBloomFilter.create(createKeys(200_000));
+
+        // About 480 kB for 200 000 keys
+        int size = filter.toProtoMessage().getSerializedSize();
+        assertTrue("size=" + size, size > 450_000 && size < 500_000);
+    }
+
+    @Test
+    public void testEmptyFilter() {
+        KeyBloomFilter filter = KeyBloomFilter.create(new ArrayList<>());
+
+        createKeys(1000).forEach(key -> assertFalse(filter.mightContain(key)));
+        assertFalse(KeyBloomFilter.fromProto(filter.toProtoMessage()).mightContain(createKeys(1).get(0)));
+    }
+
+    @Test
+    public void testNewTweakForEachFilter() {
+        List<P2PDataStorage.ByteArray> keys = createKeys(100);
+
+        assertNotEquals(KeyBloomFilter.create(keys).getTweak(), KeyBloomFilter.create(keys).getTweak());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        List<P2PDataStorage.ByteArray> keys = createKeys(10_000);
+        KeyBloomFilter filter = KeyBloomFilter.create(keys);
+
+        KeyBloomFilter decoded = KeyBloomFilter.fromProto(filter.toProtoMessage());
+
+        assertEquals(filter.getTweak(), decoded.getTweak());
+        assertEquals(filter.toProtoMessage(), decoded.toProtoMessage());
+        keys.forEach(key -> assertTrue(decoded.mightContain(key)));
+        // The decoded filter has the same false positives, so it uses the same tweak for hashing
+        createKeys(100_000).forEach(key -> assertEquals(filter.mightContain(key), decoded.mightContain(key)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromProtoWithTruncatedData() {
+        byte[] bytes = getBloomFilterBytes(KeyBloomFilter.create(createKeys(100)));
+
+        KeyBloomFilter.fromProto(createProto(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromProtoWithAdditionalData() {
+        byte[] bytes = getBloomFilterBytes(KeyBloomFilter.create(createKeys(100)));
+
+        KeyBloomFilter.fromProto(createProto(Arrays.copyOf(bytes, bytes.length + 8)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromProtoWithOversizedHeader() {
+        byte[] bytes = getBloomFilterBytes(KeyBloomFilter.create(createKeys(100)));
+        // We must not allocate the 16 GB the header claims
+        ByteBuffer.wrap(bytes, 2, 4).putInt(Integer.MAX_VALUE);
+
+        KeyBloomFilter.fromProto(createProto(bytes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromProtoWithoutHeader() {
+        KeyBloomFilter.fromProto(createProto(new byte[]{0, 1, 0}));
+    }
+
+    private List<P2PDataStorage.ByteArray> createKeys(int numKeys) {
+        List<P2PDataStorage.ByteArray> keys = new ArrayList<>();
+        for (int i = 0; i < numKeys; i++) {
+            // Like the 20 bytes hashes of the PersistableNetworkPayload items
+            byte[] bytes = new byte[20];
+            random.nextBytes(bytes);
+            keys.add(new P2PDataStorage.ByteArray(bytes));
+        }
+        return keys;
+    }
+
+    private static byte[] getBloomFilterBytes(KeyBloomFilter filter) {
+        return filter.toProtoMessage().getBloomFilter().toByteArray();
+    }
+
+    private static protobuf.KeyBloomFilter createProto(byte[] bytes) {
+        return protobuf.KeyBloomFilter.newBuilder()
+                .setTweak(1)
+                .setBloomFilter(ByteString.copyFrom(bytes))
+                .build();
+    }
+}
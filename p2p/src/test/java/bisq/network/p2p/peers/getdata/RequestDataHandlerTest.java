@@ -0,0 +1,214 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.peers.getdata;
+
+import bisq.network.p2p.NodeAddress;
+import bisq.network.p2p.network.Connection;
+import bisq.network.p2p.network.NetworkNode;
+import bisq.network.p2p.peers.PeerManager;
+import bisq.network.p2p.peers.getdata.messages.GetDataRequest;
+import bisq.network.p2p.peers.getdata.messages.GetDataResponse;
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.mocks.MockPersistableNetworkPayload;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+
+import bisq.common.app.Capabilities;
+import bisq.common.app.Capability;
+import bisq.common.proto.network.NetworkEnvelope;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RequestDataHandlerTest {
+    private final NodeAddress peersNodeAddress = new NodeAddress("peer.onion", 9999);
+    private final P2PDataStorage.ByteArray appendOnlyDataKey1 = new P2PDataStorage.ByteArray(new byte[]{1});
+    private final P2PDataStorage.ByteArray appendOnlyDataKey2 = new P2PDataStorage.ByteArray(new byte[]{2});
+    private final P2PDataStorage.ByteArray protectedDataKey = new P2PDataStorage.ByteArray(new byte[]{3});
+
+    private NetworkNode networkNode;
+    private P2PDataStorage dataStorage;
+    private RequestDataHandler.Listener listener;
+    private Connection connection;
+    private RequestDataHandler handler;
+    private GetDataRequest getDataRequest;
+    private int nonce;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        networkNode = mock(NetworkNode.class);
+        dataStorage = mock(P2PDataStorage.class);
+        listener = mock(RequestDataHandler.Listener.class);
+        connection = mock(Connection.class);
+        when(connection.getPeersNodeAddressOptional()).thenReturn(Optional.of(peersNodeAddress));
+        when(networkNode.sendMessage(any(NodeAddress.class), any(NetworkEnvelope.class)))
+                .thenReturn(SettableFuture.create());
+        // We pass all entries as verified
+        doAnswer(invocation -> {
+            ((Consumer<List<ProtectedStorageEntry>>) invocation.getArgument(1))
+                    .accept(new ArrayList<>((Collection<ProtectedStorageEntry>) invocation.getArgument(0)));
+            return null;
+        }).when(dataStorage).verifySignatures(anyCollection(), any());
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> appendOnlyDataStoreMap = new HashMap<>();
+        appendOnlyDataStoreMap.put(appendOnlyDataKey1, new MockPersistableNetworkPayload(appendOnlyDataKey1.bytes));
+        appendOnlyDataStoreMap.put(appendOnlyDataKey2, new MockPersistableNetworkPayload(appendOnlyDataKey2.bytes));
+        when(dataStorage.getAppendOnlyDataStoreMap()).thenReturn(appendOnlyDataStoreMap);
+        Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> protectedDataStoreMap = new HashMap<>();
+        protectedDataStoreMap.put(protectedDataKey, mock(ProtectedStorageEntry.class));
+        when(dataStorage.getProtectedDataStoreMap()).thenReturn(protectedDataStoreMap);
+
+        // We don't know the capabilities of the peer
+        PeerManager peerManager = mock(PeerManager.class);
+        when(peerManager.findPeersCapabilities(peersNodeAddress)).thenReturn(Optional.empty());
+        handler = new RequestDataHandler(networkNode, dataStorage, peerManager, listener);
+        getDataRequest = sendRequest(handler);
+        nonce = getDataRequest.getNonce();
+    }
+
+    @Test
+    public void testSendKeysIfPeersCapabilitiesAreUnknown() {
+        assertNull(getDataRequest.getExcludedKeysFilter());
+        assertEquals(Set.of(appendOnlyDataKey1, appendOnlyDataKey2, protectedDataKey),
+                P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys()));
+    }
+
+    @Test
+    public void testSendKeysIfPeerDoesNotSupportKeyBloomFilter() {
+        GetDataRequest getDataRequest = sendRequest(createHandler(new Capabilities(Capability.SEED_NODE)));
+
+        assertNull(getDataRequest.getExcludedKeysFilter());
+        assertEquals(Set.of(appendOnlyDataKey1, appendOnlyDataKey2, protectedDataKey),
+                P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys()));
+    }
+
+    @Test
+    public void testSendKeyBloomFilterIfPeerSupportsIt() {
+        GetDataRequest getDataRequest = sendRequest(createHandler(new Capabilities(Capability.KEY_BLOOM_FILTER)));
+
+        // The keys of the ProtectedStorageEntry items are still sent as list
+        assertEquals(Set.of(protectedDataKey),
+                P2PDataStorage.ByteArray.convertBytesSetToByteArraySet(getDataRequest.getExcludedKeys()));
+        KeyBloomFilter filter = getDataRequest.getExcludedKeysFilter();
+        assertNotNull(filter);
+        assertTrue(filter.mightContain(appendOnlyDataKey1));
+        assertTrue(filter.mightContain(appendOnlyDataKey2));
+
+        // The filter survives the serialization of the request
+        protobuf.NetworkEnvelope proto = getDataRequest.toProtoNetworkEnvelope();
+        KeyBloomFilter decoded = KeyBloomFilter.fromProto(proto.getPreliminaryGetDataRequest().getExcludedKeysFilter());
+        assertTrue(decoded.mightContain(appendOnlyDataKey1));
+        assertTrue(decoded.mightContain(appendOnlyDataKey2));
+    }
+
+    @Test
+    public void testApplyChunksAsTheyArrive() {
+        MockPersistableNetworkPayload payload1 = new MockPersistableNetworkPayload(new byte[]{1});
+        MockPersistableNetworkPayload payload2 = new MockPersistableNetworkPayload(new byte[]{2});
+        MockPersistableNetworkPayload payload3 = new MockPersistableNetworkPayload(new byte[]{3});
+
+        handler.onMessage(createChunk(nonce, true, payload1, payload2), connection);
+
+        // The first chunk is applied, but we wait for the next chunk
+        verify(dataStorage).addPersistableNetworkPayload(eq(payload1), eq(peersNodeAddress), anyBoolean(),
+                anyBoolean(), anyBoolean(), anyBoolean());
+        verify(dataStorage).addPersistableNetworkPayload(eq(payload2), eq(peersNodeAddress), anyBoolean(),
+                anyBoolean(), anyBoolean(), anyBoolean());
+        verify(listener, never()).onComplete();
+        verify(networkNode, never()).removeMessageListener(handler);
+
+        handler.onMessage(createChunk(nonce, false, payload3), connection);
+
+        InOrder inOrder = inOrder(dataStorage, listener);
+        inOrder.verify(dataStorage).addPersistableNetworkPayload(eq(payload3), eq(peersNodeAddress), anyBoolean(),
+                anyBoolean(), anyBoolean(), anyBoolean());
+        inOrder.verify(listener).onComplete();
+        verify(networkNode, atLeastOnce()).removeMessageListener(handler);
+
+        // After the last chunk we ignore further responses
+        MockPersistableNetworkPayload payload4 = new MockPersistableNetworkPayload(new byte[]{4});
+        handler.onMessage(createChunk(nonce, false, payload4), connection);
+        verify(dataStorage, never()).addPersistableNetworkPayload(eq(payload4), any(), anyBoolean(),
+                anyBoolean(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    public void testIgnoreChunkWithOtherNonce() {
+        MockPersistableNetworkPayload payload = new MockPersistableNetworkPayload(new byte[]{1});
+
+        handler.onMessage(createChunk(nonce + 1, false, payload), connection);
+
+        verify(dataStorage, never()).addPersistableNetworkPayload(any(), any(), anyBoolean(),
+                anyBoolean(), anyBoolean(), anyBoolean());
+        verify(listener, never()).onComplete();
+    }
+
+    private RequestDataHandler createHandler(Capabilities peersCapabilities) {
+        PeerManager peerManager = mock(PeerManager.class);
+        when(peerManager.findPeersCapabilities(peersNodeAddress)).thenReturn(Optional.of(peersCapabilities));
+        return new RequestDataHandler(networkNode, dataStorage, peerManager, mock(RequestDataHandler.Listener.class));
+    }
+
+    private GetDataRequest sendRequest(RequestDataHandler handler) {
+        handler.requestData(peersNodeAddress, true);
+
+        ArgumentCaptor<GetDataRequest> captor = ArgumentCaptor.forClass(GetDataRequest.class);
+        verify(networkNode, atLeastOnce()).sendMessage(eq(peersNodeAddress), captor.capture());
+        return captor.getValue();
+    }
+
+    private static GetDataResponse createChunk(int nonce,
+                                               boolean hasMoreChunks,
+                                               PersistableNetworkPayload... payloads) {
+        Set<PersistableNetworkPayload> persistableNetworkPayloadSet = new HashSet<>();
+        for (PersistableNetworkPayload payload : payloads)
+            persistableNetworkPayloadSet.add(payload);
+        return new GetDataResponse(new HashSet<>(), persistableNetworkPayloadSet, nonce, false, hasMoreChunks);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ByteArrayMapTest {
+    @Test
+    public void testSameContentAsHashMap() {
+        Random random = new Random(1);
+        Map<P2PDataStorage.ByteArray, Integer> expected = new HashMap<>();
+        ByteArrayMap<Integer> map = new ByteArrayMap<>();
+        for (int i = 0; i < 20000; i++) {
+            // Mostly 20 byte keys, some with other lengths, and many updates and removals of existing keys
+            byte[] bytes = new byte[i % 50 == 0 ? 32 : 20];
+            bytes[0] = (byte) random.nextInt(4);
+            bytes[9] = (byte) random.nextInt(4);
+            bytes[19] = (byte) random.nextInt(256);
+            P2PDataStorage.ByteArray key = new P2PDataStorage.ByteArray(bytes);
+
+            if (random.nextInt(3) == 0)
+                assertEquals(expected.remove(key), map.remove(key));
+            else
+                assertEquals(expected.put(key, i), map.put(key, i));
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        expected.forEach((key, value) -> {
+            assertTrue(map.containsKey(new P2PDataStorage.ByteArray(key.bytes.clone())));
+            assertEquals(value, map.get(key));
+        });
+        assertFalse(map.containsKey(new P2PDataStorage.ByteArray(new byte[]{1, 2, 3})));
+        assertEquals(expected.values().stream().mapToInt(Integer::intValue).sum(),
+                map.values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        ByteArrayMap<Integer> map = new ByteArrayMap<>();
+        for (int i = 0; i < 1000; i++)
+            map.put(getKey(i), i);
+
+        Iterator<Map.Entry<P2PDataStorage.ByteArray, Integer>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<P2PDataStorage.ByteArray, Integer> entry = iterator.next();
+            // The iterator might return the entries we add while iterating
+            if (entry.getValue() >= 1000)
+                continue;
+
+            if (entry.getValue() % 2 == 0)
+                iterator.remove();
+            // Adding data while iterating must not fail
+            map.put(getKey(entry.getValue() + 1000), entry.getValue() + 1000);
+        }
+
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i % 2 == 0 ? null : (Integer) i, map.get(getKey(i)));
+        assertEquals(1500, map.size());
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(getKey(1)));
+    }
+
+    @Test
+    public void testConcurrentPutIfAbsent() throws Exception {
+        ByteArrayMap<Integer> map = new ByteArrayMap<>();
+        int numThreads = 4;
+        int numKeys = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            CountDownLatch startLatch = new CountDownLatch(1);
+            List<Future<Map<P2PDataStorage.ByteArray, Integer>>> futures = new ArrayList<>();
+            for (int thread = 0; thread < numThreads; thread++) {
+                int value = thread;
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    // The keys this thread has added
+                    Map<P2PDataStorage.ByteArray, Integer> added = new HashMap<>();
+                    for (int i = 0; i < numKeys; i++) {
+                        P2PDataStorage.ByteArray key = getKey(i);
+                        if (map.putIfAbsent(key, value) == null)
+                            added.put(key, value);
+                    }
+                    return added;
+                }));
+            }
+            startLatch.countDown();
+
+            // Each key got added by exactly one thread
+            Map<P2PDataStorage.ByteArray, Integer> added = new HashMap<>();
+            for (Future<Map<P2PDataStorage.ByteArray, Integer>> future : futures) {
+                future.get(10, TimeUnit.SECONDS).forEach((key, value) -> assertNull(added.put(key, value)));
+            }
+            assertEquals(numKeys, added.size());
+            assertEquals(added, map);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static P2PDataStorage.ByteArray getKey(int i) {
+        byte[] bytes = new byte[20];
+        bytes[19] = (byte) i;
+        bytes[18] = (byte) (i >> 8);
+        return new P2PDataStorage.ByteArray(bytes);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage;
+
+import bisq.network.p2p.NodeAddress;
+import bisq.network.p2p.storage.payload.ExpirablePayload;
+import bisq.network.p2p.storage.payload.ProtectedStorageEntry;
+import bisq.network.p2p.storage.payload.ProtectedStoragePayload;
+import bisq.network.p2p.storage.payload.RequiresOwnerIsOnlinePayload;
+
+import bisq.common.crypto.Sig;
+
+import java.security.KeyPair;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class ProtectedStorageEntryIndexTest {
+    private static final KeyPair KEY_PAIR = Sig.generateKeyPair();
+    private static final NodeAddress OWNER_A = new NodeAddress("a.onion", 9999);
+    private static final NodeAddress OWNER_B = new NodeAddress("b.onion", 9999);
+
+    private ProtectedStorageEntryIndex index;
+    private Map<P2PDataStorage.ByteArray, ProtectedStorageEntry> map;
+
+    @Before
+    public void setup() {
+        index = new ProtectedStorageEntryIndex();
+        map = new HashMap<>();
+    }
+
+    @Test
+    public void testPollExpiredInExpiryOrder() {
+        long now = System.currentTimeMillis();
+        // Expires 2 sec. ago
+        P2PDataStorage.ByteArray hash1 = put(1, createEntry(now - 3000, 1000, OWNER_A));
+        // Expires 4 sec. ago
+        P2PDataStorage.ByteArray hash2 = put(2, createEntry(now - 5000, 1000, OWNER_A));
+        // Expires in 10 sec.
+        put(3, createEntry(now, 10_000, OWNER_A));
+
+        assertEquals(List.of(hash2, hash1), pollExpired());
+        // The due items got removed from the queue
+        assertTrue(pollExpired().isEmpty());
+        assertEquals(1, index.getExpiryQueueSize());
+    }
+
+    @Test
+    public void testRefreshWithNewerTimestamp() {
+        ProtectedStorageEntry entry = createEntry(System.currentTimeMillis() - 30_000, 10_000, OWNER_A);
+        put(1, entry);
+
+        entry.refreshTTL();
+        index.onPut(getHash(1), entry);
+
+        // The outdated item is due but the entry is not expired anymore
+        assertTrue(pollExpired().isEmpty());
+        assertEquals(1, index.getExpiryQueueSize());
+    }
+
+    @Test
+    public void testBackDate() {
+        // Expires in 4 sec.
+        ProtectedStorageEntry entry = createEntry(System.currentTimeMillis() - 6000, 10_000, OWNER_A);
+        P2PDataStorage.ByteArray hash = put(1, entry);
+        assertTrue(pollExpired().isEmpty());
+
+        // Back dated by 5 sec. it is expired
+        entry.backDate();
+        index.onPut(hash, entry);
+
+        assertEquals(List.of(hash), pollExpired());
+        // The item of the creation date before the back dating is not due yet
+        assertEquals(1, index.getExpiryQueueSize());
+    }
+
+    @Test
+    public void testRemoved() {
+        ProtectedStorageEntry entry = createEntry(System.currentTimeMillis() - 3000, 1000, OWNER_A);
+        P2PDataStorage.ByteArray hash = put(1, entry);
+        put(2, createEntry(System.currentTimeMillis(), 10_000, OWNER_A));
+
+        map.remove(hash);
+        index.onRemoved(hash, entry);
+
+        assertEquals(Set.of(getHash(2)), index.getHashesByOwner(OWNER_A));
+        assertTrue(pollExpired().isEmpty());
+        assertEquals(1, index.getExpiryQueueSize());
+
+        // The owner gets removed with its last entry
+        ProtectedStorageEntry entry2 = map.remove(getHash(2));
+        index.onRemoved(getHash(2), entry2);
+        assertTrue(index.getHashesByOwner(OWNER_A).isEmpty());
+    }
+
+    @Test
+    public void testGetHashesByOwner() {
+        long now = System.currentTimeMillis();
+        put(1, createEntry(now, 10_000, OWNER_A));
+        put(2, createEntry(now, 10_000, OWNER_A));
+        put(3, createEntry(now, 10_000, OWNER_B));
+        put(4, createEntry(now, 10_000, null));
+
+        Set<P2PDataStorage.ByteArray> hashes = index.getHashesByOwner(OWNER_A);
+        assertEquals(Set.of(getHash(1), getHash(2)), hashes);
+        assertEquals(Set.of(getHash(3)), index.getHashesByOwner(OWNER_B));
+        assertTrue(index.getHashesByOwner(new NodeAddress("c.onion", 9999)).isEmpty());
+
+        // The result is a copy
+        hashes.clear();
+        assertEquals(2, index.getHashesByOwner(OWNER_A).size());
+    }
+
+    @Test
+    public void testDisconnectOfOwner() {
+        long now = System.currentTimeMillis();
+        // Expired after being back dated by half of the TTL
+        put(1, createEntry(now - 6000, 10_000, OWNER_A));
+        put(2, createEntry(now, 10_000, OWNER_A));
+        put(3, createEntry(now - 6000, 10_000, OWNER_B));
+
+        // Like P2PDataStorage.onDisconnect we back date the entries of the owner and remove the expired ones
+        for (P2PDataStorage.ByteArray hash : index.getHashesByOwner(OWNER_A)) {
+            ProtectedStorageEntry entry = map.get(hash);
+            entry.backDate();
+            index.onPut(hash, entry);
+            if (entry.isExpired()) {
+                map.remove(hash);
+                index.onRemoved(hash, entry);
+            }
+        }
+
+        assertEquals(Set.of(getHash(2), getHash(3)), map.keySet());
+        assertEquals(Set.of(getHash(2)), index.getHashesByOwner(OWNER_A));
+        assertEquals(Set.of(getHash(3)), index.getHashesByOwner(OWNER_B));
+        // The entry of the other owner did not get back dated
+        assertTrue(pollExpired().isEmpty());
+    }
+
+    @Test
+    public void testNotExpirablePayloadIsNotIndexed() {
+        ProtectedStoragePayload payload = mock(ProtectedStoragePayload.class,
+                withSettings().extraInterfaces(RequiresOwnerIsOnlinePayload.class));
+        when(((RequiresOwnerIsOnlinePayload) payload).getOwnerNodeAddress()).thenReturn(OWNER_A);
+        put(1, new ProtectedStorageEntry(payload, KEY_PAIR.getPublic(), 1, new byte[]{1}));
+
+        assertTrue(index.getHashesByOwner(OWNER_A).isEmpty());
+        assertEquals(0, index.getExpiryQueueSize());
+    }
+
+    @Test
+    public void testRebuildExpiryQueue() {
+        ProtectedStorageEntry entry = createEntry(System.currentTimeMillis(), 10_000, OWNER_A);
+        P2PDataStorage.ByteArray hash = put(1, entry);
+        // Each refresh leaves an outdated item in the queue
+        for (int i = 0; i < 1500; i++)
+            index.onPut(hash, entry);
+        assertEquals(1501, index.getExpiryQueueSize());
+
+        assertTrue(pollExpired().isEmpty());
+
+        assertEquals(1, index.getExpiryQueueSize());
+        assertEquals(Set.of(hash), index.getHashesByOwner(OWNER_A));
+    }
+
+    private P2PDataStorage.ByteArray put(int i, ProtectedStorageEntry entry) {
+        P2PDataStorage.ByteArray hash = getHash(i);
+        map.put(hash, entry);
+        index.onPut(hash, entry);
+        return hash;
+    }
+
+    private List<P2PDataStorage.ByteArray> pollExpired() {
+        return index.pollExpired(map::get, map.size());
+    }
+
+    private static P2PDataStorage.ByteArray getHash(int i) {
+        return new P2PDataStorage.ByteArray(new byte[]{(byte) i});
+    }
+
+    private static ProtectedStorageEntry createEntry(long creationTimeStamp, long ttl, NodeAddress owner) {
+        ProtectedStoragePayload payload = mock(ProtectedStoragePayload.class,
+                withSettings().extraInterfaces(ExpirablePayload.class, RequiresOwnerIsOnlinePayload.class));
+        when(((ExpirablePayload) payload).getTTL()).thenReturn(ttl);
+        when(((RequiresOwnerIsOnlinePayload) payload).getOwnerNodeAddress()).thenReturn(owner);
+        // We need the proto buffer constructor to set the creation date
+        return new ProtectedStorageEntry(creationTimeStamp, payload, Sig.getPublicKeyBytes(KEY_PAIR.getPublic()), 1,
+                new byte[]{1}) {
+        };
+    }
+}
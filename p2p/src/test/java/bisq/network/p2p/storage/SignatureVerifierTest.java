@@ -0,0 +1,82 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage;
+
+import bisq.common.crypto.CryptoException;
+import bisq.common.crypto.Hash;
+import bisq.common.crypto.Sig;
+
+import java.security.KeyPair;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SignatureVerifierTest {
+    private SignatureVerifier signatureVerifier;
+    private KeyPair keyPair;
+
+    @Before
+    public void setup() {
+        signatureVerifier = new SignatureVerifier();
+        keyPair = Sig.generateKeyPair();
+    }
+
+    @After
+    public void tearDown() {
+        signatureVerifier.shutDown();
+    }
+
+    @Test
+    public void testVerify() throws CryptoException {
+        byte[] hash = Hash.getSha256Hash(new byte[]{1});
+        byte[] signature = Sig.sign(keyPair.getPrivate(), hash);
+        assertTrue(signatureVerifier.verify(keyPair.getPublic(), hash, signature));
+        // Served from the verified signatures
+        assertTrue(signatureVerifier.verify(keyPair.getPublic(), hash, signature));
+
+        byte[] otherHash = Hash.getSha256Hash(new byte[]{2});
+        assertFalse(signatureVerifier.verify(keyPair.getPublic(), otherHash, signature));
+        assertFalse(signatureVerifier.verify(Sig.generateKeyPair().getPublic(), hash, signature));
+
+        // Moving a byte from the signature to the hash must not match the verified triple
+        byte[] extendedHash = Arrays.copyOf(hash, hash.length + 1);
+        extendedHash[hash.length] = signature[0];
+        byte[] shortenedSignature = Arrays.copyOfRange(signature, 1, signature.length);
+        try {
+            assertFalse(signatureVerifier.verify(keyPair.getPublic(), extendedHash, shortenedSignature));
+        } catch (CryptoException ignore) {
+            // A malformed signature might be reported by an exception
+        }
+    }
+
+    @Test
+    public void testVerifyItemsInParallel() throws Exception {
+        List<Integer> items = Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        List<Boolean> results = signatureVerifier.verify(items, item -> item % 3 != 0).get(10, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList(false, true, true, false, true, true, false, true, true, false), results);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.mocks;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+
+import com.google.protobuf.ByteString;
+
+import java.util.Arrays;
+
+/**
+ * PersistableNetworkPayload with a given hash. It is serialized as an AccountAgeWitness, so the serialized size grows
+ * with the size of the hash.
+ */
+public final class MockPersistableNetworkPayload implements PersistableNetworkPayload {
+    private final byte[] hash;
+
+    public MockPersistableNetworkPayload(byte[] hash) {
+        this.hash = hash;
+    }
+
+    public P2PDataStorage.ByteArray getKey() {
+        return new P2PDataStorage.ByteArray(hash);
+    }
+
+    @Override
+    public protobuf.PersistableNetworkPayload toProtoMessage() {
+        return protobuf.PersistableNetworkPayload.newBuilder()
+                .setAccountAgeWitness(protobuf.AccountAgeWitness.newBuilder()
+                        .setHash(ByteString.copyFrom(hash)))
+                .build();
+    }
+
+    @Override
+    public byte[] getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean verifyHashSize() {
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MockPersistableNetworkPayload)) return false;
+        return Arrays.equals(hash, ((MockPersistableNetworkPayload) o).hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(hash);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.mocks.MockPersistableNetworkPayload;
+import bisq.network.p2p.storage.payload.CapabilityRequiringPayload;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+
+import bisq.common.app.Capabilities;
+import bisq.common.app.Capability;
+import bisq.common.app.Version;
+import bisq.common.storage.FileUtil;
+import bisq.common.storage.Storage;
+
+import java.nio.file.Files;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class AppendOnlyDataStoreServiceTest {
+    private static final String POST_FIX = "_BTC_MAINNET";
+
+    private final MockPersistableNetworkPayload payloadA = new MockPersistableNetworkPayload(new byte[]{1});
+    private final MockPersistableNetworkPayload payloadB = new MockPersistableNetworkPayload(new byte[]{2});
+    private final MockPersistableNetworkPayload payloadC = new MockPersistableNetworkPayload(new byte[]{3});
+
+    private File storageDir;
+    private AppendOnlyDataStoreService appendOnlyDataStoreService;
+
+    @Before
+    public void setup() throws IOException {
+        storageDir = Files.createTempDirectory("AppendOnlyDataStoreServiceTest").toFile();
+        appendOnlyDataStoreService = new AppendOnlyDataStoreService(null);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(storageDir);
+    }
+
+    @Test
+    public void testGetMap() {
+        appendOnlyDataStoreService.addService(createService("Store1", new TestStore(payloadA)));
+        appendOnlyDataStoreService.addService(createService("Store2", new TestStore(payloadB, payloadC)));
+        appendOnlyDataStoreService.readFromResources(POST_FIX);
+
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = appendOnlyDataStoreService.getMap();
+        assertEquals(getKeys(payloadA, payloadB, payloadC), map.keySet());
+        assertSame(payloadB, map.get(payloadB.getKey()));
+        assertEquals(map, appendOnlyDataStoreService.getMap(new Capabilities(), null));
+        assertEquals(map, appendOnlyDataStoreService.getMap(new Capabilities(), Version.VERSION));
+        // Peers with the same capabilities and versions share the cached map
+        assertSame(appendOnlyDataStoreService.getMap(new Capabilities(Capability.SEED_NODE), Version.VERSION),
+                appendOnlyDataStoreService.getMap(new Capabilities(Capability.SEED_NODE), Version.VERSION));
+    }
+
+    @Test
+    public void testCachedMapsContainDataOfAddedService() {
+        appendOnlyDataStoreService.addService(createService("Store1", new TestStore(payloadA)));
+        appendOnlyDataStoreService.readFromResources(POST_FIX);
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> map = appendOnlyDataStoreService.getMap();
+        assertEquals(getKeys(payloadA), appendOnlyDataStoreService.getMap(new Capabilities(), null).keySet());
+        assertEquals(getKeys(payloadA), appendOnlyDataStoreService.getMap(new Capabilities(), Version.VERSION).keySet());
+
+        // Like the services of the DAO which get added after we have read the stores
+        MapStoreService<TestStore, PersistableNetworkPayload> service2 = createService("Store2", new TestStore(payloadB));
+        service2.readFromResources(POST_FIX);
+        appendOnlyDataStoreService.addService(service2);
+
+        assertEquals(getKeys(payloadA, payloadB), map.keySet());
+        assertEquals(getKeys(payloadA, payloadB), appendOnlyDataStoreService.getMap(new Capabilities(), null).keySet());
+        assertEquals(getKeys(payloadA, payloadB),
+                appendOnlyDataStoreService.getMap(new Capabilities(), Version.VERSION).keySet());
+    }
+
+    @Test
+    public void testCachedMapsContainDataOfReplacedStore() {
+        MapStoreService<TestStore, PersistableNetworkPayload> service = createService("Store1",
+                new TestStore(payloadA), new TestStore(payloadB, payloadC));
+        appendOnlyDataStoreService.addService(service);
+        appendOnlyDataStoreService.readFromResources(POST_FIX);
+        Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> mapForPeer =
+                appendOnlyDataStoreService.getMap(new Capabilities(), Version.VERSION);
+        assertEquals(getKeys(payloadA), mapForPeer.keySet());
+
+        // The service reads its store again, so its map gets replaced
+        service.readFromResources(POST_FIX);
+
+        assertEquals(getKeys(payloadB, payloadC), appendOnlyDataStoreService.getMap().keySet());
+        assertEquals(getKeys(payloadB, payloadC), mapForPeer.keySet());
+        assertEquals(getKeys(payloadB, payloadC),
+                appendOnlyDataStoreService.getMap(new Capabilities(), Version.VERSION).keySet());
+    }
+
+    @Test
+    public void testCachedMapsAreUpdatedAtNewCapabilityRequiringPayload() {
+        appendOnlyDataStoreService.addService(createService("Store1", new TestStore(payloadA)));
+        appendOnlyDataStoreService.readFromResources(POST_FIX);
+        Capabilities capabilities = new Capabilities(Capability.SIGNED_ACCOUNT_AGE_WITNESS);
+        assertEquals(getKeys(payloadA), appendOnlyDataStoreService.getMap(new Capabilities(), null).keySet());
+        assertEquals(getKeys(payloadA), appendOnlyDataStoreService.getMap(capabilities, null).keySet());
+
+        PersistableNetworkPayload payload = mock(PersistableNetworkPayload.class,
+                withSettings().extraInterfaces(CapabilityRequiringPayload.class));
+        when(payload.getHash()).thenReturn(new byte[]{4});
+        when(((CapabilityRequiringPayload) payload).getRequiredCapabilities()).thenReturn(capabilities);
+        P2PDataStorage.ByteArray hash = new P2PDataStorage.ByteArray(payload.getHash());
+        appendOnlyDataStoreService.put(hash, payload);
+        appendOnlyDataStoreService.put(payloadB.getKey(), payloadB);
+
+        // Peers without the required capability don't get the payload
+        assertEquals(getKeys(payloadA, payloadB), appendOnlyDataStoreService.getMap(new Capabilities(), null).keySet());
+        assertEquals(Set.of(payloadA.getKey(), payloadB.getKey(), hash),
+                appendOnlyDataStoreService.getMap(capabilities, null).keySet());
+        assertEquals(Set.of(payloadA.getKey(), payloadB.getKey(), hash),
+                appendOnlyDataStoreService.getMap(capabilities, Version.VERSION).keySet());
+    }
+
+    @SuppressWarnings("unchecked")
+    private MapStoreService<TestStore, PersistableNetworkPayload> createService(String fileName,
+                                                                               TestStore persistedStore,
+                                                                               TestStore... persistedStoresAtNextReads) {
+        Storage<TestStore> storage = mock(Storage.class);
+        when(storage.initAndGetPersistedWithFileName(anyString(), anyLong()))
+                .thenReturn(persistedStore, persistedStoresAtNextReads);
+        return new MapStoreService<TestStore, PersistableNetworkPayload>(storageDir, storage) {
+            @Override
+            public Map<P2PDataStorage.ByteArray, PersistableNetworkPayload> getMap() {
+                return store.getMap();
+            }
+
+            @Override
+            public boolean canHandle(PersistableNetworkPayload payload) {
+                return true;
+            }
+
+            @Override
+            public String getFileName() {
+                return fileName;
+            }
+
+            @Override
+            protected TestStore createStore() {
+                return new TestStore();
+            }
+        };
+    }
+
+    private static Set<P2PDataStorage.ByteArray> getKeys(MockPersistableNetworkPayload... payloads) {
+        return List.of(payloads).stream().map(MockPersistableNetworkPayload::getKey).collect(Collectors.toSet());
+    }
+
+    private static class TestStore extends PersistableNetworkPayloadStore {
+        TestStore(PersistableNetworkPayload... payloads) {
+            for (PersistableNetworkPayload payload : payloads)
+                map.put(new P2PDataStorage.ByteArray(payload.getHash()), payload);
+        }
+
+        @Override
+        public protobuf.PersistableEnvelope toProtoMessage() {
+            return protobuf.PersistableEnvelope.getDefaultInstance();
+        }
+    }
+}
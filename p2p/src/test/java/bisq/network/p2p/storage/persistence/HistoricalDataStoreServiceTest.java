@@ -0,0 +1,269 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+import bisq.network.p2p.storage.mocks.MockPersistableNetworkPayload;
+import bisq.network.p2p.storage.payload.PersistableNetworkPayload;
+
+import bisq.common.app.Capabilities;
+import bisq.common.app.Version;
+import bisq.common.proto.persistable.PersistenceProtoResolver;
+import bisq.common.storage.FileUtil;
+import bisq.common.storage.Storage;
+
+import java.nio.file.Files;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HistoricalDataStoreServiceTest {
+    private static final String POST_FIX = "_BTC_MAINNET";
+
+    private final MockPersistableNetworkPayload payloadA = new MockPersistableNetworkPayload(new byte[]{1});
+    private final MockPersistableNetworkPayload payloadB = new MockPersistableNetworkPayload(new byte[]{2});
+    private final MockPersistableNetworkPayload payloadC = new MockPersistableNetworkPayload(new byte[]{3});
+    private final MockPersistableNetworkPayload payloadD = new MockPersistableNetworkPayload(new byte[]{4});
+    private final MockPersistableNetworkPayload payloadE = new MockPersistableNetworkPayload(new byte[]{5});
+
+    private File storageDir;
+    private Storage<TestStore> storage;
+    private TestStore liveStore;
+    private TestHistoricalDataStoreService service;
+
+    @Before
+    public void setup() throws IOException {
+        storageDir = Files.createTempDirectory("HistoricalDataStoreServiceTest").toFile();
+
+        Map<String, TestStore> historicalStoresByVersion = new LinkedHashMap<>();
+        historicalStoresByVersion.put("1.1.7", new TestStore(payloadA));
+        // A release without historical data
+        historicalStoresByVersion.put("1.1.8", null);
+        historicalStoresByVersion.put("1.1.9", new TestStore(payloadB));
+        historicalStoresByVersion.put("1.2.0", new TestStore(payloadC));
+        // The live store still contains payloadB which got added to the historical store of 1.1.9
+        liveStore = new TestStore(payloadB, payloadD);
+        service = createService(historicalStoresByVersion, liveStore);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtil.deleteDirectory(storageDir);
+    }
+
+    @Test
+    public void testReadHistoricalStores() {
+        assertEquals(getKeys(payloadA, payloadB, payloadC, payloadD), service.getMap().keySet());
+        assertEquals(4, service.getMap().size());
+        assertSame(payloadA, service.getMap().get(payloadA.getKey()));
+
+        // The entry of the historical store got removed from the live store
+        assertEquals(getKeys(payloadD), service.getMapOfLiveData().keySet());
+        assertEquals(getKeys(payloadD), liveStore.getMap().keySet());
+        verify(storage).queueUpForSave(liveStore, 200);
+    }
+
+    @Test
+    public void testGetMapSinceUnknownVersion() {
+        Set<P2PDataStorage.ByteArray> allKeys = getKeys(payloadA, payloadB, payloadC, payloadD);
+        assertEquals(allKeys, service.getMapSinceVersion(null).keySet());
+        // We send all data if we cannot parse the version
+        for (String version : List.of("", "abc", "1.2", "1.2.0.1", "1.2.0-SNAPSHOT"))
+            assertEquals(version, allKeys, service.getMapSinceVersion(version).keySet());
+    }
+
+    @Test
+    public void testGetMapSinceNewerVersion() {
+        for (String version : List.of("1.2.1", "1.3.0", "2.0.0"))
+            assertEquals(version, getKeys(payloadD), service.getMapSinceVersion(version).keySet());
+    }
+
+    @Test
+    public void testGetMapSinceVersionAtBoundaries() {
+        assertEquals(getKeys(payloadA, payloadB, payloadC, payloadD), service.getMapSinceVersion("0.9.0").keySet());
+        assertEquals(getKeys(payloadA, payloadB, payloadC, payloadD), service.getMapSinceVersion("1.1.6").keySet());
+        // A peer has the historical store of its own version
+        assertEquals(getKeys(payloadB, payloadC, payloadD), service.getMapSinceVersion("1.1.7").keySet());
+        assertEquals(getKeys(payloadB, payloadC, payloadD), service.getMapSinceVersion("1.1.8").keySet());
+        assertEquals(getKeys(payloadC, payloadD), service.getMapSinceVersion("1.1.9").keySet());
+        // The parts of the version are compared as numbers
+        assertEquals(getKeys(payloadC, payloadD), service.getMapSinceVersion("1.1.10").keySet());
+        assertEquals(getKeys(payloadD), service.getMapSinceVersion("1.2.0").keySet());
+    }
+
+    @Test
+    public void testHistoricalEntriesAreNotAddedToLiveStore() {
+        // We have the entry already in a historical store
+        assertSame(payloadB, service.putIfAbsent(payloadB.getKey(), new MockPersistableNetworkPayload(new byte[]{2})));
+        assertEquals(getKeys(payloadD), service.getMapOfLiveData().keySet());
+
+        assertNull(service.putIfAbsent(payloadE.getKey(), payloadE));
+        assertEquals(getKeys(payloadD, payloadE), service.getMapOfLiveData().keySet());
+        // The maps are views, so they contain the new entry
+        assertEquals(getKeys(payloadD, payloadE), service.getMapSinceVersion("1.2.0").keySet());
+        assertEquals(5, service.getMap().size());
+
+        // Historical data cannot be removed
+        assertNull(service.remove(payloadA.getKey()));
+        assertEquals(5, service.getMap().size());
+    }
+
+    @Test
+    public void testGetHistoricalVersionTag() {
+        List<String> tags = List.of("1.1.7", "1.1.9", "1.2.0");
+        assertNull(AppendOnlyDataStoreService.getHistoricalVersionTag(null, tags));
+        assertNull(AppendOnlyDataStoreService.getHistoricalVersionTag("1.1.6", tags));
+        assertEquals("1.1.7", AppendOnlyDataStoreService.getHistoricalVersionTag("1.1.7", tags));
+        assertEquals("1.1.7", AppendOnlyDataStoreService.getHistoricalVersionTag("1.1.8", tags));
+        assertEquals("1.1.9", AppendOnlyDataStoreService.getHistoricalVersionTag("1.1.10", tags));
+        assertEquals("1.2.0", AppendOnlyDataStoreService.getHistoricalVersionTag("1.2.0", tags));
+        assertEquals("1.2.0", AppendOnlyDataStoreService.getHistoricalVersionTag("2.0.0", tags));
+        assertNull(AppendOnlyDataStoreService.getHistoricalVersionTag("1.2", tags));
+        assertNull(AppendOnlyDataStoreService.getHistoricalVersionTag("abc", tags));
+    }
+
+    @Test
+    public void testHistoricalDataIsNotSentToPeerWithVersion() {
+        String lastVersionTag = Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS.get(
+                Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS.size() - 1);
+        Map<String, TestStore> historicalStoresByVersion = new LinkedHashMap<>();
+        Version.HISTORICAL_RESOURCE_FILE_VERSION_TAGS.forEach(version -> historicalStoresByVersion.put(version, null));
+        historicalStoresByVersion.put(lastVersionTag, new TestStore(payloadA));
+        @SuppressWarnings("deprecation")
+        AppendOnlyDataStoreService appendOnlyDataStoreService = new AppendOnlyDataStoreService(null);
+        appendOnlyDataStoreService.addService(createService(historicalStoresByVersion, new TestStore(payloadA, payloadD)));
+        appendOnlyDataStoreService.readFromResources(POST_FIX);
+
+        assertEquals(getKeys(payloadD), appendOnlyDataStoreService.getMap(new Capabilities(), lastVersionTag).keySet());
+        assertEquals(getKeys(payloadD), appendOnlyDataStoreService.getMapOfLiveData().keySet());
+        // Peers without version or with an older version get all data
+        assertEquals(getKeys(payloadA, payloadD), appendOnlyDataStoreService.getMap(new Capabilities(), null).keySet());
+        assertEquals(getKeys(payloadA, payloadD), appendOnlyDataStoreService.getMap(new Capabilities(), "0.1.0").keySet());
+
+        appendOnlyDataStoreService.put(payloadE.getKey(), payloadE);
+        assertEquals(getKeys(payloadD, payloadE),
+                appendOnlyDataStoreService.getMap(new Capabilities(), lastVersionTag).keySet());
+    }
+
+    @SuppressWarnings("unchecked")
+    private TestHistoricalDataStoreService createService(Map<String, TestStore> historicalStoresByVersion,
+                                                         TestStore liveStore) {
+        storage = mock(Storage.class);
+        when(storage.initAndGetPersistedWithFileName(anyString(), anyLong())).thenReturn(liveStore);
+        // The historical stores get read in the order of the versions
+        Iterator<TestStore> historicalStores = historicalStoresByVersion.values().stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList())
+                .iterator();
+        PersistenceProtoResolver persistenceProtoResolver = mock(PersistenceProtoResolver.class);
+        when(persistenceProtoResolver.fromProto(any(protobuf.PersistableEnvelope.class)))
+                .thenAnswer(invocation -> historicalStores.next());
+
+        TestHistoricalDataStoreService service = new TestHistoricalDataStoreService(storageDir, storage,
+                persistenceProtoResolver, historicalStoresByVersion);
+        service.readFromResources(POST_FIX);
+        return service;
+    }
+
+    private static Set<P2PDataStorage.ByteArray> getKeys(MockPersistableNetworkPayload... payloads) {
+        return List.of(payloads).stream().map(MockPersistableNetworkPayload::getKey).collect(Collectors.toSet());
+    }
+
+    private static class TestStore extends PersistableNetworkPayloadStore {
+        TestStore(PersistableNetworkPayload... payloads) {
+            for (PersistableNetworkPayload payload : payloads)
+                map.put(new P2PDataStorage.ByteArray(payload.getHash()), payload);
+        }
+
+        @Override
+        public protobuf.PersistableEnvelope toProtoMessage() {
+            return protobuf.PersistableEnvelope.getDefaultInstance();
+        }
+    }
+
+    private static class TestHistoricalDataStoreService extends HistoricalDataStoreService<TestStore> {
+        private final List<String> resourceFileNames = new ArrayList<>();
+
+        TestHistoricalDataStoreService(File storageDir,
+                                       Storage<TestStore> storage,
+                                       PersistenceProtoResolver persistenceProtoResolver,
+                                       Map<String, TestStore> historicalStoresByVersion) {
+            super(storageDir, storage, persistenceProtoResolver, new ArrayList<>(historicalStoresByVersion.keySet()));
+            historicalStoresByVersion.forEach((version, store) -> {
+                if (store != null)
+                    resourceFileNames.add(getFileName() + "_" + version + POST_FIX);
+            });
+        }
+
+        @Override
+        public String getFileName() {
+            return "TestStore";
+        }
+
+        @Override
+        public boolean canHandle(PersistableNetworkPayload payload) {
+            return payload instanceof MockPersistableNetworkPayload;
+        }
+
+        @Override
+        protected TestStore createStore() {
+            return new TestStore();
+        }
+
+        @Override
+        InputStream getResourceAsStream(String resourceFileName) {
+            if (!resourceFileNames.contains(resourceFileName))
+                return null;
+
+            // The content does not matter as the proto resolver returns the historical stores
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try {
+                protobuf.PersistableEnvelope.getDefaultInstance().writeDelimitedTo(outputStream);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return new ByteArrayInputStream(outputStream.toByteArray());
+        }
+    }
+}
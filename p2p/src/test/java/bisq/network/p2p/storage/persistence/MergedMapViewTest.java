@@ -0,0 +1,139 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MergedMapViewTest {
+    private Map<String, Integer> map1;
+    private Map<String, Integer> map2;
+    private Map<String, Integer> map3;
+    private MergedMapView<String, Integer> mergedMapView;
+
+    @Before
+    public void setup() {
+        map1 = new LinkedHashMap<>();
+        map1.put("a", 1);
+        map1.put("b", 2);
+        map2 = new LinkedHashMap<>();
+        map3 = new LinkedHashMap<>();
+        map3.put("c", 3);
+        mergedMapView = new MergedMapView<>(() -> List.of(map1, map2, map3));
+    }
+
+    @Test
+    public void testGet() {
+        assertEquals(Integer.valueOf(1), mergedMapView.get("a"));
+        assertEquals(Integer.valueOf(3), mergedMapView.get("c"));
+        assertNull(mergedMapView.get("d"));
+        assertTrue(mergedMapView.containsKey("c"));
+        assertFalse(mergedMapView.containsKey("d"));
+        assertTrue(mergedMapView.containsValue(2));
+    }
+
+    @Test
+    public void testGetReturnsValueOfFirstMap() {
+        map2.put("a", 10);
+        map2.put("c", 30);
+
+        assertEquals(Integer.valueOf(1), mergedMapView.get("a"));
+        assertEquals(Integer.valueOf(30), mergedMapView.get("c"));
+    }
+
+    @Test
+    public void testSize() {
+        assertEquals(3, mergedMapView.size());
+        assertFalse(mergedMapView.isEmpty());
+        assertEquals(3, mergedMapView.entrySet().size());
+        assertEquals(3, mergedMapView.keySet().size());
+
+        MergedMapView<String, Integer> emptyView = new MergedMapView<>(() -> List.of(new HashMap<>(), new HashMap<>()));
+        assertEquals(0, emptyView.size());
+        assertTrue(emptyView.isEmpty());
+        assertFalse(emptyView.entrySet().iterator().hasNext());
+
+        assertTrue(new MergedMapView<String, Integer>(List::of).isEmpty());
+    }
+
+    @Test
+    public void testIteration() {
+        // We iterate the maps in their order
+        assertEquals(List.of("a", "b", "c"), new ArrayList<>(mergedMapView.keySet()));
+        assertEquals(List.of(1, 2, 3), new ArrayList<>(mergedMapView.values()));
+
+        Map<String, Integer> expected = new HashMap<>(map1);
+        expected.putAll(map3);
+        assertEquals(expected, mergedMapView);
+        assertEquals(mergedMapView, expected);
+        assertEquals(expected.hashCode(), mergedMapView.hashCode());
+    }
+
+    @Test
+    public void testIsLiveView() {
+        map2.put("d", 4);
+        map1.remove("a");
+
+        assertEquals(3, mergedMapView.size());
+        assertEquals(Integer.valueOf(4), mergedMapView.get("d"));
+        assertNull(mergedMapView.get("a"));
+        assertEquals(List.of("b", "d", "c"), new ArrayList<>(mergedMapView.keySet()));
+    }
+
+    @Test
+    public void testGetsMapsAtEachAccess() {
+        AtomicReference<Map<String, Integer>> replaceableMap = new AtomicReference<>(map1);
+        MergedMapView<String, Integer> view = new MergedMapView<>(() -> List.of(replaceableMap.get(), map3));
+        assertEquals(3, view.size());
+
+        // Like a store which got read again
+        Map<String, Integer> newMap = new HashMap<>();
+        newMap.put("e", 5);
+        replaceableMap.set(newMap);
+
+        assertEquals(2, view.size());
+        assertEquals(Integer.valueOf(5), view.get("e"));
+        assertNull(view.get("a"));
+        assertEquals(List.of("e", "c"), new ArrayList<>(view.keySet()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPutIsNotSupported() {
+        mergedMapView.put("d", 4);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRemoveIsNotSupported() {
+        Iterator<String> iterator = mergedMapView.keySet().iterator();
+        iterator.next();
+        iterator.remove();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.network.p2p.storage.persistence;
+
+import bisq.network.p2p.storage.P2PDataStorage;
+
+import bisq.common.proto.persistable.PersistenceProtoResolver;
+import bisq.common.storage.FileManager;
+
+import java.nio.file.Files;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SequenceNumberMapTest {
+    private File dir;
+    private PersistenceProtoResolver persistenceProtoResolver;
+
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("SequenceNumberMapTest").toFile();
+        persistenceProtoResolver = mock(PersistenceProtoResolver.class);
+        when(persistenceProtoResolver.fromProto(any(protobuf.PersistableEnvelope.class)))
+                .thenAnswer(invocation -> SequenceNumberMap.fromProto(
+                        ((protobuf.PersistableEnvelope) invocation.getArgument(0)).getSequenceNumberMap()));
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files)
+                file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testSetMapKeepsMapConcurrent() {
+        SequenceNumberMap sequenceNumberMap = new SequenceNumberMap();
+        Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> purged = new HashMap<>();
+        purged.put(getKey(1), getMapValue(1));
+        sequenceNumberMap.setMap(purged);
+
+        assertTrue(sequenceNumberMap.getMap() instanceof ConcurrentHashMap);
+        assertEquals(purged, sequenceNumberMap.getMap());
+
+        // Later changes of the passed map must not leak into our map
+        purged.put(getKey(2), getMapValue(2));
+        assertEquals(1, sequenceNumberMap.size());
+    }
+
+    @Test
+    public void testAppendToJournalWhileRewritingFile() throws Exception {
+        File storageFile = new File(dir, "SequenceNumberMap");
+        FileManager<SequenceNumberMap> fileManager = new FileManager<>(dir, storageFile, 10, persistenceProtoResolver);
+        SequenceNumberMap sequenceNumberMap = new SequenceNumberMap();
+        fileManager.enableJournal(sequenceNumberMap.getJournalEntryParser());
+
+        // Like the purge at startup we set a plain HashMap
+        Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> purged = new HashMap<>();
+        for (int i = 0; i < 100_000; i++)
+            purged.put(getKey(i), getMapValue(i));
+        sequenceNumberMap.setMap(purged);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> rewrite = executor.submit(() -> fileManager.saveNow(sequenceNumberMap));
+            // We change the map and append the changes to the journal while the whole file gets written
+            for (int i = 100_000; i < 101_000; i++) {
+                P2PDataStorage.ByteArray key = getKey(i);
+                sequenceNumberMap.put(key, getMapValue(i));
+                fileManager.appendToJournal(sequenceNumberMap, sequenceNumberMap.getJournalEntry(key));
+            }
+            rewrite.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        // The journal gets flushed delayed on the FileManager thread
+        Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> persisted = null;
+        for (int i = 0; i < 100; i++) {
+            Thread.sleep(100);
+            persisted = readPersisted(storageFile);
+            if (persisted.equals(sequenceNumberMap.getMap()))
+                break;
+        }
+        assertEquals(101_000, sequenceNumberMap.size());
+        assertEquals(sequenceNumberMap.getMap(), persisted);
+    }
+
+    private Map<P2PDataStorage.ByteArray, P2PDataStorage.MapValue> readPersisted(File storageFile) {
+        FileManager<SequenceNumberMap> fileManager = new FileManager<>(dir, storageFile, 10, persistenceProtoResolver);
+        fileManager.enableJournal(protobuf.SequenceNumberEntry.parser());
+        return fileManager.read(storageFile).getMap();
+    }
+
+    private static P2PDataStorage.ByteArray getKey(int i) {
+        return new P2PDataStorage.ByteArray(new byte[]{(byte) (i >> 24), (byte) (i >> 16), (byte) (i >> 8), (byte) i});
+    }
+
+    private static P2PDataStorage.MapValue getMapValue(int i) {
+        return P2PDataStorage.MapValue.fromProto(protobuf.MapValue.newBuilder()
+                .setSequenceNr(i)
+                .setTimeStamp(System.currentTimeMillis())
+                .build());
+    }
+}